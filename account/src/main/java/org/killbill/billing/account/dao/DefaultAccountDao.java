@@ -230,6 +230,16 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                                                   public Iterator<AccountModelDao> build(final AccountSqlDao accountSqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return accountSqlDao.search(searchQuery.getSearchKeysBindMap(), searchQuery.getSearchAttributes(), searchQuery.getLogicalOperator(), offset, limit, ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<AccountModelDao> buildAfterRecordId(final AccountSqlDao accountSqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      return accountSqlDao.searchAfterRecordId(searchQuery.getSearchKeysBindMap(), searchQuery.getSearchAttributes(), searchQuery.getLogicalOperator(), lastRecordId, limit, ordering.toString(), ordering.getRecordIdComparator(), context);
+                                                  }
+
+                                                  @Override
+                                                  public String getResultSetKey() {
+                                                      return "search:" + searchKey;
+                                                  }
                                               },
                                               offset,
                                               limit,
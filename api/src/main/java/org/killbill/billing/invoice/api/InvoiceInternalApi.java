@@ -39,6 +39,17 @@ public interface InvoiceInternalApi {
 
     Collection<Invoice> getUnpaidInvoicesByAccountId(UUID accountId, LocalDate upToDate, InternalTenantContext context);
 
+    /**
+     * Aggregates of {@link #getUnpaidInvoicesByAccountId}, as needed by overdue: this is served from a per-account summary,
+     * invalidated by the invoice and payment writes, so that the unpaid invoices don't have to be reloaded on each call.
+     *
+     * @param accountId the account id
+     * @param upToDate  only consider invoices with a target date up to that date
+     * @param context   the tenant context
+     * @return the number and balance of unpaid invoices, along with the earliest one
+     */
+    UnpaidInvoicesSummary getUnpaidInvoicesSummary(UUID accountId, LocalDate upToDate, InternalTenantContext context);
+
     void recordPaymentAttemptInit(UUID invoiceId, BigDecimal amountOutstanding, Currency currency, Currency processedCurrency, UUID paymentId, UUID paymentAttemptId, String transactionExternalKey, DateTime paymentDate, InternalCallContext context) throws InvoiceApiException;
 
     void recordPaymentAttemptCompletion(UUID invoiceId, BigDecimal amountOutstanding, Currency currency, Currency processedCurrency, UUID paymentId, UUID paymentAttemptId, String transactionExternalKey, DateTime paymentDate, InvoicePaymentStatus status, InternalCallContext context) throws InvoiceApiException;
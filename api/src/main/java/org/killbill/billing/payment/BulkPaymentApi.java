@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.BillingExceptionBase;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.PaymentMethod;
+import org.killbill.billing.payment.api.PaymentOptions;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.util.callcontext.CallContext;
+
+public interface BulkPaymentApi {
+
+    interface BulkPaymentRequest {
+
+        UUID getAccountId();
+
+        // The default payment method of the account is used if not specified
+        @Nullable
+        UUID getPaymentMethodId();
+
+        BigDecimal getAmount();
+
+        // The currency of the account is used if not specified
+        @Nullable
+        Currency getCurrency();
+
+        @Nullable
+        DateTime getEffectiveDate();
+
+        @Nullable
+        String getPaymentExternalKey();
+
+        @Nullable
+        String getPaymentTransactionExternalKey();
+
+        Iterable<PluginProperty> getProperties();
+    }
+
+    interface BulkPaymentResult {
+
+        BulkPaymentRequest getRequest();
+
+        // Null if the payment couldn't be created
+        @Nullable
+        Payment getPayment();
+
+        // Null on success (the transaction status of the payment still needs to be checked)
+        @Nullable
+        BillingExceptionBase getException();
+    }
+
+    interface BulkPaymentResultHandler {
+
+        void onResult(BulkPaymentResult result);
+    }
+
+    interface BulkPaymentMethodRefreshResult {
+
+        UUID getAccountId();
+
+        // Null if the payment methods couldn't be refreshed
+        @Nullable
+        List<PaymentMethod> getPaymentMethods();
+
+        // Null on success
+        @Nullable
+        BillingExceptionBase getException();
+    }
+
+    interface BulkPaymentMethodRefreshResultHandler {
+
+        void onResult(BulkPaymentMethodRefreshResult result);
+
+        // Invoked every org.killbill.payment.bulk.refreshPaymentMethods.progressInterval accounts and once all accounts have been processed
+        default void onProgress(final long nbAccountsProcessed, final long nbAccountsFailed) {
+        }
+    }
+
+    /**
+     * Create AUTHORIZE or PURCHASE payments (with payment control) for many accounts of the same tenant.
+     * <p>
+     * Requests are consumed lazily, in batches: payments of the same account are processed one after the other, while
+     * payments of different accounts are processed concurrently (up to org.killbill.payment.bulk.threads.nb).
+     * The handler is invoked from the calling thread, as soon as each payment completes (i.e. results of a batch
+     * are not ordered). A failure of a payment doesn't stop the processing of the other ones.
+     *
+     * @param transactionType AUTHORIZE or PURCHASE
+     * @param requests        the payments to create
+     * @param paymentOptions  the payment control options
+     * @param resultHandler   the handler for the individual results
+     * @param callContext     the call context (no account id required)
+     * @throws PaymentApiException if the transaction type isn't supported
+     */
+    void createPayments(TransactionType transactionType,
+                        Iterator<BulkPaymentRequest> requests,
+                        PaymentOptions paymentOptions,
+                        BulkPaymentResultHandler resultHandler,
+                        CallContext callContext) throws PaymentApiException;
+
+    /**
+     * Refresh the payment methods of many accounts of the same tenant (e.g. after payment methods were migrated directly in the gateway).
+     * <p>
+     * Accounts are consumed lazily, in batches, and refreshed concurrently (up to org.killbill.payment.bulk.threads.nb), at most
+     * org.killbill.payment.bulk.refreshPaymentMethods.maxAccountsPerSecond per second. For each account, the plugins are queried
+     * concurrently and only the differences are persisted. The handler is invoked from the calling thread, as soon as each account
+     * completes. A failure for an account doesn't stop the processing of the other ones.
+     *
+     * @param accountIds    the accounts to refresh
+     * @param pluginName    the plugin to refresh the payment methods from, all plugins if null
+     * @param properties    the plugin properties
+     * @param resultHandler the handler for the individual results and the progress
+     * @param callContext   the call context (no account id required)
+     * @throws PaymentApiException if the refresh was interrupted
+     */
+    void refreshPaymentMethods(Iterator<UUID> accountIds,
+                               @Nullable String pluginName,
+                               Iterable<PluginProperty> properties,
+                               BulkPaymentMethodRefreshResultHandler resultHandler,
+                               CallContext callContext) throws PaymentApiException;
+}
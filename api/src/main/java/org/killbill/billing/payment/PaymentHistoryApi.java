@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.util.callcontext.TenantContext;
+
+public interface PaymentHistoryApi {
+
+    /**
+     * Page through the payments of an account, by increasing payment number.
+     * <p>
+     * Each page is read from the pre-joined account payment summaries (one indexed range read) and starts right after the last
+     * payment number of the previous page (keyset paging): pages stay consistent while new payments are created.
+     *
+     * @param accountId          the account id
+     * @param afterPaymentNumber the payment number of the last payment of the previous page, null for the first page
+     * @param limit              the maximum number of payments to return
+     * @param withPluginInfo     whether to fetch the plugin info
+     * @param withAttempts       whether to fetch the payment attempts
+     * @param properties         the plugin properties
+     * @param context            the tenant context
+     * @return the payments, with all their transactions
+     * @throws PaymentApiException if the limit isn't positive
+     */
+    List<Payment> getAccountPayments(UUID accountId,
+                                     @Nullable Long afterPaymentNumber,
+                                     int limit,
+                                     boolean withPluginInfo,
+                                     boolean withAttempts,
+                                     Iterable<PluginProperty> properties,
+                                     TenantContext context) throws PaymentApiException;
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage;
+
+import java.util.List;
+
+/**
+ * Thrown by {@link BulkUsageUserApi} when a record of the stream cannot be read (invalid record, unknown subscription, ...).
+ * <p>
+ * All the records before the failing one have been processed (recorded or skipped) and none after it, so the caller can resume
+ * right after the failing record.
+ */
+public class BulkUsageException extends RuntimeException {
+
+    private final int failedRecordIndex;
+    private final int nbRecordedRecords;
+    private final List<String> skippedTrackingIds;
+
+    public BulkUsageException(final int failedRecordIndex, final int nbRecordedRecords, final List<String> skippedTrackingIds, final RuntimeException cause) {
+        super(String.format("Failed to read usage record %d (%d records recorded)", failedRecordIndex, nbRecordedRecords), cause);
+        this.failedRecordIndex = failedRecordIndex;
+        this.nbRecordedRecords = nbRecordedRecords;
+        this.skippedTrackingIds = skippedTrackingIds;
+    }
+
+    // Zero-based index of the failing record in the stream
+    public int getFailedRecordIndex() {
+        return failedRecordIndex;
+    }
+
+    // Number of records recorded before the failing one (records skipped because of their tracking id are not counted)
+    public int getNbRecordedRecords() {
+        return nbRecordedRecords;
+    }
+
+    // Tracking ids of the records skipped before the failing one
+    public List<String> getSkippedTrackingIds() {
+        return skippedTrackingIds;
+    }
+}
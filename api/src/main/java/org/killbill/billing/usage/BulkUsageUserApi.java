@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.util.callcontext.CallContext;
+
+public interface BulkUsageUserApi {
+
+    /**
+     * Record usage for many subscriptions (possibly across accounts of the same tenant).
+     * <p>
+     * Records are consumed lazily and persisted in batches: each batch is committed independently. Records whose tracking id
+     * was already recorded for that subscription (either previously or earlier in the stream) are skipped.
+     * <p>
+     * If a record cannot be read, the records pulled before it are recorded and a {@link BulkUsageException} reports the index
+     * of the failing record and the number of records recorded: the stream is processed up to, and excluding, that record.
+     *
+     * @param records     the records to ingest
+     * @param callContext the call context (no account id required)
+     * @return the tracking ids of the records which were skipped
+     * @throws BulkUsageException if the iterator fails to provide a record
+     */
+    List<String> recordRolledUpUsage(Iterator<SubscriptionUsageRecord> records, CallContext callContext);
+}
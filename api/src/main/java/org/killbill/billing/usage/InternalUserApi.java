@@ -28,4 +28,7 @@ import org.killbill.billing.usage.api.RawUsageRecord;
 public interface InternalUserApi {
 
     public List<RawUsageRecord> getRawUsageForAccount(DateTime stateDate, DateTime endDate, DryRunInfo dryRunInfo, final Iterable<PluginProperty> pluginProperties, InternalTenantContext tenantContext);
+
+    // Same as getRawUsageForAccount, but the records stored by Kill Bill are summed per subscription, unit type and record date
+    public List<RawUsageRecord> getAggregatedUsageForAccount(DateTime stateDate, DateTime endDate, DryRunInfo dryRunInfo, final Iterable<PluginProperty> pluginProperties, InternalTenantContext tenantContext);
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.TenantContext;
+
+public interface StreamingExportUserApi {
+
+    /**
+     * Export the data of an account as a gzip stream, written as it is read from the database.
+     * <p>
+     * The stream is a concatenation of gzip members, each one containing a section of the CSV export (table header and
+     * rows). Sections of different tables may be interleaved and a large table may be split across several sections.
+     *
+     * @param accountId the account id
+     * @param out       the output stream
+     * @param context   the call context
+     * @throws IOException if the export couldn't be written
+     */
+    void exportCompressedDataForAccount(UUID accountId, OutputStream out, CallContext context) throws IOException;
+
+    /**
+     * Export the data of all the accounts of the tenant as a gzip stream (same format as the account export).
+     * <p>
+     * Tables are exported in alphabetical order and rows in record_id order: an interrupted export can be resumed by
+     * passing the last table and record_id received.
+     *
+     * @param fromTableName the table to resume from, or null to start from the beginning
+     * @param fromRecordId  the last record_id received for that table, or null to export the table entirely
+     * @param out           the output stream
+     * @param context       the tenant context
+     * @throws IOException if the export couldn't be written
+     */
+    void exportCompressedDataForTenant(@Nullable String fromTableName, @Nullable Long fromRecordId, OutputStream out, TenantContext context) throws IOException;
+}
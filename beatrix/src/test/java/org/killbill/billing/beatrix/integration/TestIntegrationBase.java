@@ -1107,6 +1107,8 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
             public Void withHandle(final Handle handle) throws Exception {
                 handle.execute("delete from rolled_up_usage where subscription_id = ? and unit_type = ? and record_date = ?",
                                subscriptionId, unitType, recordedDate);
+                handle.execute("delete from rolled_up_usage_aggregates where subscription_id = ? and unit_type = ? and record_date = ?",
+                               subscriptionId, unitType, recordedDate);
                 return null;
             }
         });
@@ -1258,6 +1260,8 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
         private InArrearMode inArrearMode;
         private Period maxInvoiceLimit;
         private int maxRawUsagePreviousPeriod;
+        private boolean isIncrementalGenerationEnabled;
+        private boolean isUsageAggregatesEnabled;
 
         private AccountTzOffset accountTzOffset;
 
@@ -1336,6 +1340,20 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
             return defaultInvoiceConfig.getMaxInvoiceLimit(tenantContext);
         }
 
+        @Override
+        public boolean isIncrementalGenerationEnabled() {
+            return isIncrementalGenerationEnabled;
+        }
+
+        @Override
+        public boolean isIncrementalGenerationEnabled(final InternalTenantContext tenantContext) {
+            return isIncrementalGenerationEnabled();
+        }
+
+        public void setIncrementalGenerationEnabled(final boolean value) {
+            this.isIncrementalGenerationEnabled = value;
+        }
+
         @Override
         public int getProrationFixedDays() {
             return defaultInvoiceConfig.getProrationFixedDays();
@@ -1364,11 +1382,50 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
             this.maxRawUsagePreviousPeriod = maxRawUsagePreviousPeriod;
         }
 
+        @Override
+        public boolean isUsageAggregatesEnabled() {
+            return isUsageAggregatesEnabled;
+        }
+
+        @Override
+        public boolean isUsageAggregatesEnabled(final InternalTenantContext tenantContext) {
+            return isUsageAggregatesEnabled();
+        }
+
+        public void setUsageAggregatesEnabled(final boolean value) {
+            this.isUsageAggregatesEnabled = value;
+        }
+
         @Override
         public int getMaxGlobalLockRetries() {
             return defaultInvoiceConfig.getMaxGlobalLockRetries();
         }
 
+        @Override
+        public boolean isBulkInvoiceRunEnabled() {
+            return defaultInvoiceConfig.isBulkInvoiceRunEnabled();
+        }
+
+        @Override
+        public TimeSpan getBulkInvoiceRunInterval() {
+            return defaultInvoiceConfig.getBulkInvoiceRunInterval();
+        }
+
+        @Override
+        public int getBulkInvoiceRunParallelism() {
+            return defaultInvoiceConfig.getBulkInvoiceRunParallelism();
+        }
+
+        @Override
+        public int getBulkInvoiceRunBatchSize() {
+            return defaultInvoiceConfig.getBulkInvoiceRunBatchSize();
+        }
+
+        @Override
+        public boolean isFlatItemTreeEnabled() {
+            return defaultInvoiceConfig.isFlatItemTreeEnabled();
+        }
+
         @Override
         public List<String> getInvoicePluginNames() {
             return defaultInvoiceConfig.getInvoicePluginNames();
@@ -1487,6 +1544,8 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
             maxInvoiceLimit = defaultInvoiceConfig.getMaxInvoiceLimit();
             maxRawUsagePreviousPeriod = defaultInvoiceConfig.getMaxRawUsagePreviousPeriod();
             accountTzOffset = defaultInvoiceConfig.getAccountTzOffsetMode();
+            isIncrementalGenerationEnabled = defaultInvoiceConfig.isIncrementalGenerationEnabled();
+            isUsageAggregatesEnabled = defaultInvoiceConfig.isUsageAggregatesEnabled();
         }
     }
 }
@@ -1254,6 +1254,64 @@ public class TestWithInvoiceOptimization extends TestIntegrationBase {
         }
     }
 
+    @Test(groups = "slow")
+    public void testIncrementalGeneration() throws Exception {
+
+        // No maxInvoiceLimit: scheduled runs only load the invoices from the billed-through point
+        invoiceConfig.setIncrementalGenerationEnabled(true);
+
+        clock.setTime(new DateTime("2020-01-01T3:56:02"));
+
+        final Account account = createAccountWithNonOsgiPaymentMethod(getAccountData(1));
+        assertNotNull(account);
+
+        busHandler.pushExpectedEvents(NextEvent.CREATE, NextEvent.BLOCK, NextEvent.INVOICE, NextEvent.PAYMENT, NextEvent.INVOICE_PAYMENT);
+        final PlanPhaseSpecifier spec = new PlanPhaseSpecifier("Blowdart", BillingPeriod.MONTHLY, "notrial", null);
+        final UUID entitlementId = entitlementApi.createBaseEntitlement(account.getId(), new DefaultEntitlementSpecifier(spec), "Something", null, null, false, true, Collections.emptyList(), callContext);
+        assertListenerStatus();
+
+        invoiceChecker.checkInvoice(account.getId(), 1, callContext,
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 1, 1), new LocalDate(2020, 2, 1), InvoiceItemType.RECURRING, new BigDecimal("29.95")));
+
+        // 2020-02-01, 2020-03-01 and 2020-04-01 (scheduled runs)
+        for (int i = 2; i <= 4; i++) {
+            busHandler.pushExpectedEvents(NextEvent.INVOICE, NextEvent.PAYMENT, NextEvent.INVOICE_PAYMENT);
+            clock.addMonths(1);
+            assertListenerStatus();
+
+            final LocalDate startDate = new LocalDate(2020, i, 1);
+            invoiceChecker.checkInvoice(account.getId(), i, callContext,
+                                        new ExpectedInvoiceItemCheck(startDate, startDate.plusMonths(1), InvoiceItemType.RECURRING, new BigDecimal("29.95")));
+        }
+
+        // Trigger a change way in the past: this isn't a scheduled run, so the whole history is taken into account
+        final Entitlement entitlement = entitlementApi.getEntitlementForId(entitlementId, false, callContext);
+        final PlanPhaseSpecifier spec2 = new PlanPhaseSpecifier("pistol-monthly-notrial");
+        busHandler.pushExpectedEvents(NextEvent.CHANGE, NextEvent.INVOICE);
+        entitlement.changePlanWithDate(new DefaultEntitlementSpecifier(spec2, null, null, null, null), new LocalDate(2020, 1, 15), Collections.emptyList(), callContext);
+        assertListenerStatus();
+
+        invoiceChecker.checkInvoice(account.getId(), 5, callContext,
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 1, 15), new LocalDate(2020, 2, 1), InvoiceItemType.RECURRING, new BigDecimal("10.94")),
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 1, 15), new LocalDate(2020, 2, 1), InvoiceItemType.REPAIR_ADJ, new BigDecimal("-16.42")),
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 2, 1), new LocalDate(2020, 3, 1), InvoiceItemType.RECURRING, new BigDecimal("19.95")),
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 2, 1), new LocalDate(2020, 3, 1), InvoiceItemType.REPAIR_ADJ, new BigDecimal("-29.95")),
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 3, 1), new LocalDate(2020, 4, 1), InvoiceItemType.RECURRING, new BigDecimal("19.95")),
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 3, 1), new LocalDate(2020, 4, 1), InvoiceItemType.REPAIR_ADJ, new BigDecimal("-29.95")),
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 4, 1), new LocalDate(2020, 5, 1), InvoiceItemType.RECURRING, new BigDecimal("19.95")),
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 4, 1), new LocalDate(2020, 5, 1), InvoiceItemType.REPAIR_ADJ, new BigDecimal("-29.95")),
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 4, 1), new LocalDate(2020, 4, 1), InvoiceItemType.CBA_ADJ, new BigDecimal("35.48")));
+
+        // 2020-05-01 (scheduled run): only the new period gets invoiced
+        busHandler.pushExpectedEvents(NextEvent.INVOICE);
+        clock.addMonths(1);
+        assertListenerStatus();
+
+        invoiceChecker.checkInvoice(account.getId(), 6, callContext,
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 5, 1), new LocalDate(2020, 6, 1), InvoiceItemType.RECURRING, new BigDecimal("19.95")),
+                                    new ExpectedInvoiceItemCheck(new LocalDate(2020, 5, 1), new LocalDate(2020, 5, 1), InvoiceItemType.CBA_ADJ, new BigDecimal("-19.95")));
+    }
+
 
     private Invoice getCurrentDraftInvoice(final UUID accountId, @Nullable final Function<Invoice, Boolean> condFn, final int nbTries) {
         int curTry = nbTries;
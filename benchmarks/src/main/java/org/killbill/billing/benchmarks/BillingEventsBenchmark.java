@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.broadcast.BroadcastApi;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.CatalogInternalApi;
+import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.junction.BlockingInternalApi;
+import org.killbill.billing.junction.plumbing.billing.BillingEventSetCache;
+import org.killbill.billing.junction.plumbing.billing.BlockingCalculator;
+import org.killbill.billing.junction.plumbing.billing.DefaultInternalBillingApi;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.config.definition.JunctionConfig;
+import org.killbill.billing.util.optimizer.BusOptimizer;
+import org.killbill.clock.DefaultClock;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.config.TimeSpan;
+
+/**
+ * {@link DefaultInternalBillingApi#getBillingEventsForAccountAndUpdateAccountBCD} on top of stubbed account, subscription, catalog,
+ * tag and blocking internal APIs: the measured time is the junction logic only (billing event creation, BCD resolution
+ * and blocking calculator), not the subscription and entitlement reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BillingEventsBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int nbSubscriptions;
+
+    @Param({"3"})
+    public int nbYearsOfHistory;
+
+    // Months between two blocking periods on each bundle
+    @Param({"6"})
+    public int blockingEveryMonths;
+
+    // Whether the billing events are served from the per-account cache (i.e. nothing changed since the previous call)
+    @Param({"false", "true"})
+    public boolean billingEventsCache;
+
+    private SyntheticAccount syntheticAccount;
+    private DefaultInternalBillingApi billingApi;
+
+    @Setup(Level.Trial)
+    public void setUp() throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
+        syntheticAccount = new SyntheticAccount(nbSubscriptions, nbYearsOfHistory, blockingEveryMonths);
+
+        final AccountInternalApi accountApi = Mockito.mock(AccountInternalApi.class);
+        Mockito.when(accountApi.getImmutableAccountDataById(Mockito.<UUID>any(), Mockito.<InternalTenantContext>any())).thenReturn(syntheticAccount.getAccount());
+        Mockito.when(accountApi.getBCD(Mockito.<InternalTenantContext>any())).thenReturn(1);
+
+        final SubscriptionBaseInternalApi subscriptionApi = Mockito.mock(SubscriptionBaseInternalApi.class);
+        Mockito.when(subscriptionApi.getSubscriptionsForAccount(Mockito.<VersionedCatalog>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any()))
+               .thenReturn(syntheticAccount.getSubscriptionsForAccount());
+        Mockito.when(subscriptionApi.getSubscriptionBillingEvents(Mockito.<VersionedCatalog>any(), Mockito.<SubscriptionBase>any(), Mockito.<InternalTenantContext>any()))
+               .thenAnswer(invocation -> syntheticAccount.getSubscriptionBillingEvents(((SubscriptionBase) invocation.getArgument(1)).getId()));
+
+        final CatalogInternalApi catalogApi = Mockito.mock(CatalogInternalApi.class);
+        Mockito.when(catalogApi.getFullCatalog(Mockito.anyBoolean(), Mockito.anyBoolean(), Mockito.<InternalTenantContext>any())).thenReturn(syntheticAccount.getCatalog());
+
+        final TagInternalApi tagApi = Mockito.mock(TagInternalApi.class);
+        Mockito.when(tagApi.getTagsForAccount(Mockito.anyBoolean(), Mockito.<InternalTenantContext>any())).thenReturn(Collections.emptyList());
+
+        final BlockingInternalApi blockingApi = Mockito.mock(BlockingInternalApi.class);
+        Mockito.when(blockingApi.getBlockingActiveForAccount(Mockito.<VersionedCatalog>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any()))
+               .thenReturn(syntheticAccount.getBlockingStates());
+
+        final JunctionConfig junctionConfig = Mockito.mock(JunctionConfig.class);
+        Mockito.when(junctionConfig.isBillingEventsCacheEnabled()).thenReturn(billingEventsCache);
+        Mockito.when(junctionConfig.getBillingEventsCacheTtl()).thenReturn(new TimeSpan("1h"));
+        Mockito.when(junctionConfig.getBillingEventsCacheMaxSize()).thenReturn(10);
+        final BillingEventSetCache billingEventSetCache = new BillingEventSetCache(junctionConfig, Mockito.mock(BusOptimizer.class), Mockito.mock(BroadcastApi.class), null, new DefaultClock());
+
+        billingApi = new DefaultInternalBillingApi(accountApi, subscriptionApi, new BlockingCalculator(blockingApi), catalogApi, tagApi, billingEventSetCache);
+    }
+
+    @Benchmark
+    public BillingEventSet getBillingEventsForAccount() throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
+        return billingApi.getBillingEventsForAccountAndUpdateAccountBCD(syntheticAccount.getAccountId(), null, null, syntheticAccount.getContext());
+    }
+}
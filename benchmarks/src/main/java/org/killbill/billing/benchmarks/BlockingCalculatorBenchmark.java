@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.junction.BlockingInternalApi;
+import org.killbill.billing.junction.plumbing.billing.BlockingCalculator;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEventSet;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link BlockingCalculator#insertBlockingEvents} on an account where every bundle gets blocked for a week every few months.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BlockingCalculatorBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int nbSubscriptions;
+
+    @Param({"3"})
+    public int nbYearsOfHistory;
+
+    // Months between two blocking periods on each bundle
+    @Param({"1", "6"})
+    public int blockingEveryMonths;
+
+    private SyntheticAccount syntheticAccount;
+    private BlockingCalculator blockingCalculator;
+    private DefaultBillingEventSet billingEvents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        syntheticAccount = new SyntheticAccount(nbSubscriptions, nbYearsOfHistory, blockingEveryMonths);
+
+        final BlockingInternalApi blockingApi = Mockito.mock(BlockingInternalApi.class);
+        Mockito.when(blockingApi.getBlockingActiveForAccount(Mockito.<VersionedCatalog>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any()))
+               .thenReturn(syntheticAccount.getBlockingStates());
+        blockingCalculator = new BlockingCalculator(blockingApi);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        // insertBlockingEvents mutates the set
+        billingEvents = syntheticAccount.createBillingEventSet();
+    }
+
+    @Benchmark
+    public DefaultBillingEventSet insertBlockingEvents() throws CatalogApiException {
+        blockingCalculator.insertBlockingEvents(billingEvents,
+                                                new HashSet<>(),
+                                                syntheticAccount.getSubscriptionsForAccount(),
+                                                syntheticAccount.getCatalog(),
+                                                null,
+                                                syntheticAccount.getContext());
+        return billingEvents;
+    }
+}
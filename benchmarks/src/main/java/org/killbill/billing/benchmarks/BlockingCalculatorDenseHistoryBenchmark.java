@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.entitlement.api.BlockingStateType;
+import org.killbill.billing.junction.BlockingInternalApi;
+import org.killbill.billing.junction.DefaultBlockingState;
+import org.killbill.billing.junction.plumbing.billing.BlockingCalculator;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEventSet;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link BlockingCalculator#insertBlockingEvents} on an account with a dense blocking history: on top of the monthly
+ * bundle blocking periods, the whole account gets blocked for a couple of days every few days and every subscription
+ * has its own blocking periods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BlockingCalculatorDenseHistoryBenchmark {
+
+    private static final String OVERDUE_SERVICE = "overdue-service";
+
+    @Param({"100", "1000"})
+    public int nbSubscriptions;
+
+    @Param({"3"})
+    public int nbYearsOfHistory;
+
+    // Days between two account (and subscription) blocking periods
+    @Param({"3", "10"})
+    public int blockingEveryDays;
+
+    private SyntheticAccount syntheticAccount;
+    private BlockingCalculator blockingCalculator;
+    private DefaultBillingEventSet billingEvents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        syntheticAccount = new SyntheticAccount(nbSubscriptions, nbYearsOfHistory, 1);
+
+        final List<BlockingState> blockingStates = new ArrayList<>(syntheticAccount.getBlockingStates());
+        long totalOrdering = blockingStates.size();
+        totalOrdering = addBlockingPeriods(blockingStates, syntheticAccount.getAccountId(), BlockingStateType.ACCOUNT, 0, totalOrdering);
+        int offsetDays = 1;
+        for (final SubscriptionBase subscription : syntheticAccount.getSubscriptions()) {
+            totalOrdering = addBlockingPeriods(blockingStates, subscription.getId(), BlockingStateType.SUBSCRIPTION, offsetDays, totalOrdering);
+            offsetDays = (offsetDays + 1) % blockingEveryDays;
+        }
+        Collections.sort(blockingStates);
+
+        final BlockingInternalApi blockingApi = Mockito.mock(BlockingInternalApi.class);
+        Mockito.when(blockingApi.getBlockingActiveForAccount(Mockito.<VersionedCatalog>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any()))
+               .thenReturn(Collections.unmodifiableList(blockingStates));
+        blockingCalculator = new BlockingCalculator(blockingApi);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        // insertBlockingEvents mutates the set
+        billingEvents = syntheticAccount.createBillingEventSet();
+    }
+
+    @Benchmark
+    public DefaultBillingEventSet insertBlockingEvents() throws CatalogApiException {
+        blockingCalculator.insertBlockingEvents(billingEvents,
+                                                new HashSet<>(),
+                                                syntheticAccount.getSubscriptionsForAccount(),
+                                                syntheticAccount.getCatalog(),
+                                                null,
+                                                syntheticAccount.getContext());
+        return billingEvents;
+    }
+
+    // Block the entity for one day, every blockingEveryDays days
+    private long addBlockingPeriods(final List<BlockingState> result, final UUID blockedId, final BlockingStateType type, final int offsetDays, final long firstTotalOrdering) {
+        long totalOrdering = firstTotalOrdering;
+        final LocalDate targetDate = syntheticAccount.getTargetDate();
+        LocalDate blockingDate = targetDate.minusYears(nbYearsOfHistory).plusDays(1 + offsetDays);
+        while (blockingDate.isBefore(targetDate)) {
+            final DateTime blockedDate = blockingDate.toDateTimeAtStartOfDay(DateTimeZone.UTC);
+            final DateTime clearedDate = blockedDate.plusDays(1);
+            result.add(createBlockingState(blockedId, type, "BLOCKED", true, blockedDate, totalOrdering++));
+            result.add(createBlockingState(blockedId, type, "CLEAR", false, clearedDate, totalOrdering++));
+            blockingDate = blockingDate.plusDays(blockingEveryDays);
+        }
+        return totalOrdering;
+    }
+
+    private static BlockingState createBlockingState(final UUID blockedId,
+                                                     final BlockingStateType type,
+                                                     final String stateName,
+                                                     final boolean blocked,
+                                                     final DateTime effectiveDate,
+                                                     final long totalOrdering) {
+        return new DefaultBlockingState(UUID.randomUUID(),
+                                        blockedId,
+                                        type,
+                                        stateName,
+                                        OVERDUE_SERVICE,
+                                        blocked,
+                                        blocked,
+                                        blocked,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        totalOrdering);
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.api.BillingAlignment;
+import org.killbill.billing.catalog.api.CatalogInternalApi;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.PhaseType;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
+import org.killbill.billing.catalog.api.Product;
+import org.killbill.billing.catalog.api.ProductCategory;
+import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.entitlement.AccountEventsStreams;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.entitlement.api.BlockingStateType;
+import org.killbill.billing.entitlement.api.DefaultEntitlementApi;
+import org.killbill.billing.entitlement.api.Entitlement.EntitlementState;
+import org.killbill.billing.entitlement.api.EntitlementApiException;
+import org.killbill.billing.entitlement.block.DefaultBlockingChecker;
+import org.killbill.billing.entitlement.dao.BlockingStateDao;
+import org.killbill.billing.entitlement.engine.core.EventsStreamBuilder;
+import org.killbill.billing.junction.DefaultBlockingState;
+import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseBundle;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseTransition;
+import org.killbill.billing.util.audit.dao.AuditDao;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.definition.EntitlementConfig;
+import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.optimizer.BusOptimizer;
+import org.killbill.clock.DefaultClock;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.jdbi.v2.IDBI;
+
+/**
+ * {@link EventsStreamBuilder#buildForAccount} on an account with one base subscription and a few add-ons per bundle, the base
+ * subscriptions being future cancelled (so that the blocking states not on disk of the add-ons have to be computed).
+ * <p>
+ * Run with parallelism 1 (caller thread only) and greater than 1 to measure the per-bundle parallel construction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class EventsStreamBuilderBenchmark {
+
+    @Param({"100", "5000"})
+    public int nbBundles;
+
+    @Param({"0", "3"})
+    public int nbAddOnsPerBundle;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private EventsStreamBuilder eventsStreamBuilder;
+    private ImmutableAccountData account;
+    private VersionedCatalog catalog;
+    private InternalCallContext context;
+    private List<SubscriptionBaseBundle> bundles;
+    private Map<UUID, List<SubscriptionBase>> subscriptions;
+    private List<BlockingState> blockingStates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final DateTime now = new DateTime(DateTimeZone.UTC);
+        final DateTime startDate = now.minusYears(1);
+        final DateTime cancelDate = now.plusMonths(1);
+
+        final EntitlementConfig entitlementConfig = Mockito.mock(EntitlementConfig.class);
+        Mockito.when(entitlementConfig.getEventsStreamsParallelism()).thenReturn(parallelism);
+        Mockito.when(entitlementConfig.getEventsStreamsParallelThreshold()).thenReturn(1);
+
+        final SubscriptionBaseInternalApi subscriptionInternalApi = Mockito.mock(SubscriptionBaseInternalApi.class);
+        eventsStreamBuilder = new EventsStreamBuilder(Mockito.mock(AccountInternalApi.class),
+                                                      subscriptionInternalApi,
+                                                      Mockito.mock(CatalogInternalApi.class),
+                                                      new DefaultBlockingChecker(subscriptionInternalApi, Mockito.mock(BlockingStateDao.class)),
+                                                      Mockito.mock(IDBI.class),
+                                                      Mockito.mock(IDBI.class),
+                                                      new DefaultClock(),
+                                                      Mockito.mock(NotificationQueueService.class),
+                                                      Mockito.mock(BusOptimizer.class),
+                                                      Mockito.mock(CacheControllerDispatcher.class),
+                                                      Mockito.mock(NonEntityDao.class),
+                                                      Mockito.mock(AuditDao.class),
+                                                      Mockito.mock(InternalCallContextFactory.class),
+                                                      entitlementConfig);
+
+        final UUID accountId = UUID.randomUUID();
+        account = Mockito.mock(ImmutableAccountData.class);
+        Mockito.when(account.getId()).thenReturn(accountId);
+        Mockito.when(account.getCurrency()).thenReturn(Currency.USD);
+        Mockito.when(account.getTimeZone()).thenReturn(DateTimeZone.UTC);
+        Mockito.when(account.getFixedOffsetTimeZone()).thenReturn(DateTimeZone.UTC);
+        catalog = Mockito.mock(VersionedCatalog.class);
+        context = new InternalCallContext(1L,
+                                          1L,
+                                          DateTimeZone.UTC,
+                                          DateTimeZone.UTC,
+                                          startDate,
+                                          UUID.randomUUID(),
+                                          "benchmarks",
+                                          CallOrigin.INTERNAL,
+                                          UserType.SYSTEM,
+                                          null,
+                                          null,
+                                          now,
+                                          now);
+
+        final Plan basePlan = createPlan("base", ProductCategory.BASE);
+        final Plan addOnPlan = createPlan("addOn", ProductCategory.ADD_ON);
+
+        bundles = new ArrayList<>(nbBundles);
+        subscriptions = new HashMap<>();
+        blockingStates = new ArrayList<>();
+        long totalOrdering = 0;
+        for (int i = 0; i < nbBundles; i++) {
+            final UUID bundleId = UUID.randomUUID();
+            final SubscriptionBaseBundle bundle = Mockito.mock(SubscriptionBaseBundle.class);
+            Mockito.when(bundle.getId()).thenReturn(bundleId);
+            Mockito.when(bundle.getAccountId()).thenReturn(accountId);
+            bundles.add(bundle);
+
+            final List<SubscriptionBase> subscriptionsForBundle = new ArrayList<>(1 + nbAddOnsPerBundle);
+            final SubscriptionBase baseSubscription = createSubscription(bundleId, basePlan, startDate);
+            subscriptionsForBundle.add(baseSubscription);
+            blockingStates.add(createEntitlementBlockingState(baseSubscription.getId(), DefaultEntitlementApi.ENT_STATE_START, false, startDate, totalOrdering++));
+            blockingStates.add(createEntitlementBlockingState(baseSubscription.getId(), DefaultEntitlementApi.ENT_STATE_CANCELLED, true, cancelDate, totalOrdering++));
+            for (int j = 0; j < nbAddOnsPerBundle; j++) {
+                final SubscriptionBase addOn = createSubscription(bundleId, addOnPlan, startDate);
+                subscriptionsForBundle.add(addOn);
+                blockingStates.add(createEntitlementBlockingState(addOn.getId(), DefaultEntitlementApi.ENT_STATE_START, false, startDate, totalOrdering++));
+            }
+            subscriptions.put(bundleId, subscriptionsForBundle);
+        }
+        Collections.sort(blockingStates);
+    }
+
+    @Benchmark
+    public AccountEventsStreams buildForAccount() throws EntitlementApiException {
+        return eventsStreamBuilder.buildForAccount(account, 1, bundles, subscriptions, blockingStates, catalog, context);
+    }
+
+    private static Plan createPlan(final String name, final ProductCategory category) {
+        final Product product = Mockito.mock(Product.class);
+        Mockito.when(product.getName()).thenReturn(name);
+        Mockito.when(product.getCategory()).thenReturn(category);
+        Mockito.when(product.getIncluded()).thenReturn(Collections.emptyList());
+        Mockito.when(product.getAvailable()).thenReturn(Collections.emptyList());
+
+        final Plan plan = Mockito.mock(Plan.class);
+        Mockito.when(plan.getName()).thenReturn(name + "-monthly");
+        Mockito.when(plan.getProduct()).thenReturn(product);
+        return plan;
+    }
+
+    private static SubscriptionBase createSubscription(final UUID bundleId, final Plan plan, final DateTime startDate) {
+        final PlanPhase planPhase = Mockito.mock(PlanPhase.class);
+        Mockito.when(planPhase.getPhaseType()).thenReturn(PhaseType.EVERGREEN);
+
+        final SubscriptionBaseTransition createTransition = Mockito.mock(SubscriptionBaseTransition.class);
+        Mockito.when(createTransition.getTransitionType()).thenReturn(SubscriptionBaseTransitionType.CREATE);
+        Mockito.when(createTransition.getEffectiveTransitionTime()).thenReturn(startDate);
+        Mockito.when(createTransition.getNextPlan()).thenReturn(plan);
+
+        final SubscriptionBase subscription = Mockito.mock(SubscriptionBase.class);
+        Mockito.when(subscription.getId()).thenReturn(UUID.randomUUID());
+        Mockito.when(subscription.getBundleId()).thenReturn(bundleId);
+        Mockito.when(subscription.getCategory()).thenReturn(plan.getProduct().getCategory());
+        Mockito.when(subscription.getState()).thenReturn(EntitlementState.ACTIVE);
+        Mockito.when(subscription.getStartDate()).thenReturn(startDate);
+        Mockito.when(subscription.getLastActivePlan()).thenReturn(plan);
+        Mockito.when(subscription.getLastActivePhase()).thenReturn(planPhase);
+        Mockito.when(subscription.getAllTransitions(false)).thenReturn(List.of(createTransition));
+        try {
+            Mockito.when(subscription.getBillingAlignment(Mockito.<PlanPhaseSpecifier>any(), Mockito.<DateTime>any(), Mockito.<VersionedCatalog>any())).thenReturn(BillingAlignment.ACCOUNT);
+        } catch (final SubscriptionBaseApiException e) {
+            throw new IllegalStateException(e);
+        }
+        return subscription;
+    }
+
+    private static BlockingState createEntitlementBlockingState(final UUID subscriptionId, final String stateName, final boolean blocked, final DateTime effectiveDate, final long totalOrdering) {
+        return new DefaultBlockingState(UUID.randomUUID(),
+                                        subscriptionId,
+                                        BlockingStateType.SUBSCRIPTION,
+                                        stateName,
+                                        KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(),
+                                        blocked,
+                                        blocked,
+                                        false,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        totalOrdering);
+    }
+}
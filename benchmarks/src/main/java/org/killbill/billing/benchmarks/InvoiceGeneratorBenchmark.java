@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
+import org.killbill.billing.invoice.generator.FixedAndRecurringInvoiceItemGenerator;
+import org.killbill.billing.invoice.generator.InvoiceWithMetadata;
+import org.killbill.billing.invoice.generator.UsageInvoiceItemGenerator;
+import org.killbill.billing.invoice.optimizer.InvoiceOptimizerBase.AccountInvoices;
+import org.killbill.billing.invoice.usage.RawUsageOptimizer;
+import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.clock.Clock;
+import org.killbill.clock.DefaultClock;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.config.AugmentedConfigurationObjectFactory;
+
+/**
+ * Full {@link DefaultInvoiceGenerator#generateInvoice} run for an account whose history is entirely invoiced but for the target period:
+ * this is the nightly run case, where the existing items are re-built into the tree and merged with the proposed ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class InvoiceGeneratorBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int nbSubscriptions;
+
+    @Param({"3"})
+    public int nbYearsOfHistory;
+
+    private SyntheticAccount syntheticAccount;
+    private DefaultInvoiceGenerator generator;
+    private AccountInvoices existingInvoices;
+    private BillingEventSet billingEvents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        syntheticAccount = new SyntheticAccount(nbSubscriptions, nbYearsOfHistory, 0);
+
+        final InvoiceConfig invoiceConfig = new AugmentedConfigurationObjectFactory(propertyName -> null).build(InvoiceConfig.class);
+        final Clock clock = new DefaultClock();
+        generator = new DefaultInvoiceGenerator(clock,
+                                                invoiceConfig,
+                                                new FixedAndRecurringInvoiceItemGenerator(invoiceConfig, clock),
+                                                new UsageInvoiceItemGenerator(Mockito.mock(RawUsageOptimizer.class), invoiceConfig));
+        existingInvoices = new AccountInvoices(null, null, syntheticAccount.getExistingInvoices());
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        billingEvents = syntheticAccount.createBillingEventSet();
+    }
+
+    @Benchmark
+    public InvoiceWithMetadata generateInvoice() throws InvoiceApiException {
+        return generator.generateInvoice(syntheticAccount.getAccount(),
+                                         billingEvents,
+                                         existingInvoices,
+                                         null,
+                                         syntheticAccount.getTargetDate(),
+                                         Currency.USD,
+                                         null,
+                                         Collections.emptyList(),
+                                         syntheticAccount.getContext());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.tree.AccountItemTree;
+import org.killbill.billing.invoice.tree.SubscriptionItemTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Build and merge of the invoice item trees, in isolation from the billing event processing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ItemTreeBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int nbSubscriptions;
+
+    @Param({"3"})
+    public int nbYearsOfHistory;
+
+    // Array-backed tree (org.killbill.invoice.tree.flatIntervals) vs linked nodes
+    @Param({"false", "true"})
+    public boolean flatTree;
+
+    private UUID accountId;
+    private UUID targetInvoiceId;
+    private List<InvoiceItem> existingItems;
+    private List<InvoiceItem> proposedItems;
+    private List<InvoiceItem> firstSubscriptionExistingItems;
+    private List<InvoiceItem> firstSubscriptionProposedItems;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticAccount syntheticAccount = new SyntheticAccount(nbSubscriptions, nbYearsOfHistory, 0);
+        accountId = syntheticAccount.getAccountId();
+        targetInvoiceId = UUID.randomUUID();
+        existingItems = syntheticAccount.getExistingInvoiceItems();
+        proposedItems = syntheticAccount.createProposedItems(targetInvoiceId);
+
+        final UUID firstSubscriptionId = syntheticAccount.getSubscriptions().get(0).getId();
+        firstSubscriptionExistingItems = existingItems.stream().filter(input -> firstSubscriptionId.equals(input.getSubscriptionId())).collect(Collectors.toUnmodifiableList());
+        firstSubscriptionProposedItems = proposedItems.stream().filter(input -> firstSubscriptionId.equals(input.getSubscriptionId())).collect(Collectors.toUnmodifiableList());
+    }
+
+    @Benchmark
+    public List<InvoiceItem> accountItemTreeBuildAndMerge() {
+        final AccountItemTree tree = new AccountItemTree(accountId, targetInvoiceId, 0, flatTree);
+        for (final InvoiceItem item : existingItems) {
+            tree.addExistingItem(item);
+        }
+        tree.mergeWithProposedItems(proposedItems);
+        return tree.getResultingItemList();
+    }
+
+    // Per-subscription cost: independent of nbSubscriptions, only of the history length
+    @Benchmark
+    public List<InvoiceItem> subscriptionItemTreeBuildAndMerge() {
+        final SubscriptionItemTree tree = new SubscriptionItemTree(firstSubscriptionExistingItems.get(0).getSubscriptionId(), targetInvoiceId, 0, flatTree);
+        for (final InvoiceItem item : firstSubscriptionExistingItems) {
+            tree.addItem(item);
+        }
+        tree.build();
+        tree.flatten(true);
+        for (final InvoiceItem item : firstSubscriptionProposedItems) {
+            tree.mergeProposedItem(item);
+        }
+        tree.buildForMerge();
+        return tree.getView();
+    }
+}
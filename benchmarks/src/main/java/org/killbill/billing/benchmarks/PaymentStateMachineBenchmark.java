@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.automaton.MissingEntryException;
+import org.killbill.automaton.StateMachineConfig;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.caching.StateMachineConfigCache;
+import org.killbill.billing.payment.core.sm.PaymentStateMachineHelper;
+import org.killbill.billing.payment.core.sm.PaymentStateMachineTransitions;
+import org.killbill.billing.payment.glue.PaymentModule;
+import org.killbill.billing.payment.glue.PaymentModule.StateMachineProvider;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Resolution of the initial state and operation for a payment transaction: walking the {@link StateMachineConfig}
+ * (as done before {@link PaymentStateMachineTransitions}) versus the compiled transition table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1)
+public class PaymentStateMachineBenchmark {
+
+    @Param({"BIG_BANG_INIT", "AUTH_SUCCESS", "PURCHASE_SUCCESS"})
+    public String initialStateName;
+
+    @Param({"CAPTURE", "REFUND"})
+    public TransactionType transactionType;
+
+    private StateMachineConfig stateMachineConfig;
+    private PaymentStateMachineHelper paymentSMHelper;
+    private PaymentStateMachineTransitions transitions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stateMachineConfig = new StateMachineProvider(PaymentModule.DEFAULT_STATE_MACHINE_PAYMENT_XML).get();
+        paymentSMHelper = new PaymentStateMachineHelper(Mockito.mock(StateMachineConfigCache.class));
+        transitions = new PaymentStateMachineTransitions(stateMachineConfig, paymentSMHelper);
+    }
+
+    @Benchmark
+    public void interpretedLookup(final Blackhole blackhole) throws MissingEntryException {
+        blackhole.consume(stateMachineConfig.getStateMachineForState(initialStateName).getState(initialStateName));
+        blackhole.consume(paymentSMHelper.getOperationForTransaction(stateMachineConfig, transactionType));
+    }
+
+    @Benchmark
+    public void compiledLookup(final Blackhole blackhole) throws MissingEntryException {
+        blackhole.consume(transitions.getState(initialStateName));
+        blackhole.consume(transitions.getOperation(transactionType));
+    }
+}
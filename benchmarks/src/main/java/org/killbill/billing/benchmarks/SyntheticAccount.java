@@ -0,0 +1,312 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.MockPlanPhase;
+import org.killbill.billing.catalog.api.BillingAlignment;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
+import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.entitlement.api.BlockingStateType;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.junction.DefaultBlockingState;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEvent;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEventSet;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.subscription.api.user.DefaultSubscriptionBillingEvent;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.killbill.billing.subscription.api.user.SubscriptionBillingEvent;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.UserType;
+import org.mockito.Mockito;
+
+/**
+ * In-memory fixture describing an account with a configurable number of monthly subscriptions and years of billing history.
+ * <p>
+ * Everything is generated up-front (outside of the measured code): one bundle per subscription, the subscription billing transitions,
+ * the resulting billing events, one committed invoice per past billing period and periodic bundle-level blocking states.
+ */
+public class SyntheticAccount {
+
+    public static final String RECURRING_PRICE = "10.00";
+
+    private static final String OVERDUE_SERVICE = "overdue-service";
+
+    private final UUID accountId;
+    private final LocalDate startDate;
+    private final LocalDate targetDate;
+    private final MockPlan plan;
+    private final MockPlanPhase planPhase;
+    private final ImmutableAccountData account;
+    private final VersionedCatalog catalog;
+    private final InternalCallContext context;
+
+    private final List<SubscriptionBase> subscriptions;
+    private final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount;
+    private final Map<UUID, List<SubscriptionBillingEvent>> subscriptionBillingEvents;
+    private final List<Invoice> existingInvoices;
+    private final List<BlockingState> blockingStates;
+
+    /**
+     * @param nbSubscriptions      number of (base) subscriptions, each in its own bundle
+     * @param nbYearsOfHistory     number of years of monthly invoices already on disk
+     * @param blockingEveryMonths  period, in months, between two blocking periods on a bundle (0 to disable blocking)
+     */
+    public SyntheticAccount(final int nbSubscriptions, final int nbYearsOfHistory, final int blockingEveryMonths) {
+        this.accountId = UUID.randomUUID();
+        this.targetDate = new LocalDate().withDayOfMonth(1);
+        this.startDate = targetDate.minusYears(nbYearsOfHistory);
+        this.planPhase = MockPlanPhase.createUSDMonthlyEvergreen(RECURRING_PRICE, null);
+        this.plan = new MockPlan(planPhase);
+        this.catalog = Mockito.mock(VersionedCatalog.class);
+        this.account = createAccount(accountId);
+        this.context = new InternalCallContext(1L,
+                                               1L,
+                                               DateTimeZone.UTC,
+                                               DateTimeZone.UTC,
+                                               startDate.toDateTimeAtStartOfDay(DateTimeZone.UTC),
+                                               UUID.randomUUID(),
+                                               "benchmarks",
+                                               CallOrigin.INTERNAL,
+                                               UserType.SYSTEM,
+                                               null,
+                                               null,
+                                               new DateTime(DateTimeZone.UTC),
+                                               new DateTime(DateTimeZone.UTC));
+
+        this.subscriptions = new ArrayList<>(nbSubscriptions);
+        this.subscriptionsForAccount = new HashMap<>();
+        this.subscriptionBillingEvents = new HashMap<>();
+        for (int i = 0; i < nbSubscriptions; i++) {
+            final SubscriptionBase subscription = createSubscription(UUID.randomUUID(), UUID.randomUUID());
+            subscriptions.add(subscription);
+            subscriptionsForAccount.put(subscription.getBundleId(), List.of(subscription));
+
+            final SubscriptionBillingEvent createEvent = new DefaultSubscriptionBillingEvent(SubscriptionBaseTransitionType.CREATE,
+                                                                                            plan,
+                                                                                            planPhase,
+                                                                                            startDate.toDateTimeAtStartOfDay(DateTimeZone.UTC),
+                                                                                            (long) i,
+                                                                                            null,
+                                                                                            1,
+                                                                                            startDate.toDateTimeAtStartOfDay(DateTimeZone.UTC));
+            subscriptionBillingEvents.put(subscription.getId(), List.of(createEvent));
+        }
+
+        this.existingInvoices = createExistingInvoices();
+        this.blockingStates = createBlockingStates(blockingEveryMonths);
+    }
+
+    /**
+     * @return a fresh billing event set (the blocking calculator and the invoice code mutate it)
+     */
+    public DefaultBillingEventSet createBillingEventSet() {
+        final DefaultBillingEventSet result = new DefaultBillingEventSet(false, false, false);
+        for (final SubscriptionBase subscription : subscriptions) {
+            for (final SubscriptionBillingEvent transition : subscriptionBillingEvents.get(subscription.getId())) {
+                try {
+                    result.add(new DefaultBillingEvent(transition, subscription, startDate.getDayOfMonth(), BillingAlignment.ACCOUNT, Currency.USD));
+                } catch (final CatalogApiException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return all invoice items from the existing invoices, in invoice order
+     */
+    public List<InvoiceItem> getExistingInvoiceItems() {
+        final List<InvoiceItem> result = new LinkedList<>();
+        for (final Invoice invoice : existingInvoices) {
+            result.addAll(invoice.getInvoiceItems());
+        }
+        return result;
+    }
+
+    /**
+     * @return the items that a full regeneration up to the target date would propose (the existing ones plus the target period)
+     */
+    public List<InvoiceItem> createProposedItems(final UUID invoiceId) {
+        final List<InvoiceItem> result = new LinkedList<>();
+        for (final SubscriptionBase subscription : subscriptions) {
+            LocalDate periodStart = startDate;
+            while (!periodStart.isAfter(targetDate)) {
+                result.add(createRecurringItem(invoiceId, subscription, null, periodStart));
+                periodStart = periodStart.plusMonths(1);
+            }
+        }
+        return result;
+    }
+
+    private List<Invoice> createExistingInvoices() {
+        final List<Invoice> result = new ArrayList<>();
+        LocalDate periodStart = startDate;
+        while (periodStart.isBefore(targetDate)) {
+            final DefaultInvoice invoice = new DefaultInvoice(accountId, periodStart, periodStart, Currency.USD, InvoiceStatus.COMMITTED);
+            final DateTime createdDate = periodStart.toDateTimeAtStartOfDay(DateTimeZone.UTC);
+            for (final SubscriptionBase subscription : subscriptions) {
+                invoice.addInvoiceItem(createRecurringItem(invoice.getId(), subscription, createdDate, periodStart));
+            }
+            result.add(invoice);
+            periodStart = periodStart.plusMonths(1);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private InvoiceItem createRecurringItem(final UUID invoiceId, final SubscriptionBase subscription, final DateTime createdDate, final LocalDate periodStart) {
+        final BigDecimal amount = new BigDecimal(RECURRING_PRICE);
+        return new RecurringInvoiceItem(UUID.randomUUID(),
+                                        createdDate,
+                                        invoiceId,
+                                        accountId,
+                                        subscription.getBundleId(),
+                                        subscription.getId(),
+                                        plan.getProduct().getName(),
+                                        plan.getName(),
+                                        planPhase.getName(),
+                                        null,
+                                        periodStart,
+                                        periodStart.plusMonths(1),
+                                        amount,
+                                        amount,
+                                        Currency.USD);
+    }
+
+    // Block each bundle for one week, every blockingEveryMonths months
+    private List<BlockingState> createBlockingStates(final int blockingEveryMonths) {
+        if (blockingEveryMonths <= 0) {
+            return Collections.emptyList();
+        }
+
+        final List<BlockingState> result = new ArrayList<>();
+        long totalOrdering = 0;
+        for (final SubscriptionBase subscription : subscriptions) {
+            LocalDate blockingDate = startDate.plusMonths(blockingEveryMonths).plusDays(3);
+            while (blockingDate.isBefore(targetDate)) {
+                final DateTime blockedDate = blockingDate.toDateTimeAtStartOfDay(DateTimeZone.UTC);
+                final DateTime clearedDate = blockedDate.plusWeeks(1);
+                result.add(createBundleBlockingState(subscription.getBundleId(), "BLOCKED", true, blockedDate, totalOrdering++));
+                result.add(createBundleBlockingState(subscription.getBundleId(), "CLEAR", false, clearedDate, totalOrdering++));
+                blockingDate = blockingDate.plusMonths(blockingEveryMonths);
+            }
+        }
+        Collections.sort(result);
+        return Collections.unmodifiableList(result);
+    }
+
+    private static BlockingState createBundleBlockingState(final UUID bundleId, final String stateName, final boolean blocked, final DateTime effectiveDate, final long totalOrdering) {
+        return new DefaultBlockingState(UUID.randomUUID(),
+                                        bundleId,
+                                        BlockingStateType.SUBSCRIPTION_BUNDLE,
+                                        stateName,
+                                        OVERDUE_SERVICE,
+                                        blocked,
+                                        blocked,
+                                        blocked,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        totalOrdering);
+    }
+
+    private static ImmutableAccountData createAccount(final UUID accountId) {
+        final ImmutableAccountData account = Mockito.mock(ImmutableAccountData.class);
+        Mockito.when(account.getId()).thenReturn(accountId);
+        Mockito.when(account.getExternalKey()).thenReturn(accountId.toString());
+        Mockito.when(account.getCurrency()).thenReturn(Currency.USD);
+        Mockito.when(account.getTimeZone()).thenReturn(DateTimeZone.UTC);
+        Mockito.when(account.getFixedOffsetTimeZone()).thenReturn(DateTimeZone.UTC);
+        return account;
+    }
+
+    private static SubscriptionBase createSubscription(final UUID subscriptionId, final UUID bundleId) {
+        final SubscriptionBase subscription = Mockito.mock(SubscriptionBase.class);
+        Mockito.when(subscription.getId()).thenReturn(subscriptionId);
+        Mockito.when(subscription.getBundleId()).thenReturn(bundleId);
+        try {
+            Mockito.when(subscription.getBillingAlignment(Mockito.<PlanPhaseSpecifier>any(), Mockito.<DateTime>any(), Mockito.<VersionedCatalog>any())).thenReturn(BillingAlignment.ACCOUNT);
+        } catch (final SubscriptionBaseApiException e) {
+            throw new IllegalStateException(e);
+        }
+        return subscription;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getTargetDate() {
+        return targetDate;
+    }
+
+    public ImmutableAccountData getAccount() {
+        return account;
+    }
+
+    public VersionedCatalog getCatalog() {
+        return catalog;
+    }
+
+    public InternalCallContext getContext() {
+        return context;
+    }
+
+    public List<SubscriptionBase> getSubscriptions() {
+        return subscriptions;
+    }
+
+    public Map<UUID, List<SubscriptionBase>> getSubscriptionsForAccount() {
+        return subscriptionsForAccount;
+    }
+
+    public List<SubscriptionBillingEvent> getSubscriptionBillingEvents(final UUID subscriptionId) {
+        return subscriptionBillingEvents.get(subscriptionId);
+    }
+
+    public List<Invoice> getExistingInvoices() {
+        return existingInvoices;
+    }
+
+    public List<BlockingState> getBlockingStates() {
+        return blockingStates;
+    }
+}
@@ -132,6 +132,12 @@ public class DefaultBlockingStateDao extends EntityDaoBase<BlockingStateModelDao
         return new EntitlementApiException(ErrorCode.ENT_ALREADY_BLOCKED, blockingStateModelDao.getBlockableId());
     }
 
+    @Override
+    protected boolean isDefaultOrderingByRecordId() {
+        // See BlockingStateSqlDao.sql.stg: effective_date first
+        return false;
+    }
+
     @Override
     public BlockingState getBlockingStateForService(final UUID blockableId, final BlockingStateType blockingStateType, final String serviceName, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
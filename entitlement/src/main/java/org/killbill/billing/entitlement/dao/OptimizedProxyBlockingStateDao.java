@@ -94,20 +94,41 @@ public class OptimizedProxyBlockingStateDao extends ProxyBlockingStateDao {
         }
 
         // Find all base entitlements that we care about (for which we want to find future cancelled add-ons)
-        final Iterable<EventsStream> eventsStreams = List.of(eventsStreamBuilder.buildForEntitlement(allBlockingStatesOnDiskForAccount,
-                                                                                                     account,
-                                                                                                     bundle,
-                                                                                                     baseSubscription,
-                                                                                                     allSubscriptionsForBundle,
-                                                                                                     accountBCD,
-                                                                                                     catalog,
-                                                                                                     includeDeletedEvents,
-                                                                                                     context));
+        final EventsStream baseEventsStream = eventsStreamBuilder.buildForEntitlement(allBlockingStatesOnDiskForAccount,
+                                                                                      account,
+                                                                                      bundle,
+                                                                                      baseSubscription,
+                                                                                      allSubscriptionsForBundle,
+                                                                                      accountBCD,
+                                                                                      catalog,
+                                                                                      includeDeletedEvents,
+                                                                                      context);
+
+        return getBlockingHistory(subscriptionBlockingStatesOnDisk, subscription, baseEventsStream);
+    }
+
+    /**
+     * Retrieve blocking states for a given subscription, given the events stream of its base subscription
+     * <p/>
+     * This is a special method for EventsStreamBuilder#buildForAccount: the base events stream is built once per bundle
+     * and shared by all its add-ons.
+     *
+     * @param subscriptionBlockingStatesOnDisk blocking states on disk for that subscription
+     * @param subscription                     subscription for which to build blocking states
+     * @param baseEventsStream                 events stream of the base subscription (ProductCategory.BASE) associated with that bundle
+     * @return blocking states for that subscription
+     */
+    public Collection<BlockingState> getBlockingHistory(final Collection<BlockingState> subscriptionBlockingStatesOnDisk,
+                                                        final SubscriptionBase subscription,
+                                                        final EventsStream baseEventsStream) {
+        if (!ProductCategory.ADD_ON.equals(subscription.getCategory())) {
+            return subscriptionBlockingStatesOnDisk;
+        }
 
         return addBlockingStatesNotOnDisk(subscription.getId(),
                                           BlockingStateType.SUBSCRIPTION,
                                           new LinkedList<>(subscriptionBlockingStatesOnDisk),
-                                          List.of(baseSubscription),
-                                          eventsStreams);
+                                          List.of(baseEventsStream.getSubscriptionBase()),
+                                          List.of(baseEventsStream));
     }
 }
@@ -83,6 +83,9 @@ public class DefaultEventsStream implements EventsStream {
 
     private final boolean includeDeletedEvents;
 
+    // Lazily computed (the stream is immutable): shared by all the add-ons of the bundle, see OptimizedProxyBlockingStateDao
+    private volatile Collection<BlockingState> addonsBlockingStatesForFutureSubscriptionBaseEvents;
+
     public DefaultEventsStream(final ImmutableAccountData account,
                                final SubscriptionBaseBundle bundle,
                                final Collection<BlockingState> blockingStates,
@@ -312,6 +315,15 @@ public class DefaultEventsStream implements EventsStream {
     // Compute future blocking states not on disk for add-ons associated to this (base) events stream
     @Override
     public Collection<BlockingState> computeAddonsBlockingStatesForFutureSubscriptionBaseEvents() {
+        Collection<BlockingState> result = addonsBlockingStatesForFutureSubscriptionBaseEvents;
+        if (result == null) {
+            result = doComputeAddonsBlockingStatesForFutureSubscriptionBaseEvents();
+            addonsBlockingStatesForFutureSubscriptionBaseEvents = result;
+        }
+        return result;
+    }
+
+    private Collection<BlockingState> doComputeAddonsBlockingStatesForFutureSubscriptionBaseEvents() {
         if (!ProductCategory.BASE.equals(subscription.getCategory())) {
             // Only base subscriptions have add-ons
             return Collections.emptyList();
@@ -19,6 +19,7 @@
 
 package org.killbill.billing.entitlement.engine.core;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -30,6 +31,10 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -70,10 +75,12 @@ import org.killbill.billing.util.bcd.BillCycleDayCalculator;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.EntitlementConfig;
 import org.killbill.commons.utils.collect.Iterables;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.optimizer.BusOptimizer;
 import org.killbill.clock.Clock;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.skife.jdbi.v2.IDBI;
 
@@ -90,6 +97,9 @@ public class EventsStreamBuilder {
     private final DefaultBlockingStateDao defaultBlockingStateDao;
     private final Clock clock;
     private final InternalCallContextFactory internalCallContextFactory;
+    // Null when the events streams are always built on the caller thread
+    private final ForkJoinPool eventsStreamsPool;
+    private final int parallelThreshold;
 
     @Inject
     public EventsStreamBuilder(final AccountInternalApi accountInternalApi,
@@ -104,13 +114,17 @@ public class EventsStreamBuilder {
                                final CacheControllerDispatcher cacheControllerDispatcher,
                                final NonEntityDao nonEntityDao,
                                final AuditDao auditDao,
-                               final InternalCallContextFactory internalCallContextFactory) {
+                               final InternalCallContextFactory internalCallContextFactory,
+                               final EntitlementConfig entitlementConfig) {
         this.accountInternalApi = accountInternalApi;
         this.subscriptionInternalApi = subscriptionInternalApi;
         this.catalogInternalApi = catalogInternalApi;
         this.checker = checker;
         this.clock = clock;
         this.internalCallContextFactory = internalCallContextFactory;
+        final int parallelism = entitlementConfig.getEventsStreamsParallelism();
+        this.eventsStreamsPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.parallelThreshold = Math.max(entitlementConfig.getEventsStreamsParallelThreshold(), 1);
         this.defaultBlockingStateDao = new DefaultBlockingStateDao(dbi, roDbi, clock, notificationQueueService, eventBus, cacheControllerDispatcher, nonEntityDao, auditDao, internalCallContextFactory);
         this.blockingStateDao = new OptimizedProxyBlockingStateDao(this, subscriptionInternalApi, dbi, roDbi, clock, notificationQueueService, eventBus, cacheControllerDispatcher, nonEntityDao, auditDao, internalCallContextFactory);
     }
@@ -167,15 +181,28 @@ public class EventsStreamBuilder {
 
         // Retrieve the bundles
         final List<SubscriptionBaseBundle> bundles = subscriptionInternalApi.getBundlesForAccount(account.getId(), internalTenantContext);
+
+        // Retrieve the blocking states
+        final List<BlockingState> blockingStatesForAccount = defaultBlockingStateDao.getBlockingAllForAccountRecordId(catalog, internalTenantContext);
+
+        return buildForAccount(account, accountBCD, bundles, subscriptions, blockingStatesForAccount, catalog, internalTenantContext);
+    }
+
+    // Build the EventsStream objects from data already loaded (no DAO call)
+    @VisibleForTesting
+    public AccountEventsStreams buildForAccount(final ImmutableAccountData account,
+                                                final int accountBCD,
+                                                final Iterable<SubscriptionBaseBundle> bundles,
+                                                final Map<UUID, List<SubscriptionBase>> subscriptions,
+                                                final Iterable<BlockingState> blockingStatesForAccount,
+                                                final VersionedCatalog catalog,
+                                                final InternalTenantContext internalTenantContext) throws EntitlementApiException {
         // Map bundle id -> bundles
         final Map<UUID, SubscriptionBaseBundle> bundlesPerId = new HashMap<UUID, SubscriptionBaseBundle>();
         for (final SubscriptionBaseBundle bundle : bundles) {
             bundlesPerId.put(bundle.getId(), bundle);
         }
 
-        // Retrieve the blocking states
-        final List<BlockingState> blockingStatesForAccount = defaultBlockingStateDao.getBlockingAllForAccountRecordId(catalog, internalTenantContext);
-
         // Optimization: build lookup tables for blocking states states
         final Collection<BlockingState> accountBlockingStates = new LinkedList<>();
         final Map<UUID, List<BlockingState>> blockingStatesPerSubscription = new HashMap<>();
@@ -197,71 +224,146 @@ public class EventsStreamBuilder {
             }
         }
 
-        // Build the EventsStream objects
-        final Map<UUID, Integer> bcdCache = new HashMap<>();
-        final Map<UUID, Collection<EventsStream>> eventsStreamPerBundle = new HashMap<>();
+        // Build the EventsStream objects: bundles are independent from each other, so large accounts are processed in parallel
+        final List<UUID> bundleIds = new ArrayList<>(subscriptions.size());
+        final List<Callable<List<EventsStream>>> tasks = new ArrayList<>(subscriptions.size());
         final Map<UUID, Collection<SubscriptionBase>> subscriptionsPerBundle = new HashMap<>();
         for (final Entry<UUID, List<SubscriptionBase>> entry : subscriptions.entrySet()) {
             final UUID bundleId = entry.getKey();
             final SubscriptionBaseBundle bundle = bundlesPerId.get(bundleId);
             final List<SubscriptionBase> allSubscriptionsForBundle = entry.getValue();
-            final SubscriptionBase baseSubscription = findBaseSubscription(allSubscriptionsForBundle);
             final List<BlockingState> bundleBlockingStates = Objects.requireNonNullElse(blockingStatesPerBundle.get(bundleId), Collections.emptyList());
 
-            if (eventsStreamPerBundle.get(bundleId) == null) {
-                eventsStreamPerBundle.put(bundleId, new LinkedList<EventsStream>());
+            bundleIds.add(bundleId);
+            subscriptionsPerBundle.put(bundleId, allSubscriptionsForBundle);
+            tasks.add(() -> buildForBundle(account,
+                                           bundle,
+                                           allSubscriptionsForBundle,
+                                           accountBlockingStates,
+                                           bundleBlockingStates,
+                                           blockingStatesPerSubscription,
+                                           accountBCD,
+                                           catalog,
+                                           internalTenantContext));
+        }
+
+        final List<List<EventsStream>> eventsStreamsForBundles = invokeAll(tasks);
+        final Map<UUID, Collection<EventsStream>> eventsStreamPerBundle = new HashMap<>();
+        for (int i = 0; i < bundleIds.size(); i++) {
+            eventsStreamPerBundle.put(bundleIds.get(i), eventsStreamsForBundles.get(i));
+        }
+
+        return new DefaultAccountEventsStreams(account, bundles, subscriptionsPerBundle, eventsStreamPerBundle);
+    }
+
+    private List<EventsStream> buildForBundle(final ImmutableAccountData account,
+                                              final SubscriptionBaseBundle bundle,
+                                              final List<SubscriptionBase> allSubscriptionsForBundle,
+                                              final Collection<BlockingState> accountBlockingStates,
+                                              final Collection<BlockingState> bundleBlockingStates,
+                                              final Map<UUID, List<BlockingState>> blockingStatesPerSubscription,
+                                              final int accountBCD,
+                                              final VersionedCatalog catalog,
+                                              final InternalTenantContext internalTenantContext) throws EntitlementApiException {
+        final SubscriptionBase baseSubscription = findBaseSubscription(allSubscriptionsForBundle);
+        final Map<UUID, Integer> bcdCache = new HashMap<>();
+
+        final Collection<BlockingState> accountAndBundleBlockingStates = new LinkedHashSet<BlockingState>(accountBlockingStates);
+        accountAndBundleBlockingStates.addAll(bundleBlockingStates);
+
+        // The events stream of the base subscription is needed by all add-ons (to compute their blocking states not on disk):
+        // build it once and share it, instead of re-building it for each add-on
+        final EventsStream baseEventsStream;
+        if (baseSubscription == null) {
+            baseEventsStream = null;
+        } else {
+            final List<BlockingState> baseSubscriptionBlockingStatesOnDisk = Objects.requireNonNullElse(blockingStatesPerSubscription.get(baseSubscription.getId()), Collections.emptyList());
+            baseEventsStream = buildForEntitlement(account,
+                                                   bundle,
+                                                   baseSubscription,
+                                                   baseSubscription,
+                                                   allSubscriptionsForBundle,
+                                                   mergeBlockingStates(accountAndBundleBlockingStates, baseSubscriptionBlockingStatesOnDisk),
+                                                   accountBCD,
+                                                   bcdCache,
+                                                   catalog,
+                                                   false, //includeDeletedEvents - set to false since it does not matter while building entitlements for account.
+                                                   internalTenantContext);
+        }
+
+        final List<EventsStream> eventsStreams = new LinkedList<EventsStream>();
+        for (final SubscriptionBase subscription : allSubscriptionsForBundle) {
+            if (baseEventsStream != null && subscription.getId().equals(baseSubscription.getId())) {
+                eventsStreams.add(baseEventsStream);
+                continue;
             }
-            if (subscriptionsPerBundle.get(bundleId) == null) {
-                subscriptionsPerBundle.put(bundleId, allSubscriptionsForBundle);
+
+            final List<BlockingState> subscriptionBlockingStatesOnDisk = Objects.requireNonNullElse(blockingStatesPerSubscription.get(subscription.getId()), Collections.emptyList());
+
+            // We cannot always use the blocking states on disk here: we need subscriptionBlockingStates to contain the events not on disk when building an EventsStream
+            // for an add-on - which means going through the magic of ProxyBlockingStateDao, using the events stream of the base subscription
+            final Collection<BlockingState> subscriptionBlockingStates;
+            if (baseEventsStream == null) {
+                subscriptionBlockingStates = subscriptionBlockingStatesOnDisk;
+            } else {
+                subscriptionBlockingStates = blockingStateDao.getBlockingHistory(subscriptionBlockingStatesOnDisk, subscription, baseEventsStream);
             }
 
-            for (final SubscriptionBase subscription : allSubscriptionsForBundle) {
-                final List<BlockingState> subscriptionBlockingStatesOnDisk = Objects.requireNonNullElse(blockingStatesPerSubscription.get(subscription.getId()), Collections.emptyList());
+            final EventsStream eventStream = buildForEntitlement(account,
+                                                                 bundle,
+                                                                 baseSubscription,
+                                                                 subscription,
+                                                                 allSubscriptionsForBundle,
+                                                                 mergeBlockingStates(accountAndBundleBlockingStates, subscriptionBlockingStates),
+                                                                 accountBCD,
+                                                                 bcdCache,
+                                                                 catalog,
+                                                                 false, //includeDeletedEvents - set to false since it does not matter while building entitlements for account.
+                                                                 internalTenantContext);
+            eventsStreams.add(eventStream);
+        }
+        return eventsStreams;
+    }
 
-                // We cannot always use blockingStatesForAccount here: we need subscriptionBlockingStates to contain the events not on disk when building an EventsStream
-                // for an add-on - which means going through the magic of ProxyBlockingStateDao, which will recursively
-                // create EventsStream objects. To avoid an infinite recursion, bypass ProxyBlockingStateDao when it's not
-                // needed, i.e. if this EventStream is for a standalone or a base subscription
-                final Collection<BlockingState> subscriptionBlockingStates;
-                if (baseSubscription == null || subscription.getId().equals(baseSubscription.getId())) {
-                    subscriptionBlockingStates = subscriptionBlockingStatesOnDisk;
-                } else {
-                    subscriptionBlockingStates = blockingStateDao.getBlockingHistory(subscriptionBlockingStatesOnDisk,
-                                                                                     blockingStatesForAccount,
-                                                                                     account,
-                                                                                     bundle,
-                                                                                     baseSubscription,
-                                                                                     subscription,
-                                                                                     allSubscriptionsForBundle,
-                                                                                     accountBCD,
-                                                                                     catalog,
-                                                                                     false, //includeDeletedEvents set to false since deleted events are not needed while building entitlements for account.
-                                                                                     internalTenantContext);
+    private static List<BlockingState> mergeBlockingStates(final Collection<BlockingState> accountAndBundleBlockingStates, final Collection<BlockingState> subscriptionBlockingStates) {
+        final Collection<BlockingState> blockingStateSet = new LinkedHashSet<BlockingState>(accountAndBundleBlockingStates);
+        blockingStateSet.addAll(subscriptionBlockingStates);
+        return ProxyBlockingStateDao.sortedCopy(blockingStateSet);
+    }
 
+    // Run the tasks on the events streams pool if there are enough of them, on the caller thread otherwise. Results are returned in the tasks order.
+    private <T> List<T> invokeAll(final List<Callable<T>> tasks) throws EntitlementApiException {
+        final List<T> results = new ArrayList<>(tasks.size());
+        if (eventsStreamsPool == null || tasks.size() < parallelThreshold) {
+            for (final Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (final EntitlementApiException | RuntimeException e) {
+                    throw e;
+                } catch (final Exception e) {
+                    throw new IllegalStateException(e);
                 }
-
-                // Merge the BlockingStates
-                final Collection<BlockingState> blockingStateSet = new LinkedHashSet<BlockingState>(accountBlockingStates);
-                blockingStateSet.addAll(bundleBlockingStates);
-                blockingStateSet.addAll(subscriptionBlockingStates);
-                final List<BlockingState> blockingStates = ProxyBlockingStateDao.sortedCopy(blockingStateSet);
-
-                final EventsStream eventStream = buildForEntitlement(account,
-                                                                     bundle,
-                                                                     baseSubscription,
-                                                                     subscription,
-                                                                     allSubscriptionsForBundle,
-                                                                     blockingStates,
-                                                                     accountBCD,
-                                                                     bcdCache,
-                                                                     catalog,
-                                                                     false, //includeDeletedEvents - set to false since it does not matter while building entitlements for account.
-                                                                     internalTenantContext);
-                eventsStreamPerBundle.get(bundleId).add(eventStream);
             }
+            return results;
         }
 
-        return new DefaultAccountEventsStreams(account, bundles, subscriptionsPerBundle, eventsStreamPerBundle);
+        for (final Future<T> future : eventsStreamsPool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while building events streams", e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof EntitlementApiException) {
+                    throw (EntitlementApiException) e.getCause();
+                } else if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        return results;
     }
 
     public List<EventsStream> buildForBundle(final UUID bundleId, final InternalTenantContext internalTenantContext) throws EntitlementApiException {
@@ -39,8 +39,10 @@ import org.killbill.billing.glue.EntitlementModule;
 import org.killbill.billing.junction.BlockingInternalApi;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.definition.EntitlementConfig;
 import org.killbill.billing.util.glue.KillBillModule;
 import org.killbill.billing.util.glue.SecurityModule;
+import org.skife.config.AugmentedConfigurationObjectFactory;
 
 import com.google.inject.TypeLiteral;
 
@@ -57,6 +59,7 @@ public class DefaultEntitlementModule extends KillBillModule implements Entitlem
 
     @Override
     protected void configure() {
+        bind(EntitlementConfig.class).toInstance(new AugmentedConfigurationObjectFactory(skifeConfigSource).build(EntitlementConfig.class));
         installBlockingStateDao();
         installBlockingApi();
         installEntitlementApi();
@@ -133,6 +133,8 @@ public class EntitlementTestSuiteWithEmbeddedDB extends GuicyKillbillTestSuiteWi
     protected KillbillConfigSource getConfigSource(final Map<String, String> extraProperties) {
         final Map<String, String> allExtraProperties = new HashMap<String, String>(extraProperties);
         allExtraProperties.put("org.killbill.catalog.uri", "org/killbill/billing/catalog/catalogTest.xml");
+        // Exercise the parallel construction of the events streams, even for small accounts
+        allExtraProperties.put("org.killbill.entitlement.eventsStreams.parallelThreshold", "1");
         return getConfigSource(null, allExtraProperties);
     }
 
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.dao.DueAccount;
+import org.killbill.billing.invoice.dao.DueAccountDao;
+import org.killbill.billing.invoice.notification.DefaultNextBillingDateNotifier;
+import org.killbill.billing.invoice.notification.NextBillingDateNotificationKey;
+import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.billing.util.globallocker.LockerType;
+import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
+import org.killbill.commons.utils.Preconditions;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Invoice the due accounts in bulk (e.g. all the accounts whose billing cycle day falls on the 1st of the month).
+ * <p>
+ * When enabled, a run is scheduled every {@link InvoiceConfig#getBulkInvoiceRunInterval()}: it picks up to
+ * {@link InvoiceConfig#getBulkInvoiceRunBatchSize()} accounts with a ready next billing date notification and invoices
+ * them on a long-lived pool of {@link InvoiceConfig#getBulkInvoiceRunParallelism()} threads. Only one node runs at a time
+ * (global lock). Each account still goes through the regular {@link InvoiceDispatcher} path, so that it is invoiced under
+ * its account lock, with the same parking, plugin and notification semantics as the next billing date notification.
+ * The notifications consumed by the run are first claimed (as the queue would, so that it doesn't dispatch them concurrently), then removed
+ * once the account has been invoiced: the notifications of failed accounts are given back to the queue.
+ */
+public class BulkInvoiceRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkInvoiceRunner.class);
+
+    private static final String BULK_INVOICE_RUN_LOCK_KEY = "BULK_INVOICE_RUN";
+    private static final long TIMEOUT_EXECUTOR_SEC = 3L;
+
+    private final InvoiceDispatcher dispatcher;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final InvoiceConfig invoiceConfig;
+    private final DueAccountDao dueAccountDao;
+    private final NotificationQueueService notificationQueueService;
+    private final GlobalLocker locker;
+    private final Clock clock;
+
+    private volatile ExecutorService workerExecutor;
+    private volatile ScheduledExecutorService schedulerExecutor;
+
+    @Inject
+    public BulkInvoiceRunner(final InvoiceDispatcher dispatcher,
+                             final InternalCallContextFactory internalCallContextFactory,
+                             final InvoiceConfig invoiceConfig,
+                             final DueAccountDao dueAccountDao,
+                             final NotificationQueueService notificationQueueService,
+                             final GlobalLocker locker,
+                             final Clock clock) {
+        this.dispatcher = dispatcher;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.invoiceConfig = invoiceConfig;
+        this.dueAccountDao = dueAccountDao;
+        this.notificationQueueService = notificationQueueService;
+        this.locker = locker;
+        this.clock = clock;
+    }
+
+    public void start() {
+        if (!invoiceConfig.isBulkInvoiceRunEnabled()) {
+            return;
+        }
+
+        final int parallelism = invoiceConfig.getBulkInvoiceRunParallelism();
+        final int batchSize = invoiceConfig.getBulkInvoiceRunBatchSize();
+        Preconditions.checkArgument(parallelism > 0, "Bulk invoice run parallelism should be > 0, got %s", parallelism);
+        Preconditions.checkArgument(batchSize > 0, "Bulk invoice run batch size should be > 0, got %s", batchSize);
+
+        workerExecutor = Executors.newFixedThreadPool(parallelism, "BulkInvoiceRun");
+        schedulerExecutor = Executors.newSingleThreadScheduledExecutor("BulkInvoiceRunScheduler");
+
+        final long intervalMillis = invoiceConfig.getBulkInvoiceRunInterval().getMillis();
+        schedulerExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                runDueAccounts();
+            } catch (final RuntimeException e) {
+                // Don't let the exception cancel the subsequent runs
+                log.warn("Bulk invoice run failed", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (schedulerExecutor == null) {
+            return;
+        }
+
+        schedulerExecutor.shutdownNow();
+        workerExecutor.shutdownNow();
+        try {
+            schedulerExecutor.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+            workerExecutor.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            schedulerExecutor = null;
+            workerExecutor = null;
+        }
+    }
+
+    // Returns null if the run was skipped because another node is already running it
+    @VisibleForTesting
+    BulkInvoiceRunResult runDueAccounts() {
+        final GlobalLock lock;
+        try {
+            lock = locker.lockWithNumberOfTries(LockerType.BULK_INVOICE_RUN.toString(), BULK_INVOICE_RUN_LOCK_KEY, 1);
+        } catch (final LockFailedException e) {
+            log.debug("Skipping bulk invoice run, already in progress on another node");
+            return null;
+        }
+
+        try {
+            final NotificationQueue nextBillingQueue = notificationQueueService.getNotificationQueue(KILLBILL_SERVICES.INVOICE_SERVICE.getServiceName(),
+                                                                                                     DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+            final List<DueAccount> dueAccounts = dueAccountDao.getDueAccounts(nextBillingQueue.getFullQName(), clock.getUTCNow(), invoiceConfig.getBulkInvoiceRunBatchSize());
+            if (dueAccounts.isEmpty()) {
+                return new BulkInvoiceRunResult();
+            }
+            return run(dueAccounts, nextBillingQueue, UUIDs.randomUUID());
+        } catch (final NoSuchNotificationQueue e) {
+            throw new IllegalStateException("Next billing date queue is not available", e);
+        } finally {
+            lock.release();
+        }
+    }
+
+    private BulkInvoiceRunResult run(final List<DueAccount> dueAccounts, final NotificationQueue nextBillingQueue, final UUID userToken) {
+        final BulkInvoiceRunResult result = new BulkInvoiceRunResult();
+
+        // Accounts are submitted in target date order but processed independently: a slow account only holds one worker
+        final CompletionService<Void> completionService = new ExecutorCompletionService<>(workerExecutor);
+        for (final DueAccount dueAccount : dueAccounts) {
+            completionService.submit(() -> {
+                processAccount(dueAccount, nextBillingQueue, userToken, result);
+                return null;
+            });
+        }
+
+        for (int i = 0; i < dueAccounts.size(); i++) {
+            try {
+                completionService.take().get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during bulk invoice run", e);
+            } catch (final ExecutionException e) {
+                // processAccount already logs and counts failures, this is only hit on unexpected errors
+                log.warn("Unexpected error during bulk invoice run", e.getCause());
+            }
+        }
+
+        log.info("Bulk invoice run completed: nbAccounts='{}', nbInvoices='{}', nbFailures='{}'", result.getNbAccounts(), result.getNbInvoices(), result.getNbFailures());
+        return result;
+    }
+
+    private void processAccount(final DueAccount dueAccount, final NotificationQueue nextBillingQueue, final UUID userToken, final BulkInvoiceRunResult result) {
+        final DateTime now = clock.getUTCNow();
+
+        // Only consume the ready, non dry-run, notifications (dry-run ones are only used to trigger the INVOICE_NOTIFICATION event)
+        final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> readyNotifications = new ArrayList<>();
+        final Iterator<NotificationEventWithMetadata<NextBillingDateNotificationKey>> iterator = nextBillingQueue.<NextBillingDateNotificationKey>getFutureNotificationForSearchKeys(dueAccount.getAccountRecordId(), dueAccount.getTenantRecordId()).iterator();
+        try {
+            while (iterator.hasNext()) {
+                final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification = iterator.next();
+                if (!notification.getEffectiveDate().isAfter(now) && !Boolean.TRUE.equals(notification.getEvent().isDryRunForInvoiceNotification())) {
+                    readyNotifications.add(notification);
+                }
+            }
+        } finally {
+            // Go through all results to close the connection
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+        }
+
+        // The queue might pick them up at the same time
+        final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> claimedNotifications = new ArrayList<>(readyNotifications.size());
+        for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : readyNotifications) {
+            if (dueAccountDao.claimNotification(notification.getRecordId(), now)) {
+                claimedNotifications.add(notification);
+            }
+        }
+        if (claimedNotifications.isEmpty()) {
+            // Already processed (or being processed) by the notification queue
+            return;
+        }
+
+        DateTime targetDate = null;
+        boolean isRescheduled = false;
+        for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : claimedNotifications) {
+            final DateTime notificationTargetDate = notification.getEvent().getTargetDate() != null ? notification.getEvent().getTargetDate() : notification.getEffectiveDate();
+            if (targetDate == null || notificationTargetDate.isAfter(targetDate)) {
+                targetDate = notificationTargetDate;
+            }
+            isRescheduled = isRescheduled || Boolean.TRUE.equals(notification.getEvent().isRescheduled());
+        }
+
+        result.nbAccounts.incrementAndGet();
+        try {
+            final InternalCallContext context = internalCallContextFactory.createInternalCallContext(dueAccount.getTenantRecordId(), dueAccount.getAccountRecordId(), "Bulk Invoice Run", CallOrigin.INTERNAL, UserType.SYSTEM, userToken);
+            final List<Invoice> invoices = dispatcher.processSubscriptionForInvoiceGeneration(context.toLocalDate(targetDate), isRescheduled, context);
+            result.nbInvoices.addAndGet(invoices.size());
+        } catch (final InvoiceApiException | RuntimeException e) {
+            result.nbFailures.incrementAndGet();
+            log.warn("Failed to invoice accountRecordId='{}', tenantRecordId='{}', targetDate='{}' during bulk invoice run, leaving it to the notification queue",
+                     dueAccount.getAccountRecordId(), dueAccount.getTenantRecordId(), targetDate, e);
+            for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : claimedNotifications) {
+                dueAccountDao.releaseNotification(notification.getRecordId());
+            }
+            return;
+        }
+
+        for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : claimedNotifications) {
+            nextBillingQueue.removeNotification(notification.getRecordId());
+        }
+    }
+
+    public static class BulkInvoiceRunResult {
+
+        private final AtomicInteger nbAccounts = new AtomicInteger();
+        private final AtomicInteger nbInvoices = new AtomicInteger();
+        private final AtomicInteger nbFailures = new AtomicInteger();
+
+        public int getNbAccounts() {
+            return nbAccounts.get();
+        }
+
+        public int getNbInvoices() {
+            return nbInvoices.get();
+        }
+
+        public int getNbFailures() {
+            return nbFailures.get();
+        }
+    }
+}
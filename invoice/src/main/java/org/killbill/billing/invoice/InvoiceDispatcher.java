@@ -257,15 +257,16 @@ public class InvoiceDispatcher {
     public void processSubscriptionForInvoiceGeneration(final EffectiveSubscriptionInternalEvent transition,
                                                         final InternalCallContext context) throws InvoiceApiException {
         final LocalDate targetDate = context.toLocalDate(transition.getEffectiveTransitionTime());
-        processSubscriptionForInvoiceGeneration(targetDate, false, context);
+        processSubscriptionInternal(targetDate, false, false, false, context);
     }
 
-    public void processSubscriptionForInvoiceGeneration(final LocalDate targetDate, final boolean isRescheduled, final InternalCallContext context) throws InvoiceApiException {
-        processSubscriptionInternal(targetDate, false, isRescheduled, context);
+    public List<Invoice> processSubscriptionForInvoiceGeneration(final LocalDate targetDate, final boolean isRescheduled, final InternalCallContext context) throws InvoiceApiException {
+        // Rescheduled runs (e.g. lock contention while handling a subscription change) don't qualify as scheduled runs
+        return processSubscriptionInternal(targetDate, false, isRescheduled, !isRescheduled, context);
     }
 
     public void processSubscriptionForInvoiceNotification(final LocalDate targetDate, final InternalCallContext context) throws InvoiceApiException {
-        final List<Invoice> dryRunInvoices = processSubscriptionInternal(targetDate, true, false, context);
+        final List<Invoice> dryRunInvoices = processSubscriptionInternal(targetDate, true, false, false, context);
         for (final Invoice dryRunInvoice : dryRunInvoices) {
 
             // TODO_1658 Confirm we should we send a bus event per invoice in the group
@@ -282,11 +283,11 @@ public class InvoiceDispatcher {
         }
     }
 
-    private List<Invoice> processSubscriptionInternal(final LocalDate targetDate, final boolean dryRunForNotification, final boolean isRescheduled, final InternalCallContext context) throws InvoiceApiException {
+    private List<Invoice> processSubscriptionInternal(final LocalDate targetDate, final boolean dryRunForNotification, final boolean isRescheduled, final boolean isScheduledRun, final InternalCallContext context) throws InvoiceApiException {
         final CallContext callContext = internalCallContextFactory.createCallContext(context);
         final UUID accountId = callContext.getAccountId();
         final DryRunArguments dryRunArguments = dryRunForNotification ? TARGET_DATE_DRY_RUN_ARGUMENTS : null;
-        return processAccountFromNotificationOrBusEvent(accountId, targetDate, dryRunArguments, isRescheduled, context);
+        return processAccountFromNotificationOrBusEvent(accountId, targetDate, dryRunArguments, isRescheduled, isScheduledRun, context);
     }
 
     public List<Invoice> processAccountFromNotificationOrBusEvent(final UUID accountId,
@@ -294,12 +295,21 @@ public class InvoiceDispatcher {
                                                             @Nullable final DryRunArguments dryRunArguments,
                                                             final boolean isRescheduled,
                                                             final InternalCallContext context) throws InvoiceApiException {
+        return processAccountFromNotificationOrBusEvent(accountId, targetDate, dryRunArguments, isRescheduled, false, context);
+    }
+
+    private List<Invoice> processAccountFromNotificationOrBusEvent(final UUID accountId,
+                                                                   @Nullable final LocalDate targetDate,
+                                                                   @Nullable final DryRunArguments dryRunArguments,
+                                                                   final boolean isRescheduled,
+                                                                   final boolean isScheduledRun,
+                                                                   final InternalCallContext context) throws InvoiceApiException {
         if (!invoiceConfig.isInvoicingSystemEnabled(context)) {
             log.warn("Invoicing system is off, parking accountId='{}'", accountId);
             parkAccount(accountId, context);
             return Collections.emptyList();
         }
-        return processAccount(false, accountId, targetDate, dryRunArguments, isRescheduled, true, Collections.emptyList(), context);
+        return processAccount(false, accountId, targetDate, dryRunArguments, isRescheduled, true, isScheduledRun, Collections.emptyList(), context);
     }
 
 
@@ -311,6 +321,18 @@ public class InvoiceDispatcher {
                                         final boolean allowSplitting,
                                         final Iterable<PluginProperty> properties,
                                         final InternalCallContext context) throws InvoiceApiException {
+        return processAccount(isApiCall, accountId, targetDate, dryRunArguments, isRescheduled, allowSplitting, false, properties, context);
+    }
+
+    private List<Invoice> processAccount(final boolean isApiCall,
+                                         final UUID accountId,
+                                         @Nullable final LocalDate targetDate,
+                                         @Nullable final DryRunArguments dryRunArguments,
+                                         final boolean isRescheduled,
+                                         final boolean allowSplitting,
+                                         final boolean isScheduledRun,
+                                         final Iterable<PluginProperty> properties,
+                                         final InternalCallContext context) throws InvoiceApiException {
         boolean parkedAccount = false;
         try {
             parkedAccount = parkedAccountsManager.isParked(context);
@@ -327,7 +349,7 @@ public class InvoiceDispatcher {
             // Grab lock unless we do a dry-run
             final boolean isDryRun = dryRunArguments != null;
             lock = !isDryRun ? locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), accountId.toString(), invoiceConfig.getMaxGlobalLockRetries()) : null;
-            return processAccountInternal(isApiCall, parkedAccount, accountId, targetDate, dryRunArguments, isRescheduled, allowSplitting, properties, context);
+            return processAccountInternal(isApiCall, parkedAccount, accountId, targetDate, dryRunArguments, isRescheduled, allowSplitting, isScheduledRun, properties, context);
         } catch (final LockFailedException e) {
             if (isApiCall) {
                 throw new InvoiceApiException(e, ErrorCode.UNEXPECTED_ERROR, "Failed to generate invoice: failed to acquire lock");
@@ -376,6 +398,7 @@ public class InvoiceDispatcher {
                                                  @Nullable final DryRunArguments dryRunArguments,
                                                  final boolean isRescheduled,
                                                  final boolean allowSplitting,
+                                                 final boolean isScheduledRun,
                                                  final Iterable<PluginProperty> properties,
                                                  final InternalCallContext context) throws InvoiceApiException {
         final boolean isDryRun = dryRunArguments != null;
@@ -396,7 +419,7 @@ public class InvoiceDispatcher {
         try {
 
             long startNano = System.nanoTime();
-            final AccountInvoices accountInvoices = invoiceOptimizer.getInvoices(context);
+            final AccountInvoices accountInvoices = isScheduledRun && !isDryRun ? invoiceOptimizer.getInvoicesForScheduledRun(context) : invoiceOptimizer.getInvoices(context);
             invoiceTimings.put(InvoiceTiming.FETCH_INVOICES, System.nanoTime() - startNano);
 
             // Make sure to first set the BCD if needed then get the account object (to have the BCD set)
@@ -24,8 +24,10 @@ import javax.inject.Inject;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.events.ControlTagCreationInternalEvent;
 import org.killbill.billing.events.ControlTagDeletionInternalEvent;
 import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.platform.api.KillbillService;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
@@ -54,6 +56,8 @@ public class InvoiceTagHandler extends RetryableService implements KillbillServi
     private static final Logger log = LoggerFactory.getLogger(InvoiceTagHandler.class);
 
     private final InvoiceDispatcher dispatcher;
+    private final InvoiceDao invoiceDao;
+    private final InternalCallContextFactory internalCallContextFactory;
     private final RetryableSubscriber retryableSubscriber;
     private final BusDispatcherOptimizer busDispatcherOptimizer;
 
@@ -62,11 +66,14 @@ public class InvoiceTagHandler extends RetryableService implements KillbillServi
     @Inject
     public InvoiceTagHandler(final Clock clock,
                              final InvoiceDispatcher dispatcher,
+                             final InvoiceDao invoiceDao,
                              final NotificationQueueService notificationQueueService,
                              final BusDispatcherOptimizer busDispatcherOptimizer,
                              final InternalCallContextFactory internalCallContextFactory) {
         super(notificationQueueService);
         this.dispatcher = dispatcher;
+        this.invoiceDao = invoiceDao;
+        this.internalCallContextFactory = internalCallContextFactory;
         this.busDispatcherOptimizer = busDispatcherOptimizer;
 
         final SubscriberAction<ControlTagDeletionInternalEvent> action = new SubscriberAction<ControlTagDeletionInternalEvent>() {
@@ -76,10 +83,22 @@ public class InvoiceTagHandler extends RetryableService implements KillbillServi
                     final UUID accountId = event.getObjectId();
                     final InternalCallContext context = internalCallContextFactory.createInternalCallContext(event.getSearchKey2(), event.getSearchKey1(), "InvoiceTagHandler", CallOrigin.INTERNAL, UserType.SYSTEM, event.getUserToken());
                     processUnpaid_AUTO_INVOICING_OFF_invoices(accountId, context);
+                } else if (isInvoice_WRITTEN_OFF(event.getTagDefinition().getName(), event.getObjectType())) {
+                    refreshUnpaidInvoicesSummary(event.getSearchKey1(), event.getSearchKey2(), event.getUserToken());
                 }
             }
         };
         subscriberQueueHandler.subscribe(ControlTagDeletionInternalEvent.class, action);
+
+        final SubscriberAction<ControlTagCreationInternalEvent> creationAction = new SubscriberAction<ControlTagCreationInternalEvent>() {
+            @Override
+            public void run(final ControlTagCreationInternalEvent event) {
+                if (isInvoice_WRITTEN_OFF(event.getTagDefinition().getName(), event.getObjectType())) {
+                    refreshUnpaidInvoicesSummary(event.getSearchKey1(), event.getSearchKey2(), event.getUserToken());
+                }
+            }
+        };
+        subscriberQueueHandler.subscribe(ControlTagCreationInternalEvent.class, creationAction);
         this.retryableSubscriber = new RetryableSubscriber(clock, this, subscriberQueueHandler);
     }
 
@@ -106,6 +125,14 @@ public class InvoiceTagHandler extends RetryableService implements KillbillServi
         }
     }
 
+    @AllowConcurrentEvents
+    @Subscribe
+    public void process_WRITTEN_OFF_creation(final ControlTagCreationInternalEvent event) {
+        if (busDispatcherOptimizer.shouldDispatch(event)) {
+            retryableSubscriber.handleEvent(event);
+        }
+    }
+
     @LifecycleHandlerType(LifecycleLevel.START_SERVICE)
     public void start() {
         super.start();
@@ -116,6 +143,16 @@ public class InvoiceTagHandler extends RetryableService implements KillbillServi
         super.stop();
     }
 
+    private static boolean isInvoice_WRITTEN_OFF(final String tagDefinitionName, final ObjectType objectType) {
+        return tagDefinitionName.equals(ControlTagType.WRITTEN_OFF.toString()) && objectType == ObjectType.INVOICE;
+    }
+
+    // WRITTEN_OFF invoices are not unpaid anymore (tags can also be set through the generic tag APIs)
+    private void refreshUnpaidInvoicesSummary(final Long accountRecordId, final Long tenantRecordId, final UUID userToken) {
+        final InternalCallContext context = internalCallContextFactory.createInternalCallContext(tenantRecordId, accountRecordId, "InvoiceTagHandler", CallOrigin.INTERNAL, UserType.SYSTEM, userToken);
+        invoiceDao.refreshUnpaidInvoicesSummary(context);
+    }
+
     private void processUnpaid_AUTO_INVOICING_OFF_invoices(final UUID accountId, final InternalCallContext context) {
         try {
             dispatcher.processAccountFromNotificationOrBusEvent(accountId, null, null, false, context);
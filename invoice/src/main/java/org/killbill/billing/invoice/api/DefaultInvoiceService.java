@@ -23,6 +23,7 @@ import javax.inject.Inject;
 import org.killbill.billing.invoice.notification.ParentInvoiceCommitmentNotifier;
 import org.killbill.billing.util.optimizer.BusOptimizer;
 import org.killbill.bus.api.PersistentBus;
+import org.killbill.billing.invoice.BulkInvoiceRunner;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
 import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
@@ -38,15 +39,18 @@ public class DefaultInvoiceService implements InvoiceService {
     private final InvoiceTagHandler tagHandler;
     private final BusOptimizer eventBus;
     private final ParentInvoiceCommitmentNotifier parentInvoiceNotifier;
+    private final BulkInvoiceRunner bulkInvoiceRunner;
 
     @Inject
     public DefaultInvoiceService(final InvoiceListener invoiceListener, final InvoiceTagHandler tagHandler, final BusOptimizer eventBus,
-                                 final NextBillingDateNotifier dateNotifier, final ParentInvoiceCommitmentNotifier parentInvoiceNotifier) {
+                                 final NextBillingDateNotifier dateNotifier, final ParentInvoiceCommitmentNotifier parentInvoiceNotifier,
+                                 final BulkInvoiceRunner bulkInvoiceRunner) {
         this.invoiceListener = invoiceListener;
         this.tagHandler = tagHandler;
         this.eventBus = eventBus;
         this.dateNotifier = dateNotifier;
         this.parentInvoiceNotifier = parentInvoiceNotifier;
+        this.bulkInvoiceRunner = bulkInvoiceRunner;
     }
 
     @Override
@@ -75,6 +79,7 @@ public class DefaultInvoiceService implements InvoiceService {
     public void start() {
         dateNotifier.start();
         parentInvoiceNotifier.start();
+        bulkInvoiceRunner.start();
     }
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
@@ -85,6 +90,7 @@ public class DefaultInvoiceService implements InvoiceService {
         } catch (PersistentBus.EventBusException e) {
             throw new RuntimeException("Failed to unregister bus handlers", e);
         }
+        bulkInvoiceRunner.stop();
         dateNotifier.stop();
         parentInvoiceNotifier.stop();
     }
@@ -43,10 +43,12 @@ import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoicePaymentStatus;
 import org.killbill.billing.invoice.api.InvoicePaymentType;
 import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.invoice.api.WithAccountLock;
 import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceModelDao;
 import org.killbill.billing.invoice.dao.InvoicePaymentModelDao;
+import org.killbill.billing.invoice.dao.UnpaidInvoicesSummaryModelDao;
 import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.billing.invoice.model.DefaultInvoicePayment;
 import org.killbill.billing.payment.api.PluginProperty;
@@ -98,6 +100,15 @@ public class DefaultInvoiceInternalApi implements InvoiceInternalApi {
         return invoices;
     }
 
+    @Override
+    public UnpaidInvoicesSummary getUnpaidInvoicesSummary(final UUID accountId, final LocalDate upToDate, final InternalTenantContext context) {
+        final UnpaidInvoicesSummaryModelDao summary = dao.getUnpaidInvoicesSummary(accountId, upToDate, context);
+        return new UnpaidInvoicesSummary(summary.getNbUnpaidInvoices(),
+                                         summary.getUnpaidInvoiceBalance(),
+                                         summary.getEarliestUnpaidInvoiceDate(),
+                                         summary.getEarliestUnpaidInvoiceId());
+    }
+
     @Override
     public void recordPaymentAttemptInit(final UUID invoiceId, final BigDecimal amount, final Currency currency, final Currency processedCurrency, final UUID paymentId, final UUID paymentAttemptId, final String transactionExternalKey, final DateTime paymentDate, final InternalCallContext context) throws InvoiceApiException {
         final InvoicePayment invoicePayment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoiceId, paymentDate, amount, currency, processedCurrency, transactionExternalKey, InvoicePaymentStatus.INIT);
@@ -315,6 +315,8 @@ public class DefaultInvoiceUserApi implements InvoiceUserApi {
         // Note: the tagApi is audited
         final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(invoiceId, ObjectType.INVOICE, context);
         tagApi.addTag(invoiceId, ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), internalContext);
+        // Before notifying overdue (the tag event also triggers the refresh, asynchronously)
+        dao.refreshUnpaidInvoicesSummary(internalContext);
 
         // Retrieve the invoice for the account id
         final Invoice invoice = new DefaultInvoice(dao.getById(invoiceId, internalContext));
@@ -327,6 +329,8 @@ public class DefaultInvoiceUserApi implements InvoiceUserApi {
         // Note: the tagApi is audited
         final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(invoiceId, ObjectType.INVOICE, context);
         tagApi.removeTag(invoiceId, ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), internalContext);
+        // Before notifying overdue (the tag event also triggers the refresh, asynchronously)
+        dao.refreshUnpaidInvoicesSummary(internalContext);
 
         // Retrieve the invoice for the account id
         final Invoice invoice = new DefaultInvoice(dao.getById(invoiceId, internalContext));
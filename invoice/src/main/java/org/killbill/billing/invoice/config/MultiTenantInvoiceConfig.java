@@ -141,6 +141,20 @@ public class MultiTenantInvoiceConfig extends MultiTenantLockAwareConfigBase imp
         return getMaxInvoiceLimit();
     }
 
+    @Override
+    public boolean isIncrementalGenerationEnabled() {
+        return staticConfig.isIncrementalGenerationEnabled();
+    }
+
+    @Override
+    public boolean isIncrementalGenerationEnabled(final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("isIncrementalGenerationEnabled", tenantContext);
+        if (result != null) {
+            return Boolean.parseBoolean(result);
+        }
+        return isIncrementalGenerationEnabled();
+    }
+
     @Override
     public int getProrationFixedDays() {
         return staticConfig.getProrationFixedDays();
@@ -170,6 +184,20 @@ public class MultiTenantInvoiceConfig extends MultiTenantLockAwareConfigBase imp
         return getMaxRawUsagePreviousPeriod();
     }
 
+    @Override
+    public boolean isUsageAggregatesEnabled() {
+        return staticConfig.isUsageAggregatesEnabled();
+    }
+
+    @Override
+    public boolean isUsageAggregatesEnabled(final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("isUsageAggregatesEnabled", tenantContext);
+        if (result != null) {
+            return Boolean.parseBoolean(result);
+        }
+        return isUsageAggregatesEnabled();
+    }
+
     @Override
     public boolean isEmailNotificationsEnabled() {
         return staticConfig.isEmailNotificationsEnabled();
@@ -180,6 +208,31 @@ public class MultiTenantInvoiceConfig extends MultiTenantLockAwareConfigBase imp
         return staticConfig.getMaxGlobalLockRetries();
     }
 
+    @Override
+    public boolean isBulkInvoiceRunEnabled() {
+        return staticConfig.isBulkInvoiceRunEnabled();
+    }
+
+    @Override
+    public TimeSpan getBulkInvoiceRunInterval() {
+        return staticConfig.getBulkInvoiceRunInterval();
+    }
+
+    @Override
+    public int getBulkInvoiceRunParallelism() {
+        return staticConfig.getBulkInvoiceRunParallelism();
+    }
+
+    @Override
+    public int getBulkInvoiceRunBatchSize() {
+        return staticConfig.getBulkInvoiceRunBatchSize();
+    }
+
+    @Override
+    public boolean isFlatItemTreeEnabled() {
+        return staticConfig.isFlatItemTreeEnabled();
+    }
+
     @Override
     public List<String> getInvoicePluginNames() {
         return staticConfig.getInvoicePluginNames();
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.joda.time.DateTime;
+import org.killbill.CreatorName;
+import org.killbill.billing.util.entity.dao.DBRouter;
+import org.killbill.notificationq.api.NotificationQueueConfig;
+import org.skife.jdbi.v2.IDBI;
+
+import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
+
+public class DefaultDueAccountDao implements DueAccountDao {
+
+    public static final String NOTIFICATION_QUEUE_CONFIG_NAMED = "DueAccountNotificationQueueConfig";
+
+    private final DBRouter<DueAccountSqlDao> dbRouter;
+    private final NotificationQueueConfig notificationQueueConfig;
+
+    @Inject
+    public DefaultDueAccountDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, @Named(NOTIFICATION_QUEUE_CONFIG_NAMED) final NotificationQueueConfig notificationQueueConfig) {
+        this.dbRouter = new DBRouter<DueAccountSqlDao>(dbi, roDbi, DueAccountSqlDao.class);
+        this.notificationQueueConfig = notificationQueueConfig;
+    }
+
+    @Override
+    public List<DueAccount> getDueAccounts(final String queueName, final DateTime maxEffectiveDate, final int limit) {
+        // Notifications are claimed concurrently by the queue: don't read them from a replica
+        return dbRouter.onDemand(false).getDueAccounts(queueName, maxEffectiveDate.toDate(), limit, notificationQueueConfig.getTableName());
+    }
+
+    @Override
+    public boolean claimNotification(final Long recordId, final DateTime now) {
+        final DateTime processingAvailableDate = now.plus(notificationQueueConfig.getClaimedTime().getMillis());
+        return dbRouter.onDemand(false).claimNotification(recordId, CreatorName.get(), processingAvailableDate.toDate(), notificationQueueConfig.getTableName()) == 1;
+    }
+
+    @Override
+    public void releaseNotification(final Long recordId) {
+        dbRouter.onDemand(false).releaseNotification(recordId, CreatorName.get(), notificationQueueConfig.getTableName());
+    }
+}
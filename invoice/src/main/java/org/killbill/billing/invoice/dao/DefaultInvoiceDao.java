@@ -20,6 +20,7 @@
 package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -43,6 +44,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDate;
 import org.joda.time.LocalTime;
 import org.killbill.billing.ErrorCode;
@@ -86,6 +88,7 @@ import org.killbill.billing.util.config.definition.InvoiceConfig;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.IntegerCustomField;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.dao.SqlStates;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
@@ -477,10 +480,19 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final List<CustomField> invoiceCustomFields = getInvoiceCustomFields(context);
         final List<Tag> invoicesTags = getInvoicesTags(context);
 
+        // Invoices which may be created or modified (besides the CBA logic)
+        final Set<UUID> writtenInvoiceIds = new HashSet<UUID>(invoiceIdsReferencedFromItems);
+        for (final InvoiceModelDao invoiceModelDao : inputInvoices) {
+            writtenInvoiceIds.add(invoiceModelDao.getId());
+        }
+
         final Map<UUID, InvoiceModelDao> inputInvoicesById = new HashMap<UUID, InvoiceModelDao>();
         return transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<List<InvoiceItemModelDao>>() {
             @Override
             public List<InvoiceItemModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final UnpaidInvoicesSummaryDelta unpaidInvoicesSummaryDelta = new UnpaidInvoicesSummaryDelta(invoiceDaoHelper, entitySqlDaoWrapperFactory, context);
+                unpaidInvoicesSummaryDelta.snapshot(writtenInvoiceIds);
+
                 final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
                 final InvoiceItemSqlDao transInvoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
                 final InvoiceBillingEventSqlDao billingEventSqlDao = entitySqlDaoWrapperFactory.become(InvoiceBillingEventSqlDao.class);
@@ -596,16 +608,19 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 //
                 // Optimized path where we don't need to refresh invoices
                 final CBALogicWrapper cbaWrapper = new CBALogicWrapper(accountId, invoiceCustomFields, invoicesTags, context, entitySqlDaoWrapperFactory);
+                final Set<UUID> cbaInvoiceIds;
                 if (createdInvoiceIds.equals(allInvoiceIds)) {
                     final List<InvoiceModelDao> cbaInvoicesInput = new ArrayList<>();
                     for (final UUID id : createdInvoiceIds) {
                         cbaInvoicesInput.add(inputInvoicesById.get(id));
                     }
-                    cbaWrapper.runCBALogicWithNotificationEvents(adjustedCommittedInvoiceIds, createdInvoiceIds, cbaInvoicesInput);
+                    cbaInvoiceIds = cbaWrapper.runCBALogicWithNotificationEvents(adjustedCommittedInvoiceIds, createdInvoiceIds, cbaInvoicesInput);
                 } else {
-                    cbaWrapper.runCBALogicWithNotificationEvents(adjustedCommittedInvoiceIds, createdInvoiceIds, allInvoiceIds);
+                    cbaInvoiceIds = cbaWrapper.runCBALogicWithNotificationEvents(adjustedCommittedInvoiceIds, createdInvoiceIds, allInvoiceIds);
                 }
 
+                unpaidInvoicesSummaryDelta.apply(cbaInvoiceIds);
+
                 if (trackingIds != null && !trackingIds.isEmpty()) {
                     final InvoiceTrackingSqlDao trackingIdsSqlDao = entitySqlDaoWrapperFactory.become(InvoiceTrackingSqlDao.class);
                     trackingIdsSqlDao.create(trackingIds, context);
@@ -772,6 +787,15 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         return transactionalSqlDao.execute(true, entityWrapperFactory -> cbaDao.getAccountCBAFromTransaction(entityWrapperFactory, context));
     }
 
+    @Override
+    public LocalDate getBilledThroughCutoffDate(final InternalTenantContext context) {
+        return transactionalSqlDao.execute(true, entityWrapperFactory -> {
+            final Timestamp cutoffDate = entityWrapperFactory.become(InvoiceItemSqlDao.class).getBilledThroughCutoffDate(context);
+            // Same conversion as MapperBase#getDate for DATE columns
+            return cutoffDate != null ? new LocalDate(cutoffDate, DateTimeZone.UTC) : null;
+        });
+    }
+
     @Override
     public List<InvoiceModelDao> getUnpaidInvoicesByAccountId(final UUID accountId, @Nullable final LocalDate startDate, @Nullable final LocalDate upToDate, final InternalTenantContext context) {
         final List<CustomField> invoiceCustomFields = getInvoiceCustomFields(context);
@@ -780,6 +804,71 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         return transactionalSqlDao.execute(true, entityWrapperFactory -> invoiceDaoHelper.getUnpaidInvoicesByAccountFromTransaction(accountId, invoiceCustomFields, invoicesTags, entityWrapperFactory, startDate, upToDate, context));
     }
 
+    @Override
+    public UnpaidInvoicesSummaryModelDao getUnpaidInvoicesSummary(final UUID accountId, @Nullable final LocalDate upToDate, final InternalTenantContext context) {
+        Preconditions.checkArgument(context.getAccountRecordId() != null, "context.getAccountRecordId() is null");
+
+        final UnpaidInvoicesSummaryModelDao summary = transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> entitySqlDaoWrapperFactory.getHandle()
+                                                                                                                                               .attach(UnpaidInvoicesSummarySqlDao.class)
+                                                                                                                                               .getByAccountRecordId(context));
+        if (summary != null && summary.isValidFor(upToDate)) {
+            return summary;
+        }
+
+        if (summary == null) {
+            // First read: only start tracking the account (the write transactions refresh existing summaries), the next read builds the summary
+            createStaleUnpaidInvoicesSummary(accountId, context);
+        }
+
+        final List<CustomField> invoiceCustomFields = getInvoiceCustomFields(context);
+        final List<Tag> invoicesTags = getInvoicesTags(context);
+        return transactionalSqlDao.execute(summary == null, entitySqlDaoWrapperFactory -> {
+            final UnpaidInvoicesSummaryModelDao newSummary = computeUnpaidInvoicesSummary(accountId, invoiceCustomFields, invoicesTags, upToDate, entitySqlDaoWrapperFactory, context);
+            if (summary != null) {
+                // No-op if an invoice or payment write refreshed (or marked stale) the summary in the meantime
+                entitySqlDaoWrapperFactory.getHandle().attach(UnpaidInvoicesSummarySqlDao.class).updateIfVersion(newSummary, summary.getVersion(), context);
+            }
+            return newSummary;
+        });
+    }
+
+    @Override
+    public void refreshUnpaidInvoicesSummary(final InternalCallContext context) {
+        final List<CustomField> invoiceCustomFields = getInvoiceCustomFields(context);
+        final List<Tag> invoicesTags = getInvoicesTags(context);
+        transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            refreshUnpaidInvoicesSummary(entitySqlDaoWrapperFactory, invoiceCustomFields, invoicesTags, context);
+            return null;
+        });
+    }
+
+    private void createStaleUnpaidInvoicesSummary(final UUID accountId, final InternalTenantContext context) {
+        try {
+            transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+                entitySqlDaoWrapperFactory.getHandle().attach(UnpaidInvoicesSummarySqlDao.class).create(UnpaidInvoicesSummaryModelDao.stale(accountId), context);
+                return null;
+            });
+        } catch (final RuntimeException e) {
+            // Created concurrently
+            if (!SqlStates.isIntegrityConstraintViolation(e)) {
+                throw e;
+            }
+        }
+    }
+
+    private UnpaidInvoicesSummaryModelDao computeUnpaidInvoicesSummary(final UUID accountId,
+                                                                       final List<CustomField> invoiceCustomFields,
+                                                                       final List<Tag> invoicesTags,
+                                                                       @Nullable final LocalDate upToDate,
+                                                                       final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                                                       final InternalTenantContext context) {
+        final List<InvoiceModelDao> invoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(false, true, invoiceCustomFields, invoicesTags, entitySqlDaoWrapperFactory, context);
+        final List<InvoiceModelDao> unpaidInvoices = invoiceDaoHelper.getUnpaidInvoicesByAccountFromTransaction(invoices, null, null);
+        // Child invoices balances depend on the parent invoices, which are written with the parent account context: never reuse the summary
+        final boolean hasChildInvoices = invoices.stream().anyMatch(invoice -> invoice.getParentInvoice() != null);
+        return UnpaidInvoicesSummaryModelDao.fromUnpaidInvoices(accountId, unpaidInvoices, upToDate, hasChildInvoices);
+    }
+
     @Override
     public UUID getInvoiceIdByPaymentId(final UUID paymentId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getInvoiceIdByPaymentId(paymentId.toString(), context));
@@ -834,6 +923,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                                 .findFirst()
                                                                 .orElseThrow(() -> new InvoiceApiException(ErrorCode.INVOICE_PAYMENT_BY_ATTEMPT_NOT_FOUND, paymentId));
 
+            final UnpaidInvoicesSummaryDelta unpaidInvoicesSummaryDelta = new UnpaidInvoicesSummaryDelta(invoiceDaoHelper, entitySqlDaoWrapperFactory, context);
+            unpaidInvoicesSummaryDelta.snapshot(Set.of(payment.getInvoiceId()));
+
             // Retrieve the amounts to adjust, if needed
             final Map<UUID, BigDecimal> invoiceItemIdsWithAmounts = invoiceDaoHelper.computeItemAdjustments(payment.getInvoiceId().toString(),
                                                                                                             invoiceCustomFields,
@@ -846,6 +938,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             final BigDecimal requestedPositiveAmount = invoiceDaoHelper.computePositiveRefundAmount(payment, requestedRefundAmount, invoiceItemIdsWithAmounts);
 
             InvoicePaymentModelDao result;
+            final Set<UUID> cbaInvoiceIds = new HashSet<>();
 
             // Before we go further, check if that refund already got inserted -- the payment system keeps a state machine
             // and so this call may be called several time for the same  paymentCookieId (which is really the refundId)
@@ -915,9 +1008,10 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
                 // The invoice object has been kept up-to-date, we can pass it to CBA complexity
                 final CBALogicWrapper cbaWrapper = new CBALogicWrapper(invoice.getAccountId(), invoiceCustomFields, invoicesTags, context, entitySqlDaoWrapperFactory);
-                cbaWrapper.runCBALogicWithNotificationEvents(initSet, Collections.emptySet(), List.of(invoice));
+                cbaInvoiceIds.addAll(cbaWrapper.runCBALogicWithNotificationEvents(initSet, Collections.emptySet(), List.of(invoice)));
 
             }
+            unpaidInvoicesSummaryDelta.apply(cbaInvoiceIds);
             final UUID accountId = transactional.getAccountIdFromInvoicePaymentId(result.getId().toString(), context);
             notifyBusOfInvoicePayment(entitySqlDaoWrapperFactory, result, accountId, paymentAttemptId, context.getUserToken(), context);
             return result;
@@ -956,6 +1050,10 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             if (payment == null) {
                 throw new InvoiceApiException(ErrorCode.INVOICE_PAYMENT_NOT_FOUND, invoicePaymentId.toString());
             }
+
+            final UnpaidInvoicesSummaryDelta unpaidInvoicesSummaryDelta = new UnpaidInvoicesSummaryDelta(invoiceDaoHelper, entitySqlDaoWrapperFactory, context);
+            unpaidInvoicesSummaryDelta.snapshot(Set.of(payment.getInvoiceId()));
+
             final InvoicePaymentModelDao chargeBack = new InvoicePaymentModelDao(UUIDs.randomUUID(), context.getCreatedDate(), InvoicePaymentType.CHARGED_BACK,
                                                                                  payment.getInvoiceId(), payment.getPaymentId(), context.getCreatedDate(),
                                                                                  requestedChargedBackAmount.negate(), payment.getCurrency(), payment.getProcessedCurrency(),
@@ -966,7 +1064,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             final UUID accountId = transactional.getAccountIdFromInvoicePaymentId(chargeBack.getId().toString(), context);
 
             final CBALogicWrapper cbaWrapper = new CBALogicWrapper(accountId, invoiceCustomFields, invoicesTags, context, entitySqlDaoWrapperFactory);
-            cbaWrapper.runCBALogicWithNotificationEvents(Set.of(payment.getInvoiceId()));
+            unpaidInvoicesSummaryDelta.apply(cbaWrapper.runCBALogicWithNotificationEvents(Set.of(payment.getInvoiceId())));
 
             notifyBusOfInvoicePayment(entitySqlDaoWrapperFactory, chargeBack, accountId, paymentAttemptId, context.getUserToken(), context);
 
@@ -987,6 +1085,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 throw new InvoiceApiException(ErrorCode.PAYMENT_NO_SUCH_PAYMENT, paymentId);
             }
 
+            final UnpaidInvoicesSummaryDelta unpaidInvoicesSummaryDelta = new UnpaidInvoicesSummaryDelta(invoiceDaoHelper, entitySqlDaoWrapperFactory, context);
+            unpaidInvoicesSummaryDelta.snapshot(Set.of(invoicePayment.getInvoiceId()));
+
             transactional.updateAttempt(invoicePayment.getId().toString(),
                                         invoicePayment.getPaymentId().toString(),
                                         invoicePayment.getPaymentDate().toDate(),
@@ -1003,7 +1104,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             final UUID accountId = transactional.getAccountIdFromInvoicePaymentId(chargebackReversed.getId().toString(), context);
 
             final CBALogicWrapper cbaWrapper = new CBALogicWrapper(accountId, invoiceCustomFields, invoicesTags, context, entitySqlDaoWrapperFactory);
-            cbaWrapper.runCBALogicWithNotificationEvents(Set.of(chargebackReversed.getInvoiceId()));
+            unpaidInvoicesSummaryDelta.apply(cbaWrapper.runCBALogicWithNotificationEvents(Set.of(chargebackReversed.getInvoiceId())));
 
             notifyBusOfInvoicePayment(entitySqlDaoWrapperFactory, chargebackReversed, accountId, paymentAttemptId, context.getUserToken(), context);
 
@@ -1105,6 +1206,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 // extract entries by invoiceId (which is always set, as opposed to paymentId) and then filter based on type and
                 // paymentCookieId = transactionExternalKey
                 //
+                final UnpaidInvoicesSummaryDelta unpaidInvoicesSummaryDelta = new UnpaidInvoicesSummaryDelta(invoiceDaoHelper, entitySqlDaoWrapperFactory, context);
+                unpaidInvoicesSummaryDelta.snapshot(Set.of(invoicePayment.getInvoiceId()));
+
                 final List<InvoicePaymentModelDao> invoicePayments = transactional.getAllPaymentsForInvoiceIncludedInit(invoicePayment.getInvoiceId().toString(), context);
                 final InvoicePaymentModelDao existingAttempt = invoicePayments.stream()
                                                                               .filter(input -> input.getType() == InvoicePaymentType.ATTEMPT &&
@@ -1137,6 +1241,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                 invoicePayment.getStatus().toString(),
                                                 context);
                 }
+                unpaidInvoicesSummaryDelta.apply(Set.of());
             }
 
             if (completion) {
@@ -1196,6 +1301,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             }
             invoiceDaoHelper.populateChildren(invoice, invoiceCustomFields, invoicesTags, false, entitySqlDaoWrapperFactory, context);
 
+            final UnpaidInvoicesSummaryDelta unpaidInvoicesSummaryDelta = new UnpaidInvoicesSummaryDelta(invoiceDaoHelper, entitySqlDaoWrapperFactory, context);
+            unpaidInvoicesSummaryDelta.snapshot(Set.of(invoice.getId()));
+
             // Retrieve the invoice item and make sure it belongs to the right invoice
             final InvoiceItemSqlDao invoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
             final InvoiceItemModelDao cbaItem = invoiceItemSqlDao.getById(invoiceItemId.toString(), context);
@@ -1233,6 +1341,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     throw new InvoiceApiException(ErrorCode.INVOICE_CBA_DELETED, cbaItem.getId());
                 }
             }
+            // Includes the invoices from which credit was reclaimed
+            unpaidInvoicesSummaryDelta.apply(invoiceIds);
+
             // renamed to 'invId' because: Variable 'invoiceId' is already defined in the scope
             for (final UUID invId : invoiceIds) {
                 notifyBusOfInvoiceAdjustment(entitySqlDaoWrapperFactory, invId, accountId, context.getUserToken(), context);
@@ -1247,7 +1358,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final List<Tag> invoicesTags = getInvoicesTags(context);
 
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
-            cbaDao.doCBAComplexityFromTransaction(invoiceCustomFields, invoicesTags, entitySqlDaoWrapperFactory, context);
+            // The credit can be spread across any unpaid invoice: the summary is rebuilt on the next read if some credit was used
+            final UnpaidInvoicesSummaryDelta unpaidInvoicesSummaryDelta = new UnpaidInvoicesSummaryDelta(invoiceDaoHelper, entitySqlDaoWrapperFactory, context);
+            unpaidInvoicesSummaryDelta.apply(cbaDao.doCBAComplexityFromTransaction(invoiceCustomFields, invoicesTags, entitySqlDaoWrapperFactory, context));
             return null;
         });
     }
@@ -1396,11 +1509,14 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 throw new InvoiceApiException(ErrorCode.INVOICE_INVALID_STATUS, newStatus, invoiceId, invoice.getStatus());
             }
 
+            final UnpaidInvoicesSummaryDelta unpaidInvoicesSummaryDelta = new UnpaidInvoicesSummaryDelta(invoiceDaoHelper, entitySqlDaoWrapperFactory, context);
+            unpaidInvoicesSummaryDelta.snapshot(Set.of(invoiceId));
+
             transactional.updateStatusAndTargetDate(invoiceId.toString(), newStatus.toString(), invoice.getTargetDate(), context);
 
             // Run through all invoices
             // Current invoice could be a credit item that needs to be rebalanced
-            cbaDao.doCBAComplexityFromTransaction(invoiceCustomFields, invoicesTags, entitySqlDaoWrapperFactory, context);
+            unpaidInvoicesSummaryDelta.apply(cbaDao.doCBAComplexityFromTransaction(invoiceCustomFields, invoicesTags, entitySqlDaoWrapperFactory, context));
 
             // Invoice creation event sent on COMMITTED
             if (InvoiceStatus.COMMITTED.equals(newStatus)) {
@@ -1456,9 +1572,12 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
     @Override
     public void createParentChildInvoiceRelation(final InvoiceParentChildModelDao invoiceRelation, final InternalCallContext context) throws InvoiceApiException {
+        final InternalTenantContext childAccountContext = internalCallContextFactory.createInternalTenantContext(invoiceRelation.getChildAccountId(), context);
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
             final InvoiceParentChildrenSqlDao transactional = entitySqlDaoWrapperFactory.become(InvoiceParentChildrenSqlDao.class);
             createAndRefresh(transactional, invoiceRelation, context);
+            // The balance of the child invoice now depends on the parent invoice
+            markUnpaidInvoicesSummaryStale(entitySqlDaoWrapperFactory, childAccountContext);
             return null;
         });
     }
@@ -1498,7 +1617,11 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 throw new InvoiceApiException(ErrorCode.INVOICE_ITEM_NOT_FOUND, invoiceItemId);
             }
 
+            final UnpaidInvoicesSummaryDelta unpaidInvoicesSummaryDelta = new UnpaidInvoicesSummaryDelta(invoiceDaoHelper, entitySqlDaoWrapperFactory, context);
+            unpaidInvoicesSummaryDelta.snapshot(Set.of(invoiceItem.getInvoiceId()));
+
             transactional.updateItemFields(invoiceItemId.toString(), amount, null,null, null,null, context);
+            unpaidInvoicesSummaryDelta.apply(Set.of());
             return null;
         });
     }
@@ -1595,6 +1718,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             cbaWrapper.runCBALogicWithNotificationEvents(Collections.emptySet(), Set.of(parentInvoice.getId()), List.of(parentInvoice));
             notifyBusOfInvoiceCreation(entitySqlDaoWrapperFactory, parentInvoice, parentAccountContext);
 
+            refreshUnpaidInvoicesSummary(entitySqlDaoWrapperFactory, childInvoiceCustomFields, childInvoicesTags, childAccountContext);
+            refreshUnpaidInvoicesSummary(entitySqlDaoWrapperFactory, parentInvoiceCustomFields, parentInvoicesTags, parentAccountContext);
+
             return null;
         });
     }
@@ -1639,6 +1765,28 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         });
     }
 
+    // Rebuild in place the unpaid invoices summary of the account (see getUnpaidInvoicesSummary), for the writes which cannot use
+    // UnpaidInvoicesSummaryDelta (parent/child invoices, tags)
+    private void refreshUnpaidInvoicesSummary(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                              final List<CustomField> invoiceCustomFields,
+                                              final List<Tag> invoicesTags,
+                                              final InternalCallContext context) {
+        final UnpaidInvoicesSummarySqlDao unpaidInvoicesSummarySqlDao = entitySqlDaoWrapperFactory.getHandle().attach(UnpaidInvoicesSummarySqlDao.class);
+        final UnpaidInvoicesSummaryModelDao summary = unpaidInvoicesSummarySqlDao.getByAccountRecordId(context);
+        if (summary == null) {
+            // Account not tracked
+            return;
+        }
+
+        final LocalDate upToDate = context.toLocalDate(context.getCreatedDate());
+        unpaidInvoicesSummarySqlDao.update(computeUnpaidInvoicesSummary(summary.getAccountId(), invoiceCustomFields, invoicesTags, upToDate, entitySqlDaoWrapperFactory, context), context);
+    }
+
+    // For writes done with the context of another account (parent/child invoices): the next read rebuilds the summary
+    private void markUnpaidInvoicesSummaryStale(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        entitySqlDaoWrapperFactory.getHandle().attach(UnpaidInvoicesSummarySqlDao.class).markStale(context);
+    }
+
     private class CBALogicWrapper {
 
         private final UUID accountId;
@@ -1659,29 +1807,31 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             this.entitySqlDaoWrapperFactory = entitySqlDaoWrapperFactory;
         }
 
-        public void runCBALogicWithNotificationEvents(final Set<UUID> allInvoiceIds) throws EntityPersistenceException, InvoiceApiException {
-            runCBALogicWithNotificationEventsInternal(Collections.emptySet(), Collections.emptySet(), runCBALogicWithInvoiceIds(allInvoiceIds));
+        // The run methods return the ids of the invoices on which CBA items were created
+        public Set<UUID> runCBALogicWithNotificationEvents(final Set<UUID> allInvoiceIds) throws EntityPersistenceException, InvoiceApiException {
+            return runCBALogicWithNotificationEventsInternal(Collections.emptySet(), Collections.emptySet(), runCBALogicWithInvoiceIds(allInvoiceIds));
         }
 
-        public void runCBALogicWithNotificationEvents(final Set<UUID> initSet, final Set<UUID> excludedSet, final Set<UUID> allInvoiceIds) throws EntityPersistenceException, InvoiceApiException {
-            runCBALogicWithNotificationEventsInternal(initSet, excludedSet, runCBALogicWithInvoiceIds(allInvoiceIds));
+        public Set<UUID> runCBALogicWithNotificationEvents(final Set<UUID> initSet, final Set<UUID> excludedSet, final Set<UUID> allInvoiceIds) throws EntityPersistenceException, InvoiceApiException {
+            return runCBALogicWithNotificationEventsInternal(initSet, excludedSet, runCBALogicWithInvoiceIds(allInvoiceIds));
         }
 
-        public void runCBALogicWithNotificationEvents(final List<InvoiceModelDao> invoices) throws EntityPersistenceException, InvoiceApiException {
-            runCBALogicWithNotificationEvents(Collections.emptySet(), Collections.emptySet(), invoices);
+        public Set<UUID> runCBALogicWithNotificationEvents(final List<InvoiceModelDao> invoices) throws EntityPersistenceException, InvoiceApiException {
+            return runCBALogicWithNotificationEvents(Collections.emptySet(), Collections.emptySet(), invoices);
         }
 
-        public void runCBALogicWithNotificationEvents(final Set<UUID> initSet, final Set<UUID> excludedSet, final List<InvoiceModelDao> invoices) throws EntityPersistenceException, InvoiceApiException {
-            runCBALogicWithNotificationEventsInternal(initSet, excludedSet, runCBALogicWithInvoices(invoices));
+        public Set<UUID> runCBALogicWithNotificationEvents(final Set<UUID> initSet, final Set<UUID> excludedSet, final List<InvoiceModelDao> invoices) throws EntityPersistenceException, InvoiceApiException {
+            return runCBALogicWithNotificationEventsInternal(initSet, excludedSet, runCBALogicWithInvoices(invoices));
         }
 
-        private void runCBALogicWithNotificationEventsInternal(final Set<UUID> initSet, final Set<UUID> excludedSet, final Set<UUID> resCbaInvoiceIds) {
+        private Set<UUID> runCBALogicWithNotificationEventsInternal(final Set<UUID> initSet, final Set<UUID> excludedSet, final Set<UUID> resCbaInvoiceIds) {
             final Set<UUID> candidateModifiedInvoiceIds = new HashSet<>(initSet);
             candidateModifiedInvoiceIds.addAll(resCbaInvoiceIds);
             final Set<UUID> modifiedInvoiceIds = Sets.difference(candidateModifiedInvoiceIds, excludedSet);
             for (UUID id : modifiedInvoiceIds) {
                 notifyBusOfInvoiceAdjustment(entitySqlDaoWrapperFactory, id, accountId, context.getUserToken(), context);
             }
+            return resCbaInvoiceIds;
         }
 
         private Set<UUID> runCBALogicWithInvoices(final List<InvoiceModelDao> invoices) throws EntityPersistenceException, InvoiceApiException {
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.util.Objects;
+
+import org.joda.time.DateTime;
+
+// Account with at least one due (ready, not yet processed) next billing date notification
+public class DueAccount {
+
+    private final Long accountRecordId;
+    private final Long tenantRecordId;
+    private final DateTime targetDate;
+
+    public DueAccount(final Long accountRecordId, final Long tenantRecordId, final DateTime targetDate) {
+        this.accountRecordId = accountRecordId;
+        this.tenantRecordId = tenantRecordId;
+        this.targetDate = targetDate;
+    }
+
+    public Long getAccountRecordId() {
+        return accountRecordId;
+    }
+
+    public Long getTenantRecordId() {
+        return tenantRecordId;
+    }
+
+    public DateTime getTargetDate() {
+        return targetDate;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final DueAccount that = (DueAccount) o;
+        return Objects.equals(accountRecordId, that.accountRecordId) &&
+               Objects.equals(tenantRecordId, that.tenantRecordId) &&
+               (targetDate != null ? targetDate.compareTo(that.targetDate) == 0 : that.targetDate == null);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountRecordId, tenantRecordId, targetDate != null ? targetDate.getMillis() : null);
+    }
+
+    @Override
+    public String toString() {
+        return "DueAccount{" +
+               "accountRecordId=" + accountRecordId +
+               ", tenantRecordId=" + tenantRecordId +
+               ", targetDate=" + targetDate +
+               '}';
+    }
+}
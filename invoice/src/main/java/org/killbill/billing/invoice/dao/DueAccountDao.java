@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+
+public interface DueAccountDao {
+
+    // Accounts with ready (effective date before maxEffectiveDate) and available notifications in that queue, earliest first
+    List<DueAccount> getDueAccounts(String queueName, DateTime maxEffectiveDate, int limit);
+
+    // Claim a notification for this node, as the notification queue does (false if it isn't available anymore, e.g. claimed by the queue)
+    boolean claimNotification(Long recordId, DateTime now);
+
+    // Give a notification claimed by claimNotification back to the queue
+    void releaseNotification(Long recordId);
+}
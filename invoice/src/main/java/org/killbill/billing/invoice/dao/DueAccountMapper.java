@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.killbill.billing.util.dao.MapperBase;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+public class DueAccountMapper extends MapperBase implements ResultSetMapper<DueAccount> {
+
+    @Override
+    public DueAccount map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+        return new DueAccount(r.getLong("account_record_id"),
+                              r.getLong("tenant_record_id"),
+                              getDateTime(r, "target_date"));
+    }
+}
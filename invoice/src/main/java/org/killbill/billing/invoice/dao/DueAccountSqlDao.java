@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+
+@KillBillSqlDaoStringTemplate
+@RegisterMapper(DueAccountMapper.class)
+public interface DueAccountSqlDao {
+
+    @SqlQuery
+    List<DueAccount> getDueAccounts(@Bind("queueName") final String queueName,
+                                    @Bind("maxEffectiveDate") final Date maxEffectiveDate,
+                                    @Bind("rowCount") final int rowCount,
+                                    @Define("tableName") final String tableName);
+
+    @SqlUpdate
+    int claimNotification(@Bind("recordId") final Long recordId,
+                          @Bind("owner") final String owner,
+                          @Bind("processingAvailableDate") final Date processingAvailableDate,
+                          @Define("tableName") final String tableName);
+
+    @SqlUpdate
+    int releaseNotification(@Bind("recordId") final Long recordId,
+                            @Bind("owner") final String owner,
+                            @Define("tableName") final String tableName);
+}
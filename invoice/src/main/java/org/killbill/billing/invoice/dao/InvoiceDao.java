@@ -91,8 +91,17 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     BigDecimal getAccountCBA(UUID accountId, InternalTenantContext context);
 
+    // Earliest target date, across subscriptions, of the latest invoice holding a RECURRING item (null if there is none or if the account has USAGE items)
+    LocalDate getBilledThroughCutoffDate(InternalTenantContext context);
+
     List<InvoiceModelDao> getUnpaidInvoicesByAccountId(UUID accountId, @Nullable LocalDate startDate, @Nullable LocalDate upToDate, InternalTenantContext context);
 
+    // Aggregates of getUnpaidInvoicesByAccountId (without start date), served from the per-account summary when still valid
+    UnpaidInvoicesSummaryModelDao getUnpaidInvoicesSummary(UUID accountId, @Nullable LocalDate upToDate, InternalTenantContext context);
+
+    // For changes made outside of the invoice tables (e.g. WRITTEN_OFF tags)
+    void refreshUnpaidInvoicesSummary(InternalCallContext context);
+
     // Include migrated invoices
     List<InvoiceModelDao> getAllInvoicesByAccount(final Boolean includeVoidedInvoices, final Boolean includeInvoiceComponents, InternalTenantContext context);
 
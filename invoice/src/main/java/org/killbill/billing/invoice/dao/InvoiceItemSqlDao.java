@@ -19,6 +19,7 @@
 package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.UUID;
 
@@ -72,6 +73,9 @@ public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, Inv
     @SqlQuery
     List<InvoiceItemModelDao> getConsumedCBAItems(@SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    Timestamp getBilledThroughCutoffDate(@SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     Iterable<CounterMappings> getRepairMap(@BindIn("ids") final Iterable<String> invoiceIds, @SmartBindBean final InternalTenantContext context);
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.tag.ControlTagType;
+import org.killbill.billing.util.tag.dao.TagSqlDao;
+
+/**
+ * Incremental maintenance of the unpaid invoices summary of an account (see UnpaidInvoicesSummaryModelDao), from a write transaction:
+ * the invoices about to be modified are snapshotted before the write, and the summary is then adjusted by the difference of their
+ * contributions. Modifications which cannot be applied that way (cutoff date window moved, child invoices, invoices modified without
+ * having been snapshotted, e.g. when existing credit is spread across the unpaid invoices) mark the summary stale instead: the next read rebuilds it.
+ * <p>
+ * Everything is read from the transaction: no other connection is used.
+ */
+class UnpaidInvoicesSummaryDelta {
+
+    private final InvoiceDaoHelper invoiceDaoHelper;
+    private final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory;
+    private final InternalCallContext context;
+    private final LocalDate upToDate;
+    // Null if there is nothing to maintain (account not tracked or summary already stale)
+    private final UnpaidInvoicesSummaryModelDao summary;
+    // Snapshotted invoices, mapped to null if they didn't exist or weren't unpaid
+    private final Map<UUID, InvoiceModelDao> unpaidInvoicesBefore = new HashMap<UUID, InvoiceModelDao>();
+
+    UnpaidInvoicesSummaryDelta(final InvoiceDaoHelper invoiceDaoHelper,
+                               final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                               final InternalCallContext context) {
+        this.invoiceDaoHelper = invoiceDaoHelper;
+        this.entitySqlDaoWrapperFactory = entitySqlDaoWrapperFactory;
+        this.context = context;
+        this.upToDate = context.toLocalDate(context.getCreatedDate());
+
+        final UnpaidInvoicesSummaryModelDao currentSummary = getSqlDao().getByAccountRecordId(context);
+        if (currentSummary == null || currentSummary.isStale()) {
+            this.summary = null;
+        } else if (!currentSummary.isValidFor(upToDate)) {
+            // The cutoff date moved past the window the summary was computed for
+            markStale();
+            this.summary = null;
+        } else {
+            this.summary = currentSummary;
+        }
+    }
+
+    // To call before modifying these invoices
+    void snapshot(final Iterable<UUID> invoiceIds) {
+        if (summary == null) {
+            return;
+        }
+
+        for (final UUID invoiceId : invoiceIds) {
+            if (!unpaidInvoicesBefore.containsKey(invoiceId)) {
+                unpaidInvoicesBefore.put(invoiceId, getUnpaidInvoice(invoiceId));
+            }
+        }
+    }
+
+    // To call once all invoices have been written, with the ids of the invoices modified besides the snapshotted ones (if any)
+    void apply(final Iterable<UUID> otherModifiedInvoiceIds) {
+        if (summary == null) {
+            return;
+        }
+
+        for (final UUID invoiceId : otherModifiedInvoiceIds) {
+            if (!unpaidInvoicesBefore.containsKey(invoiceId)) {
+                markStale();
+                return;
+            }
+        }
+        if (unpaidInvoicesBefore.isEmpty()) {
+            return;
+        }
+
+        for (final Entry<UUID, InvoiceModelDao> entry : unpaidInvoicesBefore.entrySet()) {
+            if (!summary.applyInvoiceChange(entry.getValue(), getUnpaidInvoice(entry.getKey()), upToDate)) {
+                markStale();
+                return;
+            }
+        }
+
+        // Concurrent write since the summary was read: its deltas cannot be combined with ours
+        if (getSqlDao().updateIfVersion(summary, summary.getVersion(), context) == 0) {
+            markStale();
+        }
+    }
+
+    private InvoiceModelDao getUnpaidInvoice(final UUID invoiceId) {
+        final InvoiceModelDao invoice = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getById(invoiceId.toString(), context);
+        if (invoice == null || invoice.getStatus() != InvoiceStatus.COMMITTED || isWrittenOff(invoiceId)) {
+            return null;
+        }
+
+        // Only the WRITTEN_OFF tag matters here (checked above), and custom fields are only used for the invoice number
+        invoiceDaoHelper.populateChildren(invoice, List.of(), List.of(), false, entitySqlDaoWrapperFactory, context);
+        return invoiceDaoHelper.getUnpaidInvoicesByAccountFromTransaction(List.of(invoice), null, null).isEmpty() ? null : invoice;
+    }
+
+    private boolean isWrittenOff(final UUID invoiceId) {
+        return entitySqlDaoWrapperFactory.become(TagSqlDao.class)
+                                         .getTagsForObject(invoiceId, ObjectType.INVOICE, context)
+                                         .stream()
+                                         .anyMatch(tag -> ControlTagType.WRITTEN_OFF.getId().equals(tag.getTagDefinitionId()));
+    }
+
+    private void markStale() {
+        getSqlDao().markStale(context);
+    }
+
+    private UnpaidInvoicesSummarySqlDao getSqlDao() {
+        return entitySqlDaoWrapperFactory.getHandle().attach(UnpaidInvoicesSummarySqlDao.class);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.killbill.billing.util.dao.MapperBase;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+public class UnpaidInvoicesSummaryMapper extends MapperBase implements ResultSetMapper<UnpaidInvoicesSummaryModelDao> {
+
+    @Override
+    public UnpaidInvoicesSummaryModelDao map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+        return new UnpaidInvoicesSummaryModelDao(getUUID(r, "account_id"),
+                                                 r.getInt("nb_unpaid_invoices"),
+                                                 r.getBigDecimal("unpaid_invoice_balance"),
+                                                 getUUID(r, "earliest_unpaid_invoice_id"),
+                                                 getDate(r, "earliest_unpaid_invoice_date"),
+                                                 getDate(r, "latest_unpaid_target_date"),
+                                                 getDate(r, "next_unpaid_target_date"),
+                                                 r.getBoolean("is_stale"),
+                                                 r.getInt("version"));
+    }
+}
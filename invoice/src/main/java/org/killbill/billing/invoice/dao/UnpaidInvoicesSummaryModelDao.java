@@ -0,0 +1,286 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+
+/**
+ * Per-account aggregates of the unpaid invoices (see unpaid_invoices_summaries), keyed by account record id. Besides the aggregates,
+ * we keep the target dates around the cutoff date used to compute them, to detect that the summary no longer applies as the clock moves.
+ * A stale summary needs to be rebuilt before being used, and the version is bumped on each write to detect concurrent updates.
+ */
+public class UnpaidInvoicesSummaryModelDao {
+
+    private UUID accountId;
+    private int nbUnpaidInvoices;
+    private BigDecimal unpaidInvoiceBalance;
+    private UUID earliestUnpaidInvoiceId;
+    private LocalDate earliestUnpaidInvoiceDate;
+    // Latest target date of the invoices taken into account
+    private LocalDate latestUnpaidTargetDate;
+    // Earliest target date of the unpaid invoices left out (target date after the cutoff date)
+    private LocalDate nextUnpaidTargetDate;
+    private boolean stale;
+    private int version;
+
+    public UnpaidInvoicesSummaryModelDao() { /* For the DAO mapper */ }
+
+    public UnpaidInvoicesSummaryModelDao(final UUID accountId,
+                                         final int nbUnpaidInvoices,
+                                         final BigDecimal unpaidInvoiceBalance,
+                                         final UUID earliestUnpaidInvoiceId,
+                                         final LocalDate earliestUnpaidInvoiceDate,
+                                         final LocalDate latestUnpaidTargetDate,
+                                         final LocalDate nextUnpaidTargetDate,
+                                         final boolean stale,
+                                         final int version) {
+        this.accountId = accountId;
+        this.nbUnpaidInvoices = nbUnpaidInvoices;
+        this.unpaidInvoiceBalance = unpaidInvoiceBalance;
+        this.earliestUnpaidInvoiceId = earliestUnpaidInvoiceId;
+        this.earliestUnpaidInvoiceDate = earliestUnpaidInvoiceDate;
+        this.latestUnpaidTargetDate = latestUnpaidTargetDate;
+        this.nextUnpaidTargetDate = nextUnpaidTargetDate;
+        this.stale = stale;
+        this.version = version;
+    }
+
+    // Placeholder, to be rebuilt on the next read
+    public static UnpaidInvoicesSummaryModelDao stale(final UUID accountId) {
+        return new UnpaidInvoicesSummaryModelDao(accountId, 0, BigDecimal.ZERO, null, null, null, null, true, 0);
+    }
+
+    /**
+     * @param accountId      the account id
+     * @param unpaidInvoices all unpaid invoices of the account, regardless of their target date
+     * @param upToDate       only take into account invoices with a target date up to that date
+     * @param stale          whether the summary shouldn't be reused
+     * @return the summary
+     */
+    public static UnpaidInvoicesSummaryModelDao fromUnpaidInvoices(final UUID accountId,
+                                                                   final Iterable<InvoiceModelDao> unpaidInvoices,
+                                                                   @Nullable final LocalDate upToDate,
+                                                                   final boolean stale) {
+        int nbUnpaidInvoices = 0;
+        BigDecimal unpaidInvoiceBalance = BigDecimal.ZERO;
+        InvoiceModelDao earliestUnpaidInvoice = null;
+        LocalDate latestUnpaidTargetDate = null;
+        LocalDate nextUnpaidTargetDate = null;
+        for (final InvoiceModelDao unpaidInvoice : unpaidInvoices) {
+            final LocalDate targetDate = unpaidInvoice.getTargetDate();
+            if (upToDate != null && targetDate != null && targetDate.isAfter(upToDate)) {
+                if (nextUnpaidTargetDate == null || targetDate.isBefore(nextUnpaidTargetDate)) {
+                    nextUnpaidTargetDate = targetDate;
+                }
+                continue;
+            }
+
+            if (targetDate != null && (latestUnpaidTargetDate == null || targetDate.isAfter(latestUnpaidTargetDate))) {
+                latestUnpaidTargetDate = targetDate;
+            }
+            nbUnpaidInvoices++;
+            // Same balance as the one exposed by the invoice API
+            unpaidInvoiceBalance = unpaidInvoiceBalance.add(new DefaultInvoice(unpaidInvoice).getBalance());
+            if (earliestUnpaidInvoice == null || unpaidInvoice.getInvoiceDate().isBefore(earliestUnpaidInvoice.getInvoiceDate())) {
+                earliestUnpaidInvoice = unpaidInvoice;
+            }
+        }
+
+        return new UnpaidInvoicesSummaryModelDao(accountId,
+                                                 nbUnpaidInvoices,
+                                                 unpaidInvoiceBalance,
+                                                 earliestUnpaidInvoice == null ? null : earliestUnpaidInvoice.getId(),
+                                                 earliestUnpaidInvoice == null ? null : earliestUnpaidInvoice.getInvoiceDate(),
+                                                 latestUnpaidTargetDate,
+                                                 nextUnpaidTargetDate,
+                                                 stale,
+                                                 0);
+    }
+
+    /**
+     * Adjust in place the summary, valid for the cutoff date upToDate (see isValidFor), for the modification of an invoice.
+     *
+     * @param unpaidInvoiceBefore the invoice before the modification, null if it didn't exist or wasn't unpaid
+     * @param unpaidInvoiceAfter  the invoice after the modification, null if it isn't unpaid
+     * @param upToDate            the cutoff date
+     * @return false if the modification cannot be applied incrementally: the summary needs to be rebuilt (and is left in an undefined state)
+     */
+    public boolean applyInvoiceChange(@Nullable final InvoiceModelDao unpaidInvoiceBefore,
+                                      @Nullable final InvoiceModelDao unpaidInvoiceAfter,
+                                      final LocalDate upToDate) {
+        // Child invoices balances depend on the parent invoices
+        if ((unpaidInvoiceBefore != null && unpaidInvoiceBefore.getParentInvoice() != null) ||
+            (unpaidInvoiceAfter != null && unpaidInvoiceAfter.getParentInvoice() != null)) {
+            return false;
+        }
+
+        final boolean includedBefore = unpaidInvoiceBefore != null && isIncluded(unpaidInvoiceBefore, upToDate);
+        final boolean includedAfter = unpaidInvoiceAfter != null && isIncluded(unpaidInvoiceAfter, upToDate);
+
+        if (unpaidInvoiceBefore != null && !includedBefore) {
+            // Left out invoice: only the earliest of these target dates is kept
+            final boolean stillLeftOutBefore = unpaidInvoiceAfter != null &&
+                                               !includedAfter &&
+                                               !unpaidInvoiceAfter.getTargetDate().isAfter(unpaidInvoiceBefore.getTargetDate());
+            if (unpaidInvoiceBefore.getTargetDate().equals(nextUnpaidTargetDate) && !stillLeftOutBefore) {
+                return false;
+            }
+        }
+        if (unpaidInvoiceAfter != null && !includedAfter &&
+            (nextUnpaidTargetDate == null || unpaidInvoiceAfter.getTargetDate().isBefore(nextUnpaidTargetDate))) {
+            nextUnpaidTargetDate = unpaidInvoiceAfter.getTargetDate();
+        }
+
+        if (includedBefore) {
+            if (unpaidInvoiceBefore.getId().equals(earliestUnpaidInvoiceId) && !includedAfter) {
+                if (nbUnpaidInvoices > 1) {
+                    // The next earliest unpaid invoice is unknown
+                    return false;
+                }
+                earliestUnpaidInvoiceId = null;
+                earliestUnpaidInvoiceDate = null;
+            }
+            nbUnpaidInvoices--;
+            unpaidInvoiceBalance = unpaidInvoiceBalance.subtract(new DefaultInvoice(unpaidInvoiceBefore).getBalance());
+        }
+        if (includedAfter) {
+            nbUnpaidInvoices++;
+            unpaidInvoiceBalance = unpaidInvoiceBalance.add(new DefaultInvoice(unpaidInvoiceAfter).getBalance());
+            final LocalDate targetDate = unpaidInvoiceAfter.getTargetDate();
+            if (targetDate != null && (latestUnpaidTargetDate == null || targetDate.isAfter(latestUnpaidTargetDate))) {
+                latestUnpaidTargetDate = targetDate;
+            }
+            if (earliestUnpaidInvoiceDate == null || unpaidInvoiceAfter.getInvoiceDate().isBefore(earliestUnpaidInvoiceDate)) {
+                earliestUnpaidInvoiceId = unpaidInvoiceAfter.getId();
+                earliestUnpaidInvoiceDate = unpaidInvoiceAfter.getInvoiceDate();
+            }
+        }
+        return true;
+    }
+
+    // Same rule as fromUnpaidInvoices
+    private static boolean isIncluded(final InvoiceModelDao unpaidInvoice, final LocalDate upToDate) {
+        return unpaidInvoice.getTargetDate() == null || !unpaidInvoice.getTargetDate().isAfter(upToDate);
+    }
+
+    // Whether the summary, computed for another cutoff date, would be the same for that cutoff date
+    public boolean isValidFor(@Nullable final LocalDate upToDate) {
+        if (stale) {
+            return false;
+        } else if (upToDate == null) {
+            return nextUnpaidTargetDate == null;
+        } else {
+            return (latestUnpaidTargetDate == null || !latestUnpaidTargetDate.isAfter(upToDate)) &&
+                   (nextUnpaidTargetDate == null || nextUnpaidTargetDate.isAfter(upToDate));
+        }
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(final UUID accountId) {
+        this.accountId = accountId;
+    }
+
+    public int getNbUnpaidInvoices() {
+        return nbUnpaidInvoices;
+    }
+
+    public void setNbUnpaidInvoices(final int nbUnpaidInvoices) {
+        this.nbUnpaidInvoices = nbUnpaidInvoices;
+    }
+
+    public BigDecimal getUnpaidInvoiceBalance() {
+        return unpaidInvoiceBalance;
+    }
+
+    public void setUnpaidInvoiceBalance(final BigDecimal unpaidInvoiceBalance) {
+        this.unpaidInvoiceBalance = unpaidInvoiceBalance;
+    }
+
+    public UUID getEarliestUnpaidInvoiceId() {
+        return earliestUnpaidInvoiceId;
+    }
+
+    public void setEarliestUnpaidInvoiceId(final UUID earliestUnpaidInvoiceId) {
+        this.earliestUnpaidInvoiceId = earliestUnpaidInvoiceId;
+    }
+
+    public LocalDate getEarliestUnpaidInvoiceDate() {
+        return earliestUnpaidInvoiceDate;
+    }
+
+    public void setEarliestUnpaidInvoiceDate(final LocalDate earliestUnpaidInvoiceDate) {
+        this.earliestUnpaidInvoiceDate = earliestUnpaidInvoiceDate;
+    }
+
+    public LocalDate getLatestUnpaidTargetDate() {
+        return latestUnpaidTargetDate;
+    }
+
+    public void setLatestUnpaidTargetDate(final LocalDate latestUnpaidTargetDate) {
+        this.latestUnpaidTargetDate = latestUnpaidTargetDate;
+    }
+
+    public LocalDate getNextUnpaidTargetDate() {
+        return nextUnpaidTargetDate;
+    }
+
+    public void setNextUnpaidTargetDate(final LocalDate nextUnpaidTargetDate) {
+        this.nextUnpaidTargetDate = nextUnpaidTargetDate;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(final boolean stale) {
+        this.stale = stale;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(final int version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("UnpaidInvoicesSummaryModelDao{");
+        sb.append("accountId=").append(accountId);
+        sb.append(", nbUnpaidInvoices=").append(nbUnpaidInvoices);
+        sb.append(", unpaidInvoiceBalance=").append(unpaidInvoiceBalance);
+        sb.append(", earliestUnpaidInvoiceId=").append(earliestUnpaidInvoiceId);
+        sb.append(", earliestUnpaidInvoiceDate=").append(earliestUnpaidInvoiceDate);
+        sb.append(", latestUnpaidTargetDate=").append(latestUnpaidTargetDate);
+        sb.append(", nextUnpaidTargetDate=").append(nextUnpaidTargetDate);
+        sb.append(", stale=").append(stale);
+        sb.append(", version=").append(version);
+        sb.append('}');
+        return sb.toString();
+    }
+}
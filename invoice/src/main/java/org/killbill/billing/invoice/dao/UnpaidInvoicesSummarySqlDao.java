@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.commons.jdbi.binder.SmartBindBean;
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+
+// Not an EntitySqlDao: the summaries are derived from the invoice tables (no audit, no history)
+@KillBillSqlDaoStringTemplate
+@RegisterMapper(UnpaidInvoicesSummaryMapper.class)
+public interface UnpaidInvoicesSummarySqlDao {
+
+    @SqlQuery
+    UnpaidInvoicesSummaryModelDao getByAccountRecordId(@SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    void create(@SmartBindBean final UnpaidInvoicesSummaryModelDao summary,
+                @SmartBindBean final InternalTenantContext context);
+
+    // Unconditional refresh, from the write transactions
+    @SqlUpdate
+    int update(@SmartBindBean final UnpaidInvoicesSummaryModelDao summary,
+               @SmartBindBean final InternalTenantContext context);
+
+    // Rebuild, only applied if the summary wasn't modified since it was read
+    @SqlUpdate
+    int updateIfVersion(@SmartBindBean final UnpaidInvoicesSummaryModelDao summary,
+                        @Bind("expectedVersion") final int expectedVersion,
+                        @SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    int markStale(@SmartBindBean final InternalTenantContext context);
+}
@@ -18,7 +18,10 @@
 
 package org.killbill.billing.invoice.glue;
 
+import java.util.Map;
+
 import org.killbill.billing.glue.InvoiceModule;
+import org.killbill.billing.invoice.BulkInvoiceRunner;
 import org.killbill.billing.invoice.InvoiceDispatcher;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
@@ -34,7 +37,9 @@ import org.killbill.billing.invoice.api.svcs.DefaultInvoiceInternalApi;
 import org.killbill.billing.invoice.api.user.DefaultInvoiceUserApi;
 import org.killbill.billing.invoice.config.MultiTenantInvoiceConfig;
 import org.killbill.billing.invoice.dao.CBADao;
+import org.killbill.billing.invoice.dao.DefaultDueAccountDao;
 import org.killbill.billing.invoice.dao.DefaultInvoiceDao;
+import org.killbill.billing.invoice.dao.DueAccountDao;
 import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceDaoHelper;
 import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
@@ -58,6 +63,7 @@ import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.config.definition.InvoiceConfig;
 import org.killbill.billing.util.glue.KillBillModule;
 import org.killbill.billing.util.template.translation.TranslatorConfig;
+import org.killbill.notificationq.api.NotificationQueueConfig;
 import org.skife.config.AugmentedConfigurationObjectFactory;
 
 import com.google.inject.TypeLiteral;
@@ -117,6 +123,14 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
         bind(InvoiceDispatcher.class).asEagerSingleton();
     }
 
+    protected void installBulkInvoiceRunner() {
+        // Configuration of the main notification queue instance, for its table name and claim time
+        final NotificationQueueConfig notificationQueueConfig = new AugmentedConfigurationObjectFactory(skifeConfigSource).buildWithReplacements(NotificationQueueConfig.class, Map.of("instanceName", "main"));
+        bind(NotificationQueueConfig.class).annotatedWith(Names.named(DefaultDueAccountDao.NOTIFICATION_QUEUE_CONFIG_NAMED)).toInstance(notificationQueueConfig);
+        bind(DueAccountDao.class).to(DefaultDueAccountDao.class).asEagerSingleton();
+        bind(BulkInvoiceRunner.class).asEagerSingleton();
+    }
+
     protected void installInvoiceListener() {
         bind(InvoiceListener.class).asEagerSingleton();
     }
@@ -155,6 +169,7 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
         installInvoiceFormatterFactory();
         installNotifiers();
         installInvoiceDispatcher();
+        installBulkInvoiceRunner();
         installInvoiceListener();
         installTagHandler();
         installInvoiceGenerator();
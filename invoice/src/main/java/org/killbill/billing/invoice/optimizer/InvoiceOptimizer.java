@@ -26,4 +26,7 @@ public interface InvoiceOptimizer {
 
     AccountInvoices getInvoices(final InternalCallContext callContext);
 
+    // Scheduled (next billing date) runs, where retroactive changes have already been invoiced by the run triggered by the change itself
+    AccountInvoices getInvoicesForScheduledRun(final InternalCallContext callContext);
+
 }
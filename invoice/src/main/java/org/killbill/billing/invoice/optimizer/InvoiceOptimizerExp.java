@@ -27,6 +27,7 @@ import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.joda.time.DateTime;
@@ -66,11 +67,21 @@ public class InvoiceOptimizerExp extends InvoiceOptimizerBase {
 
     @Override
     public AccountInvoices getInvoices(final InternalCallContext callContext) {
+        return getInvoices(false, callContext);
+    }
+
+    @Override
+    public AccountInvoices getInvoicesForScheduledRun(final InternalCallContext callContext) {
+        return getInvoices(invoiceConfig.isIncrementalGenerationEnabled(callContext), callContext);
+    }
+
+    private AccountInvoices getInvoices(final boolean isIncremental, final InternalCallContext callContext) {
         final Period maxInvoiceLimit = invoiceConfig.getMaxInvoiceLimit(callContext);
 
         boolean isMaxInvoiceLimitSet = maxInvoiceLimit != null && !maxInvoiceLimit.equals(UNSPECIFIED_PERIOD);
 
-        final LocalDate cutoffDt = isMaxInvoiceLimitSet ? callContext.toLocalDate(clock.getUTCNow()).minus(maxInvoiceLimit) : null;
+        final LocalDate maxInvoiceLimitCutoffDt = isMaxInvoiceLimitSet ? callContext.toLocalDate(clock.getUTCNow()).minus(maxInvoiceLimit) : null;
+        final LocalDate cutoffDt = isIncremental ? getIncrementalCutoffDate(maxInvoiceLimitCutoffDt, callContext) : maxInvoiceLimitCutoffDt;
         //
         // We need to compute a 'cutoffDt' for junction (billing events) that is at least one period less than the one computed for invoice
         // to support in-arrear trailing pro-ration use cases - i.e cancellation did not occur EOT.
@@ -78,7 +89,8 @@ public class InvoiceOptimizerExp extends InvoiceOptimizerBase {
         // Note that it's ok to return more but returning not enough would lead to unexpected REPAIR
         // (See TestWithInvoiceOptimization#testRecurringInArrear5 for instance)
         //
-        final LocalDate beCutoffDt = isMaxInvoiceLimitSet ? cutoffDt.minus(maxInvoiceLimit) : null;
+        // In incremental mode, the billing events cutoff is still derived from the configured limit (i.e. null if not set) as we need the events prior the billed-through point
+        final LocalDate beCutoffDt = isMaxInvoiceLimitSet ? maxInvoiceLimitCutoffDt.minus(maxInvoiceLimit) : null;
         final List<Invoice> existingInvoices = new LinkedList<Invoice>();
         final List<InvoiceModelDao> invoicesByAccount = invoiceDao.getInvoicesByAccount(false, cutoffDt, null, true, callContext);
         for (final InvoiceModelDao invoiceModelDao : invoicesByAccount) {
@@ -87,6 +99,23 @@ public class InvoiceOptimizerExp extends InvoiceOptimizerBase {
         return new AccountInvoicesExp(cutoffDt, beCutoffDt, existingInvoices);
     }
 
+    //
+    // In incremental mode, we only load the invoices from the point where every subscription has been billed through, i.e. the earliest
+    // target date (across subscriptions) of the latest invoice holding a RECURRING item: any proposed item starting before that date
+    // has already been invoiced, and any existing item starting after that date lives on an invoice whose target date is after that date.
+    // Usage periods are computed from the existing usage items, so accounts with usage items keep the regular behavior.
+    //
+    private LocalDate getIncrementalCutoffDate(@Nullable final LocalDate maxInvoiceLimitCutoffDt, final InternalCallContext callContext) {
+        final LocalDate billedThroughCutoffDt = invoiceDao.getBilledThroughCutoffDate(callContext);
+        if (billedThroughCutoffDt == null ||
+            (maxInvoiceLimitCutoffDt != null && billedThroughCutoffDt.compareTo(maxInvoiceLimitCutoffDt) <= 0)) {
+            return maxInvoiceLimitCutoffDt;
+        }
+
+        logger.debug("Using billed-through cutoffDt='{}' (maxInvoiceLimit cutoffDt='{}')", billedThroughCutoffDt, maxInvoiceLimitCutoffDt);
+        return billedThroughCutoffDt;
+    }
+
     public static class AccountInvoicesExp extends AccountInvoices {
 
         public AccountInvoicesExp(final LocalDate cutoffDate, final LocalDate beCutoffDate, final List<Invoice> invoices) {
@@ -60,6 +60,11 @@ public class InvoiceOptimizerNoop extends InvoiceOptimizerBase {
         return new AccountInvoices(null, null, existingInvoices);
     }
 
+    @Override
+    public AccountInvoices getInvoicesForScheduledRun(final InternalCallContext callContext) {
+        return getInvoices(callContext);
+    }
+
     private void logDisabledFeatureIfNeeded(final InternalCallContext callContext) {
 
         final Period maxInvoiceLimit = invoiceConfig.getMaxInvoiceLimit(callContext);
@@ -58,8 +58,13 @@ public class AccountItemTree {
     private boolean isBuilt;
 
     private int prorationFixedDays;
+    private final boolean useFlatTree;
 
     public AccountItemTree(final UUID accountId, final UUID targetInvoiceId, final int prorationFixedDays) {
+        this(accountId, targetInvoiceId, prorationFixedDays, false);
+    }
+
+    public AccountItemTree(final UUID accountId, final UUID targetInvoiceId, final int prorationFixedDays, final boolean useFlatTree) {
         this.accountId = accountId;
         this.targetInvoiceId = targetInvoiceId;
         this.subscriptionItemTree = new HashMap<UUID, SubscriptionItemTree>();
@@ -67,6 +72,7 @@ public class AccountItemTree {
         this.allExistingItems = new LinkedList<InvoiceItem>();
         this.pendingItemAdj = new LinkedList<InvoiceItem>();
         this.prorationFixedDays = prorationFixedDays;
+        this.useFlatTree = useFlatTree;
     }
 
     /**
@@ -122,7 +128,7 @@ public class AccountItemTree {
         }
 
         if (!subscriptionItemTree.containsKey(subscriptionId)) {
-            subscriptionItemTree.put(subscriptionId, new SubscriptionItemTree(subscriptionId, targetInvoiceId, prorationFixedDays));
+            subscriptionItemTree.put(subscriptionId, new SubscriptionItemTree(subscriptionId, targetInvoiceId, prorationFixedDays, useFlatTree));
         }
         final SubscriptionItemTree tree = subscriptionItemTree.get(subscriptionId);
         tree.addItem(existingItem);
@@ -144,7 +150,7 @@ public class AccountItemTree {
             final UUID subscriptionId = getSubscriptionId(item, null);
             SubscriptionItemTree tree = subscriptionItemTree.get(subscriptionId);
             if (tree == null) {
-                tree = new SubscriptionItemTree(subscriptionId, targetInvoiceId, prorationFixedDays);
+                tree = new SubscriptionItemTree(subscriptionId, targetInvoiceId, prorationFixedDays, useFlatTree);
                 subscriptionItemTree.put(subscriptionId, tree);
             }
             tree.mergeProposedItem(item);
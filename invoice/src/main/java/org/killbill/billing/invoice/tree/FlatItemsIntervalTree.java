@@ -0,0 +1,686 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.tree;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.tree.Item.ItemAction;
+import org.killbill.commons.utils.Preconditions;
+
+/**
+ * Array-backed counterpart of {@link ItemsNodeInterval}, used by {@link SubscriptionItemTree} when
+ * <tt>org.killbill.invoice.tree.flatIntervals</tt> is enabled.
+ * <p/>
+ * Each node is a slot in a set of parallel arrays: service period (as epoch days), parent, left child and right sibling
+ * (as slot indexes) and its items. Slot 0 is the root. This avoids allocating a NodeInterval, an ItemsInterval and a list
+ * for every node, and the arrays are reused when the tree is flattened.
+ * <p/>
+ * The insertion, build and merge logic mirrors the one from {@link NodeInterval}, {@link ItemsNodeInterval} and
+ * {@link ItemsInterval}: both implementations must produce the exact same items.
+ */
+public class FlatItemsIntervalTree {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    private static final int UNSET = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int prorationFixedDays;
+
+    private int nbNodes;
+    private int[] start;
+    private int[] end;
+    private int[] parent;
+    private int[] leftChild;
+    private int[] rightSibling;
+    // ItemsNodeInterval#split doesn't carry prorationFixedDays over: items built from split nodes are created with 0
+    private boolean[] isSplit;
+    // Nodes mostly hold one item, the other ones (e.g. the CANCEL item for an ADD item) are kept in a separate list
+    private int[] nbItems;
+    private Item[] firstItem;
+    private List<Item>[] otherItems;
+
+    public FlatItemsIntervalTree(final int prorationFixedDays) {
+        this.prorationFixedDays = prorationFixedDays;
+        allocate(INITIAL_CAPACITY);
+        clear();
+    }
+
+    /**
+     * Remove all the nodes (but keep the allocated arrays around), the tree is left with an empty root.
+     */
+    public void clear() {
+        Arrays.fill(firstItem, 0, nbNodes, null);
+        Arrays.fill(otherItems, 0, nbNodes, null);
+        nbNodes = 0;
+        newNode(UNSET, UNSET, NONE, false);
+    }
+
+    /**
+     * Add existing item into the tree
+     *
+     * @param item an existing item
+     * @see ItemsNodeInterval#addExistingItem(ItemsNodeInterval)
+     */
+    public void addExistingItem(final Item item) {
+        addNode(ROOT, item, toEpochDay(item.getStartDate()), toEpochDay(item.getEndDate()), false, new AddNodeCallback() {
+            @Override
+            public boolean onExistingNode(final int existingNode, final Item newItem) {
+                addItem(existingNode, newItem);
+                // There is no new node added but instead we just populated the list of items for the already existing node
+                return false;
+            }
+
+            @Override
+            public boolean shouldInsertNode(final int insertionNode, final Item newItem) {
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Add proposed item into the (flattened and reversed) tree
+     *
+     * @param item a new proposed item
+     * @return the proposed items (or pieces of) which should be kept as such, outside of the tree
+     * @see ItemsNodeInterval#addProposedItem(ItemsNodeInterval)
+     */
+    public List<Item> addProposedItem(final Item item) {
+        final List<Item> newItems = new LinkedList<>();
+
+        addNode(ROOT, item, toEpochDay(item.getStartDate()), toEpochDay(item.getEndDate()), false, new AddNodeCallback() {
+            @Override
+            public boolean onExistingNode(final int existingNode, final Item newItem) {
+                if (isSameKind(existingNode, newItem)) {
+                    cancelItems(existingNode, newItem);
+                    return true;
+                } else {
+                    newItems.add(newItem);
+                    return false;
+                }
+            }
+
+            @Override
+            public boolean shouldInsertNode(final int insertionNode, final Item newItem) {
+                if (insertionNode == ROOT) {
+                    // The new node has no children yet, so it is only considered as fully repaired when its period is empty
+                    if (!newItem.getStartDate().equals(newItem.getEndDate())) {
+                        newItems.add(newItem);
+                    }
+                    return false;
+                }
+
+                final boolean result = isSameKind(insertionNode, newItem);
+                if (!result) {
+                    newItems.add(newItem);
+                }
+                return result;
+            }
+
+            private boolean isSameKind(final int insertionNode, final Item newItem) {
+                Preconditions.checkState(nbItems[insertionNode] == 1, "Expected existing node to have only one item");
+                return firstItem[insertionNode].isSameKind(newItem);
+            }
+        });
+
+        return newItems;
+    }
+
+    /**
+     * Add the adjustment amount on the item specified by the targetId.
+     *
+     * @see ItemsNodeInterval#addAdjustment(InvoiceItem)
+     */
+    public void addAdjustment(final InvoiceItem item) {
+        final UUID targetId = item.getLinkedItemId();
+
+        final int node = findNode(ROOT, targetId);
+        final Item targetItem = node == NONE ? null : findItem(node, targetId);
+        Preconditions.checkNotNull(targetItem, "Unable to find item with id='%s', tree=%s", targetId, this);
+
+        targetItem.incrementAdjustedAmount(item.getAmount().negate());
+    }
+
+    /**
+     * @see ItemsNodeInterval#buildForExistingItems(Collection, UUID)
+     */
+    public void buildForExistingItems(final Collection<Item> output, final UUID targetInvoiceId) {
+        // Sanity on the tree
+        validateTree(ROOT);
+        build(output, targetInvoiceId, false);
+    }
+
+    /**
+     * @see ItemsNodeInterval#mergeExistingAndProposed(Collection, UUID)
+     */
+    public void mergeExistingAndProposed(final Collection<Item> output, final UUID targetInvoiceId) {
+        build(output, targetInvoiceId, true);
+    }
+
+    /**
+     * @return a linked copy of this tree (sharing the same items), for printing and serialization purposes
+     */
+    public ItemsNodeInterval toItemsNodeInterval() {
+        final ItemsNodeInterval result = new ItemsNodeInterval(prorationFixedDays);
+        if (start[ROOT] != UNSET) {
+            result.start = fromEpochDay(start[ROOT]);
+            result.end = fromEpochDay(end[ROOT]);
+        }
+        copyChildren(ROOT, result);
+        return result;
+    }
+
+    private void copyChildren(final int node, final ItemsNodeInterval target) {
+        NodeInterval prevCopy = null;
+        for (int child = leftChild[node]; child != NONE; child = rightSibling[child]) {
+            final ItemsNodeInterval copy = new ItemsNodeInterval(target, fromEpochDay(start[child]), fromEpochDay(end[child]), getItemsProrationFixedDays(child));
+            for (int i = 0; i < nbItems[child]; i++) {
+                copy.getItemsInterval().add(getItem(child, i));
+            }
+            if (prevCopy == null) {
+                target.leftChild = copy;
+            } else {
+                prevCopy.rightSibling = copy;
+            }
+            prevCopy = copy;
+            copyChildren(child, copy);
+        }
+    }
+
+    //
+    // Insertion, see NodeInterval#addNode
+    //
+    private boolean addNode(final int node, final Item newItem, final int newStart, final int newEnd, final boolean isNewItemSplit, final AddNodeCallback callback) {
+        // We've found a exact node matching that new item interval
+        if (node != ROOT && newStart == start[node] && newEnd == end[node]) {
+            return callback.onExistingNode(node, newItem);
+        }
+
+        // Initialize (or update) the root interval
+        if (node == ROOT) {
+            start[ROOT] = (start[ROOT] == UNSET || start[ROOT] > newStart) ? newStart : start[ROOT];
+            end[ROOT] = (end[ROOT] == UNSET || end[ROOT] < newEnd) ? newEnd : end[ROOT];
+        }
+
+        int prevChild = NONE;
+        int curChild = leftChild[node];
+        while (curChild != NONE) {
+            if (newStart < start[curChild]) {
+                if (newEnd <= start[curChild]) {
+                    // New item is strictly prior curChild, insert before
+                    return insertNode(node, prevChild, curChild, newItem, newStart, newEnd, isNewItemSplit, callback);
+                } else {
+                    // New item starts prior curChild, but overlaps, split on the curChild#start
+                    return addSplitNodes(node, newItem, newStart, newEnd, start[curChild], callback);
+                }
+            } else if (newEnd <= end[curChild]) {
+                // New item is contained within curChild, recurse to have curChild become the parent
+                return addNode(curChild, newItem, newStart, newEnd, isNewItemSplit, callback);
+            } else if (newStart < end[curChild]) {
+                // New item starts after curChild#start, but overlaps curChild, split on the curChild#end
+                return addSplitNodes(node, newItem, newStart, newEnd, end[curChild], callback);
+            } else {
+                // Go to next child and try again...
+                prevChild = curChild;
+                curChild = rightSibling[curChild];
+            }
+        }
+        // We reached to end (or there is no child), this item belongs after the last child, insert
+        return insertNode(node, prevChild, NONE, newItem, newStart, newEnd, isNewItemSplit, callback);
+    }
+
+    private boolean addSplitNodes(final int node, final Item newItem, final int newStart, final int newEnd, final int splitDay, final AddNodeCallback callback) {
+        Preconditions.checkState(splitDay > newStart && splitDay < newEnd,
+                                 "Unexpected item split with startDate='%s' and endDate='%s', splitDate='%s'", newItem.getStartDate(), newItem.getEndDate(), fromEpochDay(splitDay));
+
+        final Item[] splitItems = newItem.split(fromEpochDay(splitDay));
+        addNode(node, splitItems[0], newStart, splitDay, true, callback);
+        return addNode(node, splitItems[1], splitDay, newEnd, true, callback);
+    }
+
+    private boolean insertNode(final int parentNode, final int prevNode, final int nextNode, final Item newItem, final int newStart, final int newEnd, final boolean isNewItemSplit, final AddNodeCallback callback) {
+        if (!callback.shouldInsertNode(parentNode, newItem)) {
+            return false;
+        }
+
+        final int newNode = newNode(newStart, newEnd, parentNode, isNewItemSplit);
+        addItem(newNode, newItem);
+        if (prevNode == NONE) {
+            leftChild[parentNode] = newNode;
+        } else {
+            rightSibling[prevNode] = newNode;
+        }
+        rightSibling[newNode] = nextNode;
+        return true;
+    }
+
+    private int findNode(final int node, final UUID targetId) {
+        if (findItem(node, targetId) != null) {
+            return node;
+        }
+        for (int child = leftChild[node]; child != NONE; child = rightSibling[child]) {
+            final int result = findNode(child, targetId);
+            if (result != NONE) {
+                return result;
+            }
+        }
+        return NONE;
+    }
+
+    //
+    // Build, see NodeInterval#build and ItemsNodeInterval#build
+    //
+    private void build(final Collection<Item> output, final UUID targetInvoiceId, final boolean mergeMode) {
+        final List<Item> tmpOutput = new LinkedList<Item>(output);
+        output.clear();
+        build(ROOT, targetInvoiceId, mergeMode, tmpOutput);
+        ItemsNodeInterval.joinSplitItems(tmpOutput, output);
+    }
+
+    private void build(final int node, final UUID targetInvoiceId, final boolean mergeMode, final Collection<Item> output) {
+        if (leftChild[node] == NONE) {
+            buildForInterval(node, null, null, null, mergeMode, output);
+            return;
+        }
+
+        int curDay = start[node];
+        for (int child = leftChild[node]; child != NONE; child = rightSibling[child]) {
+            if (start[child] > curDay) {
+                buildForInterval(node, fromEpochDay(curDay), fromEpochDay(start[child]), targetInvoiceId, mergeMode, output);
+            }
+            build(child, targetInvoiceId, mergeMode, output);
+            // Note that skip to child endDate, meaning that we always consider the child [start end]
+            curDay = end[child];
+        }
+
+        // Finally if there is a hole at the end, we build the missing piece from ourselves
+        if (curDay < end[node]) {
+            buildForInterval(node, fromEpochDay(curDay), fromEpochDay(end[node]), targetInvoiceId, mergeMode, output);
+        }
+    }
+
+    // See ItemsInterval#createNewItem
+    private void buildForInterval(final int node, @Nullable final LocalDate startDate, @Nullable final LocalDate endDate, @Nullable final UUID targetInvoiceId, final boolean mergeMode, final Collection<Item> output) {
+        // Find the ADD (build phase) or CANCEL (merge phase) item of this interval
+        final Item item = mergeMode ? getResultingCancelItem(node) : getResultingAddItem(node);
+        if (item == null) {
+            return;
+        }
+        if (startDate == null || endDate == null || targetInvoiceId == null) {
+            output.add(item);
+            return;
+        }
+
+        // Prorate (build phase) or repair (merge phase) this item, as needed
+        final InvoiceItem proratedInvoiceItem = item.toProratedInvoiceItem(startDate, endDate);
+        // Keep track of the repaired amount for this item
+        item.incrementCurrentRepairedAmount(proratedInvoiceItem.getAmount().abs());
+        output.add(new Item(proratedInvoiceItem, targetInvoiceId, item.getAction(), getItemsProrationFixedDays(node)));
+    }
+
+    private Item getResultingCancelItem(final int node) {
+        if (nbItems[node] > 1) {
+            throw new IllegalStateException(String.format("Too many items=%s", getItems(node)));
+        }
+        return findItem(node, ItemAction.CANCEL);
+    }
+
+    // See ItemsInterval#getResulting_ADD_Item
+    private Item getResultingAddItem(final int node) {
+        if (nbItems[node] > 2 || countItems(node, ItemAction.ADD) > 1) {
+            throw new IllegalStateException(String.format("Double billing detected: %s", getItems(node)));
+        }
+
+        Item item = findItem(node, ItemAction.ADD);
+
+        // Double billing sanity check across nodes
+        if (item != null) {
+            final Set<UUID> addItemsCancelled = new HashSet<>();
+            final Item cancelItem = findItem(node, ItemAction.CANCEL);
+            if (cancelItem != null) {
+                Preconditions.checkState(cancelItem.getLinkedId() != null, "Invalid CANCEL item=%s", cancelItem);
+                if (cancelItem.getLinkedId().equals(item.getId())) {
+                    // Cancelling pair, we don't return anything
+                    item = null;
+                } else {
+                    addItemsCancelled.add(cancelItem.getLinkedId());
+                }
+            }
+            final Set<UUID> addItemsToBeCancelled = new HashSet<>();
+            checkDoubleBilling(node, addItemsCancelled, addItemsToBeCancelled);
+        }
+
+        return item;
+    }
+
+    private void checkDoubleBilling(final int node, final Set<UUID> addItemsCancelled, final Set<UUID> addItemsToBeCancelled) {
+        final int parentNode = parent[node];
+        if (parentNode == NONE) {
+            Preconditions.checkState(addItemsCancelled.equals(addItemsToBeCancelled), "Double billing detected: addItemsCancelled=%s, addItemsToBeCancelled=%s", addItemsCancelled, addItemsToBeCancelled);
+            return;
+        }
+
+        final Item parentAddItem = getResultingAddItem(parentNode);
+        if (parentAddItem != null) {
+            Preconditions.checkState(parentAddItem.getId() != null, "Invalid ADD item=%s", parentAddItem);
+            addItemsToBeCancelled.add(parentAddItem.getId());
+
+            // Old behavior compatibility for full item adjustment (see ItemsInterval#checkDoubleBilling)
+            if (parentAddItem.isFullyAdjusted()) {
+                addItemsCancelled.add(parentAddItem.getId());
+            }
+        }
+
+        final Item parentCancelItem = findItem(parentNode, ItemAction.CANCEL);
+        if (parentCancelItem != null) {
+            Preconditions.checkState(parentCancelItem.getLinkedId() != null, "Invalid CANCEL item=%s", parentCancelItem);
+            addItemsCancelled.add(parentCancelItem.getLinkedId());
+        }
+
+        checkDoubleBilling(parentNode, addItemsCancelled, addItemsToBeCancelled);
+    }
+
+    //
+    // Sanity on the tree, see ItemsNodeInterval#validateTree
+    //
+    private void validateTree(final int node) {
+        if (node != ROOT) {
+            validateNode(node);
+        }
+        for (int child = leftChild[node]; child != NONE; child = rightSibling[child]) {
+            validateTree(child);
+        }
+    }
+
+    private void validateNode(final int node) {
+        final Item[] nodeItems = getItems(node).toArray(new Item[0]);
+
+        for (final Item curCancelItem : nodeItems) {
+            if (curCancelItem.getAction() != ItemAction.CANCEL) {
+                continue;
+            }
+
+            // Sanity: cancelled items should only be in the same node or parents (NodeInterval#walkTree from the left child only)
+            if (leftChild[node] != NONE) {
+                checkNoCancelledItem(leftChild[node], curCancelItem);
+            }
+
+            // Sanity: make sure the CANCEL item points to an ADD item
+            Preconditions.checkState(hasCancelledItem(ROOT, curCancelItem.getLinkedId()), "Missing cancelledItem for cancelItem=%s", curCancelItem);
+        }
+
+        for (final Item curAddItem : nodeItems) {
+            if (curAddItem.getAction() != ItemAction.ADD) {
+                continue;
+            }
+
+            // Sanity: verify the item hasn't been repaired too much
+            if (leftChild[node] != NONE) {
+                final BigDecimal totalRepaired = getTotalRepaired(leftChild[node], curAddItem.getId(), BigDecimal.ZERO);
+                Preconditions.checkState(curAddItem.getNetAmount().compareTo(totalRepaired) >= 0, "Item %s overly repaired", curAddItem);
+            }
+
+            // Old behavior compatibility for full item adjustment (Temp code should go away as move in time)
+            // If we see a fully adjusted item and an existing child (one ADD item), we discard the fully adjusted item
+            // in such a way that we are left with the child that will look like the proposed and nothing will be generated.
+            if (curAddItem.isFullyAdjusted()) {
+                final int firstChild = leftChild[node];
+                if (firstChild != NONE && nbItems[firstChild] == 1 && firstItem[firstChild].getAction() == ItemAction.ADD) {
+                    removeItem(node, curAddItem);
+                }
+            }
+        }
+    }
+
+    private void checkNoCancelledItem(final int node, final Item cancelItem) {
+        final Item cancelledItem = getCancelledItemIfExists(node, cancelItem.getLinkedId());
+        Preconditions.checkState(cancelledItem == null, "Invalid cancelledItem=%s for cancelItem=%s", cancelledItem, cancelItem);
+        for (int child = leftChild[node]; child != NONE; child = rightSibling[child]) {
+            checkNoCancelledItem(child, cancelItem);
+        }
+    }
+
+    private boolean hasCancelledItem(final int node, final UUID linkedId) {
+        if (getCancelledItemIfExists(node, linkedId) != null) {
+            return true;
+        }
+        for (int child = leftChild[node]; child != NONE; child = rightSibling[child]) {
+            if (hasCancelledItem(child, linkedId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BigDecimal getTotalRepaired(final int node, final UUID addItemId, final BigDecimal curTotalRepaired) {
+        BigDecimal totalRepaired = curTotalRepaired;
+        final Item cancellingItem = getCancellingItemIfExists(node, addItemId);
+        if (cancellingItem != null && addItemId.equals(cancellingItem.getLinkedId())) {
+            totalRepaired = totalRepaired.add(cancellingItem.getAmount());
+        }
+        for (int child = leftChild[node]; child != NONE; child = rightSibling[child]) {
+            totalRepaired = getTotalRepaired(child, addItemId, totalRepaired);
+        }
+        return totalRepaired;
+    }
+
+    //
+    // Items of a node, see ItemsInterval
+    //
+    private Item getItem(final int node, final int i) {
+        return i == 0 ? firstItem[node] : otherItems[node].get(i - 1);
+    }
+
+    private List<Item> getItems(final int node) {
+        final List<Item> result = new ArrayList<>(nbItems[node]);
+        for (int i = 0; i < nbItems[node]; i++) {
+            result.add(getItem(node, i));
+        }
+        return result;
+    }
+
+    private void addItem(final int node, final Item item) {
+        if (nbItems[node] == 0) {
+            firstItem[node] = item;
+        } else {
+            if (otherItems[node] == null) {
+                otherItems[node] = new ArrayList<>(1);
+            }
+            otherItems[node].add(item);
+        }
+        nbItems[node]++;
+    }
+
+    private void removeItem(final int node, final Item item) {
+        for (int i = 0; i < nbItems[node]; i++) {
+            if (item.equals(getItem(node, i))) {
+                if (i > 0) {
+                    otherItems[node].remove(i - 1);
+                } else if (nbItems[node] > 1) {
+                    firstItem[node] = otherItems[node].remove(0);
+                } else {
+                    firstItem[node] = null;
+                }
+                nbItems[node]--;
+                return;
+            }
+        }
+    }
+
+    private void cancelItems(final int node, final Item item) {
+        Preconditions.checkState((item.getAction() == ItemAction.ADD), "item.getAction != ADD");
+        Preconditions.checkState(nbItems[node] == 1, "items.size() != 1");
+        Preconditions.checkState((firstItem[node].getAction() == ItemAction.CANCEL), "item.get(0).getAction() != CANCEL");
+        firstItem[node] = null;
+        nbItems[node] = 0;
+    }
+
+    private Item findItem(final int node, final ItemAction action) {
+        for (int i = 0; i < nbItems[node]; i++) {
+            final Item item = getItem(node, i);
+            if (item.getAction() == action) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private int countItems(final int node, final ItemAction action) {
+        int result = 0;
+        for (int i = 0; i < nbItems[node]; i++) {
+            if (getItem(node, i).getAction() == action) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private Item findItem(final int node, final UUID targetId) {
+        Item result = null;
+        for (int i = 0; i < nbItems[node]; i++) {
+            final Item item = getItem(node, i);
+            if (item.getId().equals(targetId)) {
+                if (result != null) {
+                    throw new IllegalStateException(String.format("Too many items matching id='%s' among items='%s'", targetId, getItems(node)));
+                }
+                result = item;
+            }
+        }
+        return result;
+    }
+
+    private Item getCancellingItemIfExists(final int node, final UUID targetId) {
+        for (int i = 0; i < nbItems[node]; i++) {
+            final Item item = getItem(node, i);
+            if (item.getAction() == ItemAction.CANCEL && item.getLinkedId().equals(targetId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private Item getCancelledItemIfExists(final int node, final UUID linkedId) {
+        for (int i = 0; i < nbItems[node]; i++) {
+            final Item item = getItem(node, i);
+            if (item.getAction() == ItemAction.ADD && item.getId().equals(linkedId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private int getItemsProrationFixedDays(final int node) {
+        return isSplit[node] ? 0 : prorationFixedDays;
+    }
+
+    //
+    // Storage
+    //
+    private int newNode(final int startDay, final int endDay, final int parentNode, final boolean isSplitNode) {
+        if (nbNodes == start.length) {
+            grow();
+        }
+        final int node = nbNodes++;
+        start[node] = startDay;
+        end[node] = endDay;
+        parent[node] = parentNode;
+        leftChild[node] = NONE;
+        rightSibling[node] = NONE;
+        isSplit[node] = isSplitNode;
+        nbItems[node] = 0;
+        firstItem[node] = null;
+        otherItems[node] = null;
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(final int capacity) {
+        start = new int[capacity];
+        end = new int[capacity];
+        parent = new int[capacity];
+        leftChild = new int[capacity];
+        rightSibling = new int[capacity];
+        isSplit = new boolean[capacity];
+        nbItems = new int[capacity];
+        firstItem = new Item[capacity];
+        otherItems = new List[capacity];
+    }
+
+    private void grow() {
+        final int capacity = start.length * 2;
+        start = Arrays.copyOf(start, capacity);
+        end = Arrays.copyOf(end, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        leftChild = Arrays.copyOf(leftChild, capacity);
+        rightSibling = Arrays.copyOf(rightSibling, capacity);
+        isSplit = Arrays.copyOf(isSplit, capacity);
+        nbItems = Arrays.copyOf(nbItems, capacity);
+        firstItem = Arrays.copyOf(firstItem, capacity);
+        otherItems = Arrays.copyOf(otherItems, capacity);
+    }
+
+    static int toEpochDay(final LocalDate date) {
+        return (int) java.time.LocalDate.of(date.getYear(), date.getMonthOfYear(), date.getDayOfMonth()).toEpochDay();
+    }
+
+    static LocalDate fromEpochDay(final int epochDay) {
+        final java.time.LocalDate date = java.time.LocalDate.ofEpochDay(epochDay);
+        return new LocalDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("FlatItemsIntervalTree{");
+        for (int node = 0; node < nbNodes; node++) {
+            if (node > 0) {
+                sb.append(", ");
+            }
+            sb.append(node)
+              .append("=[")
+              .append(start[node] == UNSET ? null : fromEpochDay(start[node]))
+              .append(",")
+              .append(end[node] == UNSET ? null : fromEpochDay(end[node]))
+              .append("]")
+              .append(getItems(node));
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Provides the custom logic for when adding nodes in the tree, see {@link NodeInterval.AddNodeCallback}.
+     */
+    private interface AddNodeCallback {
+
+        boolean onExistingNode(final int existingNode, final Item newItem);
+
+        boolean shouldInsertNode(final int insertionNode, final Item newItem);
+    }
+}
@@ -303,9 +303,13 @@ public class ItemsNodeInterval extends NodeInterval {
             }
         });
 
-        //
-        // Join items that were previously split to fit in the tree as necessary.
-        //
+        joinSplitItems(tmpOutput, output);
+    }
+
+    //
+    // Join items that were previously split to fit in the tree as necessary.
+    //
+    static void joinSplitItems(final Collection<Item> tmpOutput, final Collection<Item> output) {
         // 1. Build a map for each item pointing to a heap of (potential) split items
         final Map<UUID, PriorityQueue<Item>> joinMap = new HashMap<>();
         for (final Item i : tmpOutput) {
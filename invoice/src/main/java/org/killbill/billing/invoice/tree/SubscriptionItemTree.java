@@ -46,7 +46,9 @@ public class SubscriptionItemTree {
     private final UUID targetInvoiceId;
     private final UUID subscriptionId;
 
+    // Only one of the two representations is used, based on InvoiceConfig#isFlatItemTreeEnabled
     private ItemsNodeInterval root;
+    private final FlatItemsIntervalTree flatTree;
     private boolean isBuilt = false;
     private boolean isMerged = false;
 
@@ -74,10 +76,15 @@ public class SubscriptionItemTree {
 
     // targetInvoiceId is the new invoice id being generated
     public SubscriptionItemTree(final UUID subscriptionId, final UUID targetInvoiceId, final int prorationFixedDays) {
+        this(subscriptionId, targetInvoiceId, prorationFixedDays, false);
+    }
+
+    public SubscriptionItemTree(final UUID subscriptionId, final UUID targetInvoiceId, final int prorationFixedDays, final boolean useFlatTree) {
         this.subscriptionId = subscriptionId;
         this.targetInvoiceId = targetInvoiceId;
         this.prorationFixedDays = prorationFixedDays;
-        this.root  = new ItemsNodeInterval(prorationFixedDays);
+        this.root = useFlatTree ? null : new ItemsNodeInterval(prorationFixedDays);
+        this.flatTree = useFlatTree ? new FlatItemsIntervalTree(prorationFixedDays) : null;
     }
 
     /**
@@ -94,12 +101,12 @@ public class SubscriptionItemTree {
                     // Nothing to repair -- https://github.com/killbill/killbill/issues/783
                     existingIgnoredItems.add(invoiceItem);
                 } else {
-                    root.addExistingItem(new ItemsNodeInterval(root, new Item(invoiceItem, targetInvoiceId, ItemAction.ADD, prorationFixedDays), prorationFixedDays));
+                    addExistingItem(new Item(invoiceItem, targetInvoiceId, ItemAction.ADD, prorationFixedDays));
                 }
                 break;
 
             case REPAIR_ADJ:
-                root.addExistingItem(new ItemsNodeInterval(root, new Item(invoiceItem, targetInvoiceId, ItemAction.CANCEL, prorationFixedDays), prorationFixedDays));
+                addExistingItem(new Item(invoiceItem, targetInvoiceId, ItemAction.CANCEL, prorationFixedDays));
                 break;
 
             case FIXED:
@@ -127,12 +134,20 @@ public class SubscriptionItemTree {
                     .stream()
                     .anyMatch(input -> input.getId().equals(item.getLinkedItemId()));
             if (!isLinkedItemExist) {
-                root.addAdjustment(item);
+                if (flatTree != null) {
+                    flatTree.addAdjustment(item);
+                } else {
+                    root.addAdjustment(item);
+                }
             }
         }
         pendingItemAdj.clear();
 
-        root.buildForExistingItems(items, targetInvoiceId);
+        if (flatTree != null) {
+            flatTree.buildForExistingItems(items, targetInvoiceId);
+        } else {
+            root.buildForExistingItems(items, targetInvoiceId);
+        }
 
         isBuilt = true;
     }
@@ -149,10 +164,14 @@ public class SubscriptionItemTree {
             build();
         }
 
-        root = new ItemsNodeInterval(prorationFixedDays);
+        if (flatTree != null) {
+            flatTree.clear();
+        } else {
+            root = new ItemsNodeInterval(prorationFixedDays);
+        }
         for (final Item item : items) {
             Preconditions.checkState(item.getAction() == ItemAction.ADD);
-            root.addExistingItem(new ItemsNodeInterval(root, new Item(item, reverse ? ItemAction.CANCEL : ItemAction.ADD), prorationFixedDays));
+            addExistingItem(new Item(item, reverse ? ItemAction.CANCEL : ItemAction.ADD));
         }
         items.clear();
         isBuilt = false;
@@ -175,9 +194,14 @@ public class SubscriptionItemTree {
         switch (invoiceItem.getInvoiceItemType()) {
             case RECURRING:
                 // merged means we've either matched the proposed to an existing, or triggered a repair
-                final List<ItemsNodeInterval> newNodes = root.addProposedItem(new ItemsNodeInterval(root, new Item(invoiceItem, targetInvoiceId, ItemAction.ADD, prorationFixedDays), prorationFixedDays));
-                for (final ItemsNodeInterval cur : newNodes) {
-                    items.addAll(cur.getItems());
+                final Item proposedItem = new Item(invoiceItem, targetInvoiceId, ItemAction.ADD, prorationFixedDays);
+                if (flatTree != null) {
+                    items.addAll(flatTree.addProposedItem(proposedItem));
+                } else {
+                    final List<ItemsNodeInterval> newNodes = root.addProposedItem(new ItemsNodeInterval(root, proposedItem, prorationFixedDays));
+                    for (final ItemsNodeInterval cur : newNodes) {
+                        items.addAll(cur.getItems());
+                    }
                 }
                 break;
 
@@ -193,11 +217,23 @@ public class SubscriptionItemTree {
     // Build tree post merge
     public void buildForMerge() {
         Preconditions.checkState(!isBuilt, "Tree already built");
-        root.mergeExistingAndProposed(items, targetInvoiceId);
+        if (flatTree != null) {
+            flatTree.mergeExistingAndProposed(items, targetInvoiceId);
+        } else {
+            root.mergeExistingAndProposed(items, targetInvoiceId);
+        }
         isBuilt = true;
         isMerged = true;
     }
 
+    private void addExistingItem(final Item item) {
+        if (flatTree != null) {
+            flatTree.addExistingItem(item);
+        } else {
+            root.addExistingItem(new ItemsNodeInterval(root, item, prorationFixedDays));
+        }
+    }
+
     /**
      * Can be called prior or after merge with proposed items.
      * <ul>
@@ -251,7 +287,7 @@ public class SubscriptionItemTree {
         final StringBuilder sb = new StringBuilder("SubscriptionItemTree{");
         sb.append("targetInvoiceId=").append(targetInvoiceId);
         sb.append(", subscriptionId=").append(subscriptionId);
-        sb.append(", root=").append(root);
+        sb.append(", root=").append(flatTree != null ? flatTree : root);
         sb.append(", isBuilt=").append(isBuilt);
         sb.append(", isMerged=").append(isMerged);
         sb.append(", items=").append(items);
@@ -276,6 +312,9 @@ public class SubscriptionItemTree {
         if (root != null ? !root.equals(that.root) : that.root != null) {
             return false;
         }
+        if (flatTree != null ? !flatTree.equals(that.flatTree) : that.flatTree != null) {
+            return false;
+        }
         if (subscriptionId != null ? !subscriptionId.equals(that.subscriptionId) : that.subscriptionId != null) {
             return false;
         }
@@ -287,11 +326,12 @@ public class SubscriptionItemTree {
     public int hashCode() {
         int result = subscriptionId != null ? subscriptionId.hashCode() : 0;
         result = 31 * result + (root != null ? root.hashCode() : 0);
+        result = 31 * result + (flatTree != null ? flatTree.hashCode() : 0);
         return result;
     }
 
     @VisibleForTesting
     ItemsNodeInterval getRoot() {
-        return root;
+        return flatTree != null ? flatTree.toItemsNodeInterval() : root;
     }
 }
@@ -87,7 +87,9 @@ public class RawUsageOptimizer {
         // The idea is that if we need to come up with a DateTime we use the largest possible based on the provided LocalDate to return enough points and have the usage invoice code filter what is not relevant.
         // Since target date is within account#timezone, we compute a datetime at the end of the day in account#timezone and then convert to UTC
         final DateTime targetDateMax = usageClockUtil.toDateTimeAtEndOfDay(targetDate, internalCallContext);
-        final List<RawUsageRecord> rawUsageData = usageApi.getRawUsageForAccount(optimizedStartDate, targetDateMax, dryRunInfo, inputProperties, internalCallContext);
+        final List<RawUsageRecord> rawUsageData = config.isUsageAggregatesEnabled(internalCallContext) ?
+                                                  usageApi.getAggregatedUsageForAccount(optimizedStartDate, targetDateMax, dryRunInfo, inputProperties, internalCallContext) :
+                                                  usageApi.getRawUsageForAccount(optimizedStartDate, targetDateMax, dryRunInfo, inputProperties, internalCallContext);
 
         final List<InvoiceTrackingModelDao> trackingIds = invoiceDao.getTrackingsByDateRange(optimizedStartDate.toLocalDate(), targetDate, internalCallContext);
         final Set<TrackingRecordId> existingTrackingIds = new HashSet<>();
@@ -256,4 +256,22 @@ CREATE TABLE invoice_billing_events (
     PRIMARY KEY(record_id)
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
 CREATE UNIQUE INDEX invoice_billing_events_invoice_id ON invoice_billing_events(invoice_id);
-CREATE INDEX invoice_billing_events_tenant_account_record_id ON invoice_billing_events(tenant_record_id, account_record_id);
\ No newline at end of file
+CREATE INDEX invoice_billing_events_tenant_account_record_id ON invoice_billing_events(tenant_record_id, account_record_id);
+/* Aggregates of the unpaid invoices of an account (for overdue), refreshed by the invoice and payment writes */
+DROP TABLE IF EXISTS unpaid_invoices_summaries;
+CREATE TABLE unpaid_invoices_summaries (
+    record_id serial unique,
+    account_id varchar(36) NOT NULL,
+    nb_unpaid_invoices int NOT NULL,
+    unpaid_invoice_balance numeric(15,9) NOT NULL,
+    earliest_unpaid_invoice_id varchar(36) DEFAULT NULL,
+    earliest_unpaid_invoice_date date DEFAULT NULL,
+    latest_unpaid_target_date date DEFAULT NULL,
+    next_unpaid_target_date date DEFAULT NULL,
+    is_stale boolean NOT NULL,
+    version int NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX unpaid_invoices_summaries_tenant_account_record_id ON unpaid_invoices_summaries(tenant_record_id, account_record_id);
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.BulkInvoiceRunner.BulkInvoiceRunResult;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.dao.DueAccount;
+import org.killbill.billing.invoice.dao.DueAccountDao;
+import org.killbill.billing.invoice.notification.DefaultNextBillingDateNotifier;
+import org.killbill.billing.invoice.notification.NextBillingDateNotificationKey;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.billing.util.globallocker.LockerType;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestBulkInvoiceRunner extends InvoiceTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testRunInvokesDispatcherForEachDueAccount() throws Exception {
+        final InvoiceDispatcher dispatcher = Mockito.mock(InvoiceDispatcher.class);
+        final InternalCallContextFactory contextFactory = Mockito.mock(InternalCallContextFactory.class);
+        final InvoiceConfig bulkInvoiceConfig = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(bulkInvoiceConfig.isBulkInvoiceRunEnabled()).thenReturn(true);
+        Mockito.when(bulkInvoiceConfig.getBulkInvoiceRunInterval()).thenReturn(new TimeSpan("1h"));
+        Mockito.when(bulkInvoiceConfig.getBulkInvoiceRunParallelism()).thenReturn(4);
+        Mockito.when(bulkInvoiceConfig.getBulkInvoiceRunBatchSize()).thenReturn(100);
+
+        final InternalCallContext failingContext = Mockito.mock(InternalCallContext.class);
+        Mockito.when(failingContext.toLocalDate(Mockito.<DateTime>any())).thenReturn(new LocalDate(2026, 10, 1));
+        Mockito.when(contextFactory.createInternalCallContext(Mockito.<Long>any(), Mockito.<Long>any(), Mockito.anyString(), Mockito.<CallOrigin>any(), Mockito.<UserType>any(), Mockito.<UUID>any()))
+               .thenAnswer(invocation -> Long.valueOf(10L).equals(invocation.getArgument(1)) ? failingContext : internalCallContext);
+
+        Mockito.when(dispatcher.processSubscriptionForInvoiceGeneration(Mockito.<LocalDate>any(), Mockito.eq(false), Mockito.same(internalCallContext)))
+               .thenReturn(List.of(Mockito.mock(Invoice.class)));
+        Mockito.when(dispatcher.processSubscriptionForInvoiceGeneration(Mockito.<LocalDate>any(), Mockito.eq(false), Mockito.same(failingContext)))
+               .thenThrow(new InvoiceApiException(ErrorCode.UNEXPECTED_ERROR, "Boom"));
+
+        final DateTime now = clock.getUTCNow();
+        final NotificationQueue nextBillingQueue = Mockito.mock(NotificationQueue.class);
+        Mockito.when(nextBillingQueue.getFullQName()).thenReturn("invoice-service:next-billing-date-queue");
+        final List<DueAccount> dueAccounts = new ArrayList<>();
+        for (long i = 1; i <= 11; i++) {
+            dueAccounts.add(new DueAccount(i, 1L, now));
+            final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> notifications = new ArrayList<>();
+            // Account 11 has already been processed by the notification queue, only a future notification is left
+            notifications.add(createNotification(i, i == 11 ? now.plusMonths(1) : now, false));
+            // Dry-run notifications are left to the queue
+            notifications.add(createNotification(100 + i, now, true));
+            Mockito.when(nextBillingQueue.<NextBillingDateNotificationKey>getFutureNotificationForSearchKeys(i, 1L)).thenReturn(notifications);
+        }
+
+        final NotificationQueueService notificationQueueService = Mockito.mock(NotificationQueueService.class);
+        Mockito.when(notificationQueueService.getNotificationQueue(Mockito.anyString(), Mockito.eq(DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE))).thenReturn(nextBillingQueue);
+        final DueAccountDao dueAccountDao = Mockito.mock(DueAccountDao.class);
+        Mockito.when(dueAccountDao.getDueAccounts(Mockito.eq("invoice-service:next-billing-date-queue"), Mockito.<DateTime>any(), Mockito.eq(100))).thenReturn(dueAccounts);
+        // The notification of account 9 gets claimed by the queue first
+        Mockito.when(dueAccountDao.claimNotification(Mockito.anyLong(), Mockito.<DateTime>any())).thenAnswer(invocation -> !Long.valueOf(9L).equals(invocation.getArgument(0)));
+        final GlobalLock lock = Mockito.mock(GlobalLock.class);
+        final GlobalLocker locker = Mockito.mock(GlobalLocker.class);
+        Mockito.when(locker.lockWithNumberOfTries(Mockito.eq(LockerType.BULK_INVOICE_RUN.toString()), Mockito.anyString(), Mockito.anyInt())).thenReturn(lock);
+
+        final BulkInvoiceRunner runner = new BulkInvoiceRunner(dispatcher, contextFactory, bulkInvoiceConfig, dueAccountDao, notificationQueueService, locker, clock);
+        runner.start();
+        try {
+            final BulkInvoiceRunResult result = runner.runDueAccounts();
+            Assert.assertEquals(result.getNbAccounts(), 9);
+            Assert.assertEquals(result.getNbInvoices(), 8);
+            Assert.assertEquals(result.getNbFailures(), 1);
+        } finally {
+            runner.stop();
+        }
+
+        Mockito.verify(dispatcher, Mockito.times(9)).processSubscriptionForInvoiceGeneration(Mockito.<LocalDate>any(), Mockito.eq(false), Mockito.<InternalCallContext>any());
+        // Only the ready, non dry-run, notifications are claimed
+        Mockito.verify(dueAccountDao, Mockito.times(10)).claimNotification(Mockito.anyLong(), Mockito.<DateTime>any());
+        // Only the notifications of the successfully invoiced accounts are consumed, the other ones are given back to the queue
+        for (long i = 1; i <= 8; i++) {
+            Mockito.verify(nextBillingQueue).removeNotification(i);
+        }
+        Mockito.verify(nextBillingQueue, Mockito.times(8)).removeNotification(Mockito.anyLong());
+        Mockito.verify(dueAccountDao).releaseNotification(10L);
+        Mockito.verify(dueAccountDao, Mockito.times(1)).releaseNotification(Mockito.anyLong());
+        Mockito.verify(lock).release();
+    }
+
+    @Test(groups = "fast")
+    public void testRunSkippedWhenLockedByAnotherNode() throws Exception {
+        final InvoiceConfig bulkInvoiceConfig = Mockito.mock(InvoiceConfig.class);
+        final DueAccountDao dueAccountDao = Mockito.mock(DueAccountDao.class);
+        final GlobalLocker locker = Mockito.mock(GlobalLocker.class);
+        Mockito.when(locker.lockWithNumberOfTries(Mockito.anyString(), Mockito.anyString(), Mockito.anyInt())).thenThrow(new LockFailedException());
+
+        final BulkInvoiceRunner runner = new BulkInvoiceRunner(Mockito.mock(InvoiceDispatcher.class), Mockito.mock(InternalCallContextFactory.class), bulkInvoiceConfig,
+                                                               dueAccountDao, Mockito.mock(NotificationQueueService.class), locker, clock);
+        Assert.assertNull(runner.runDueAccounts());
+        Mockito.verifyNoInteractions(dueAccountDao);
+    }
+
+    @SuppressWarnings("unchecked")
+    private NotificationEventWithMetadata<NextBillingDateNotificationKey> createNotification(final long recordId, final DateTime effectiveDate, final boolean isDryRun) {
+        final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification = Mockito.mock(NotificationEventWithMetadata.class);
+        Mockito.when(notification.getRecordId()).thenReturn(recordId);
+        Mockito.when(notification.getEffectiveDate()).thenReturn(effectiveDate);
+        Mockito.when(notification.getEvent()).thenReturn(new NextBillingDateNotificationKey(null, List.of(UUID.randomUUID()), effectiveDate, isDryRun, false));
+        return notification;
+    }
+}
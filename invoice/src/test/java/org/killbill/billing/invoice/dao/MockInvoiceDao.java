@@ -349,6 +349,15 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return unpaidInvoices;
     }
 
+    @Override
+    public UnpaidInvoicesSummaryModelDao getUnpaidInvoicesSummary(final UUID accountId, final LocalDate upToDate, final InternalTenantContext context) {
+        return UnpaidInvoicesSummaryModelDao.fromUnpaidInvoices(accountId, getUnpaidInvoicesByAccountId(accountId, null, upToDate, context), upToDate, false);
+    }
+
+    @Override
+    public void refreshUnpaidInvoicesSummary(final InternalCallContext context) {
+    }
+
     @Override
     public List<InvoiceModelDao> getAllInvoicesByAccount(final Boolean includeVoidedInvoices, final Boolean includeInvoiceComponents, final InternalTenantContext context) {
         final List<InvoiceModelDao> result = new ArrayList<>();
@@ -428,6 +437,11 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return null;
     }
 
+    @Override
+    public LocalDate getBilledThroughCutoffDate(final InternalTenantContext context) {
+        return null;
+    }
+
     @Override
     public InvoicePaymentModelDao createRefund(final UUID paymentId, final UUID paymentAttemptId, final BigDecimal amount, final boolean isInvoiceAdjusted,
                                                final Map<UUID, BigDecimal> invoiceItemIdsWithAmounts, final String transactionExternalKey,
@@ -71,6 +71,7 @@ import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
 import org.killbill.billing.invoice.model.ParentInvoiceItem;
 import org.killbill.billing.invoice.model.RecurringInvoiceItem;
 import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
+import org.killbill.billing.invoice.model.UsageInvoiceItem;
 import org.killbill.billing.invoice.optimizer.InvoiceOptimizerBase.AccountInvoices;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BillingEventSet;
@@ -92,6 +93,7 @@ import static org.killbill.billing.invoice.TestInvoiceHelper.TEN;
 import static org.killbill.billing.invoice.TestInvoiceHelper.TWENTY;
 import static org.killbill.billing.invoice.TestInvoiceHelper.ZERO;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -1420,6 +1422,112 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(invoices.size(), 1);
     }
 
+    @Test(groups = "slow")
+    public void testGetUnpaidInvoicesSummary() throws EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final LocalDate targetDate = new LocalDate(2011, 10, 6);
+        final Invoice invoice = new DefaultInvoice(accountId, new LocalDate(2011, 10, 1), targetDate, Currency.USD);
+        final BigDecimal rate = new BigDecimal("21.0");
+        invoice.addInvoiceItem(new RecurringInvoiceItem(invoice.getId(), accountId, bundleId, UUID.randomUUID(), "test product", "test plan", "test phase A", null, new LocalDate(2011, 10, 1), new LocalDate(2011, 11, 1),
+                                                        rate, rate, Currency.USD));
+        invoiceUtil.createInvoice(invoice, context);
+
+        // Invoice not due yet
+        UnpaidInvoicesSummaryModelDao summary = invoiceDao.getUnpaidInvoicesSummary(accountId, new LocalDate(2011, 10, 1), context);
+        assertEquals(summary.getNbUnpaidInvoices(), 0);
+        assertEquals(summary.getUnpaidInvoiceBalance().compareTo(BigDecimal.ZERO), 0);
+        assertNull(summary.getEarliestUnpaidInvoiceId());
+
+        // The summary is recomputed once the cutoff date goes past the target date
+        summary = invoiceDao.getUnpaidInvoicesSummary(accountId, new LocalDate(2012, 1, 1), context);
+        assertEquals(summary.getNbUnpaidInvoices(), 1);
+        assertEquals(summary.getUnpaidInvoiceBalance().compareTo(rate), 0);
+        assertEquals(summary.getEarliestUnpaidInvoiceId(), invoice.getId());
+        assertEquals(summary.getEarliestUnpaidInvoiceDate(), new LocalDate(2011, 10, 1));
+
+        // Stored once the account is tracked
+        UnpaidInvoicesSummaryModelDao storedSummary = getStoredUnpaidInvoicesSummary();
+        assertFalse(storedSummary.isStale());
+        assertEquals(storedSummary.getNbUnpaidInvoices(), 1);
+        final int version = storedSummary.getVersion();
+
+        // Payments refresh it in place
+        final DefaultInvoicePayment defaultInvoicePayment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice.getId(), clock.getUTCNow(), new BigDecimal("11.0"), Currency.USD, Currency.USD, UUID.randomUUID().toString(), InvoicePaymentStatus.SUCCESS);
+        invoiceDao.notifyOfPaymentCompletion(new InvoicePaymentModelDao(defaultInvoicePayment), UUID.randomUUID(), context);
+        storedSummary = getStoredUnpaidInvoicesSummary();
+        assertFalse(storedSummary.isStale());
+        assertEquals(storedSummary.getVersion(), version + 1);
+        assertEquals(storedSummary.getUnpaidInvoiceBalance().compareTo(BigDecimal.TEN), 0);
+
+        summary = invoiceDao.getUnpaidInvoicesSummary(accountId, new LocalDate(2012, 1, 1), context);
+        assertEquals(summary.getNbUnpaidInvoices(), 1);
+        assertEquals(summary.getUnpaidInvoiceBalance().compareTo(BigDecimal.TEN), 0);
+        assertEquals(invoiceDao.getUnpaidInvoicesByAccountId(accountId, null, new LocalDate(2012, 1, 1), context).size(), 1);
+        // Served from the stored row
+        assertEquals(getStoredUnpaidInvoicesSummary().getVersion(), version + 1);
+    }
+
+    @Test(groups = "slow")
+    public void testUnpaidInvoicesSummaryIsMaintainedIncrementally() throws EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final Invoice invoice = new DefaultInvoice(accountId, new LocalDate(2011, 10, 1), new LocalDate(2011, 10, 6), Currency.USD);
+        final BigDecimal rate = new BigDecimal("21.0");
+        invoice.addInvoiceItem(new RecurringInvoiceItem(invoice.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test product", "test plan", "test phase A", null, new LocalDate(2011, 10, 1), new LocalDate(2011, 11, 1),
+                                                        rate, rate, Currency.USD));
+        invoiceUtil.createInvoice(invoice, context);
+
+        // Track the account, then build the summary
+        invoiceDao.getUnpaidInvoicesSummary(accountId, new LocalDate(2012, 1, 1), context);
+        invoiceDao.getUnpaidInvoicesSummary(accountId, new LocalDate(2012, 1, 1), context);
+        final int version = getStoredUnpaidInvoicesSummary().getVersion();
+
+        // Paying off the only unpaid invoice updates the summary without a rebuild
+        final DefaultInvoicePayment defaultInvoicePayment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice.getId(), clock.getUTCNow(), rate, Currency.USD, Currency.USD, UUID.randomUUID().toString(), InvoicePaymentStatus.SUCCESS);
+        invoiceDao.notifyOfPaymentCompletion(new InvoicePaymentModelDao(defaultInvoicePayment), UUID.randomUUID(), context);
+        final UnpaidInvoicesSummaryModelDao storedSummary = getStoredUnpaidInvoicesSummary();
+        assertFalse(storedSummary.isStale());
+        assertEquals(storedSummary.getVersion(), version + 1);
+        assertEquals(storedSummary.getNbUnpaidInvoices(), 0);
+        assertEquals(storedSummary.getUnpaidInvoiceBalance().compareTo(BigDecimal.ZERO), 0);
+        assertNull(storedSummary.getEarliestUnpaidInvoiceId());
+        assertNull(storedSummary.getEarliestUnpaidInvoiceDate());
+
+        assertEquals(invoiceDao.getUnpaidInvoicesSummary(accountId, new LocalDate(2012, 1, 1), context).getNbUnpaidInvoices(), 0);
+        assertEquals(invoiceDao.getUnpaidInvoicesByAccountId(accountId, null, new LocalDate(2012, 1, 1), context).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testUnpaidInvoicesSummaryRebuildIsSkippedOnConcurrentWrite() throws EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final Invoice invoice = new DefaultInvoice(accountId, new LocalDate(2011, 10, 1), new LocalDate(2011, 10, 6), Currency.USD);
+        final BigDecimal rate = new BigDecimal("21.0");
+        invoice.addInvoiceItem(new RecurringInvoiceItem(invoice.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test product", "test plan", "test phase A", null, new LocalDate(2011, 10, 1), new LocalDate(2011, 11, 1),
+                                                        rate, rate, Currency.USD));
+        invoiceUtil.createInvoice(invoice, context);
+
+        // First read only starts tracking the account
+        invoiceDao.getUnpaidInvoicesSummary(accountId, new LocalDate(2012, 1, 1), context);
+        final UnpaidInvoicesSummaryModelDao placeholder = getStoredUnpaidInvoicesSummary();
+        assertTrue(placeholder.isStale());
+
+        // A write happened after the rebuild read the summary: the rebuilt summary must not overwrite it
+        dbi.withHandle(handle -> handle.attach(UnpaidInvoicesSummarySqlDao.class).markStale(context));
+        final UnpaidInvoicesSummaryModelDao rebuilt = UnpaidInvoicesSummaryModelDao.fromUnpaidInvoices(accountId, List.of(), null, false);
+        final int nbUpdated = dbi.withHandle(handle -> handle.attach(UnpaidInvoicesSummarySqlDao.class).updateIfVersion(rebuilt, placeholder.getVersion(), context));
+        assertEquals(nbUpdated, 0);
+        assertTrue(getStoredUnpaidInvoicesSummary().isStale());
+
+        // Next read rebuilds it
+        final UnpaidInvoicesSummaryModelDao summary = invoiceDao.getUnpaidInvoicesSummary(accountId, new LocalDate(2012, 1, 1), context);
+        assertEquals(summary.getNbUnpaidInvoices(), 1);
+        assertFalse(getStoredUnpaidInvoicesSummary().isStale());
+    }
+
+    private UnpaidInvoicesSummaryModelDao getStoredUnpaidInvoicesSummary() {
+        return dbi.withHandle(handle -> handle.attach(UnpaidInvoicesSummarySqlDao.class).getByAccountRecordId(context));
+    }
+
     /*
      *
      * this test verifies that immediate changes give the correct results
@@ -2249,4 +2357,48 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         Assert.assertNotNull(all.get(0).getBalance()); //balance is returned as search is based on balance
         Assert.assertEquals(all.get(0).getBalance().stripTrailingZeros().compareTo(amount), 0);
     }
+
+    @Test(groups = "slow")
+    public void testGetBilledThroughCutoffDate() throws Exception {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final UUID subscriptionId1 = UUID.randomUUID();
+        final UUID subscriptionId2 = UUID.randomUUID();
+
+        assertNull(invoiceDao.getBilledThroughCutoffDate(context));
+
+        // Both subscriptions billed on 2011-03-01
+        final LocalDate targetDate1 = new LocalDate(2011, 3, 1);
+        final Invoice invoice1 = new DefaultInvoice(accountId, targetDate1, targetDate1, Currency.USD);
+        invoiceUtil.createInvoice(invoice1, context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice1.getId(), accountId, bundleId, subscriptionId1, "test product", "test plan", "test A", null, targetDate1, targetDate1.plusMonths(1),
+                                                               BigDecimal.TEN, BigDecimal.TEN, Currency.USD), context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice1.getId(), accountId, bundleId, subscriptionId2, "test product", "test plan", "test B", null, targetDate1, targetDate1.plusMonths(1),
+                                                               BigDecimal.TEN, BigDecimal.TEN, Currency.USD), context);
+        assertEquals(invoiceDao.getBilledThroughCutoffDate(context), targetDate1);
+
+        // Only the first subscription billed on 2011-04-01
+        final LocalDate targetDate2 = new LocalDate(2011, 4, 1);
+        final Invoice invoice2 = new DefaultInvoice(accountId, targetDate2, targetDate2, Currency.USD);
+        invoiceUtil.createInvoice(invoice2, context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice2.getId(), accountId, bundleId, subscriptionId1, "test product", "test plan", "test A", null, targetDate2, targetDate2.plusMonths(1),
+                                                               BigDecimal.TEN, BigDecimal.TEN, Currency.USD), context);
+        assertEquals(invoiceDao.getBilledThroughCutoffDate(context), targetDate1);
+
+        // Second subscription billed on 2011-04-01 as well
+        final Invoice invoice3 = new DefaultInvoice(accountId, targetDate2, targetDate2, Currency.USD);
+        invoiceUtil.createInvoice(invoice3, context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice3.getId(), accountId, bundleId, subscriptionId2, "test product", "test plan", "test B", null, targetDate2, targetDate2.plusMonths(1),
+                                                               BigDecimal.TEN, BigDecimal.TEN, Currency.USD), context);
+        assertEquals(invoiceDao.getBilledThroughCutoffDate(context), targetDate2);
+
+        // Voided invoices are ignored
+        invoiceDao.changeInvoiceStatus(invoice3.getId(), InvoiceStatus.VOID, context);
+        assertEquals(invoiceDao.getBilledThroughCutoffDate(context), targetDate1);
+
+        // Accounts with usage items don't have a billed-through cutoff date
+        invoiceUtil.createInvoiceItem(new UsageInvoiceItem(invoice2.getId(), accountId, bundleId, subscriptionId1, "test product", "test plan", "test A", "test usage", null, targetDate1, targetDate2,
+                                                           BigDecimal.ONE, Currency.USD), context);
+        assertNull(invoiceDao.getBilledThroughCutoffDate(context));
+    }
 }
@@ -23,8 +23,10 @@ import java.util.List;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
+import org.joda.time.Period;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.DefaultPrice;
 import org.killbill.billing.catalog.MockInternationalPrice;
 import org.killbill.billing.catalog.MockPlan;
@@ -38,14 +40,18 @@ import org.killbill.billing.catalog.api.PlanPhase;
 import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.invoice.optimizer.InvoiceOptimizerBase.AccountInvoices;
 import org.killbill.billing.invoice.optimizer.InvoiceOptimizerExp.AccountInvoicesExp;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.plumbing.billing.DefaultBillingEventSet;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -481,6 +487,61 @@ public class TestInvoiceOptimizerExp extends InvoiceTestSuiteNoDB {
 
     }
 
+    @Test(groups = "fast")
+    public void testIncrementalCutoffDate() {
+        final LocalDate billedThroughDate = new LocalDate(2021, 5, 1);
+        final InvoiceDao dao = Mockito.mock(InvoiceDao.class);
+        Mockito.when(dao.getBilledThroughCutoffDate(Mockito.<InternalTenantContext>any())).thenReturn(billedThroughDate);
+
+        final InvoiceConfig config = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(config.getMaxInvoiceLimit(Mockito.<InternalTenantContext>any())).thenReturn(new Period(InvoiceConfig.DEFAULT_NULL_PERIOD));
+        Mockito.when(config.isIncrementalGenerationEnabled(Mockito.<InternalTenantContext>any())).thenReturn(true);
+
+        final InvoiceOptimizerExp optimizer = new InvoiceOptimizerExp(dao, clock, config);
+
+        // Only scheduled runs are incremental
+        Assert.assertNull(optimizer.getInvoices(internalCallContext).getCutoffDate());
+
+        AccountInvoices accountInvoices = optimizer.getInvoicesForScheduledRun(internalCallContext);
+        Assert.assertEquals(accountInvoices.getCutoffDate(), billedThroughDate);
+        // We still need all the billing events
+        Assert.assertNull(accountInvoices.getBillingEventCutoffDate());
+        Mockito.verify(dao).getInvoicesByAccount(false, billedThroughDate, null, true, internalCallContext);
+
+        // Nothing billed yet (or USAGE items)
+        Mockito.when(dao.getBilledThroughCutoffDate(Mockito.<InternalTenantContext>any())).thenReturn(null);
+        Assert.assertNull(optimizer.getInvoicesForScheduledRun(internalCallContext).getCutoffDate());
+
+        // Feature disabled
+        Mockito.when(dao.getBilledThroughCutoffDate(Mockito.<InternalTenantContext>any())).thenReturn(billedThroughDate);
+        Mockito.when(config.isIncrementalGenerationEnabled(Mockito.<InternalTenantContext>any())).thenReturn(false);
+        Assert.assertNull(optimizer.getInvoicesForScheduledRun(internalCallContext).getCutoffDate());
+    }
+
+    @Test(groups = "fast")
+    public void testIncrementalCutoffDateWithMaxInvoiceLimit() {
+        final LocalDate today = clock.getUTCToday();
+        final InvoiceDao dao = Mockito.mock(InvoiceDao.class);
+
+        final InvoiceConfig config = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(config.getMaxInvoiceLimit(Mockito.<InternalTenantContext>any())).thenReturn(Period.months(3));
+        Mockito.when(config.isIncrementalGenerationEnabled(Mockito.<InternalTenantContext>any())).thenReturn(true);
+
+        final InvoiceOptimizerExp optimizer = new InvoiceOptimizerExp(dao, clock, config);
+
+        // Billed-through point more recent than the configured limit
+        Mockito.when(dao.getBilledThroughCutoffDate(Mockito.<InternalTenantContext>any())).thenReturn(today.minusMonths(1));
+        AccountInvoices accountInvoices = optimizer.getInvoicesForScheduledRun(internalCallContext);
+        Assert.assertEquals(accountInvoices.getCutoffDate(), today.minusMonths(1));
+        Assert.assertEquals(accountInvoices.getBillingEventCutoffDate(), today.minusMonths(6));
+
+        // Billed-through point older than the configured limit
+        Mockito.when(dao.getBilledThroughCutoffDate(Mockito.<InternalTenantContext>any())).thenReturn(today.minusMonths(4));
+        accountInvoices = optimizer.getInvoicesForScheduledRun(internalCallContext);
+        Assert.assertEquals(accountInvoices.getCutoffDate(), today.minusMonths(3));
+        Assert.assertEquals(accountInvoices.getBillingEventCutoffDate(), today.minusMonths(6));
+    }
+
 
     private InvoiceItem createItem(final UUID invoiceId, final BigDecimal amount, final BigDecimal rate, final LocalDate startDate, final LocalDate endDate) {
         final RecurringInvoiceItem item = new RecurringInvoiceItem(invoiceId, account.getId(), subscription.getBundleId(), subscription.getId(), productName, planName, phaseName, null, startDate, endDate,
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.tree;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoiceItemType;
+import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Runs all the SubscriptionItemTree scenarios against the array-backed tree, and compares both implementations
+ * on randomly generated subscription histories (plan changes, retroactive changes, cancellations and item adjustments).
+ */
+public class TestFlatItemsIntervalTree extends TestSubscriptionItemTree {
+
+    private static final String[] PLANS = {"basic-monthly", "standard-monthly", "premium-monthly"};
+    private static final BigDecimal[] RATES = {new BigDecimal("9.99"), new BigDecimal("24.95"), new BigDecimal("100.00")};
+
+    private final UUID accountId = UUID.randomUUID();
+    private final UUID bundleId = UUID.randomUUID();
+    private final UUID subscriptionId = UUID.randomUUID();
+
+    @Override
+    protected SubscriptionItemTree createSubscriptionItemTree(final UUID subscriptionId, final UUID invoiceId) {
+        return new SubscriptionItemTree(subscriptionId, invoiceId, invoiceConfig.getProrationFixedDays(), true);
+    }
+
+    @Test(groups = "fast")
+    public void testEpochDayConversions() {
+        for (final LocalDate date : List.of(new LocalDate(1970, 1, 1), new LocalDate(1969, 12, 31), new LocalDate(2020, 2, 29), new LocalDate(2100, 3, 1))) {
+            final int epochDay = FlatItemsIntervalTree.toEpochDay(date);
+            Assert.assertEquals(epochDay, Days.daysBetween(new LocalDate(1970, 1, 1), date).getDays());
+            Assert.assertEquals(FlatItemsIntervalTree.fromEpochDay(epochDay), date);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testSameResultsAsLinkedTree() {
+        for (int seed = 0; seed < 500; seed++) {
+            runRandomScenario(new Random(seed), seed);
+        }
+    }
+
+    private void runRandomScenario(final Random random, final int seed) {
+        final int bcd = 1 + random.nextInt(28);
+        final LocalDate subscriptionStartDate = new LocalDate(2020, 1, bcd);
+
+        // Plan (index in PLANS, or -1 when cancelled) effective from each date
+        final TreeMap<LocalDate, Integer> timeline = new TreeMap<>();
+        timeline.put(subscriptionStartDate, random.nextInt(PLANS.length));
+
+        final List<InvoiceItem> existingItems = new ArrayList<>();
+        LocalDate targetDate = subscriptionStartDate;
+        for (int run = 0; run < 8; run++) {
+            final String context = String.format("seed=%s, run=%s, timeline=%s", seed, run, timeline);
+
+            // Change the plan (possibly in the past, or cancel) and/or adjust one of the recurring items already invoiced
+            if (run > 0 && random.nextInt(3) > 0) {
+                final LocalDate effectiveDate = subscriptionStartDate.plusDays(1 + random.nextInt(Days.daysBetween(subscriptionStartDate, targetDate).getDays() + 30));
+                timeline.tailMap(effectiveDate, true).clear();
+                timeline.put(effectiveDate, random.nextInt(PLANS.length + 1) - 1);
+            }
+            if (random.nextInt(4) == 0) {
+                final List<InvoiceItem> recurringItems = existingItems.stream()
+                                                                      .filter(item -> item.getInvoiceItemType() == InvoiceItemType.RECURRING)
+                                                                      .collect(Collectors.toList());
+                if (!recurringItems.isEmpty()) {
+                    final InvoiceItem adjustedItem = recurringItems.get(random.nextInt(recurringItems.size()));
+                    final BigDecimal adjustment = adjustedItem.getAmount().divide(BigDecimal.valueOf(2 + random.nextInt(3)), 2, RoundingMode.DOWN);
+                    if (adjustment.signum() > 0) {
+                        existingItems.add(new ItemAdjInvoiceItem(adjustedItem, adjustedItem.getStartDate(), adjustment.negate(), Currency.USD));
+                    }
+                }
+            }
+
+            final List<InvoiceItem> proposedItems = getProposedItems(timeline, bcd, targetDate);
+
+            final UUID targetInvoiceId = UUID.randomUUID();
+            final List<InvoiceItem> linkedResult;
+            final List<InvoiceItem> flatResult;
+            final AccountItemTree linkedTree = new AccountItemTree(accountId, targetInvoiceId, 0, false);
+            final AccountItemTree flatTree = new AccountItemTree(accountId, targetInvoiceId, 0, true);
+            try {
+                linkedResult = mergeWithProposedItems(linkedTree, existingItems, proposedItems);
+            } catch (final RuntimeException e) {
+                try {
+                    mergeWithProposedItems(flatTree, existingItems, proposedItems);
+                    Assert.fail("Expected " + e + " for " + context);
+                } catch (final RuntimeException flatException) {
+                    Assert.assertEquals(flatException.getClass(), e.getClass(), context);
+                }
+                return;
+            }
+            flatResult = mergeWithProposedItems(flatTree, existingItems, proposedItems);
+
+            Assert.assertEquals(toComparableStrings(flatResult), toComparableStrings(linkedResult), context);
+            Assert.assertEquals(flatTree.prettyPrint(), linkedTree.prettyPrint(), context);
+
+            existingItems.addAll(linkedResult);
+            targetDate = targetDate.plusMonths(1).plusDays(random.nextInt(10) - 5);
+        }
+    }
+
+    private List<InvoiceItem> mergeWithProposedItems(final AccountItemTree tree, final Iterable<InvoiceItem> existingItems, final List<InvoiceItem> proposedItems) {
+        for (final InvoiceItem existingItem : existingItems) {
+            tree.addExistingItem(existingItem);
+        }
+        tree.mergeWithProposedItems(proposedItems);
+        return tree.getResultingItemList();
+    }
+
+    // Monthly in-advance recurring items for the plans of the timeline, aligned on the BCD and pro-rated on plan changes
+    private List<InvoiceItem> getProposedItems(final TreeMap<LocalDate, Integer> timeline, final int bcd, final LocalDate targetDate) {
+        final List<InvoiceItem> result = new ArrayList<>();
+        for (final Entry<LocalDate, Integer> entry : timeline.entrySet()) {
+            if (entry.getValue() < 0) {
+                continue;
+            }
+            final LocalDate segmentEndDate = timeline.higherKey(entry.getKey());
+
+            LocalDate periodStartDate = entry.getKey();
+            while (!periodStartDate.isAfter(targetDate) && (segmentEndDate == null || periodStartDate.isBefore(segmentEndDate))) {
+                final LocalDate billingPeriodStartDate = periodStartDate.getDayOfMonth() >= bcd ? periodStartDate.withDayOfMonth(bcd) : periodStartDate.minusMonths(1).withDayOfMonth(bcd);
+                final LocalDate billingPeriodEndDate = billingPeriodStartDate.plusMonths(1);
+                final LocalDate periodEndDate = segmentEndDate != null && segmentEndDate.isBefore(billingPeriodEndDate) ? segmentEndDate : billingPeriodEndDate;
+
+                final BigDecimal rate = RATES[entry.getValue()];
+                final BigDecimal amount = rate.multiply(BigDecimal.valueOf(Days.daysBetween(periodStartDate, periodEndDate).getDays()))
+                                              .divide(BigDecimal.valueOf(Days.daysBetween(billingPeriodStartDate, billingPeriodEndDate).getDays()), 2, RoundingMode.HALF_UP);
+                final String planName = PLANS[entry.getValue()];
+                result.add(new RecurringInvoiceItem(UUID.randomUUID(), null, UUID.randomUUID(), accountId, bundleId, subscriptionId, planName, planName, planName + "-evergreen", null,
+                                                    periodStartDate, periodEndDate, amount, rate, Currency.USD));
+                periodStartDate = periodEndDate;
+            }
+        }
+        return result;
+    }
+
+    // Repair items get a random id, compare everything else
+    private List<String> toComparableStrings(final List<InvoiceItem> items) {
+        return items.stream()
+                    .map(item -> String.format("%s[%s,%s] amount=%s, id=%s, linkedItemId=%s",
+                                               item.getInvoiceItemType(),
+                                               item.getStartDate(),
+                                               item.getEndDate(),
+                                               item.getAmount(),
+                                               item.getInvoiceItemType() == InvoiceItemType.REPAIR_ADJ ? null : item.getId(),
+                                               item.getLinkedItemId()))
+                    .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.BulkPaymentApi.BulkPaymentRequest;
+import org.killbill.billing.payment.api.PluginProperty;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(value="BulkPayment")
+public class BulkPaymentJson {
+
+    @ApiModelProperty(required = true)
+    private final UUID accountId;
+    private final UUID paymentMethodId;
+    @ApiModelProperty(required = true)
+    private final BigDecimal amount;
+    private final Currency currency;
+    private final DateTime effectiveDate;
+    private final String paymentExternalKey;
+    private final String transactionExternalKey;
+    private final List<PluginPropertyJson> properties;
+
+    @JsonCreator
+    public BulkPaymentJson(@JsonProperty("accountId") final UUID accountId,
+                           @JsonProperty("paymentMethodId") final UUID paymentMethodId,
+                           @JsonProperty("amount") final BigDecimal amount,
+                           @JsonProperty("currency") final Currency currency,
+                           @JsonProperty("effectiveDate") final DateTime effectiveDate,
+                           @JsonProperty("paymentExternalKey") final String paymentExternalKey,
+                           @JsonProperty("transactionExternalKey") final String transactionExternalKey,
+                           @JsonProperty("properties") final List<PluginPropertyJson> properties) {
+        this.accountId = accountId;
+        this.paymentMethodId = paymentMethodId;
+        this.amount = amount;
+        this.currency = currency;
+        this.effectiveDate = effectiveDate;
+        this.paymentExternalKey = paymentExternalKey;
+        this.transactionExternalKey = transactionExternalKey;
+        this.properties = properties;
+    }
+
+    public BulkPaymentRequest toBulkPaymentRequest(final Iterable<PluginProperty> pluginProperties) {
+        return new BulkPaymentRequest() {
+            @Override
+            public UUID getAccountId() {
+                return accountId;
+            }
+
+            @Override
+            public UUID getPaymentMethodId() {
+                return paymentMethodId;
+            }
+
+            @Override
+            public BigDecimal getAmount() {
+                return amount;
+            }
+
+            @Override
+            public Currency getCurrency() {
+                return currency;
+            }
+
+            @Override
+            public DateTime getEffectiveDate() {
+                return effectiveDate;
+            }
+
+            @Override
+            public String getPaymentExternalKey() {
+                return paymentExternalKey;
+            }
+
+            @Override
+            public String getPaymentTransactionExternalKey() {
+                return transactionExternalKey;
+            }
+
+            @Override
+            public Iterable<PluginProperty> getProperties() {
+                return pluginProperties;
+            }
+        };
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public UUID getPaymentMethodId() {
+        return paymentMethodId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public DateTime getEffectiveDate() {
+        return effectiveDate;
+    }
+
+    public String getPaymentExternalKey() {
+        return paymentExternalKey;
+    }
+
+    public String getTransactionExternalKey() {
+        return transactionExternalKey;
+    }
+
+    public List<PluginPropertyJson> getProperties() {
+        return properties;
+    }
+}
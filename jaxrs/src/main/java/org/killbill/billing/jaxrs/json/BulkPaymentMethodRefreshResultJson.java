@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.killbill.billing.payment.BulkPaymentApi.BulkPaymentMethodRefreshResult;
+import org.killbill.billing.payment.api.PaymentMethod;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+@ApiModel(value="BulkPaymentMethodRefreshResult")
+public class BulkPaymentMethodRefreshResultJson {
+
+    private final UUID accountId;
+    private final List<UUID> paymentMethodIds;
+    private final Integer errorCode;
+    private final String errorMessage;
+
+    @JsonCreator
+    public BulkPaymentMethodRefreshResultJson(@JsonProperty("accountId") final UUID accountId,
+                                              @JsonProperty("paymentMethodIds") final List<UUID> paymentMethodIds,
+                                              @JsonProperty("errorCode") final Integer errorCode,
+                                              @JsonProperty("errorMessage") final String errorMessage) {
+        this.accountId = accountId;
+        this.paymentMethodIds = paymentMethodIds;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public BulkPaymentMethodRefreshResultJson(final BulkPaymentMethodRefreshResult result) {
+        this(result.getAccountId(),
+             result.getPaymentMethods() != null ? result.getPaymentMethods().stream().map(PaymentMethod::getId).collect(Collectors.toUnmodifiableList()) : null,
+             result.getException() != null ? result.getException().getCode() : null,
+             result.getException() != null ? result.getException().getMessage() : null);
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public List<UUID> getPaymentMethodIds() {
+        return paymentMethodIds;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
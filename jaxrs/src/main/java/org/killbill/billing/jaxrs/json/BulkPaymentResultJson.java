@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.payment.BulkPaymentApi.BulkPaymentResult;
+import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.payment.api.PaymentTransaction;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+@ApiModel(value="BulkPaymentResult")
+public class BulkPaymentResultJson {
+
+    private final UUID accountId;
+    private final String paymentExternalKey;
+    private final String transactionExternalKey;
+    private final UUID paymentId;
+    private final UUID transactionId;
+    private final String status;
+    private final Integer errorCode;
+    private final String errorMessage;
+
+    @JsonCreator
+    public BulkPaymentResultJson(@JsonProperty("accountId") final UUID accountId,
+                                 @JsonProperty("paymentExternalKey") final String paymentExternalKey,
+                                 @JsonProperty("transactionExternalKey") final String transactionExternalKey,
+                                 @JsonProperty("paymentId") final UUID paymentId,
+                                 @JsonProperty("transactionId") final UUID transactionId,
+                                 @JsonProperty("status") final String status,
+                                 @JsonProperty("errorCode") final Integer errorCode,
+                                 @JsonProperty("errorMessage") final String errorMessage) {
+        this.accountId = accountId;
+        this.paymentExternalKey = paymentExternalKey;
+        this.transactionExternalKey = transactionExternalKey;
+        this.paymentId = paymentId;
+        this.transactionId = transactionId;
+        this.status = status;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public BulkPaymentResultJson(final BulkPaymentResult result) {
+        this(result.getRequest().getAccountId(),
+             result.getPayment() != null ? result.getPayment().getExternalKey() : result.getRequest().getPaymentExternalKey(),
+             result.getRequest().getPaymentTransactionExternalKey(),
+             result.getPayment() != null ? result.getPayment().getId() : null,
+             getTransactionId(result.getPayment()),
+             getStatus(result.getPayment()),
+             result.getException() != null ? result.getException().getCode() : null,
+             result.getException() != null ? result.getException().getMessage() : null);
+    }
+
+    // Validation failure, before the payment is submitted
+    public BulkPaymentResultJson(final BulkPaymentJson json, final String errorMessage) {
+        this(json.getAccountId(), json.getPaymentExternalKey(), json.getTransactionExternalKey(), null, null, null, null, errorMessage);
+    }
+
+    // The bulk API only creates payments with a single transaction
+    @Nullable
+    private static PaymentTransaction getTransaction(@Nullable final Payment payment) {
+        if (payment == null || payment.getTransactions() == null || payment.getTransactions().isEmpty()) {
+            return null;
+        }
+        final List<PaymentTransaction> transactions = payment.getTransactions();
+        return transactions.get(transactions.size() - 1);
+    }
+
+    @Nullable
+    private static UUID getTransactionId(@Nullable final Payment payment) {
+        final PaymentTransaction transaction = getTransaction(payment);
+        return transaction != null ? transaction.getId() : null;
+    }
+
+    @Nullable
+    private static String getStatus(@Nullable final Payment payment) {
+        final PaymentTransaction transaction = getTransaction(payment);
+        return transaction != null ? transaction.getTransactionStatus().toString() : null;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public String getPaymentExternalKey() {
+        return paymentExternalKey;
+    }
+
+    public String getTransactionExternalKey() {
+        return transactionExternalKey;
+    }
+
+    public UUID getPaymentId() {
+        return paymentId;
+    }
+
+    public UUID getTransactionId() {
+        return transactionId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.util.List;
+
+import org.killbill.billing.usage.BulkUsageException;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+@ApiModel(value="BulkUsageError")
+public class BulkUsageErrorJson {
+
+    private final Integer failedRecordIndex;
+    private final Integer nbRecordedRecords;
+    private final List<String> skippedTrackingIds;
+    private final Integer errorCode;
+    private final String errorMessage;
+
+    @JsonCreator
+    public BulkUsageErrorJson(@JsonProperty("failedRecordIndex") final Integer failedRecordIndex,
+                              @JsonProperty("nbRecordedRecords") final Integer nbRecordedRecords,
+                              @JsonProperty("skippedTrackingIds") final List<String> skippedTrackingIds,
+                              @JsonProperty("errorCode") final Integer errorCode,
+                              @JsonProperty("errorMessage") final String errorMessage) {
+        this.failedRecordIndex = failedRecordIndex;
+        this.nbRecordedRecords = nbRecordedRecords;
+        this.skippedTrackingIds = skippedTrackingIds;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public BulkUsageErrorJson(final BulkUsageException exception, final Integer errorCode, final String errorMessage) {
+        this(exception.getFailedRecordIndex(), exception.getNbRecordedRecords(), List.copyOf(exception.getSkippedTrackingIds()), errorCode, errorMessage);
+    }
+
+    public Integer getFailedRecordIndex() {
+        return failedRecordIndex;
+    }
+
+    public Integer getNbRecordedRecords() {
+        return nbRecordedRecords;
+    }
+
+    public List<String> getSkippedTrackingIds() {
+        return skippedTrackingIds;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -105,6 +105,7 @@ import org.killbill.billing.overdue.api.OverdueApi;
 import org.killbill.billing.overdue.api.OverdueApiException;
 import org.killbill.billing.overdue.api.OverdueState;
 import org.killbill.billing.overdue.config.api.OverdueException;
+import org.killbill.billing.payment.PaymentHistoryApi;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
 import org.killbill.billing.payment.api.Payment;
 import org.killbill.billing.payment.api.PaymentApi;
@@ -164,6 +165,7 @@ public class AccountResource extends JaxRsResourceBase {
     private final JaxrsConfig jaxrsConfig;
     private final RecordIdApi recordIdApi;
     private final NotificationQueueService notificationQueueService;
+    private final PaymentHistoryApi paymentHistoryApi;
 
     @Inject
     public AccountResource(final JaxrsUriBuilder uriBuilder,
@@ -181,7 +183,8 @@ public class AccountResource extends JaxRsResourceBase {
                            final JaxrsConfig jaxrsConfig,
                            final Context context,
                            final RecordIdApi recordIdApi,
-                           final NotificationQueueService notificationQueueService) {
+                           final NotificationQueueService notificationQueueService,
+                           final PaymentHistoryApi paymentHistoryApi) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountApi, paymentApi, invoicePaymentApi, subscriptionApi, clock, context);
         this.subscriptionApi = subscriptionApi;
         this.invoiceApi = invoiceApi;
@@ -191,6 +194,7 @@ public class AccountResource extends JaxRsResourceBase {
         this.jaxrsConfig = jaxrsConfig;
         this.recordIdApi = recordIdApi;
         this.notificationQueueService = notificationQueueService;
+        this.paymentHistoryApi = paymentHistoryApi;
     }
 
     @TimedResource
@@ -1037,12 +1041,17 @@ public class AccountResource extends JaxRsResourceBase {
     public Response getPaymentsForAccount(@PathParam("accountId") final UUID accountId,
                                           @QueryParam(QUERY_WITH_ATTEMPTS) @DefaultValue("false") final Boolean withAttempts,
                                           @QueryParam(QUERY_WITH_PLUGIN_INFO) @DefaultValue("false") final Boolean withPluginInfo,
+                                          @QueryParam(QUERY_AFTER_PAYMENT_NUMBER) final Long afterPaymentNumber,
+                                          @QueryParam(QUERY_SEARCH_LIMIT) final Integer limit,
                                           @QueryParam(QUERY_PLUGIN_PROPERTY) final List<String> pluginPropertiesString,
                                           @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                           @javax.ws.rs.core.Context final HttpServletRequest request) throws PaymentApiException {
         final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
         final TenantContext tenantContext = context.createTenantContextWithAccountId(accountId, request);
-        final List<Payment> payments = paymentApi.getAccountPayments(accountId, withPluginInfo, withAttempts, pluginProperties, tenantContext);
+        // Paged (keyset on the payment number) when a limit is specified
+        final List<Payment> payments = limit == null ?
+                                       paymentApi.getAccountPayments(accountId, withPluginInfo, withAttempts, pluginProperties, tenantContext) :
+                                       paymentHistoryApi.getAccountPayments(accountId, afterPaymentNumber, limit, withPluginInfo, withAttempts, pluginProperties, tenantContext);
         final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(accountId, auditMode.getLevel(), tenantContext);
         final List<PaymentJson> result = payments.stream()
                 .map(payment -> new PaymentJson(payment, accountAuditLogs))
@@ -30,6 +30,7 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
@@ -44,6 +45,8 @@ import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.ExportUserApi;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.export.StreamingExportUserApi;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.api.annotation.TimedResource;
 
@@ -59,10 +62,14 @@ import static javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM;
 @Api(value = JaxrsResource.EXPORT_PATH, description = "Export endpoints", tags="Export")
 public class ExportResource extends JaxRsResourceBase {
 
+    private static final String APPLICATION_GZIP = "application/gzip";
+
     private final ExportUserApi exportUserApi;
+    private final StreamingExportUserApi streamingExportUserApi;
 
     @Inject
     public ExportResource(final ExportUserApi exportUserApi,
+                          final StreamingExportUserApi streamingExportUserApi,
                           final JaxrsUriBuilder uriBuilder,
                           final TagUserApi tagUserApi,
                           final CustomFieldUserApi customFieldUserApi,
@@ -74,6 +81,7 @@ public class ExportResource extends JaxRsResourceBase {
                           final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.exportUserApi = exportUserApi;
+        this.streamingExportUserApi = streamingExportUserApi;
     }
 
     @TimedResource
@@ -98,4 +106,43 @@ public class ExportResource extends JaxRsResourceBase {
             }
         };
     }
+
+    @TimedResource
+    @GET
+    @Path("/{accountId:" + UUID_PATTERN + "}/compressed")
+    @Produces(APPLICATION_GZIP)
+    @ApiOperation(value = "Export account data as a compressed stream", response = Response.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Success"),
+                           @ApiResponse(code = 400, message = "Invalid account id supplied"),
+                           @ApiResponse(code = 404, message = "Account not found")})
+    public StreamingOutput exportCompressedDataForAccount(@PathParam("accountId") final UUID accountId,
+                                                          @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                                          @HeaderParam(HDR_REASON) final String reason,
+                                                          @HeaderParam(HDR_COMMENT) final String comment,
+                                                          @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final CallContext callContext = context.createCallContextWithAccountId(accountId, createdBy, reason, comment, request);
+        return new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                streamingExportUserApi.exportCompressedDataForAccount(accountId, output, callContext);
+            }
+        };
+    }
+
+    @TimedResource
+    @GET
+    @Produces(APPLICATION_GZIP)
+    @ApiOperation(value = "Export tenant data as a compressed stream", response = Response.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Success")})
+    public StreamingOutput exportCompressedDataForTenant(@QueryParam(QUERY_EXPORT_FROM_TABLE) final String fromTableName,
+                                                         @QueryParam(QUERY_EXPORT_FROM_RECORD_ID) final Long fromRecordId,
+                                                         @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
+        return new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                streamingExportUserApi.exportCompressedDataForTenant(fromTableName, fromRecordId, output, tenantContext);
+            }
+        };
+    }
 }
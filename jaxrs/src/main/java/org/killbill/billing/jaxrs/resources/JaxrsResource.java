@@ -85,6 +85,7 @@ public interface JaxrsResource {
     String QUERY_ENTITLEMENT_POLICY = "entitlementPolicy";
     String QUERY_SEARCH_OFFSET = "offset";
     String QUERY_SEARCH_LIMIT = "limit";
+    String QUERY_AFTER_PAYMENT_NUMBER = "afterPaymentNumber";
     String QUERY_ENTITLEMENT_EFFECTIVE_FROM_DT = "effectiveFromDate";
     String QUERY_FORCE_NEW_BCD_WITH_PAST_EFFECTIVE_DATE = "forceNewBcdWithPastEffectiveDate";
 
@@ -116,6 +117,7 @@ public interface JaxrsResource {
     String QUERY_PAYMENT_WITH_REFUNDS_AND_CHARGEBACKS = "withRefundsAndChargebacks";
     String QUERY_PAYMENT_PLUGIN_NAME = "pluginName";
     String QUERY_PAYMENT_METHOD_ID = "paymentMethodId";
+    String QUERY_TRANSACTION_TYPE = "transactionType";
     String QUERY_PAYMENT_CONTROL_PLUGIN_NAME = "controlPluginName";
 
     String QUERY_TENANT_USE_GLOBAL_DEFAULT = "useGlobalDefault";
@@ -157,6 +159,9 @@ public interface JaxrsResource {
 
     String QUERY_NOTIFICATION_CALLBACK = "cb";
 
+    String QUERY_EXPORT_FROM_TABLE = "fromTable";
+    String QUERY_EXPORT_FROM_RECORD_ID = "fromRecordId";
+
     String PAGINATION = "pagination";
 
     String ADMIN = "admin";
@@ -18,11 +18,17 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -40,8 +46,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.killbill.billing.ObjectType;
@@ -49,10 +57,12 @@ import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.jaxrs.json.AuditLogJson;
+import org.killbill.billing.jaxrs.json.BulkPaymentMethodRefreshResultJson;
 import org.killbill.billing.jaxrs.json.CustomFieldJson;
 import org.killbill.billing.jaxrs.json.PaymentMethodJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
+import org.killbill.billing.payment.BulkPaymentApi;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
 import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.billing.payment.api.PaymentApiException;
@@ -86,6 +96,13 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 @Api(value = JaxrsResource.PAYMENT_METHODS_PATH, description = "Operations on payment methods", tags="PaymentMethod")
 public class PaymentMethodResource extends JaxRsResourceBase {
 
+    // Newline-delimited JSON, for the bulk refresh endpoint
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final long ACCOUNTS_PAGE_SIZE = 1000L;
+
+    private final BulkPaymentApi bulkPaymentApi;
+
     @Inject
     public PaymentMethodResource(final AccountUserApi accountUserApi,
                                  final JaxrsUriBuilder uriBuilder,
@@ -93,10 +110,12 @@ public class PaymentMethodResource extends JaxRsResourceBase {
                                  final CustomFieldUserApi customFieldUserApi,
                                  final AuditUserApi auditUserApi,
                                  final PaymentApi paymentApi,
+                                 final BulkPaymentApi bulkPaymentApi,
                                  final InvoicePaymentApi invoicePaymentApi,
                                  final Clock clock,
                                  final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
+        this.bulkPaymentApi = bulkPaymentApi;
     }
 
 
@@ -258,6 +277,85 @@ public class PaymentMethodResource extends JaxRsResourceBase {
         return buildPaymentMethodsStreamingPaginationResponse(paymentMethods, nextPageUri, auditMode, tenantContext);
     }
 
+    @TimedResource
+    @PUT
+    @Path("/refresh")
+    @Produces(APPLICATION_NDJSON)
+    @ApiOperation(value = "Refresh the payment methods of all the accounts of the tenant",
+                  response = BulkPaymentMethodRefreshResultJson.class, responseContainer = "List",
+                  notes = "Accounts are refreshed concurrently (throttled by org.killbill.payment.bulk.refreshPaymentMethods.maxAccountsPerSecond). One BulkPaymentMethodRefreshResult is streamed back (newline-delimited JSON) per account, as soon as it completes.")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Payment methods refreshed (see the individual results)")})
+    public StreamingOutput refreshPaymentMethods(@QueryParam(QUERY_PAYMENT_METHOD_PLUGIN_NAME) final String pluginName,
+                                                 @QueryParam(QUERY_PLUGIN_PROPERTY) final List<String> pluginPropertiesString,
+                                                 @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                                 @HeaderParam(HDR_REASON) final String reason,
+                                                 @HeaderParam(HDR_COMMENT) final String comment,
+                                                 @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
+        final CallContext callContext = context.createCallContextNoAccountId(createdBy, reason, comment, request);
+        return new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                try {
+                    bulkPaymentApi.refreshPaymentMethods(new TenantAccountIdsIterator(callContext),
+                                                         Strings.emptyToNull(pluginName),
+                                                         pluginProperties,
+                                                         result -> writeBulkPaymentMethodRefreshResult(new BulkPaymentMethodRefreshResultJson(result), output),
+                                                         callContext);
+                } catch (final UncheckedIOException e) {
+                    throw e.getCause();
+                } catch (final PaymentApiException e) {
+                    throw new WebApplicationException(e);
+                }
+            }
+        };
+    }
+
+    private void writeBulkPaymentMethodRefreshResult(final BulkPaymentMethodRefreshResultJson json, final OutputStream output) {
+        try {
+            output.write(mapper.writeValueAsBytes(json));
+            output.write('\n');
+            output.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Walks through all the accounts of the tenant, one page at a time
+    private final class TenantAccountIdsIterator implements Iterator<UUID> {
+
+        private final TenantContext tenantContext;
+
+        private Iterator<UUID> currentPage = Collections.emptyIterator();
+        private Long nextOffset = 0L;
+
+        private TenantAccountIdsIterator(final TenantContext tenantContext) {
+            this.tenantContext = tenantContext;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentPage.hasNext() && nextOffset != null) {
+                final Pagination<Account> accounts = accountUserApi.getAccounts(nextOffset, ACCOUNTS_PAGE_SIZE, tenantContext);
+                final List<UUID> accountIds = new ArrayList<UUID>();
+                for (final Account account : accounts) {
+                    accountIds.add(account.getId());
+                }
+                currentPage = accountIds.iterator();
+                nextOffset = accounts.getNextOffset();
+            }
+            return currentPage.hasNext();
+        }
+
+        @Override
+        public UUID next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentPage.next();
+        }
+    }
+
     @TimedResource
     @DELETE
     @Produces(APPLICATION_JSON)
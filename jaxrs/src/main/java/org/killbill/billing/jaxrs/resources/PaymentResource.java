@@ -17,11 +17,17 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -40,8 +46,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.killbill.billing.ObjectType;
@@ -50,6 +58,8 @@ import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.jaxrs.json.AuditLogJson;
+import org.killbill.billing.jaxrs.json.BulkPaymentJson;
+import org.killbill.billing.jaxrs.json.BulkPaymentResultJson;
 import org.killbill.billing.jaxrs.json.ComboPaymentTransactionJson;
 import org.killbill.billing.jaxrs.json.CustomFieldJson;
 import org.killbill.billing.jaxrs.json.PaymentJson;
@@ -57,6 +67,8 @@ import org.killbill.billing.jaxrs.json.PaymentTransactionJson;
 import org.killbill.billing.jaxrs.json.TagJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
+import org.killbill.billing.payment.BulkPaymentApi;
+import org.killbill.billing.payment.BulkPaymentApi.BulkPaymentRequest;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
 import org.killbill.billing.payment.api.Payment;
 import org.killbill.billing.payment.api.PaymentApi;
@@ -80,9 +92,12 @@ import org.killbill.billing.util.entity.Pagination;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.api.annotation.MetricTag;
 import org.killbill.commons.metrics.api.annotation.TimedResource;
+import org.killbill.commons.utils.Preconditions;
 import org.killbill.commons.utils.Strings;
 import org.killbill.commons.utils.collect.Iterables;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -98,6 +113,11 @@ public class PaymentResource extends ComboPaymentResource {
 
     private static final String ID_PARAM_NAME = "paymentId";
 
+    // Newline-delimited JSON, for the bulk endpoint
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final BulkPaymentApi bulkPaymentApi;
+
     @Inject
     public PaymentResource(final JaxrsUriBuilder uriBuilder,
                            final TagUserApi tagUserApi,
@@ -105,10 +125,103 @@ public class PaymentResource extends ComboPaymentResource {
                            final AuditUserApi auditUserApi,
                            final AccountUserApi accountUserApi,
                            final PaymentApi paymentApi,
+                           final BulkPaymentApi bulkPaymentApi,
                            final InvoicePaymentApi invoicePaymentApi,
                            final Clock clock,
                            final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, clock, context);
+        this.bulkPaymentApi = bulkPaymentApi;
+    }
+
+    @TimedResource
+    @POST
+    @Path("/bulk")
+    @Consumes({APPLICATION_JSON, APPLICATION_NDJSON})
+    @Produces(APPLICATION_NDJSON)
+    @ApiOperation(value = "Trigger payments (authorization or purchase) for multiple accounts, as a JSON array or newline-delimited JSON stream of BulkPayment",
+                  response = BulkPaymentResultJson.class, responseContainer = "List",
+                  notes = "Payments are processed as the body is read, concurrently across accounts. One BulkPaymentResult is streamed back (newline-delimited JSON) per payment, as soon as it completes.")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Payments processed (see the individual results)"),
+                           @ApiResponse(code = 400, message = "Invalid transaction type supplied")})
+    public StreamingOutput createBulkPayments(final InputStream body,
+                                              @QueryParam(QUERY_TRANSACTION_TYPE) final TransactionType transactionType,
+                                              @QueryParam(QUERY_PAYMENT_CONTROL_PLUGIN_NAME) final List<String> paymentControlPluginNames,
+                                              @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                              @HeaderParam(HDR_REASON) final String reason,
+                                              @HeaderParam(HDR_COMMENT) final String comment,
+                                              @javax.ws.rs.core.Context final HttpServletRequest request) {
+        verifyNonNull(transactionType, "transactionType needs to be set");
+        Preconditions.checkArgument(transactionType == TransactionType.AUTHORIZE || transactionType == TransactionType.PURCHASE,
+                                    "transactionType should be AUTHORIZE or PURCHASE");
+
+        final CallContext callContext = context.createCallContextNoAccountId(createdBy, reason, comment, request);
+        final PaymentOptions paymentOptions = createControlPluginApiPaymentOptions(paymentControlPluginNames);
+        return new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                // Both root-level sequences (NDJSON) and JSON arrays are read one element at a time
+                try (final MappingIterator<BulkPaymentJson> jsonIterator = mapper.readerFor(BulkPaymentJson.class).readValues(body)) {
+                    bulkPaymentApi.createPayments(transactionType,
+                                                  new ValidatingBulkPaymentIterator(jsonIterator, output),
+                                                  paymentOptions,
+                                                  result -> writeBulkPaymentResult(new BulkPaymentResultJson(result), output),
+                                                  callContext);
+                } catch (final UncheckedIOException e) {
+                    throw e.getCause();
+                } catch (final PaymentApiException e) {
+                    throw new WebApplicationException(e);
+                }
+            }
+        };
+    }
+
+    private void writeBulkPaymentResult(final BulkPaymentResultJson json, final OutputStream output) {
+        try {
+            output.write(mapper.writeValueAsBytes(json));
+            output.write('\n');
+            output.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Invalid payments are reported right away and not handed to the bulk API
+    private final class ValidatingBulkPaymentIterator implements Iterator<BulkPaymentRequest> {
+
+        private final Iterator<BulkPaymentJson> delegate;
+        private final OutputStream output;
+
+        private BulkPaymentRequest next;
+
+        private ValidatingBulkPaymentIterator(final Iterator<BulkPaymentJson> delegate, final OutputStream output) {
+            this.delegate = delegate;
+            this.output = output;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && delegate.hasNext()) {
+                final BulkPaymentJson json = delegate.next();
+                if (json.getAccountId() == null) {
+                    writeBulkPaymentResult(new BulkPaymentResultJson(json, "BulkPaymentJson accountId needs to be set"), output);
+                } else if (json.getAmount() == null) {
+                    writeBulkPaymentResult(new BulkPaymentResultJson(json, "BulkPaymentJson amount needs to be set"), output);
+                } else {
+                    next = json.toBulkPaymentRequest(extractPluginProperties(json.getProperties()));
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public BulkPaymentRequest next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final BulkPaymentRequest result = next;
+            next = null;
+            return result;
+        }
     }
 
     @TimedResource(name = "getPayment")
@@ -17,9 +17,14 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -38,11 +43,13 @@ import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
 import org.joda.time.DateTime;
+import org.killbill.billing.BillingExceptionBase;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.entitlement.api.Entitlement;
 import org.killbill.billing.entitlement.api.EntitlementApi;
 import org.killbill.billing.entitlement.api.EntitlementApiException;
+import org.killbill.billing.jaxrs.json.BulkUsageErrorJson;
 import org.killbill.billing.jaxrs.json.RolledUpUsageJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson.UnitUsageRecordJson;
@@ -52,6 +59,8 @@ import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
 import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.usage.BulkUsageException;
+import org.killbill.billing.usage.BulkUsageUserApi;
 import org.killbill.billing.usage.api.RolledUpUsage;
 import org.killbill.billing.usage.api.SubscriptionUsageRecord;
 import org.killbill.billing.usage.api.UsageApiException;
@@ -67,6 +76,8 @@ import org.killbill.commons.utils.Preconditions;
 import org.killbill.commons.utils.annotation.VisibleForTesting;
 import org.killbill.commons.utils.collect.Iterables;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
@@ -79,7 +90,11 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 @Api(value = JaxrsResource.USAGES_PATH, description = "Operations on usage", tags="Usage")
 public class UsageResource extends JaxRsResourceBase {
 
+    // Newline-delimited JSON, for the bulk endpoint
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final UsageUserApi usageUserApi;
+    private final BulkUsageUserApi bulkUsageUserApi;
     private final EntitlementApi entitlementApi;
 
     @Inject
@@ -89,6 +104,7 @@ public class UsageResource extends JaxRsResourceBase {
                          final AuditUserApi auditUserApi,
                          final AccountUserApi accountUserApi,
                          final UsageUserApi usageUserApi,
+                         final BulkUsageUserApi bulkUsageUserApi,
                          final PaymentApi paymentApi,
                          final InvoicePaymentApi invoicePaymentApi,
                          final EntitlementApi entitlementApi,
@@ -96,6 +112,7 @@ public class UsageResource extends JaxRsResourceBase {
                          final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.usageUserApi = usageUserApi;
+        this.bulkUsageUserApi = bulkUsageUserApi;
         this.entitlementApi = entitlementApi;
     }
 
@@ -114,6 +131,50 @@ public class UsageResource extends JaxRsResourceBase {
                                 @javax.ws.rs.core.Context final UriInfo uriInfo) throws EntitlementApiException,
                                                                                         AccountApiException,
                                                                                         UsageApiException {
+        verifySubscriptionUsageRecordJson(json);
+        final CallContext callContextNoAccount = context.createCallContextNoAccountId(createdBy, reason, comment, request);
+        // Verify subscription exists..
+        final Entitlement entitlement = entitlementApi.getEntitlementForId(json.getSubscriptionId(), false, callContextNoAccount);
+        if (!isActiveForRecords(entitlement, json)) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+
+        final SubscriptionUsageRecord record = json.toSubscriptionUsageRecord();
+        // See this discussion: https://github.com/killbill/killbill/pull/1861#discussion_r1199581600
+        final CallContext callContext = context.createCallContextWithAccountId(entitlement.getAccountId(), createdBy, reason, comment, request);
+        usageUserApi.recordRolledUpUsage(record, callContext);
+        return Response.status(Status.CREATED).build();
+    }
+
+    @TimedResource
+    @POST
+    @Path("/bulk")
+    @Consumes({APPLICATION_JSON, APPLICATION_NDJSON})
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Record usage for multiple subscriptions, as a JSON array or newline-delimited JSON stream of SubscriptionUsageRecord",
+                  response = String.class, responseContainer = "List",
+                  notes = "Records are persisted in batches as the body is read, and records whose tracking id already exists for that subscription are skipped. Returns the skipped tracking ids. " +
+                          "If a record is invalid, the records before it are recorded (or skipped) and none after it: a BulkUsageError with the index of the failing record and the number of records recorded is returned.")
+    @ApiResponses(value = {@ApiResponse(code = 201, message = "Successfully recorded usage data"),
+                           @ApiResponse(code = 400, message = "Invalid record or subscription (e.g. inactive): the records before it are recorded", response = BulkUsageErrorJson.class)})
+    public Response recordBulkUsage(final InputStream body,
+                                    @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                    @HeaderParam(HDR_REASON) final String reason,
+                                    @HeaderParam(HDR_COMMENT) final String comment,
+                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws IOException {
+        final CallContext callContextNoAccount = context.createCallContextNoAccountId(createdBy, reason, comment, request);
+        // Both root-level sequences (NDJSON) and JSON arrays are read one element at a time
+        try (final MappingIterator<SubscriptionUsageRecordJson> jsonIterator = mapper.readerFor(SubscriptionUsageRecordJson.class).readValues(body)) {
+            final List<String> skippedTrackingIds = bulkUsageUserApi.recordRolledUpUsage(new ValidatingUsageRecordIterator(jsonIterator, callContextNoAccount), callContextNoAccount);
+            return Response.status(Status.CREATED).entity(skippedTrackingIds).build();
+        } catch (final BulkUsageException e) {
+            final Throwable cause = e.getCause() instanceof EntitlementApiExceptionWrapper ? e.getCause().getCause() : e.getCause();
+            final Integer errorCode = cause instanceof BillingExceptionBase ? ((BillingExceptionBase) cause).getCode() : null;
+            return Response.status(Status.BAD_REQUEST).entity(new BulkUsageErrorJson(e, errorCode, cause.getMessage())).build();
+        }
+    }
+
+    private void verifySubscriptionUsageRecordJson(final SubscriptionUsageRecordJson json) {
         verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
         verifyNonNullOrEmpty(json.getSubscriptionId(), "SubscriptionUsageRecordJson subscriptionId needs to be set",
                              json.getUnitUsageRecords(), "SubscriptionUsageRecordJson unitUsageRecords needs to be set");
@@ -128,21 +189,64 @@ public class UsageResource extends JaxRsResourceBase {
                 verifyNonNull(usageRecordJson.getRecordDate(), "UsageRecordJson recordDate needs to be set");
             }
         }
-        final CallContext callContextNoAccount = context.createCallContextNoAccountId(createdBy, reason, comment, request);
-        // Verify subscription exists..
-        final Entitlement entitlement = entitlementApi.getEntitlementForId(json.getSubscriptionId(), false, callContextNoAccount);
-        if (entitlement.getEffectiveEndDate() != null) {
-            final DateTime highestRecordDate = getHighestRecordDate(json.getUnitUsageRecords());
-            if (entitlement.getEffectiveEndDate().compareTo(highestRecordDate) < 0) {
-                return Response.status(Status.BAD_REQUEST).build();
+    }
+
+    private boolean isActiveForRecords(final Entitlement entitlement, final SubscriptionUsageRecordJson json) {
+        if (entitlement.getEffectiveEndDate() == null) {
+            return true;
+        }
+        final DateTime highestRecordDate = getHighestRecordDate(json.getUnitUsageRecords());
+        return entitlement.getEffectiveEndDate().compareTo(highestRecordDate) >= 0;
+    }
+
+    // Validates (and converts) each record as it is pulled by the bulk API, looking up each subscription only once
+    private final class ValidatingUsageRecordIterator implements Iterator<SubscriptionUsageRecord> {
+
+        private final Iterator<SubscriptionUsageRecordJson> delegate;
+        private final CallContext callContextNoAccount;
+        private final Map<UUID, Entitlement> entitlements = new HashMap<>();
+
+        private ValidatingUsageRecordIterator(final Iterator<SubscriptionUsageRecordJson> delegate, final CallContext callContextNoAccount) {
+            this.delegate = delegate;
+            this.callContextNoAccount = callContextNoAccount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public SubscriptionUsageRecord next() {
+            final SubscriptionUsageRecordJson json = delegate.next();
+            verifySubscriptionUsageRecordJson(json);
+
+            Entitlement entitlement = entitlements.get(json.getSubscriptionId());
+            if (entitlement == null) {
+                try {
+                    entitlement = entitlementApi.getEntitlementForId(json.getSubscriptionId(), false, callContextNoAccount);
+                } catch (final EntitlementApiException e) {
+                    throw new EntitlementApiExceptionWrapper(e);
+                }
+                entitlements.put(json.getSubscriptionId(), entitlement);
             }
+            Preconditions.checkArgument(isActiveForRecords(entitlement, json), "Usage recorded after the end date of subscription %s", json.getSubscriptionId());
+
+            return json.toSubscriptionUsageRecord();
         }
+    }
 
-        final SubscriptionUsageRecord record = json.toSubscriptionUsageRecord();
-        // See this discussion: https://github.com/killbill/killbill/pull/1861#discussion_r1199581600
-        final CallContext callContext = context.createCallContextWithAccountId(entitlement.getAccountId(), createdBy, reason, comment, request);
-        usageUserApi.recordRolledUpUsage(record, callContext);
-        return Response.status(Status.CREATED).build();
+    // Iterator methods cannot throw checked exceptions
+    private static final class EntitlementApiExceptionWrapper extends RuntimeException {
+
+        private EntitlementApiExceptionWrapper(final EntitlementApiException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized EntitlementApiException getCause() {
+            return (EntitlementApiException) super.getCause();
+        }
     }
 
     @VisibleForTesting
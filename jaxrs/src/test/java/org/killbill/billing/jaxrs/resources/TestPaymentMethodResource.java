@@ -76,6 +76,7 @@ public class TestPaymentMethodResource extends JaxrsTestSuiteNoDB {
                 auditUserApi,
                 paymentApi,
                 null,
+                null,
                 clock,
                 context
         );
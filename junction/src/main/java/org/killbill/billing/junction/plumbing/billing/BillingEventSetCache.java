@@ -0,0 +1,276 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.junction.plumbing.billing;
+
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.broadcast.BroadcastApi;
+import org.killbill.billing.events.BroadcastInternalEvent;
+import org.killbill.billing.junction.BillingEventSetCacheService;
+import org.killbill.billing.platform.api.LifecycleHandlerType;
+import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.CacheControllerDispatcher.PostCommitListener;
+import org.killbill.billing.util.config.definition.JunctionConfig;
+import org.killbill.billing.util.dao.TableName;
+import org.killbill.billing.util.optimizer.BusOptimizer;
+import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.killbill.clock.Clock;
+import org.killbill.commons.eventbus.AllowConcurrentEvents;
+import org.killbill.commons.eventbus.Subscribe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-account cache of the billing events computed by {@link DefaultInternalBillingApi}.
+ * <p>
+ * Entries are keyed by account record id, and are only reused for the same catalog versions and cutoff date. They are
+ * invalidated as soon as a transaction writing to the tables the billing events are built from (accounts, bundles, subscriptions,
+ * subscription events, blocking states, tags) for the account has committed, before the write call returns: invoicing never
+ * sees an entry computed before the write.
+ * <p>
+ * The invalidation of an entry cached on this node is also broadcast (through the broadcasts table) so that the other nodes
+ * drop their entry once the BroadcastService picks it up. Entries also expire after {@link JunctionConfig#getBillingEventsCacheTtl()}.
+ */
+public class BillingEventSetCache implements BillingEventSetCacheService, PostCommitListener {
+
+    public static final String BILLING_EVENT_SET_CACHE_SERVICE_NAME = "billing-event-set-cache-service";
+    public static final String BILLING_EVENT_SET_CACHE_INVALIDATION_TYPE = "BILLING_EVENT_SET_CACHE_INVALIDATION";
+
+    private static final Logger logger = LoggerFactory.getLogger(BillingEventSetCache.class);
+
+    // Tables the billing events are built from (account BCD and timezone, subscription events, blocking states, AUTO_INVOICING_XXX tags)
+    private static final Set<TableName> BILLING_EVENTS_TABLES = EnumSet.of(TableName.ACCOUNT,
+                                                                           TableName.BUNDLES,
+                                                                           TableName.SUBSCRIPTIONS,
+                                                                           TableName.SUBSCRIPTION_EVENTS,
+                                                                           TableName.BLOCKING_STATES,
+                                                                           TableName.TAG);
+
+    private final JunctionConfig junctionConfig;
+    private final BusOptimizer eventBus;
+    private final BroadcastApi broadcastApi;
+    private final CacheControllerDispatcher cacheControllerDispatcher;
+    private final Clock clock;
+
+    // Incremented on each invalidation: a computation which started before an invalidation for that account isn't cached
+    private final AtomicLong generation = new AtomicLong();
+    // Access ordered, both cached billing events and invalidation markers (guarded by this)
+    private final Map<Long, CachedBillingEventSet> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Most recent invalidation which was evicted from the cache (guarded by this)
+    private long lastEvictedInvalidation = 0;
+
+    @Inject
+    public BillingEventSetCache(final JunctionConfig junctionConfig,
+                                final BusOptimizer eventBus,
+                                final BroadcastApi broadcastApi,
+                                @Nullable final CacheControllerDispatcher cacheControllerDispatcher,
+                                final Clock clock) {
+        this.junctionConfig = junctionConfig;
+        this.eventBus = eventBus;
+        this.broadcastApi = broadcastApi;
+        this.cacheControllerDispatcher = cacheControllerDispatcher;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getName() {
+        return BILLING_EVENT_SET_CACHE_SERVICE_NAME;
+    }
+
+    @Override
+    public int getRegistrationOrdering() {
+        return KILLBILL_SERVICES.INVOICE_SERVICE.getRegistrationOrdering() - 1;
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.INIT_SERVICE)
+    public void initialize() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (cacheControllerDispatcher != null) {
+            cacheControllerDispatcher.addPostCommitListener(this);
+        }
+        try {
+            eventBus.register(this);
+        } catch (final EventBusException e) {
+            throw new RuntimeException("Failed to register bus handlers", e);
+        }
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
+    public void stop() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (cacheControllerDispatcher != null) {
+            cacheControllerDispatcher.removePostCommitListener(this);
+        }
+        try {
+            eventBus.unregister(this);
+        } catch (final EventBusException e) {
+            throw new RuntimeException("Failed to unregister bus handlers", e);
+        }
+        synchronized (this) {
+            entries.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return junctionConfig.isBillingEventsCacheEnabled();
+    }
+
+    /**
+     * @return the value to pass to {@link #put} once the billing events have been computed
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    @Nullable
+    public synchronized DefaultBillingEventSet get(final Long accountRecordId, final List<Date> catalogVersions, @Nullable final LocalDate cutoffDt) {
+        final CachedBillingEventSet entry = entries.get(accountRecordId);
+        if (entry == null || entry.billingEvents == null) {
+            return null;
+        }
+        if (entry.createdMillis + junctionConfig.getBillingEventsCacheTtl().getMillis() <= clock.getUTCNow().getMillis()) {
+            entries.remove(accountRecordId);
+            return null;
+        }
+        if (!entry.catalogVersions.equals(catalogVersions) || !Objects.equals(entry.cutoffDt, cutoffDt)) {
+            return null;
+        }
+        return new DefaultBillingEventSet(entry.billingEvents);
+    }
+
+    public synchronized void put(final Long accountRecordId,
+                                 final long computationGeneration,
+                                 final List<Date> catalogVersions,
+                                 @Nullable final LocalDate cutoffDt,
+                                 final DefaultBillingEventSet billingEvents) {
+        final CachedBillingEventSet existing = entries.get(accountRecordId);
+        if ((existing != null && existing.generation > computationGeneration) || lastEvictedInvalidation > computationGeneration) {
+            // Invalidated (or already re-computed) while we were computing
+            return;
+        }
+        entries.put(accountRecordId, new CachedBillingEventSet(computationGeneration, clock.getUTCNow().getMillis(), catalogVersions, cutoffDt, new DefaultBillingEventSet(billingEvents)));
+        evictIfNeeded();
+    }
+
+    /**
+     * @return whether billing events were cached for that account
+     */
+    public synchronized boolean invalidate(final Long accountRecordId) {
+        final CachedBillingEventSet previous = entries.put(accountRecordId, new CachedBillingEventSet(generation.incrementAndGet(), clock.getUTCNow().getMillis(), null, null, null));
+        evictIfNeeded();
+        return previous != null && previous.billingEvents != null;
+    }
+
+    @Override
+    public void afterCommit(final Map<TableName, Set<Long>> writtenAccountRecordIds) {
+        final Set<Long> accountRecordIds = new HashSet<>();
+        for (final TableName tableName : BILLING_EVENTS_TABLES) {
+            final Set<Long> writtenForTable = writtenAccountRecordIds.get(tableName);
+            if (writtenForTable != null) {
+                accountRecordIds.addAll(writtenForTable);
+            }
+        }
+        for (final Long accountRecordId : accountRecordIds) {
+            invalidateAndBroadcast(accountRecordId);
+        }
+    }
+
+    // Invalidate the entry on this node, and on the other nodes once the broadcast is picked up
+    private void invalidateAndBroadcast(final Long accountRecordId) {
+        if (!invalidate(accountRecordId)) {
+            // Nothing cached for that account: no broadcast row
+            return;
+        }
+        try {
+            broadcastApi.broadcast(KILLBILL_SERVICES.BROADCAST_SERVICE.getServiceName(),
+                                   BILLING_EVENT_SET_CACHE_INVALIDATION_TYPE,
+                                   String.valueOf(accountRecordId),
+                                   clock.getUTCNow(),
+                                   "BillingEventSetCache",
+                                   false);
+        } catch (final RuntimeException e) {
+            // Other nodes will catch up once their entry expires
+            logger.warn("Unable to broadcast billing events cache invalidation for accountRecordId='{}'", accountRecordId, e);
+        }
+    }
+
+    private void evictIfNeeded() {
+        final Iterator<CachedBillingEventSet> iterator = entries.values().iterator();
+        while (entries.size() > junctionConfig.getBillingEventsCacheMaxSize() && iterator.hasNext()) {
+            final CachedBillingEventSet evicted = iterator.next();
+            if (evicted.billingEvents == null) {
+                lastEvictedInvalidation = Math.max(lastEvictedInvalidation, evicted.generation);
+            }
+            iterator.remove();
+        }
+    }
+
+    @AllowConcurrentEvents
+    @Subscribe
+    public void handleBroadcastEvent(final BroadcastInternalEvent event) {
+        if (!BILLING_EVENT_SET_CACHE_INVALIDATION_TYPE.equals(event.getType())) {
+            return;
+        }
+
+        try {
+            invalidate(Long.valueOf(event.getJsonEvent()));
+        } catch (final NumberFormatException e) {
+            logger.warn("Unable to parse billing events cache invalidation event='{}'", event.getJsonEvent(), e);
+        }
+    }
+
+    private static final class CachedBillingEventSet {
+
+        private final long generation;
+        private final long createdMillis;
+        private final List<Date> catalogVersions;
+        private final LocalDate cutoffDt;
+        // null for an invalidation marker
+        private final DefaultBillingEventSet billingEvents;
+
+        private CachedBillingEventSet(final long generation,
+                                      final long createdMillis,
+                                      @Nullable final List<Date> catalogVersions,
+                                      @Nullable final LocalDate cutoffDt,
+                                      @Nullable final DefaultBillingEventSet billingEvents) {
+            this.generation = generation;
+            this.createdMillis = createdMillis;
+            this.catalogVersions = catalogVersions;
+            this.cutoffDt = cutoffDt;
+            this.billingEvents = billingEvents;
+        }
+    }
+}
@@ -20,9 +20,11 @@
 package org.killbill.billing.junction.plumbing.billing;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -55,7 +57,6 @@ import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.commons.utils.Preconditions;
 import org.killbill.commons.utils.annotation.VisibleForTesting;
-import org.killbill.commons.utils.collect.Iterables;
 
 public class BlockingCalculator {
 
@@ -95,21 +96,28 @@ public class BlockingCalculator {
         final List<BlockingState> blockingEvents = blockingApi.getBlockingActiveForAccount(catalog, cutoffDt, context);
 
         // Group blocking states per type
-        final Collection<BlockingState> accountBlockingEvents = new LinkedList<>();
+        final List<BlockingState> accountBlockingEvents = new ArrayList<>();
         final Map<UUID, List<BlockingState>> perBundleBlockingEvents = new HashMap<>();
         final Map<UUID, List<BlockingState>> perSubscriptionBlockingEvents = new HashMap<>();
         for (final BlockingState blockingEvent : blockingEvents) {
             if (blockingEvent.getType() == BlockingStateType.ACCOUNT) {
                 accountBlockingEvents.add(blockingEvent);
             } else if (blockingEvent.getType() == BlockingStateType.SUBSCRIPTION_BUNDLE) {
-                perBundleBlockingEvents.putIfAbsent(blockingEvent.getBlockedId(), new LinkedList<BlockingState>());
-                perBundleBlockingEvents.get(blockingEvent.getBlockedId()).add(blockingEvent);
+                perBundleBlockingEvents.computeIfAbsent(blockingEvent.getBlockedId(), blockedId -> new ArrayList<BlockingState>()).add(blockingEvent);
             } else if (blockingEvent.getType() == BlockingStateType.SUBSCRIPTION) {
-                perSubscriptionBlockingEvents.putIfAbsent(blockingEvent.getBlockedId(), new LinkedList<BlockingState>());
-                perSubscriptionBlockingEvents.get(blockingEvent.getBlockedId()).add(blockingEvent);
+                perSubscriptionBlockingEvents.computeIfAbsent(blockingEvent.getBlockedId(), blockedId -> new ArrayList<BlockingState>()).add(blockingEvent);
             }
         }
 
+        // Sort each level once: the per-subscription aggregation is then a linear merge
+        Collections.sort(accountBlockingEvents);
+        perBundleBlockingEvents.values().forEach(Collections::sort);
+        perSubscriptionBlockingEvents.values().forEach(Collections::sort);
+
+        // The disabled durations only depend on the blocking states and on the termination date: subscriptions without
+        // blocking states of their own share them, per bundle (or per account when the bundle isn't blocked either)
+        final Map<DateTime, List<DisabledDuration>> accountBlockingDurations = new HashMap<>();
+
         // Group billing events per subscriptionId
         final Map<UUID, SortedSet<BillingEvent>> perSubscriptionBillingEvents = new HashMap<UUID, SortedSet<BillingEvent>>();
         for (final BillingEvent event : billingEvents) {
@@ -123,6 +131,7 @@ public class BlockingCalculator {
             final UUID bundleId = entry.getKey();
 
             final List<BlockingState> bundleBlockingEvents = perBundleBlockingEvents.get(bundleId) != null ? perBundleBlockingEvents.get(bundleId) : Collections.emptyList();
+            final Map<DateTime, List<DisabledDuration>> bundleBlockingDurations = bundleBlockingEvents.isEmpty() ? accountBlockingDurations : new HashMap<>();
 
             for (final SubscriptionBase subscription : entry.getValue()) {
                 // Avoid inserting additional events for subscriptions that don't even have a START event
@@ -139,9 +148,15 @@ public class BlockingCalculator {
                                                  lastBillingEvent.getTransitionType() == SubscriptionBaseTransitionType.EXPIRED)
                                                  ? lastBillingEvent.getEffectiveDate() : null;
 
-                final List<BlockingState> aggregateSubscriptionBlockingEvents = getAggregateBlockingEventsPerSubscription(terminationDate, subscriptionBlockingEvents, bundleBlockingEvents, accountBlockingEvents);
-                final List<DisabledDuration> aggregateBlockingDurations = createBlockingDurations(aggregateSubscriptionBlockingEvents);
-
+                final List<DisabledDuration> aggregateBlockingDurations;
+                if (subscriptionBlockingEvents.isEmpty()) {
+                    aggregateBlockingDurations = bundleBlockingDurations.computeIfAbsent(terminationDate, endDate -> createBlockingDurations(getAggregateBlockingEventsPerSubscription(endDate, subscriptionBlockingEvents, bundleBlockingEvents, accountBlockingEvents)));
+                } else {
+                    aggregateBlockingDurations = createBlockingDurations(getAggregateBlockingEventsPerSubscription(terminationDate, subscriptionBlockingEvents, bundleBlockingEvents, accountBlockingEvents));
+                }
+                if (aggregateBlockingDurations.isEmpty()) {
+                    continue;
+                }
 
                 final SortedSet<BillingEvent> newEvents = createNewEvents(aggregateBlockingDurations, subscriptionBillingEvents, context);
                 billingEventsToAdd.addAll(newEvents);
@@ -160,39 +175,71 @@ public class BlockingCalculator {
         return !(billingEventsToAdd.isEmpty() && billingEventsToRemove.isEmpty());
     }
 
+    // Inputs must be sorted: this is a merge of the three lists, stable across levels (i.e. equivalent to sorting their concatenation)
     final List<BlockingState> getAggregateBlockingEventsPerSubscription(@Nullable final DateTime subscriptionEndDate,
-                                                                        final Iterable<BlockingState> subscriptionBlockingEvents,
-                                                                        final Iterable<BlockingState> bundleBlockingEvents,
-                                                                        final Iterable<BlockingState> accountBlockingEvents) {
-        final List<BlockingState> result = new LinkedList<>();
-        for (final BlockingState bs : Iterables.concat(subscriptionBlockingEvents, bundleBlockingEvents, accountBlockingEvents)) {
-            if (subscriptionEndDate == null || bs.getEffectiveDate().compareTo(subscriptionEndDate) <= 0) {
-                // Event is prior to cancel date
-                result.add(bs);
+                                                                        final List<BlockingState> subscriptionBlockingEvents,
+                                                                        final List<BlockingState> bundleBlockingEvents,
+                                                                        final List<BlockingState> accountBlockingEvents) {
+        final List<BlockingState> result = new ArrayList<>(subscriptionBlockingEvents.size() + bundleBlockingEvents.size() + accountBlockingEvents.size());
+        int subscriptionIdx = 0;
+        int bundleIdx = 0;
+        int accountIdx = 0;
+        while (true) {
+            BlockingState next = null;
+            int level = -1;
+            if (subscriptionIdx < subscriptionBlockingEvents.size()) {
+                next = subscriptionBlockingEvents.get(subscriptionIdx);
+                level = 0;
+            }
+            if (bundleIdx < bundleBlockingEvents.size() && (next == null || bundleBlockingEvents.get(bundleIdx).compareTo(next) < 0)) {
+                next = bundleBlockingEvents.get(bundleIdx);
+                level = 1;
+            }
+            if (accountIdx < accountBlockingEvents.size() && (next == null || accountBlockingEvents.get(accountIdx).compareTo(next) < 0)) {
+                next = accountBlockingEvents.get(accountIdx);
+                level = 2;
+            }
+
+            // Events are ordered by effective date first: everything past the cancel date can be ignored
+            if (next == null || (subscriptionEndDate != null && next.getEffectiveDate().compareTo(subscriptionEndDate) > 0)) {
+                return result;
+            }
+
+            result.add(next);
+            if (level == 0) {
+                subscriptionIdx++;
+            } else if (level == 1) {
+                bundleIdx++;
+            } else {
+                accountIdx++;
             }
         }
-        Collections.sort(result);
-        return result;
     }
 
+    // The disabled durations must be sorted and disjoint (see createBlockingDurations): a single sweep over both sequences is enough
     protected SortedSet<BillingEvent> eventsToRemove(final Iterable<DisabledDuration> disabledDuration,
                                                      final Iterable<BillingEvent> subscriptionBillingEvents) {
         final SortedSet<BillingEvent> result = new TreeSet<BillingEvent>();
 
-        for (final DisabledDuration duration : disabledDuration) {
-            for (final BillingEvent event : subscriptionBillingEvents) {
-                if (duration.getEnd() == null || event.getEffectiveDate().isBefore(duration.getEnd())) {
-                    if (!event.getEffectiveDate().isBefore(duration.getStart())) {
-                        result.add(event);
-                    }
-                } else { //after the last event of the pair no need to keep checking
-                    break;
-                }
+        final Iterator<DisabledDuration> durationIterator = disabledDuration.iterator();
+        DisabledDuration duration = durationIterator.hasNext() ? durationIterator.next() : null;
+        for (final BillingEvent event : subscriptionBillingEvents) {
+            // Skip the durations ending before (or when) that event occurs
+            while (duration != null && duration.getEnd() != null && !event.getEffectiveDate().isBefore(duration.getEnd())) {
+                duration = durationIterator.hasNext() ? durationIterator.next() : null;
+            }
+            if (duration == null) {
+                // After the last duration: no need to keep checking
+                break;
+            }
+            if (!event.getEffectiveDate().isBefore(duration.getStart())) {
+                result.add(event);
             }
         }
         return result;
     }
 
+    // The disabled durations must be sorted and disjoint (see createBlockingDurations): a single sweep over both sequences is enough
     protected SortedSet<BillingEvent> createNewEvents(final Iterable<DisabledDuration> disabledDuration,
                                                       final Iterable<BillingEvent> subscriptionBillingEvents,
                                                       final InternalTenantContext context) throws CatalogApiException {
@@ -200,11 +247,12 @@ public class BlockingCalculator {
 
         final SortedSet<BillingEvent> result = new TreeSet<BillingEvent>();
 
+        final BillingEventsCursor billingEventsCursor = new BillingEventsCursor(subscriptionBillingEvents);
         for (final DisabledDuration duration : disabledDuration) {
             // The first one before the blocked duration
-            final BillingEvent precedingInitialEvent = precedingActiveBillingEventForSubscription(duration.getStart(), subscriptionBillingEvents);
+            final BillingEvent precedingInitialEvent = billingEventsCursor.precedingActiveBillingEvent(duration.getStart());
             // The last one during of before the duration
-            final BillingEvent precedingFinalEvent = precedingActiveBillingEventForSubscription(duration.getEnd(), subscriptionBillingEvents);
+            final BillingEvent precedingFinalEvent = billingEventsCursor.precedingActiveBillingEvent(duration.getEnd());
 
             if (precedingInitialEvent != null) { // there is a preceding billing event
                 result.add(createNewDisableEvent(duration.getStart(), precedingInitialEvent));
@@ -221,27 +269,7 @@ public class BlockingCalculator {
 
     protected BillingEvent precedingActiveBillingEventForSubscription(final DateTime disabledDurationStart,
                                                                       final Iterable<BillingEvent> subscriptionBillingEvents) {
-        if (disabledDurationStart == null) {
-            return null;
-        }
-
-        // We look for the first billingEvent strictly prior our disabledDurationStart or null if none
-        BillingEvent prev = null;
-        for (final BillingEvent event : subscriptionBillingEvents) {
-            if (!event.getEffectiveDate().isBefore(disabledDurationStart)) {
-                return prev;
-            } else {
-                prev = event;
-            }
-        }
-
-        // We ignore anything beyond the final event
-        // TODO 0.23.x
-        if (prev == null || prev.getTransitionType() == SubscriptionBaseTransitionType.CANCEL /*|| prev.getTransitionType() == SubscriptionBaseTransitionType.EXPIRED */) {
-            return null;
-        }
-
-        return prev;
+        return new BillingEventsCursor(subscriptionBillingEvents).precedingActiveBillingEvent(disabledDurationStart);
     }
 
     protected BillingEvent createNewDisableEvent(final DateTime disabledDurationStart,
@@ -316,9 +344,9 @@ public class BlockingCalculator {
         );
     }
 
-    // In ascending order
+    // In ascending order, merged (i.e. disjoint)
     protected List<DisabledDuration> createBlockingDurations(final Iterable<BlockingState> inputBundleEvents) {
-        final List<DisabledDuration> result = new LinkedList<DisabledDuration>();
+        final List<DisabledDuration> result = new ArrayList<DisabledDuration>();
 
         final Map<String, BlockingStateService> svcBlockedMap = new HashMap<String, BlockingStateService>();
         for (final BlockingState bs : inputBundleEvents) {
@@ -355,4 +383,39 @@ public class BlockingCalculator {
 
         return result;
     }
+
+    // Billing events of a subscription, in ascending order, looked up with non-decreasing dates
+    private static final class BillingEventsCursor {
+
+        private final List<BillingEvent> billingEvents;
+        private int nextIdx = 0;
+
+        private BillingEventsCursor(final Iterable<BillingEvent> subscriptionBillingEvents) {
+            this.billingEvents = new ArrayList<BillingEvent>();
+            subscriptionBillingEvents.forEach(billingEvents::add);
+        }
+
+        // The last billingEvent strictly prior the specified date or null if none
+        private BillingEvent precedingActiveBillingEvent(@Nullable final DateTime date) {
+            if (date == null) {
+                return null;
+            }
+
+            while (nextIdx < billingEvents.size() && billingEvents.get(nextIdx).getEffectiveDate().isBefore(date)) {
+                nextIdx++;
+            }
+            final BillingEvent prev = nextIdx > 0 ? billingEvents.get(nextIdx - 1) : null;
+            if (nextIdx < billingEvents.size()) {
+                return prev;
+            }
+
+            // We ignore anything beyond the final event
+            // TODO 0.23.x
+            if (prev == null || prev.getTransitionType() == SubscriptionBaseTransitionType.CANCEL /*|| prev.getTransitionType() == SubscriptionBaseTransitionType.EXPIRED */) {
+                return null;
+            }
+
+            return prev;
+        }
+    }
 }
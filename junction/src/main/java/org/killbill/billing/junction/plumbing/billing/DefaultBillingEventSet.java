@@ -48,6 +48,14 @@ public class DefaultBillingEventSet extends TreeSet<BillingEvent> implements Sor
         this.subscriptionIdsWithAutoInvoiceOff = new ArrayList<UUID>();
     }
 
+    public DefaultBillingEventSet(final DefaultBillingEventSet billingEvents) {
+        super(billingEvents);
+        this.accountAutoInvoiceOff = billingEvents.accountAutoInvoiceOff;
+        this.accountAutoInvoiceDraft = billingEvents.accountAutoInvoiceDraft;
+        this.accountAutoInvoiceReuseDraft = billingEvents.accountAutoInvoiceReuseDraft;
+        this.subscriptionIdsWithAutoInvoiceOff = new ArrayList<UUID>(billingEvents.subscriptionIdsWithAutoInvoiceOff);
+    }
+
     @Override
     public boolean isAccountAutoInvoiceOff() {
         return accountAutoInvoiceOff;
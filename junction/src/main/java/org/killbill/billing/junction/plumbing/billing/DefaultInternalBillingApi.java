@@ -20,6 +20,7 @@ package org.killbill.billing.junction.plumbing.billing;
 
 import java.math.BigDecimal;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -43,6 +44,7 @@ import org.killbill.billing.catalog.api.BillingAlignment;
 import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.CatalogInternalApi;
 import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
+import org.killbill.billing.catalog.api.StaticCatalog;
 import org.killbill.billing.catalog.api.VersionedCatalog;
 import org.killbill.billing.entitlement.api.SubscriptionEventType;
 import org.killbill.billing.invoice.api.DryRunArguments;
@@ -75,26 +77,51 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
     private final CatalogInternalApi catalogInternalApi;
     private final BlockingCalculator blockCalculator;
     private final TagInternalApi tagApi;
+    private final BillingEventSetCache billingEventSetCache;
 
     @Inject
     public DefaultInternalBillingApi(final AccountInternalApi accountApi,
                                      final SubscriptionBaseInternalApi subscriptionApi,
                                      final BlockingCalculator blockCalculator,
                                      final CatalogInternalApi catalogInternalApi,
-                                     final TagInternalApi tagApi) {
+                                     final TagInternalApi tagApi,
+                                     final BillingEventSetCache billingEventSetCache) {
         this.accountApi = accountApi;
         this.subscriptionApi = subscriptionApi;
         this.catalogInternalApi = catalogInternalApi;
         this.blockCalculator = blockCalculator;
         this.tagApi = tagApi;
+        this.billingEventSetCache = billingEventSetCache;
     }
 
     @Override
     public BillingEventSet getBillingEventsForAccountAndUpdateAccountBCD(final UUID accountId, final DryRunArguments dryRunArguments, @Nullable final LocalDate cutoffDt, final InternalCallContext context) throws CatalogApiException, AccountApiException, SubscriptionBaseApiException {
+        final VersionedCatalog fullCatalog = catalogInternalApi.getFullCatalog(true, true, context);
 
-        long iniTs = System.nanoTime();
+        // Dry runs which don't simulate a subscription change see the same billing events as a regular run (the BCD update aside, see below)
+        final boolean useCache = billingEventSetCache.isEnabled() && (dryRunArguments == null || dryRunArguments.getAction() == null);
+        if (!useCache) {
+            return computeBillingEvents(accountId, dryRunArguments, cutoffDt, fullCatalog, context);
+        }
 
-        final VersionedCatalog fullCatalog = catalogInternalApi.getFullCatalog(true, true, context);
+        final List<Date> catalogVersions = getCatalogVersions(fullCatalog);
+        final DefaultBillingEventSet cachedBillingEvents = billingEventSetCache.get(context.getAccountRecordId(), catalogVersions, cutoffDt);
+        if (cachedBillingEvents != null) {
+            return cachedBillingEvents;
+        }
+
+        final long generation = billingEventSetCache.getGeneration();
+        final DefaultBillingEventSet result = computeBillingEvents(accountId, dryRunArguments, cutoffDt, fullCatalog, context);
+        // Don't cache anything until the account BCD has been set, as the next (non dry-run) call needs to set it
+        if (accountApi.getBCD(context) != 0) {
+            billingEventSetCache.put(context.getAccountRecordId(), generation, catalogVersions, cutoffDt, result);
+        }
+        return result;
+    }
+
+    private DefaultBillingEventSet computeBillingEvents(final UUID accountId, final DryRunArguments dryRunArguments, @Nullable final LocalDate cutoffDt, final VersionedCatalog fullCatalog, final InternalCallContext context) throws CatalogApiException, AccountApiException, SubscriptionBaseApiException {
+
+        long iniTs = System.nanoTime();
 
         // Check to see if billing is off for the account
         final List<Tag> tagsForAccount = tagApi.getTagsForAccount(false, context);
@@ -140,6 +167,13 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
         return result;
     }
 
+    private static List<Date> getCatalogVersions(final VersionedCatalog fullCatalog) {
+        return fullCatalog.getVersions()
+                          .stream()
+                          .map(StaticCatalog::getEffectiveDate)
+                          .collect(Collectors.toUnmodifiableList());
+    }
+
     private void eventsToString(final StringBuilder stringBuilder, final SortedSet<BillingEvent> events) {
         int n = 0;
         for (final BillingEvent event : events) {
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.junction.glue;
 
+import org.killbill.billing.broadcast.BroadcastApi;
 import org.killbill.billing.entitlement.api.svcs.DefaultInternalBlockingApi;
 import org.killbill.billing.entitlement.block.BlockingChecker;
 import org.killbill.billing.entitlement.block.MockBlockingChecker;
@@ -36,6 +37,7 @@ import org.killbill.billing.util.glue.KillBillShiroModule;
 import org.killbill.billing.util.glue.SecurityModule;
 import org.killbill.commons.metrics.api.MetricRegistry;
 import org.killbill.commons.metrics.impl.NoOpMetricRegistry;
+import org.mockito.Mockito;
 
 public class TestJunctionModule extends DefaultJunctionModule {
 
@@ -57,6 +59,7 @@ public class TestJunctionModule extends DefaultJunctionModule {
         install(new SecurityModule(configSource));
 
         bind(MetricRegistry.class).to(NoOpMetricRegistry.class).asEagerSingleton();
+        bind(BroadcastApi.class).toInstance(Mockito.mock(BroadcastApi.class));
     }
 
     public class MockEntitlementModuleForJunction extends MockEntitlementModule {
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.junction.plumbing.billing;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.killbill.billing.broadcast.BroadcastApi;
+import org.killbill.billing.events.BroadcastInternalEvent;
+import org.killbill.billing.junction.JunctionTestSuiteNoDB;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.config.definition.JunctionConfig;
+import org.killbill.billing.util.dao.TableName;
+import org.killbill.billing.util.optimizer.BusOptimizer;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestBillingEventSetCache extends JunctionTestSuiteNoDB {
+
+    private final List<Date> catalogVersions = List.of(new Date(0L));
+    private final LocalDate cutoffDt = new LocalDate(2026, 10, 1);
+
+    private BroadcastApi broadcastApi;
+    private CacheControllerDispatcher cacheControllerDispatcher;
+    private BillingEventSetCache billingEventSetCache;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+        super.beforeMethod();
+
+        final JunctionConfig junctionConfig = Mockito.mock(JunctionConfig.class);
+        Mockito.when(junctionConfig.isBillingEventsCacheEnabled()).thenReturn(true);
+        Mockito.when(junctionConfig.getBillingEventsCacheTtl()).thenReturn(new TimeSpan("5m"));
+        Mockito.when(junctionConfig.getBillingEventsCacheMaxSize()).thenReturn(2);
+        broadcastApi = Mockito.mock(BroadcastApi.class);
+        cacheControllerDispatcher = new CacheControllerDispatcher();
+        billingEventSetCache = new BillingEventSetCache(junctionConfig, Mockito.mock(BusOptimizer.class), broadcastApi, cacheControllerDispatcher, clock);
+    }
+
+    @Test(groups = "fast")
+    public void testGetReturnsCopy() {
+        final DefaultBillingEventSet billingEvents = new DefaultBillingEventSet(true, false, true);
+        billingEvents.getSubscriptionIdsWithAutoInvoiceOff().add(UUID.randomUUID());
+        billingEventSetCache.put(1L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, billingEvents);
+
+        final DefaultBillingEventSet cached = billingEventSetCache.get(1L, catalogVersions, cutoffDt);
+        Assert.assertNotNull(cached);
+        Assert.assertNotSame(cached, billingEvents);
+        Assert.assertTrue(cached.isAccountAutoInvoiceOff());
+        Assert.assertFalse(cached.isAccountAutoInvoiceDraft());
+        Assert.assertTrue(cached.isAccountAutoInvoiceReuseDraft());
+        Assert.assertEquals(cached.getSubscriptionIdsWithAutoInvoiceOff(), billingEvents.getSubscriptionIdsWithAutoInvoiceOff());
+
+        // Changes made by the caller don't leak into the cache
+        cached.getSubscriptionIdsWithAutoInvoiceOff().clear();
+        Assert.assertEquals(billingEventSetCache.get(1L, catalogVersions, cutoffDt).getSubscriptionIdsWithAutoInvoiceOff().size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testKeyedByCatalogVersionsAndCutoffDate() {
+        billingEventSetCache.put(1L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+
+        Assert.assertNotNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+        Assert.assertNull(billingEventSetCache.get(2L, catalogVersions, cutoffDt));
+        Assert.assertNull(billingEventSetCache.get(1L, List.of(new Date(0L), new Date(1000L)), cutoffDt));
+        Assert.assertNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt.plusDays(1)));
+        Assert.assertNull(billingEventSetCache.get(1L, catalogVersions, null));
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidationAfterCommit() {
+        billingEventSetCache.initialize();
+
+        billingEventSetCache.put(1L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+        billingEventSetCache.put(2L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+
+        cacheControllerDispatcher.dispatchPostCommit(Map.of(TableName.SUBSCRIPTION_EVENTS, Set.of(1L),
+                                                            // Not used to build the billing events
+                                                            TableName.INVOICES, Set.of(2L),
+                                                            // Not cached
+                                                            TableName.BLOCKING_STATES, Set.of(3L)));
+        Assert.assertNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+        Assert.assertNotNull(billingEventSetCache.get(2L, catalogVersions, cutoffDt));
+
+        // Other nodes are only notified for the accounts which were cached
+        Mockito.verify(broadcastApi).broadcast(Mockito.anyString(), Mockito.eq(BillingEventSetCache.BILLING_EVENT_SET_CACHE_INVALIDATION_TYPE), Mockito.eq("1"), Mockito.<DateTime>any(), Mockito.anyString(), Mockito.eq(false));
+        Mockito.verifyNoMoreInteractions(broadcastApi);
+
+        billingEventSetCache.stop();
+        Assert.assertFalse(cacheControllerDispatcher.hasPostCommitListeners());
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidationFromBroadcastEvents() {
+        billingEventSetCache.put(1L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+        billingEventSetCache.put(2L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+
+        final BroadcastInternalEvent otherBroadcastEvent = Mockito.mock(BroadcastInternalEvent.class);
+        Mockito.when(otherBroadcastEvent.getType()).thenReturn("OTHER");
+        Mockito.when(otherBroadcastEvent.getJsonEvent()).thenReturn("1");
+        billingEventSetCache.handleBroadcastEvent(otherBroadcastEvent);
+        Assert.assertNotNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+
+        final BroadcastInternalEvent broadcastEvent = Mockito.mock(BroadcastInternalEvent.class);
+        Mockito.when(broadcastEvent.getType()).thenReturn(BillingEventSetCache.BILLING_EVENT_SET_CACHE_INVALIDATION_TYPE);
+        Mockito.when(broadcastEvent.getJsonEvent()).thenReturn("1");
+        billingEventSetCache.handleBroadcastEvent(broadcastEvent);
+        Assert.assertNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+        Assert.assertNotNull(billingEventSetCache.get(2L, catalogVersions, cutoffDt));
+
+        // Not re-broadcast
+        Mockito.verifyNoInteractions(broadcastApi);
+    }
+
+    @Test(groups = "fast")
+    public void testComputationConcurrentWithInvalidationIsNotCached() {
+        final long generation = billingEventSetCache.getGeneration();
+        billingEventSetCache.invalidate(1L);
+        billingEventSetCache.put(1L, generation, catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+        Assert.assertNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+
+        // Even if the invalidation was evicted in the meantime
+        final long otherGeneration = billingEventSetCache.getGeneration();
+        billingEventSetCache.invalidate(2L);
+        billingEventSetCache.invalidate(3L);
+        billingEventSetCache.invalidate(4L);
+        billingEventSetCache.put(2L, otherGeneration, catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+        Assert.assertNull(billingEventSetCache.get(2L, catalogVersions, cutoffDt));
+
+        // Computations started after the invalidation are cached
+        billingEventSetCache.put(1L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+        Assert.assertNotNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+    }
+
+    @Test(groups = "fast")
+    public void testExpirationAndEviction() {
+        billingEventSetCache.put(1L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+        clock.addDeltaFromReality(4 * 60 * 1000L);
+        Assert.assertNotNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+        clock.addDeltaFromReality(60 * 1000L);
+        Assert.assertNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+
+        billingEventSetCache.put(1L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+        billingEventSetCache.put(2L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+        // Least recently used entry is evicted
+        Assert.assertNotNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+        billingEventSetCache.put(3L, billingEventSetCache.getGeneration(), catalogVersions, cutoffDt, new DefaultBillingEventSet(false, false, false));
+        Assert.assertNotNull(billingEventSetCache.get(1L, catalogVersions, cutoffDt));
+        Assert.assertNull(billingEventSetCache.get(2L, catalogVersions, cutoffDt));
+        Assert.assertNotNull(billingEventSetCache.get(3L, catalogVersions, cutoffDt));
+    }
+}
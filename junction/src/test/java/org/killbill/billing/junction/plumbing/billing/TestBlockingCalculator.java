@@ -633,6 +633,61 @@ public class TestBlockingCalculator extends JunctionTestSuiteNoDB {
 
     }
 
+    // Several disjoint durations, swept in a single pass
+    // --V--[--]--W--[--X--]--Y----------------
+    @Test(groups = "fast")
+    public void testMultipleDisabledDurations() throws CatalogApiException {
+        final DateTime now = clock.getUTCNow();
+        final List<DisabledDuration> disabledDuration = new ArrayList<>();
+        final SortedSet<BillingEvent> billingEvents = new TreeSet<>();
+
+        disabledDuration.add(new DisabledDuration(now.plusDays(1), now.plusDays(2)));
+        disabledDuration.add(new DisabledDuration(now.plusDays(4), now.plusDays(6)));
+        final BillingEvent v = createRealEvent(subscription1, now);
+        final BillingEvent w = createRealEvent(subscription1, now.plusDays(3));
+        final BillingEvent x = createRealEvent(subscription1, now.plusDays(5));
+        final BillingEvent y = createRealEvent(subscription1, now.plusDays(7));
+        billingEvents.add(v);
+        billingEvents.add(w);
+        billingEvents.add(x);
+        billingEvents.add(y);
+
+        final SortedSet<BillingEvent> removed = blockingCalculator.eventsToRemove(disabledDuration, billingEvents);
+        assertEquals(removed.size(), 1);
+        assertEquals(removed.first(), x);
+
+        final List<BillingEvent> results = new ArrayList<>(blockingCalculator.createNewEvents(disabledDuration, billingEvents, internalCallContext));
+        assertEquals(results.size(), 4);
+        assertEquals(results.get(0).getEffectiveDate(), now.plusDays(1));
+        assertEquals(results.get(0).getTransitionType(), SubscriptionBaseTransitionType.START_BILLING_DISABLED);
+        assertEquals(results.get(1).getEffectiveDate(), now.plusDays(2));
+        assertEquals(results.get(1).getTransitionType(), SubscriptionBaseTransitionType.END_BILLING_DISABLED);
+        assertEquals(results.get(1).getRecurringPrice(), v.getRecurringPrice());
+        assertEquals(results.get(2).getEffectiveDate(), now.plusDays(4));
+        assertEquals(results.get(2).getTransitionType(), SubscriptionBaseTransitionType.START_BILLING_DISABLED);
+        assertEquals(results.get(3).getEffectiveDate(), now.plusDays(6));
+        assertEquals(results.get(3).getTransitionType(), SubscriptionBaseTransitionType.END_BILLING_DISABLED);
+        assertEquals(results.get(3).getRecurringPrice(), x.getRecurringPrice());
+    }
+
+    @Test(groups = "fast")
+    public void testAggregateBlockingEventsPerSubscription() {
+        final DateTime now = clock.getUTCNow();
+
+        final BlockingState accountState0 = new DefaultBlockingState(account.getId(), BlockingStateType.ACCOUNT, DISABLED_BUNDLE, "test", true, true, true, now);
+        final BlockingState bundleState1 = new DefaultBlockingState(bundleId1, BlockingStateType.SUBSCRIPTION_BUNDLE, CLEAR_BUNDLE, "test", false, false, false, now.plusDays(1));
+        final BlockingState subscriptionState2 = new DefaultBlockingState(UUID.randomUUID(), BlockingStateType.SUBSCRIPTION, DISABLED_BUNDLE, "test", true, true, true, now.plusDays(2));
+        final BlockingState accountState3 = new DefaultBlockingState(account.getId(), BlockingStateType.ACCOUNT, CLEAR_BUNDLE, "test", false, false, false, now.plusDays(3));
+        final BlockingState bundleState4 = new DefaultBlockingState(bundleId1, BlockingStateType.SUBSCRIPTION_BUNDLE, DISABLED_BUNDLE, "test", true, true, true, now.plusDays(4));
+
+        final List<BlockingState> all = blockingCalculator.getAggregateBlockingEventsPerSubscription(null, List.of(subscriptionState2), List.of(bundleState1, bundleState4), List.of(accountState0, accountState3));
+        assertEquals(all, List.of(accountState0, bundleState1, subscriptionState2, accountState3, bundleState4));
+
+        // Nothing past the termination date
+        final List<BlockingState> beforeCancellation = blockingCalculator.getAggregateBlockingEventsPerSubscription(now.plusDays(3), List.of(subscriptionState2), List.of(bundleState1, bundleState4), List.of(accountState0, accountState3));
+        assertEquals(beforeCancellation, List.of(accountState0, bundleState1, subscriptionState2, accountState3));
+    }
+
     @Test(groups = "fast")
     public void testCreateNewDisableEvent() throws CatalogApiException {
         final DateTime now = clock.getUTCNow();
@@ -28,4 +28,9 @@ public interface OverdueProperties extends KillbillConfig {
     @Default("NoOverdueConfig.xml")
     @Description("Overdue configuration location. Either in the classpath or in the filesystem")
     public String getConfigURI();
+
+    @Config("org.killbill.overdue.unpaidInvoicesSummary.enabled")
+    @Default("false")
+    @Description("Whether to compute the billing state from the per-account unpaid invoices summary maintained by the invoice module, instead of reloading all unpaid invoices")
+    public boolean isUnpaidInvoicesSummaryEnabled();
 }
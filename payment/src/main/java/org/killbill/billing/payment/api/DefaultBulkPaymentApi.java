@@ -0,0 +1,441 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.apache.shiro.util.ThreadContext;
+import org.killbill.billing.BillingExceptionBase;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.BulkPaymentApi;
+import org.killbill.billing.payment.core.PaymentExecutors;
+import org.killbill.billing.payment.dispatcher.CallableWithRequestData;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.commons.request.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+public class DefaultBulkPaymentApi implements BulkPaymentApi {
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultBulkPaymentApi.class);
+
+    private static final long RESULT_POLL_TIMEOUT_MSEC = 1000;
+
+    private final PaymentApi paymentApi;
+    private final AccountInternalApi accountInternalApi;
+    private final PaymentExecutors paymentExecutors;
+    private final PaymentConfig paymentConfig;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultBulkPaymentApi(final PaymentApi paymentApi,
+                                 final AccountInternalApi accountInternalApi,
+                                 final PaymentExecutors paymentExecutors,
+                                 final PaymentConfig paymentConfig,
+                                 final InternalCallContextFactory internalCallContextFactory) {
+        this.paymentApi = paymentApi;
+        this.accountInternalApi = accountInternalApi;
+        this.paymentExecutors = paymentExecutors;
+        this.paymentConfig = paymentConfig;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public void createPayments(final TransactionType transactionType,
+                               final Iterator<BulkPaymentRequest> requests,
+                               final PaymentOptions paymentOptions,
+                               final BulkPaymentResultHandler resultHandler,
+                               final CallContext callContext) throws PaymentApiException {
+        if (transactionType != TransactionType.AUTHORIZE && transactionType != TransactionType.PURCHASE) {
+            throw new PaymentApiException(ErrorCode.PAYMENT_INVALID_PARAMETER, "transactionType", "should be AUTHORIZE or PURCHASE");
+        }
+
+        final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(callContext);
+        final int batchSize = paymentConfig.getBulkPaymentBatchSize();
+        while (requests.hasNext()) {
+            // Payments of the same account are grouped: they would be serialized by the account lock anyway
+            final Map<UUID, List<BulkPaymentRequest>> requestsPerAccount = new LinkedHashMap<UUID, List<BulkPaymentRequest>>();
+            int nbRequests = 0;
+            while (nbRequests < batchSize && requests.hasNext()) {
+                final BulkPaymentRequest request = requests.next();
+                requestsPerAccount.computeIfAbsent(request.getAccountId(), accountId -> new LinkedList<BulkPaymentRequest>()).add(request);
+                nbRequests++;
+            }
+
+            processBatch(transactionType, requestsPerAccount, nbRequests, paymentOptions, resultHandler, callContext, internalTenantContext);
+        }
+    }
+
+    private void processBatch(final TransactionType transactionType,
+                              final Map<UUID, List<BulkPaymentRequest>> requestsPerAccount,
+                              final int nbRequests,
+                              final PaymentOptions paymentOptions,
+                              final BulkPaymentResultHandler resultHandler,
+                              final CallContext callContext,
+                              final InternalTenantContext internalTenantContext) throws PaymentApiException {
+        final BlockingQueue<BulkPaymentResult> results = new LinkedBlockingQueue<BulkPaymentResult>();
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(requestsPerAccount.size());
+        for (final List<BulkPaymentRequest> accountRequests : requestsPerAccount.values()) {
+            final Callable<Void> task = () -> {
+                processAccountRequests(transactionType, accountRequests, paymentOptions, results, callContext, internalTenantContext);
+                return null;
+            };
+            // Propagate the request id, Shiro subject and MDC (PaymentApi calls are subject to permission checks)
+            futures.add(paymentExecutors.getBulkPaymentExecutorService().submit(new CallableWithRequestData<Void>(Request.getPerThreadRequestData(),
+                                                                                                                 UUIDs.getRandom(),
+                                                                                                                 ThreadContext.getSecurityManager(),
+                                                                                                                 ThreadContext.getSubject(),
+                                                                                                                 MDC.getCopyOfContextMap(),
+                                                                                                                 task)));
+        }
+
+        // Stream the results back from the calling thread, as they complete
+        int nbResults = 0;
+        try {
+            while (nbResults < nbRequests) {
+                final BulkPaymentResult result = results.poll(RESULT_POLL_TIMEOUT_MSEC, TimeUnit.MILLISECONDS);
+                if (result != null) {
+                    resultHandler.onResult(result);
+                    nbResults++;
+                } else {
+                    checkForFailures(futures);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            throw new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, "Interrupted while waiting for bulk payment results");
+        } catch (final RuntimeException e) {
+            // E.g. the client went away
+            cancel(futures);
+            throw e;
+        }
+    }
+
+    private void processAccountRequests(final TransactionType transactionType,
+                                        final List<BulkPaymentRequest> accountRequests,
+                                        final PaymentOptions paymentOptions,
+                                        final BlockingQueue<BulkPaymentResult> results,
+                                        final CallContext callContext,
+                                        final InternalTenantContext internalTenantContext) {
+        final UUID accountId = accountRequests.get(0).getAccountId();
+
+        // Looked-up once for all the payments of the account
+        final Account account;
+        try {
+            account = accountInternalApi.getAccountById(accountId, internalTenantContext);
+        } catch (final AccountApiException e) {
+            for (final BulkPaymentRequest request : accountRequests) {
+                results.add(new DefaultBulkPaymentResult(request, null, e));
+            }
+            return;
+        }
+
+        for (final BulkPaymentRequest request : accountRequests) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            results.add(createPayment(transactionType, account, request, paymentOptions, callContext));
+        }
+    }
+
+    private BulkPaymentResult createPayment(final TransactionType transactionType,
+                                            final Account account,
+                                            final BulkPaymentRequest request,
+                                            final PaymentOptions paymentOptions,
+                                            final CallContext callContext) {
+        final UUID paymentMethodId = request.getPaymentMethodId() != null ? request.getPaymentMethodId() : account.getPaymentMethodId();
+        final Currency currency = request.getCurrency() != null ? request.getCurrency() : account.getCurrency();
+        try {
+            final Payment payment;
+            if (transactionType == TransactionType.AUTHORIZE) {
+                payment = paymentApi.createAuthorizationWithPaymentControl(account, paymentMethodId, null, request.getAmount(), currency, request.getEffectiveDate(),
+                                                                           request.getPaymentExternalKey(), request.getPaymentTransactionExternalKey(),
+                                                                           request.getProperties(), paymentOptions, callContext);
+            } else {
+                payment = paymentApi.createPurchaseWithPaymentControl(account, paymentMethodId, null, request.getAmount(), currency, request.getEffectiveDate(),
+                                                                      request.getPaymentExternalKey(), request.getPaymentTransactionExternalKey(),
+                                                                      request.getProperties(), paymentOptions, callContext);
+            }
+            return new DefaultBulkPaymentResult(request, payment, null);
+        } catch (final PaymentApiException e) {
+            return new DefaultBulkPaymentResult(request, null, e);
+        } catch (final RuntimeException e) {
+            log.warn("Unexpected error for bulk payment accountId='{}', paymentTransactionExternalKey='{}'", account.getId(), request.getPaymentTransactionExternalKey(), e);
+            return new DefaultBulkPaymentResult(request, null, new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, String.valueOf(e.getMessage())));
+        }
+    }
+
+    @Override
+    public void refreshPaymentMethods(final Iterator<UUID> accountIds,
+                                      @Nullable final String pluginName,
+                                      final Iterable<PluginProperty> properties,
+                                      final BulkPaymentMethodRefreshResultHandler resultHandler,
+                                      final CallContext callContext) throws PaymentApiException {
+        final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(callContext);
+        final int batchSize = paymentConfig.getBulkPaymentBatchSize();
+        final RefreshProgress progress = new RefreshProgress(resultHandler, paymentConfig.getBulkPaymentMethodRefreshProgressInterval());
+        final RefreshThrottle throttle = new RefreshThrottle(paymentConfig.getBulkPaymentMethodRefreshMaxAccountsPerSecond());
+        while (accountIds.hasNext()) {
+            final List<UUID> batch = new ArrayList<UUID>(batchSize);
+            while (batch.size() < batchSize && accountIds.hasNext()) {
+                batch.add(accountIds.next());
+            }
+
+            processRefreshBatch(batch, pluginName, properties, progress, throttle, callContext, internalTenantContext);
+        }
+        progress.done();
+    }
+
+    private void processRefreshBatch(final List<UUID> accountIds,
+                                     @Nullable final String pluginName,
+                                     final Iterable<PluginProperty> properties,
+                                     final RefreshProgress progress,
+                                     final RefreshThrottle throttle,
+                                     final CallContext callContext,
+                                     final InternalTenantContext internalTenantContext) throws PaymentApiException {
+        final BlockingQueue<BulkPaymentMethodRefreshResult> results = new LinkedBlockingQueue<BulkPaymentMethodRefreshResult>();
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(accountIds.size());
+        int nbResults = 0;
+        try {
+            for (final UUID accountId : accountIds) {
+                // Stream the results back while waiting for the next slot
+                long waitNanos;
+                while ((waitNanos = throttle.getWaitNanos()) > 0) {
+                    final BulkPaymentMethodRefreshResult result = results.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (result != null) {
+                        progress.onResult(result);
+                        nbResults++;
+                    }
+                }
+                throttle.acquired();
+
+                final Callable<Void> task = () -> {
+                    results.add(refreshPaymentMethods(accountId, pluginName, properties, callContext, internalTenantContext));
+                    return null;
+                };
+                futures.add(paymentExecutors.getBulkPaymentExecutorService().submit(new CallableWithRequestData<Void>(Request.getPerThreadRequestData(),
+                                                                                                                     UUIDs.getRandom(),
+                                                                                                                     ThreadContext.getSecurityManager(),
+                                                                                                                     ThreadContext.getSubject(),
+                                                                                                                     MDC.getCopyOfContextMap(),
+                                                                                                                     task)));
+            }
+
+            while (nbResults < accountIds.size()) {
+                final BulkPaymentMethodRefreshResult result = results.poll(RESULT_POLL_TIMEOUT_MSEC, TimeUnit.MILLISECONDS);
+                if (result != null) {
+                    progress.onResult(result);
+                    nbResults++;
+                } else {
+                    checkForFailures(futures);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            throw new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, "Interrupted while waiting for bulk payment method refresh results");
+        } catch (final RuntimeException e) {
+            // E.g. the client went away
+            cancel(futures);
+            throw e;
+        }
+    }
+
+    private BulkPaymentMethodRefreshResult refreshPaymentMethods(final UUID accountId,
+                                                                 @Nullable final String pluginName,
+                                                                 final Iterable<PluginProperty> properties,
+                                                                 final CallContext callContext,
+                                                                 final InternalTenantContext internalTenantContext) {
+        try {
+            final Account account = accountInternalApi.getAccountById(accountId, internalTenantContext);
+            final List<PaymentMethod> paymentMethods;
+            if (pluginName == null) {
+                paymentMethods = paymentApi.refreshPaymentMethods(account, properties, callContext);
+            } else {
+                paymentMethods = paymentApi.refreshPaymentMethods(account, pluginName, properties, callContext);
+            }
+            return new DefaultBulkPaymentMethodRefreshResult(accountId, paymentMethods, null);
+        } catch (final AccountApiException | PaymentApiException e) {
+            return new DefaultBulkPaymentMethodRefreshResult(accountId, null, e);
+        } catch (final RuntimeException e) {
+            log.warn("Unexpected error for bulk payment method refresh accountId='{}'", accountId, e);
+            return new DefaultBulkPaymentMethodRefreshResult(accountId, null, new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, String.valueOf(e.getMessage())));
+        }
+    }
+
+    private void checkForFailures(final Iterable<Future<Void>> futures) throws InterruptedException, PaymentApiException {
+        for (final Future<Void> future : futures) {
+            if (!future.isDone()) {
+                continue;
+            }
+            try {
+                future.get();
+            } catch (final ExecutionException e) {
+                cancel(futures);
+                throw new PaymentApiException(e.getCause(), ErrorCode.PAYMENT_INTERNAL_ERROR, String.valueOf(e.getCause().getMessage()));
+            }
+        }
+    }
+
+    private void cancel(final Iterable<Future<Void>> futures) {
+        for (final Future<Void> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static final class DefaultBulkPaymentResult implements BulkPaymentResult {
+
+        private final BulkPaymentRequest request;
+        private final Payment payment;
+        private final BillingExceptionBase exception;
+
+        private DefaultBulkPaymentResult(final BulkPaymentRequest request, @Nullable final Payment payment, @Nullable final BillingExceptionBase exception) {
+            this.request = request;
+            this.payment = payment;
+            this.exception = exception;
+        }
+
+        @Override
+        public BulkPaymentRequest getRequest() {
+            return request;
+        }
+
+        @Override
+        public Payment getPayment() {
+            return payment;
+        }
+
+        @Override
+        public BillingExceptionBase getException() {
+            return exception;
+        }
+    }
+
+    private static final class DefaultBulkPaymentMethodRefreshResult implements BulkPaymentMethodRefreshResult {
+
+        private final UUID accountId;
+        private final List<PaymentMethod> paymentMethods;
+        private final BillingExceptionBase exception;
+
+        private DefaultBulkPaymentMethodRefreshResult(final UUID accountId, @Nullable final List<PaymentMethod> paymentMethods, @Nullable final BillingExceptionBase exception) {
+            this.accountId = accountId;
+            this.paymentMethods = paymentMethods;
+            this.exception = exception;
+        }
+
+        @Override
+        public UUID getAccountId() {
+            return accountId;
+        }
+
+        @Override
+        public List<PaymentMethod> getPaymentMethods() {
+            return paymentMethods;
+        }
+
+        @Override
+        public BillingExceptionBase getException() {
+            return exception;
+        }
+    }
+
+    // Only accessed from the calling thread
+    private static final class RefreshProgress {
+
+        private final BulkPaymentMethodRefreshResultHandler resultHandler;
+        private final int progressInterval;
+        private final long startNanos = System.nanoTime();
+
+        private long nbAccountsProcessed = 0;
+        private long nbAccountsFailed = 0;
+
+        private RefreshProgress(final BulkPaymentMethodRefreshResultHandler resultHandler, final int progressInterval) {
+            this.resultHandler = resultHandler;
+            this.progressInterval = Math.max(1, progressInterval);
+        }
+
+        private void onResult(final BulkPaymentMethodRefreshResult result) {
+            nbAccountsProcessed++;
+            if (result.getException() != null) {
+                nbAccountsFailed++;
+            }
+            resultHandler.onResult(result);
+
+            if (nbAccountsProcessed % progressInterval == 0) {
+                report();
+            }
+        }
+
+        private void done() {
+            if (nbAccountsProcessed % progressInterval != 0 || nbAccountsProcessed == 0) {
+                report();
+            }
+        }
+
+        private void report() {
+            log.info("Bulk payment method refresh: {} accounts processed ({} failed) in {} ms",
+                     nbAccountsProcessed, nbAccountsFailed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            resultHandler.onProgress(nbAccountsProcessed, nbAccountsFailed);
+        }
+    }
+
+    // Spaces the refreshes evenly (no burst), to protect the gateways
+    private static final class RefreshThrottle {
+
+        private final long intervalNanos;
+
+        private long nextPermitNanos = System.nanoTime();
+
+        private RefreshThrottle(final int maxPerSecond) {
+            this.intervalNanos = maxPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxPerSecond : 0;
+        }
+
+        private long getWaitNanos() {
+            return intervalNanos == 0 ? 0 : nextPermitNanos - System.nanoTime();
+        }
+
+        private void acquired() {
+            nextPermitNanos = Math.max(nextPermitNanos, System.nanoTime()) + intervalNanos;
+        }
+    }
+}
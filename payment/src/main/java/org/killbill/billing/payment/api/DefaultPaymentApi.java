@@ -20,7 +20,6 @@ package org.killbill.billing.payment.api;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 import java.util.function.Predicate;
@@ -1048,13 +1047,7 @@ public class DefaultPaymentApi extends DefaultApiBase implements PaymentApi {
     public List<PaymentMethod> refreshPaymentMethods(final Account account, final Iterable<PluginProperty> properties, final CallContext context)
             throws PaymentApiException {
         final InternalCallContext callContext = internalCallContextFactory.createInternalCallContext(account.getId(), context);
-
-        final List<PaymentMethod> paymentMethods = new LinkedList<PaymentMethod>();
-        for (final String pluginName : paymentMethodProcessor.getAvailablePlugins()) {
-            paymentMethods.addAll(paymentMethodProcessor.refreshPaymentMethods(pluginName, account, properties, context, callContext));
-        }
-
-        return paymentMethods;
+        return paymentMethodProcessor.refreshPaymentMethods(paymentMethodProcessor.getAvailablePlugins(), account, properties, context, callContext);
     }
 
     @Override
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.payment.PaymentHistoryApi;
+import org.killbill.billing.payment.core.PaymentControlAwareRefresher;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+
+public class DefaultPaymentHistoryApi implements PaymentHistoryApi {
+
+    private static final boolean IS_API_PAYMENT = true;
+
+    private final PaymentControlAwareRefresher paymentControlAwareRefresher;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultPaymentHistoryApi(final PaymentControlAwareRefresher paymentControlAwareRefresher,
+                                    final InternalCallContextFactory internalCallContextFactory) {
+        this.paymentControlAwareRefresher = paymentControlAwareRefresher;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public List<Payment> getAccountPayments(final UUID accountId,
+                                            @Nullable final Long afterPaymentNumber,
+                                            final int limit,
+                                            final boolean withPluginInfo,
+                                            final boolean withAttempts,
+                                            final Iterable<PluginProperty> properties,
+                                            final TenantContext context) throws PaymentApiException {
+        return paymentControlAwareRefresher.getAccountPayments(accountId,
+                                                               afterPaymentNumber,
+                                                               limit,
+                                                               withPluginInfo,
+                                                               withAttempts,
+                                                               IS_API_PAYMENT,
+                                                               context,
+                                                               internalCallContextFactory.createInternalTenantContext(accountId, context));
+    }
+}
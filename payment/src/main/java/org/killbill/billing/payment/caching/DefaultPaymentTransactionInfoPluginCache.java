@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.caching;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.payment.api.TransactionStatus;
+import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.clock.Clock;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+import org.skife.config.TimeSpan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Local (per node) cache: entries are validated against the transactions read from the database, so changes made by other nodes
+// (new transactions, status updates) are picked up right away.
+public class DefaultPaymentTransactionInfoPluginCache implements PaymentTransactionInfoPluginCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultPaymentTransactionInfoPluginCache.class);
+
+    private static final String FOREVER = "forever";
+    private static final long NO_CACHING = 0L;
+    private static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+    private final boolean isEnabled;
+    private final Clock clock;
+    // Freshness, in milliseconds: per transaction status (key null) and per plugin
+    private final Map<String, Map<TransactionStatus, Long>> ttlPerPluginAndStatus;
+    private final Map<UUID, CachedPaymentTransactionInfoPlugins> cache;
+
+    @Inject
+    public DefaultPaymentTransactionInfoPluginCache(final PaymentConfig paymentConfig, final Clock clock) {
+        this.isEnabled = paymentConfig.isPaymentPluginInfoCacheEnabled();
+        this.clock = clock;
+        this.ttlPerPluginAndStatus = parseTtls(paymentConfig.getPaymentPluginInfoCacheTtl());
+
+        final int maxSize = paymentConfig.getPaymentPluginInfoCacheMaxSize();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<UUID, CachedPaymentTransactionInfoPlugins>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<UUID, CachedPaymentTransactionInfoPlugins> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    @Override
+    public List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPlugins(final String pluginName, final UUID paymentId, final Collection<PaymentTransactionModelDao> paymentTransactions) {
+        if (!isEnabled) {
+            return null;
+        }
+
+        final CachedPaymentTransactionInfoPlugins cached = cache.get(paymentId);
+        if (cached == null || !cached.pluginName.equals(pluginName)) {
+            return null;
+        }
+
+        // Any new transaction or state change since the entry was cached invalidates it
+        if (!cached.transactionStatuses.equals(getTransactionStatuses(paymentTransactions))) {
+            cache.remove(paymentId);
+            return null;
+        }
+
+        final long ttl = getTtl(pluginName, paymentTransactions);
+        if (ttl != NO_EXPIRATION && clock.getUTCNow().getMillis() - cached.cachedAtMillis > ttl) {
+            cache.remove(paymentId);
+            return null;
+        }
+
+        return cached.paymentTransactionInfoPlugins;
+    }
+
+    @Override
+    public void putPaymentTransactionInfoPlugins(final String pluginName,
+                                                 final UUID paymentId,
+                                                 final Collection<PaymentTransactionModelDao> paymentTransactions,
+                                                 final List<PaymentTransactionInfoPlugin> paymentTransactionInfoPlugins) {
+        if (!isEnabled || paymentTransactionInfoPlugins == null || getTtl(pluginName, paymentTransactions) == NO_CACHING) {
+            return;
+        }
+
+        cache.put(paymentId, new CachedPaymentTransactionInfoPlugins(pluginName,
+                                                                     getTransactionStatuses(paymentTransactions),
+                                                                     Collections.unmodifiableList(new ArrayList<PaymentTransactionInfoPlugin>(paymentTransactionInfoPlugins)),
+                                                                     clock.getUTCNow().getMillis()));
+    }
+
+    @Override
+    public void invalidate(final UUID paymentId) {
+        if (isEnabled) {
+            cache.remove(paymentId);
+        }
+    }
+
+    // The entry is as fresh as its least cacheable transaction allows
+    @VisibleForTesting
+    long getTtl(final String pluginName, final Collection<PaymentTransactionModelDao> paymentTransactions) {
+        if (paymentTransactions.isEmpty()) {
+            return NO_CACHING;
+        }
+
+        final Map<TransactionStatus, Long> ttlPerStatusForPlugin = ttlPerPluginAndStatus.getOrDefault(pluginName, Collections.emptyMap());
+        final Map<TransactionStatus, Long> defaultTtlPerStatus = ttlPerPluginAndStatus.getOrDefault(null, Collections.emptyMap());
+        long ttl = NO_EXPIRATION;
+        for (final PaymentTransactionModelDao paymentTransaction : paymentTransactions) {
+            final TransactionStatus transactionStatus = paymentTransaction.getTransactionStatus();
+            final Long ttlForStatus = ttlPerStatusForPlugin.getOrDefault(transactionStatus, defaultTtlPerStatus.getOrDefault(transactionStatus, NO_CACHING));
+            ttl = Math.min(ttl, ttlForStatus);
+        }
+        return ttl;
+    }
+
+    private static Map<UUID, TransactionStatus> getTransactionStatuses(final Collection<PaymentTransactionModelDao> paymentTransactions) {
+        final Map<UUID, TransactionStatus> transactionStatuses = new HashMap<UUID, TransactionStatus>();
+        for (final PaymentTransactionModelDao paymentTransaction : paymentTransactions) {
+            transactionStatuses.put(paymentTransaction.getId(), paymentTransaction.getTransactionStatus());
+        }
+        return transactionStatuses;
+    }
+
+    // Format: [<pluginName>:]<transactionStatus>:<ttl|forever>
+    private static Map<String, Map<TransactionStatus, Long>> parseTtls(final Iterable<String> ttls) {
+        final Map<String, Map<TransactionStatus, Long>> result = new HashMap<String, Map<TransactionStatus, Long>>();
+        for (final String entry : ttls) {
+            final String trimmedEntry = entry.trim();
+            if (trimmedEntry.isEmpty()) {
+                continue;
+            }
+
+            final int ttlSeparator = trimmedEntry.lastIndexOf(':');
+            final int statusSeparator = ttlSeparator > 0 ? trimmedEntry.lastIndexOf(':', ttlSeparator - 1) : -1;
+            try {
+                final String pluginName = statusSeparator > 0 ? trimmedEntry.substring(0, statusSeparator) : null;
+                final TransactionStatus transactionStatus = TransactionStatus.valueOf(trimmedEntry.substring(statusSeparator + 1, ttlSeparator));
+                final String ttlSpec = trimmedEntry.substring(ttlSeparator + 1);
+                final long ttl = FOREVER.equalsIgnoreCase(ttlSpec) ? NO_EXPIRATION : new TimeSpan(ttlSpec).getMillis();
+                result.computeIfAbsent(pluginName, name -> new HashMap<TransactionStatus, Long>()).put(transactionStatus, ttl);
+            } catch (final RuntimeException e) {
+                logger.warn("Ignoring invalid payment plugin info cache ttl entry='{}'", trimmedEntry, e);
+            }
+        }
+        return result;
+    }
+
+    private static final class CachedPaymentTransactionInfoPlugins {
+
+        private final String pluginName;
+        private final Map<UUID, TransactionStatus> transactionStatuses;
+        private final List<PaymentTransactionInfoPlugin> paymentTransactionInfoPlugins;
+        private final long cachedAtMillis;
+
+        private CachedPaymentTransactionInfoPlugins(final String pluginName,
+                                                    final Map<UUID, TransactionStatus> transactionStatuses,
+                                                    final List<PaymentTransactionInfoPlugin> paymentTransactionInfoPlugins,
+                                                    final long cachedAtMillis) {
+            this.pluginName = pluginName;
+            this.transactionStatuses = transactionStatuses;
+            this.paymentTransactionInfoPlugins = paymentTransactionInfoPlugins;
+            this.cachedAtMillis = cachedAtMillis;
+        }
+    }
+}
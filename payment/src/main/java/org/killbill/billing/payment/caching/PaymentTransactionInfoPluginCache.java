@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.caching;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+
+// getPaymentInfo results, for the GET paths. An entry is only returned if the transactions of the payment (ids and statuses)
+// are the same as when the entry was cached, and if it is still fresh enough for these statuses.
+public interface PaymentTransactionInfoPluginCache {
+
+    // Null if there is no usable entry
+    public List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPlugins(String pluginName, UUID paymentId, Collection<PaymentTransactionModelDao> paymentTransactions);
+
+    public void putPaymentTransactionInfoPlugins(String pluginName, UUID paymentId, Collection<PaymentTransactionModelDao> paymentTransactions, List<PaymentTransactionInfoPlugin> paymentTransactionInfoPlugins);
+
+    public void invalidate(UUID paymentId);
+}
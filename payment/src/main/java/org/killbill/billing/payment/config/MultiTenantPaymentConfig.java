@@ -151,6 +151,46 @@ public class MultiTenantPaymentConfig extends MultiTenantLockAwareConfigBase imp
         return staticConfig.getIncompleteAttemptsTimeSpanDelay();
     }
 
+    @Override
+    public boolean isJanitorBatchReconciliationEnabled() {
+        return staticConfig.isJanitorBatchReconciliationEnabled();
+    }
+
+    @Override
+    public TimeSpan getJanitorBatchRunningRate() {
+        return staticConfig.getJanitorBatchRunningRate();
+    }
+
+    @Override
+    public TimeSpan getJanitorBatchMaxRunTime() {
+        return staticConfig.getJanitorBatchMaxRunTime();
+    }
+
+    @Override
+    public int getJanitorBatchThreadNb() {
+        return staticConfig.getJanitorBatchThreadNb();
+    }
+
+    @Override
+    public int getJanitorBatchSize() {
+        return staticConfig.getJanitorBatchSize();
+    }
+
+    @Override
+    public int getJanitorBatchMaxConcurrentCallsPerPlugin() {
+        return staticConfig.getJanitorBatchMaxConcurrentCallsPerPlugin();
+    }
+
+    @Override
+    public TimeSpan getJanitorBatchDelay() {
+        return staticConfig.getJanitorBatchDelay();
+    }
+
+    @Override
+    public TimeSpan getJanitorBatchMaxAge() {
+        return staticConfig.getJanitorBatchMaxAge();
+    }
+
     @Override
     public String getDefaultPaymentProvider() {
         return staticConfig.getDefaultPaymentProvider();
@@ -166,6 +206,95 @@ public class MultiTenantPaymentConfig extends MultiTenantLockAwareConfigBase imp
         return staticConfig.getPaymentPluginThreadNb();
     }
 
+    @Override
+    public boolean isPaymentPluginBulkheadEnabled() {
+        return staticConfig.isPaymentPluginBulkheadEnabled();
+    }
+
+    @Override
+    public int getPaymentPluginBulkheadMaxConcurrentCalls() {
+        return staticConfig.getPaymentPluginBulkheadMaxConcurrentCalls();
+    }
+
+    @Override
+    public int getPaymentPluginBulkheadMaxQueueSize() {
+        return staticConfig.getPaymentPluginBulkheadMaxQueueSize();
+    }
+
+    @Override
+    public boolean isPaymentPluginInfoCacheEnabled() {
+        return staticConfig.isPaymentPluginInfoCacheEnabled();
+    }
+
+    @Override
+    public List<String> getPaymentPluginInfoCacheTtl() {
+        return staticConfig.getPaymentPluginInfoCacheTtl();
+    }
+
+    @Override
+    public int getPaymentPluginInfoCacheMaxSize() {
+        return staticConfig.getPaymentPluginInfoCacheMaxSize();
+    }
+
+    @Override
+    public boolean isAccountPaymentSummariesEnabled() {
+        return staticConfig.isAccountPaymentSummariesEnabled();
+    }
+
+    @Override
+    public boolean isAccountPaymentSummariesEnabled(@Param("dummy") final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("isAccountPaymentSummariesEnabled", tenantContext);
+        if (result != null) {
+            return Boolean.parseBoolean(result);
+        }
+        return isAccountPaymentSummariesEnabled();
+    }
+
+    @Override
+    public List<String> getPaymentRetryRateLimits() {
+        return staticConfig.getPaymentRetryRateLimits();
+    }
+
+    @Override
+    public TimeSpan getPaymentRetryJitter() {
+        return staticConfig.getPaymentRetryJitter();
+    }
+
+    @Override
+    public TimeSpan getPaymentRetryCoalesceWindow() {
+        return staticConfig.getPaymentRetryCoalesceWindow();
+    }
+
+    @Override
+    public int getBulkPaymentThreadNb() {
+        return staticConfig.getBulkPaymentThreadNb();
+    }
+
+    @Override
+    public int getBulkPaymentBatchSize() {
+        return staticConfig.getBulkPaymentBatchSize();
+    }
+
+    @Override
+    public int getBulkPaymentMethodRefreshMaxAccountsPerSecond() {
+        return staticConfig.getBulkPaymentMethodRefreshMaxAccountsPerSecond();
+    }
+
+    @Override
+    public int getBulkPaymentMethodRefreshProgressInterval() {
+        return staticConfig.getBulkPaymentMethodRefreshProgressInterval();
+    }
+
+    @Override
+    public List<String> getPaymentControlPluginsWithIndependentHooks() {
+        return staticConfig.getPaymentControlPluginsWithIndependentHooks();
+    }
+
+    @Override
+    public int getPaymentControlPluginThreadNb() {
+        return staticConfig.getPaymentControlPluginThreadNb();
+    }
+
     @Override
     public int getMaxGlobalLockRetries() {
         return staticConfig.getMaxGlobalLockRetries();
@@ -24,6 +24,7 @@ import javax.inject.Inject;
 import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
+import org.killbill.billing.payment.caching.PaymentTransactionInfoPluginCache;
 import org.killbill.billing.payment.core.janitor.IncompletePaymentAttemptTask;
 import org.killbill.billing.payment.core.janitor.IncompletePaymentTransactionTask;
 import org.killbill.billing.payment.dao.PaymentDao;
@@ -54,8 +55,9 @@ public class PaymentControlAwareRefresher extends PaymentRefresher {
                                         final Clock clock,
                                         final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
                                         final NotificationQueueService notificationQueueService,
-                                        final IncompletePaymentAttemptTask incompletePaymentAttemptTask) {
-        super(paymentPluginServiceRegistration, accountUserApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock, notificationQueueService, incompletePaymentTransactionTask);
+                                        final IncompletePaymentAttemptTask incompletePaymentAttemptTask,
+                                        final PaymentTransactionInfoPluginCache paymentTransactionInfoPluginCache) {
+        super(paymentPluginServiceRegistration, accountUserApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock, notificationQueueService, incompletePaymentTransactionTask, paymentTransactionInfoPluginCache);
         this.incompletePaymentAttemptTask = incompletePaymentAttemptTask;
     }
 
@@ -17,58 +17,103 @@
 
 package org.killbill.billing.payment.core;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 
+import org.killbill.billing.payment.dispatcher.PluginBulkhead;
 import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.commons.concurrent.Executors;
 import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
+import org.killbill.commons.metrics.api.Gauge;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class PaymentExecutors {
 
+    private static final Logger logger = LoggerFactory.getLogger(PaymentExecutors.class);
+
     private static final long TIMEOUT_EXECUTOR_SEC = 3L;
 
     private static final int DEFAULT_MIN_PLUGIN_THREADS = 5;
 
     private static final String PLUGIN_THREAD_PREFIX = "Plugin-th-";
     private static final String PAYMENT_PLUGIN_TH_GROUP_NAME = "pay-plugin-grp";
+    private static final String PLUGIN_BULKHEAD_THREAD_PREFIX = "Plugin-bh-";
+
+    private static final String PROP_METRIC_REG_PLUGIN_BULKHEAD = "payment.plugin.bulkhead.";
 
     public static final String JANITOR_EXECUTOR_NAMED = "JanitorExecutor";
     public static final String PLUGIN_EXECUTOR_NAMED = "PluginExecutor";
 
     private final PaymentConfig paymentConfig;
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<String, PluginBulkhead> pluginBulkheads = new ConcurrentHashMap<String, PluginBulkhead>();
 
     private volatile ThreadPoolExecutor pluginExecutorService;
     private volatile ScheduledExecutorService janitorExecutorService;
+    private volatile ExecutorService bulkPaymentExecutorService;
+    private volatile ScheduledExecutorService janitorBatchSchedulerExecutorService;
+    private volatile ExecutorService janitorBatchExecutorService;
+    private volatile ExecutorService controlPluginExecutorService;
 
     @Inject
-    public PaymentExecutors(PaymentConfig paymentConfig) {
+    public PaymentExecutors(PaymentConfig paymentConfig, final MetricRegistry metricRegistry) {
         this.paymentConfig = paymentConfig;
-
+        this.metricRegistry = metricRegistry;
     }
 
     public void initialize() {
         this.pluginExecutorService = createPluginExecutorService();
         this.pluginExecutorService.prestartAllCoreThreads();
         this.janitorExecutorService = createJanitorExecutorService();
+        this.bulkPaymentExecutorService = createBulkPaymentExecutorService();
+        this.janitorBatchSchedulerExecutorService = createJanitorBatchSchedulerExecutorService();
+        this.janitorBatchExecutorService = createJanitorBatchExecutorService();
+        this.controlPluginExecutorService = createControlPluginExecutorService();
     }
 
 
     public void stop() throws InterruptedException {
+        // In-flight bulkhead calls are left to complete (or time out on the caller side)
+        for (final PluginBulkhead pluginBulkhead : pluginBulkheads.values()) {
+            pluginBulkhead.shutdown();
+        }
+
         pluginExecutorService.shutdownNow();
         janitorExecutorService.shutdownNow();
+        bulkPaymentExecutorService.shutdownNow();
+        janitorBatchSchedulerExecutorService.shutdownNow();
+        janitorBatchExecutorService.shutdownNow();
+        controlPluginExecutorService.shutdownNow();
 
         pluginExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         pluginExecutorService = null;
 
         janitorExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         janitorExecutorService = null;
+
+        bulkPaymentExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        bulkPaymentExecutorService = null;
+
+        janitorBatchSchedulerExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        janitorBatchSchedulerExecutorService = null;
+
+        janitorBatchExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        janitorBatchExecutorService = null;
+
+        controlPluginExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        controlPluginExecutorService = null;
     }
 
     public ExecutorService getPluginExecutorService() {
@@ -79,6 +124,74 @@ public class PaymentExecutors {
         return janitorExecutorService;
     }
 
+    public ExecutorService getBulkPaymentExecutorService() {
+        return bulkPaymentExecutorService;
+    }
+
+    public ScheduledExecutorService getJanitorBatchSchedulerExecutorService() {
+        return janitorBatchSchedulerExecutorService;
+    }
+
+    public ExecutorService getJanitorBatchExecutorService() {
+        return janitorBatchExecutorService;
+    }
+
+    public ExecutorService getControlPluginExecutorService() {
+        return controlPluginExecutorService;
+    }
+
+    public boolean isPluginBulkheadEnabled() {
+        return paymentConfig.isPaymentPluginBulkheadEnabled();
+    }
+
+    public PluginBulkhead getPluginBulkhead(final String pluginName) {
+        return pluginBulkheads.computeIfAbsent(pluginName, this::createPluginBulkhead);
+    }
+
+    private PluginBulkhead createPluginBulkhead(final String pluginName) {
+        final PluginBulkhead pluginBulkhead = new PluginBulkhead(pluginName,
+                                                                 paymentConfig.getPaymentPluginBulkheadMaxConcurrentCalls(),
+                                                                 paymentConfig.getPaymentPluginBulkheadMaxQueueSize(),
+                                                                 createPluginBulkheadThreadFactory(pluginName));
+
+        final String metricPrefix = PROP_METRIC_REG_PLUGIN_BULKHEAD + pluginName;
+        final Gauge<Object> queueDepth = pluginBulkhead::getQueueDepth;
+        final Gauge<Object> inFlight = pluginBulkhead::getInFlightCount;
+        final Gauge<Object> rejected = pluginBulkhead::getRejectedCount;
+        final Gauge<Object> waits = pluginBulkhead::getWaitCount;
+        final Gauge<Object> waitTime = pluginBulkhead::getWaitTimeMillis;
+        metricRegistry.gauge(metricPrefix + ".queueDepth", queueDepth);
+        metricRegistry.gauge(metricPrefix + ".inFlight", inFlight);
+        metricRegistry.gauge(metricPrefix + ".rejected", rejected);
+        metricRegistry.gauge(metricPrefix + ".waits", waits);
+        metricRegistry.gauge(metricPrefix + ".waitTimeMs", waitTime);
+
+        return pluginBulkhead;
+    }
+
+    private static ThreadFactory createPluginBulkheadThreadFactory(final String pluginName) {
+        final String threadNamePrefix = PLUGIN_BULKHEAD_THREAD_PREFIX + pluginName + "-";
+        try {
+            // Thread.ofVirtual().name(threadNamePrefix, 0).factory(), looked up at runtime as we still compile for older JDKs
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (final ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            logger.info("Virtual threads not available, using platform threads for the bulkhead of plugin='{}'", pluginName);
+        }
+
+        final AtomicLong threadNb = new AtomicLong();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread th = new Thread(r, threadNamePrefix + threadNb.getAndIncrement());
+                th.setDaemon(true);
+                return th;
+            }
+        };
+    }
+
     private ThreadPoolExecutor createPluginExecutorService() {
         final int minThreadNb = DEFAULT_MIN_PLUGIN_THREADS < paymentConfig.getPaymentPluginThreadNb() ? DEFAULT_MIN_PLUGIN_THREADS : paymentConfig.getPaymentPluginThreadNb();
         return new WithProfilingThreadPoolExecutor(minThreadNb,
@@ -101,4 +214,20 @@ public class PaymentExecutors {
     private ScheduledExecutorService createJanitorExecutorService() {
         return Executors.newSingleThreadScheduledExecutor("PaymentJanitor");
     }
+
+    private ExecutorService createBulkPaymentExecutorService() {
+        return Executors.newFixedThreadPool(paymentConfig.getBulkPaymentThreadNb(), "BulkPayment");
+    }
+
+    private ScheduledExecutorService createJanitorBatchSchedulerExecutorService() {
+        return Executors.newSingleThreadScheduledExecutor("PaymentJanitorBatchScheduler");
+    }
+
+    private ExecutorService createJanitorBatchExecutorService() {
+        return Executors.newFixedThreadPool(paymentConfig.getJanitorBatchThreadNb(), "PaymentJanitorBatch");
+    }
+
+    private ExecutorService createControlPluginExecutorService() {
+        return Executors.newFixedThreadPool(paymentConfig.getPaymentControlPluginThreadNb(), "PaymentControlPlugin");
+    }
 }
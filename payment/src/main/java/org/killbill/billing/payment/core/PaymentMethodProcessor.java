@@ -21,16 +21,25 @@ package org.killbill.billing.payment.core;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import org.apache.shiro.util.ThreadContext;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
@@ -50,6 +59,7 @@ import org.killbill.billing.payment.core.sm.control.ControlPluginRunner;
 import org.killbill.billing.payment.core.sm.control.PaymentControlApiAbortException;
 import org.killbill.billing.payment.dao.PaymentDao;
 import org.killbill.billing.payment.dao.PaymentMethodModelDao;
+import org.killbill.billing.payment.dispatcher.CallableWithRequestData;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher.PluginDispatcherReturnType;
 import org.killbill.billing.payment.plugin.api.PaymentMethodInfoPlugin;
@@ -72,8 +82,10 @@ import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.EntityPagina
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePaginationBuilder;
 import org.killbill.clock.Clock;
 import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.request.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 import static org.killbill.billing.payment.dispatcher.PaymentPluginDispatcher.dispatchWithExceptionHandling;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPagination;
@@ -90,6 +102,8 @@ public class PaymentMethodProcessor extends ProcessorBase {
 
     private final PaymentConfig paymentConfig;
 
+    private final PaymentExecutors paymentExecutors;
+
     @Inject
     public PaymentMethodProcessor(final PaymentPluginServiceRegistration paymentPluginServiceRegistration,
                                   final AccountInternalApi accountInternalApi,
@@ -105,6 +119,7 @@ public class PaymentMethodProcessor extends ProcessorBase {
         super(paymentPluginServiceRegistration, accountInternalApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
         final long paymentPluginTimeoutSec = TimeUnit.SECONDS.convert(paymentConfig.getPaymentPluginTimeout().getPeriod(), paymentConfig.getPaymentPluginTimeout().getUnit());
         this.paymentConfig = paymentConfig;
+        this.paymentExecutors = executors;
         this.controlPluginRunner = controlPluginRunner;
         this.uuidPluginNotificationDispatcher = new PluginDispatcher<UUID>(paymentPluginTimeoutSec, executors);
     }
@@ -585,18 +600,24 @@ public class PaymentMethodProcessor extends ProcessorBase {
      * @throws PaymentApiException
      */
     public List<PaymentMethod> refreshPaymentMethods(final String pluginName, final Account account, final Iterable<PluginProperty> properties, final CallContext callContext, final InternalCallContext context) throws PaymentApiException {
-        // Don't hold the account lock while fetching the payment methods from the gateway as those could change anyway
-        final PaymentPluginApi pluginApi = getPaymentPluginApi(pluginName);
-        final List<PaymentMethodInfoPlugin> pluginPms;
-        try {
-            pluginPms = pluginApi.getPaymentMethods(account.getId(), true, properties, callContext);
-            // The method should never return null by convention, but let's not trust the plugin...
-            if (pluginPms == null) {
-                log.debug("No payment methods defined on the account {} for plugin {}", account.getId(), pluginName);
-                return Collections.emptyList();
-            }
-        } catch (final PaymentPluginApiException e) {
-            throw new PaymentApiException(e, ErrorCode.PAYMENT_REFRESH_PAYMENT_METHOD, account.getId(), e.getErrorMessage());
+        return refreshPaymentMethods(List.of(pluginName), account, properties, callContext, context);
+    }
+
+    /**
+     * Same as above, for several plugins at once: the plugins are queried concurrently and the differences with the Kill Bill view
+     * (payment methods added, removed or re-added in the plugins) are persisted in a single transaction.
+     *
+     * @param pluginNames
+     * @param account
+     * @param context
+     * @return the list of payment methods of the account
+     * @throws PaymentApiException
+     */
+    public List<PaymentMethod> refreshPaymentMethods(final Collection<String> pluginNames, final Account account, final Iterable<PluginProperty> properties, final CallContext callContext, final InternalCallContext context) throws PaymentApiException {
+        // Don't hold the account lock while fetching the payment methods from the gateways as those could change anyway
+        final Map<String, List<PaymentMethodInfoPlugin>> pluginPmsPerPlugin = getPaymentMethodsFromPlugins(pluginNames, account, properties, callContext);
+        if (pluginPmsPerPlugin.isEmpty()) {
+            return Collections.emptyList();
         }
 
         try {
@@ -604,42 +625,49 @@ public class PaymentMethodProcessor extends ProcessorBase {
                 @Override
                 public PluginDispatcherReturnType<List<PaymentMethod>> doOperation() throws PaymentApiException {
 
-                    UUID defaultPaymentMethodId = null;
-
-                    final List<PaymentMethodInfoPlugin> pluginPmsWithId = new ArrayList<PaymentMethodInfoPlugin>();
-                    final List<PaymentMethodModelDao> finalPaymentMethods = new ArrayList<PaymentMethodModelDao>();
-                    for (final PaymentMethodInfoPlugin cur : pluginPms) {
-                        // If the kbPaymentId is NULL, the plugin does not know about it, so we create a new UUID
-                        final UUID paymentMethodId = cur.getPaymentMethodId() != null ? cur.getPaymentMethodId() : UUIDs.randomUUID();
-                        final String externalKey = cur.getExternalPaymentMethodId() != null ? cur.getExternalPaymentMethodId() : paymentMethodId.toString();
-                        final PaymentMethod input = new DefaultPaymentMethod(paymentMethodId, externalKey, account.getId(), pluginName);
-                        final PaymentMethodModelDao pmModel = new PaymentMethodModelDao(input.getId(), input.getExternalKey(), input.getCreatedDate(), input.getUpdatedDate(),
-                                                                                        input.getAccountId(), input.getPluginName(), input.isActive());
-                        finalPaymentMethods.add(pmModel);
-
-                        pluginPmsWithId.add(new DefaultPaymentMethodInfoPlugin(cur, paymentMethodId));
-
-                        // Note: we do not unset the default payment method in Kill Bill even if isDefault is false here.
-                        // Some gateways don't support the concept of "default" payment methods, in that case the plugin
-                        // will always return false - it's Kill Bill in that case which is responsible to manage default payment methods
-                        if (cur.isDefault()) {
-                            defaultPaymentMethodId = paymentMethodId;
+                    final Map<String, UUID> defaultPaymentMethodIdPerPlugin = new HashMap<String, UUID>();
+                    final Map<String, List<PaymentMethodInfoPlugin>> pluginPmsWithIdPerPlugin = new LinkedHashMap<String, List<PaymentMethodInfoPlugin>>();
+                    final Map<String, List<PaymentMethodModelDao>> finalPaymentMethodsPerPlugin = new LinkedHashMap<String, List<PaymentMethodModelDao>>();
+                    for (final Entry<String, List<PaymentMethodInfoPlugin>> entry : pluginPmsPerPlugin.entrySet()) {
+                        final String pluginName = entry.getKey();
+                        final List<PaymentMethodInfoPlugin> pluginPmsWithId = new ArrayList<PaymentMethodInfoPlugin>();
+                        final List<PaymentMethodModelDao> finalPaymentMethods = new ArrayList<PaymentMethodModelDao>();
+                        for (final PaymentMethodInfoPlugin cur : entry.getValue()) {
+                            // If the kbPaymentId is NULL, the plugin does not know about it, so we create a new UUID
+                            final UUID paymentMethodId = cur.getPaymentMethodId() != null ? cur.getPaymentMethodId() : UUIDs.randomUUID();
+                            final String externalKey = cur.getExternalPaymentMethodId() != null ? cur.getExternalPaymentMethodId() : paymentMethodId.toString();
+                            final PaymentMethod input = new DefaultPaymentMethod(paymentMethodId, externalKey, account.getId(), pluginName);
+                            final PaymentMethodModelDao pmModel = new PaymentMethodModelDao(input.getId(), input.getExternalKey(), input.getCreatedDate(), input.getUpdatedDate(),
+                                                                                            input.getAccountId(), input.getPluginName(), input.isActive());
+                            finalPaymentMethods.add(pmModel);
+
+                            pluginPmsWithId.add(new DefaultPaymentMethodInfoPlugin(cur, paymentMethodId));
+
+                            // Note: we do not unset the default payment method in Kill Bill even if isDefault is false here.
+                            // Some gateways don't support the concept of "default" payment methods, in that case the plugin
+                            // will always return false - it's Kill Bill in that case which is responsible to manage default payment methods
+                            if (cur.isDefault()) {
+                                defaultPaymentMethodIdPerPlugin.put(pluginName, paymentMethodId);
+                            }
                         }
+                        finalPaymentMethodsPerPlugin.put(pluginName, finalPaymentMethods);
+                        pluginPmsWithIdPerPlugin.put(pluginName, pluginPmsWithId);
                     }
 
-                    final List<PaymentMethodModelDao> refreshedPaymentMethods = paymentDao.refreshPaymentMethods(pluginName,
-                                                                                                                 finalPaymentMethods,
-                                                                                                                 context);
+                    final List<PaymentMethodModelDao> refreshedPaymentMethods = paymentDao.refreshPaymentMethods(finalPaymentMethodsPerPlugin, context);
 
-                    try {
-                        pluginApi.resetPaymentMethods(account.getId(), pluginPmsWithId, properties, callContext);
-                    } catch (final PaymentPluginApiException e) {
-                        throw new PaymentApiException(e, ErrorCode.PAYMENT_REFRESH_PAYMENT_METHOD, account.getId(), e.getErrorMessage());
-                    }
-                    try {
-                        updateDefaultPaymentMethodIfNeeded(pluginName, account, defaultPaymentMethodId, context);
-                    } catch (final AccountApiException e) {
-                        throw new PaymentApiException(e);
+                    for (final Entry<String, List<PaymentMethodInfoPlugin>> entry : pluginPmsWithIdPerPlugin.entrySet()) {
+                        final String pluginName = entry.getKey();
+                        try {
+                            getPaymentPluginApi(pluginName).resetPaymentMethods(account.getId(), entry.getValue(), properties, callContext);
+                        } catch (final PaymentPluginApiException e) {
+                            throw new PaymentApiException(e, ErrorCode.PAYMENT_REFRESH_PAYMENT_METHOD, account.getId(), e.getErrorMessage());
+                        }
+                        try {
+                            updateDefaultPaymentMethodIfNeeded(pluginName, account, defaultPaymentMethodIdPerPlugin.get(pluginName), context);
+                        } catch (final AccountApiException e) {
+                            throw new PaymentApiException(e);
+                        }
                     }
                     final List<PaymentMethod> result = refreshedPaymentMethods.stream()
                             .map(input -> new DefaultPaymentMethod(input, null))
@@ -653,6 +681,76 @@ public class PaymentMethodProcessor extends ProcessorBase {
         }
     }
 
+    // Plugins which don't return any payment method (null) are skipped
+    private Map<String, List<PaymentMethodInfoPlugin>> getPaymentMethodsFromPlugins(final Collection<String> pluginNames, final Account account, final Iterable<PluginProperty> properties, final CallContext callContext) throws PaymentApiException {
+        final Map<String, List<PaymentMethodInfoPlugin>> result = new LinkedHashMap<String, List<PaymentMethodInfoPlugin>>();
+        if (pluginNames.size() == 1) {
+            // No need to switch threads
+            final String pluginName = pluginNames.iterator().next();
+            final List<PaymentMethodInfoPlugin> pluginPms = getPaymentMethodsFromPlugin(pluginName, account, properties, callContext);
+            if (pluginPms != null) {
+                result.put(pluginName, pluginPms);
+            }
+            return result;
+        }
+
+        final Map<String, Future<List<PaymentMethodInfoPlugin>>> futures = new LinkedHashMap<String, Future<List<PaymentMethodInfoPlugin>>>();
+        try {
+            for (final String pluginName : pluginNames) {
+                final Callable<List<PaymentMethodInfoPlugin>> task = () -> getPaymentMethodsFromPlugin(pluginName, account, properties, callContext);
+                futures.put(pluginName, paymentExecutors.getPluginExecutorService().submit(new CallableWithRequestData<List<PaymentMethodInfoPlugin>>(Request.getPerThreadRequestData(),
+                                                                                                                                                    UUIDs.getRandom(),
+                                                                                                                                                    ThreadContext.getSecurityManager(),
+                                                                                                                                                    ThreadContext.getSubject(),
+                                                                                                                                                    MDC.getCopyOfContextMap(),
+                                                                                                                                                    task)));
+            }
+
+            // The plugins are called in parallel: the timeout applies to the whole refresh
+            final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(paymentConfig.getPaymentPluginTimeout().getMillis());
+            for (final Entry<String, Future<List<PaymentMethodInfoPlugin>>> entry : futures.entrySet()) {
+                final List<PaymentMethodInfoPlugin> pluginPms = entry.getValue().get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (pluginPms != null) {
+                    result.put(entry.getKey(), pluginPms);
+                }
+            }
+            return result;
+        } catch (final TimeoutException e) {
+            final String errorMessage = String.format("Call TIMEOUT for accountId='%s' accountExternalKey='%s' plugin='%s'", account.getId(), account.getExternalKey(), JOINER.join(pluginNames));
+            log.warn(errorMessage);
+            throw new PaymentApiException(ErrorCode.PAYMENT_PLUGIN_TIMEOUT, account.getId(), errorMessage);
+        } catch (final RejectedExecutionException e) {
+            throw new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, Objects.requireNonNullElse(e.getMessage(), ""));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, "Interrupted while refreshing the payment methods");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof PaymentApiException) {
+                throw (PaymentApiException) e.getCause();
+            }
+            throw new PaymentApiException(e.getCause(), ErrorCode.PAYMENT_INTERNAL_ERROR, Objects.requireNonNullElse(e.getCause().getMessage(), ""));
+        } finally {
+            // No-op for the calls which already completed
+            for (final Future<List<PaymentMethodInfoPlugin>> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private List<PaymentMethodInfoPlugin> getPaymentMethodsFromPlugin(final String pluginName, final Account account, final Iterable<PluginProperty> properties, final CallContext callContext) throws PaymentApiException {
+        final PaymentPluginApi pluginApi = getPaymentPluginApi(pluginName);
+        try {
+            final List<PaymentMethodInfoPlugin> pluginPms = pluginApi.getPaymentMethods(account.getId(), true, properties, callContext);
+            // The method should never return null by convention, but let's not trust the plugin...
+            if (pluginPms == null) {
+                log.debug("No payment methods defined on the account {} for plugin {}", account.getId(), pluginName);
+            }
+            return pluginPms;
+        } catch (final PaymentPluginApiException e) {
+            throw new PaymentApiException(e, ErrorCode.PAYMENT_REFRESH_PAYMENT_METHOD, account.getId(), e.getErrorMessage());
+        }
+    }
+
     private void updateDefaultPaymentMethodIfNeeded(final String pluginName, final Account account, @Nullable final UUID defaultPluginPaymentMethodId, final InternalCallContext context) throws PaymentApiException, AccountApiException {
 
         // Some gateways have the concept of default payment methods. Kill Bill has also its own default payment method
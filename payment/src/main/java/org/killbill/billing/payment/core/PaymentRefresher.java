@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -46,9 +47,12 @@ import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.PaymentAttempt;
 import org.killbill.billing.payment.api.PaymentTransaction;
 import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.caching.PaymentTransactionInfoPluginCache;
 import org.killbill.billing.payment.core.janitor.IncompletePaymentTransactionTask;
+import org.killbill.billing.payment.dao.PaymentAndTransactionModelDao;
 import org.killbill.billing.payment.dao.PaymentAttemptModelDao;
 import org.killbill.billing.payment.dao.PaymentDao;
+import org.killbill.billing.payment.dao.PaymentMethodModelDao;
 import org.killbill.billing.payment.dao.PaymentModelDao;
 import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
 import org.killbill.billing.payment.dao.PluginPropertySerializer;
@@ -93,6 +97,7 @@ public class PaymentRefresher extends ProcessorBase {
 
     private final NotificationQueueService notificationQueueService;
     private final IncompletePaymentTransactionTask incompletePaymentTransactionTask;
+    private final PaymentTransactionInfoPluginCache paymentTransactionInfoPluginCache;
 
     @Inject
     public PaymentRefresher(final PaymentPluginServiceRegistration paymentPluginServiceRegistration,
@@ -104,10 +109,12 @@ public class PaymentRefresher extends ProcessorBase {
                             final InvoiceInternalApi invoiceApi,
                             final Clock clock,
                             final NotificationQueueService notificationQueueService,
-                            final IncompletePaymentTransactionTask incompletePaymentTransactionTask) {
+                            final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
+                            final PaymentTransactionInfoPluginCache paymentTransactionInfoPluginCache) {
         super(paymentPluginServiceRegistration, accountUserApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
         this.notificationQueueService = notificationQueueService;
         this.incompletePaymentTransactionTask = incompletePaymentTransactionTask;
+        this.paymentTransactionInfoPluginCache = paymentTransactionInfoPluginCache;
     }
 
     protected boolean invokeJanitor(final UUID accountId,
@@ -129,29 +136,37 @@ public class PaymentRefresher extends ProcessorBase {
                                          @Nullable final Iterable<PaymentTransactionInfoPlugin> pluginTransactions,
                                          final boolean isApiPayment,
                                          final InternalTenantContext internalTenantContext) {
-        PaymentModelDao newPaymentModelDao = curPaymentModelDao;
-        final Collection<PaymentTransactionModelDao> transactionsModelDao = new LinkedList<>();
+        final Map<UUID, PaymentTransactionInfoPlugin> pluginTransactionsByTransactionId = indexByTransactionId(pluginTransactions);
+        boolean hasChanged = false;
         for (final PaymentTransactionModelDao curPaymentTransactionModelDao : curTransactionsModelDao) {
-            PaymentTransactionModelDao newPaymentTransactionModelDao = curPaymentTransactionModelDao;
-
-            final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = findPaymentTransactionInfoPlugin(newPaymentTransactionModelDao, pluginTransactions);
+            final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = findPaymentTransactionInfoPlugin(curPaymentTransactionModelDao, pluginTransactionsByTransactionId);
             if (paymentTransactionInfoPlugin != null) {
                 // Make sure to invoke the Janitor task in case the plugin fixes its state on the fly
                 // See https://github.com/killbill/killbill/issues/341
-                final boolean hasChanged = invokeJanitor(newPaymentModelDao.getAccountId(),
-                                                         newPaymentTransactionModelDao,
-                                                         paymentTransactionInfoPlugin,
-                                                         isApiPayment,
-                                                         internalTenantContext);
-                if (hasChanged) {
-                    newPaymentModelDao = paymentDao.getPayment(newPaymentModelDao.getId(), internalTenantContext);
-                    newPaymentTransactionModelDao = paymentDao.getPaymentTransaction(newPaymentTransactionModelDao.getId(), internalTenantContext);
-                }
+                hasChanged = invokeJanitor(curPaymentModelDao.getAccountId(),
+                                           curPaymentTransactionModelDao,
+                                           paymentTransactionInfoPlugin,
+                                           isApiPayment,
+                                           internalTenantContext) || hasChanged;
             } else {
                 log.debug("Unable to find transaction={} from pluginTransactions={}", curPaymentTransactionModelDao, pluginTransactions);
             }
+        }
 
-            transactionsModelDao.add(newPaymentTransactionModelDao);
+        if (!hasChanged) {
+            return curPaymentModelDao;
+        }
+
+        paymentTransactionInfoPluginCache.invalidate(curPaymentModelDao.getId());
+
+        // Re-read the payment and its transactions once, after all the updates
+        final PaymentModelDao newPaymentModelDao = paymentDao.getPayment(curPaymentModelDao.getId(), internalTenantContext);
+        final Map<UUID, PaymentTransactionModelDao> newTransactionsModelDao = paymentDao.getTransactionsForPayment(curPaymentModelDao.getId(), internalTenantContext)
+                                                                                        .stream()
+                                                                                        .collect(Collectors.toMap(PaymentTransactionModelDao::getId, paymentTransactionModelDao -> paymentTransactionModelDao));
+        final Collection<PaymentTransactionModelDao> transactionsModelDao = new LinkedList<>();
+        for (final PaymentTransactionModelDao curPaymentTransactionModelDao : curTransactionsModelDao) {
+            transactionsModelDao.add(newTransactionsModelDao.getOrDefault(curPaymentTransactionModelDao.getId(), curPaymentTransactionModelDao));
         }
 
         curTransactionsModelDao.clear();
@@ -161,15 +176,26 @@ public class PaymentRefresher extends ProcessorBase {
     }
 
     private PaymentTransactionInfoPlugin findPaymentTransactionInfoPlugin(final PaymentTransactionModelDao paymentTransactionModelDao,
-                                                                          @Nullable final Iterable<PaymentTransactionInfoPlugin> pluginTransactions) {
+                                                                          @Nullable final Map<UUID, PaymentTransactionInfoPlugin> pluginTransactionsByTransactionId) {
+        if (pluginTransactionsByTransactionId == null) {
+            return null;
+        }
+        return pluginTransactionsByTransactionId.get(paymentTransactionModelDao.getId());
+    }
+
+    // Index the plugin transactions once per payment, instead of a linear search per transaction (first match wins, as before)
+    private static Map<UUID, PaymentTransactionInfoPlugin> indexByTransactionId(@Nullable final Iterable<PaymentTransactionInfoPlugin> pluginTransactions) {
         if (pluginTransactions == null) {
             return null;
         }
 
-        return Iterables.toStream(pluginTransactions)
-                        .filter(plugin -> paymentTransactionModelDao.getId().equals(plugin.getKbTransactionPaymentId()))
-                        .findFirst()
-                        .orElse(null);
+        final Map<UUID, PaymentTransactionInfoPlugin> pluginTransactionsByTransactionId = new HashMap<>();
+        for (final PaymentTransactionInfoPlugin pluginTransaction : pluginTransactions) {
+            if (pluginTransaction.getKbTransactionPaymentId() != null) {
+                pluginTransactionsByTransactionId.putIfAbsent(pluginTransaction.getKbTransactionPaymentId(), pluginTransaction);
+            }
+        }
+        return pluginTransactionsByTransactionId;
     }
 
     public List<Payment> getAccountPayments(final UUID accountId,
@@ -178,32 +204,100 @@ public class PaymentRefresher extends ProcessorBase {
                                             final boolean isApiPayment,
                                             final TenantContext context,
                                             final InternalTenantContext tenantContext) throws PaymentApiException {
+        final List<PaymentAndTransactionModelDao> accountPaymentSummaries = paymentDao.getAccountPaymentSummaries(tenantContext);
+        if (accountPaymentSummaries != null) {
+            return toAccountPayments(accountPaymentSummaries, withPluginInfo, withAttempts, isApiPayment, context, tenantContext);
+        }
+
         final List<PaymentModelDao> paymentsModelDao = paymentDao.getPaymentsForAccount(accountId, tenantContext);
-        final List<PaymentTransactionModelDao> transactionsModelDao = paymentDao.getTransactionsForAccount(accountId, tenantContext);
+        return toAccountPayments(paymentsModelDao, getTransactionsByPaymentId(accountId, tenantContext), withPluginInfo, withAttempts, isApiPayment, context, tenantContext);
+    }
+
+    // Keyset paging on the payment number: the next limit payments of the account, read from the pre-joined summaries when available
+    public List<Payment> getAccountPayments(final UUID accountId,
+                                            @Nullable final Long afterPaymentNumber,
+                                            final int limit,
+                                            final boolean withPluginInfo,
+                                            final boolean withAttempts,
+                                            final boolean isApiPayment,
+                                            final TenantContext context,
+                                            final InternalTenantContext tenantContext) throws PaymentApiException {
+        if (limit <= 0) {
+            throw new PaymentApiException(ErrorCode.PAYMENT_INVALID_PARAMETER, "limit", "should be positive");
+        }
+        final List<PaymentAndTransactionModelDao> accountPaymentSummaries = paymentDao.getAccountPaymentSummaries(afterPaymentNumber, limit, tenantContext);
+        if (accountPaymentSummaries != null) {
+            return toAccountPayments(accountPaymentSummaries, withPluginInfo, withAttempts, isApiPayment, context, tenantContext);
+        }
+
+        // Summaries not available: same page, out of all the payments of the account
+        final List<PaymentModelDao> paymentsModelDao = paymentDao.getPaymentsForAccount(accountId, tenantContext)
+                                                                 .stream()
+                                                                 .filter(paymentModelDao -> afterPaymentNumber == null || paymentModelDao.getPaymentNumber() > afterPaymentNumber)
+                                                                 .sorted(Comparator.comparing(PaymentModelDao::getPaymentNumber))
+                                                                 .limit(limit)
+                                                                 .collect(Collectors.toUnmodifiableList());
+        return toAccountPayments(paymentsModelDao, getTransactionsByPaymentId(accountId, tenantContext), withPluginInfo, withAttempts, isApiPayment, context, tenantContext);
+    }
 
+    private Map<UUID, List<PaymentTransactionModelDao>> getTransactionsByPaymentId(final UUID accountId, final InternalTenantContext tenantContext) {
+        return paymentDao.getTransactionsForAccount(accountId, tenantContext)
+                         .stream()
+                         .collect(Collectors.groupingBy(PaymentTransactionModelDao::getPaymentId));
+    }
+
+    private List<Payment> toAccountPayments(final Iterable<PaymentAndTransactionModelDao> accountPaymentSummaries,
+                                            final boolean withPluginInfo,
+                                            final boolean withAttempts,
+                                            final boolean isApiPayment,
+                                            final TenantContext context,
+                                            final InternalTenantContext tenantContext) {
+        // Rows are sorted by payment: keep that order
+        final Map<UUID, PaymentModelDao> paymentsModelDao = new LinkedHashMap<>();
+        final Map<UUID, List<PaymentTransactionModelDao>> transactionsByPaymentId = new HashMap<>();
+        for (final PaymentAndTransactionModelDao accountPaymentSummary : accountPaymentSummaries) {
+            final PaymentModelDao paymentModelDao = accountPaymentSummary.getPaymentModelDao();
+            paymentsModelDao.putIfAbsent(paymentModelDao.getId(), paymentModelDao);
+            transactionsByPaymentId.computeIfAbsent(paymentModelDao.getId(), paymentId -> new LinkedList<>()).add(accountPaymentSummary.getPaymentTransactionModelDao());
+        }
+
+        return toAccountPayments(List.copyOf(paymentsModelDao.values()), transactionsByPaymentId, withPluginInfo, withAttempts, isApiPayment, context, tenantContext);
+    }
+
+    private List<Payment> toAccountPayments(final List<PaymentModelDao> paymentsModelDao,
+                                            final Map<UUID, List<PaymentTransactionModelDao>> transactionsByPaymentId,
+                                            final boolean withPluginInfo,
+                                            final boolean withAttempts,
+                                            final boolean isApiPayment,
+                                            final TenantContext context,
+                                            final InternalTenantContext tenantContext) {
         final Map<UUID, PaymentPluginApi> paymentPluginByPaymentMethodId = new HashMap<>();
+        final Map<UUID, String> pluginNameByPaymentMethodId = new HashMap<>();
         final Collection<UUID> absentPlugins = new HashSet<>();
         final List<Payment> transformedPayments = paymentsModelDao
                 .stream()
                 .map(paymentModelDao -> {
+                    final List<PaymentTransactionModelDao> transactionsForPayment = transactionsByPaymentId.getOrDefault(paymentModelDao.getId(), Collections.emptyList());
                     List<PaymentTransactionInfoPlugin> pluginInfo = null;
 
                     if (withPluginInfo) {
                         PaymentPluginApi pluginApi = paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
                         if (pluginApi == null && !absentPlugins.contains(paymentModelDao.getPaymentMethodId())) {
                             try {
-                                pluginApi = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), true, tenantContext);
+                                final PaymentMethodModelDao paymentMethodModelDao = getPaymentMethodById(paymentModelDao.getPaymentMethodId(), true, tenantContext);
+                                pluginApi = getPaymentPluginApi(paymentMethodModelDao.getPluginName());
                                 paymentPluginByPaymentMethodId.put(paymentModelDao.getPaymentMethodId(), pluginApi);
+                                pluginNameByPaymentMethodId.put(paymentModelDao.getPaymentMethodId(), paymentMethodModelDao.getPluginName());
                             } catch (final PaymentApiException e) {
                                 log.warn("Unable to retrieve pluginApi for payment method " + paymentModelDao.getPaymentMethodId());
                                 absentPlugins.add(paymentModelDao.getPaymentMethodId());
                             }
                         }
 
-                        pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, context);
+                        pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginNameByPaymentMethodId.get(paymentModelDao.getPaymentMethodId()), pluginApi, paymentModelDao, transactionsForPayment, context);
                     }
 
-                    return toPayment(paymentModelDao, transactionsModelDao, pluginInfo, withAttempts, isApiPayment, tenantContext);
+                    return toPayment(paymentModelDao, transactionsForPayment, pluginInfo, withAttempts, isApiPayment, tenantContext);
                 }).collect(Collectors.toUnmodifiableList());
 
         // Copy the transformed list, so the transformation function is applied once (otherwise, the Janitor could be invoked multiple times)
@@ -454,10 +548,14 @@ public class PaymentRefresher extends ProcessorBase {
                               final Iterable<PluginProperty> properties,
                               final TenantContext context,
                               final InternalTenantContext tenantContext) throws PaymentApiException {
-        final PaymentPluginApi plugin = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), true, tenantContext);
-        final List<PaymentTransactionInfoPlugin> pluginTransactions = withPluginInfo ? getPaymentTransactionInfoPlugins(plugin, paymentModelDao, properties, context) : null;
+        final PaymentMethodModelDao paymentMethodModelDao = getPaymentMethodById(paymentModelDao.getPaymentMethodId(), true, tenantContext);
+        final PaymentPluginApi plugin = getPaymentPluginApi(paymentMethodModelDao.getPluginName());
 
-        return toPayment(paymentModelDao, pluginTransactions, withAttempts, isApiPayment, tenantContext);
+        final InternalTenantContext tenantContextWithAccountRecordId = getInternalTenantContextWithAccountRecordId(paymentModelDao.getAccountId(), tenantContext);
+        final List<PaymentTransactionModelDao> transactionsForPayment = paymentDao.getTransactionsForPayment(paymentModelDao.getId(), tenantContextWithAccountRecordId);
+        final List<PaymentTransactionInfoPlugin> pluginTransactions = withPluginInfo ? getPaymentTransactionInfoPlugins(paymentMethodModelDao.getPluginName(), plugin, paymentModelDao, transactionsForPayment, properties, context) : null;
+
+        return toPayment(paymentModelDao, transactionsForPayment, pluginTransactions, withAttempts, isApiPayment, tenantContextWithAccountRecordId);
     }
 
     private Payment toPayment(final PaymentModelDao paymentModelDao,
@@ -488,9 +586,10 @@ public class PaymentRefresher extends ProcessorBase {
             invokeJanitor(curPaymentModelDao, transactionsModelDao, pluginTransactions, isApiPayment, internalTenantContext);
         }
 
+        final Map<UUID, PaymentTransactionInfoPlugin> pluginTransactionsByTransactionId = indexByTransactionId(pluginTransactions);
         final Collection<PaymentTransaction> transactions = new LinkedList<PaymentTransaction>();
         for (final PaymentTransactionModelDao newPaymentTransactionModelDao : transactionsModelDao) {
-            final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = findPaymentTransactionInfoPlugin(newPaymentTransactionModelDao, pluginTransactions);
+            final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = findPaymentTransactionInfoPlugin(newPaymentTransactionModelDao, pluginTransactionsByTransactionId);
             final PaymentTransaction transaction = new DefaultPaymentTransaction(newPaymentTransactionModelDao.getId(),
                                                                                  newPaymentTransactionModelDao.getAttemptId(),
                                                                                  newPaymentTransactionModelDao.getTransactionExternalKey(),
@@ -621,7 +720,25 @@ public class PaymentRefresher extends ProcessorBase {
         return tenantContextWithAccountRecordId;
     }
 
-    // Used in bulk get API (getAccountPayments / getPayments)
+    // Used in bulk get API (getAccountPayments)
+    private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPluginsIfNeeded(@Nullable final String pluginName,
+                                                                                        @Nullable final PaymentPluginApi pluginApi,
+                                                                                        final PaymentModelDao paymentModelDao,
+                                                                                        final Collection<PaymentTransactionModelDao> paymentTransactions,
+                                                                                        final TenantContext context) {
+        if (pluginApi == null) {
+            return null;
+        }
+
+        try {
+            return getPaymentTransactionInfoPlugins(pluginName, pluginApi, paymentModelDao, paymentTransactions, PLUGIN_PROPERTIES, context);
+        } catch (final PaymentApiException e) {
+            log.warn("Unable to retrieve plugin info for payment " + paymentModelDao.getId());
+            return null;
+        }
+    }
+
+    // Used in bulk get API (getPayments)
     private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPluginsIfNeeded(@Nullable final PaymentPluginApi pluginApi, final PaymentModelDao paymentModelDao, final TenantContext context) {
         if (pluginApi == null) {
             return null;
@@ -635,6 +752,29 @@ public class PaymentRefresher extends ProcessorBase {
         }
     }
 
+    // Used in GET APIs: the plugin isn't called again if the cached information is fresh enough for the current transaction statuses
+    // (plugin properties bypass the cache, as they could alter the plugin response)
+    private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPlugins(final String pluginName,
+                                                                                final PaymentPluginApi plugin,
+                                                                                final PaymentModelDao paymentModelDao,
+                                                                                final Collection<PaymentTransactionModelDao> paymentTransactions,
+                                                                                @Nullable final Iterable<PluginProperty> properties,
+                                                                                final TenantContext context) throws PaymentApiException {
+        final boolean isCacheable = properties == null || !properties.iterator().hasNext();
+        if (isCacheable) {
+            final List<PaymentTransactionInfoPlugin> cachedPaymentTransactionInfoPlugins = paymentTransactionInfoPluginCache.getPaymentTransactionInfoPlugins(pluginName, paymentModelDao.getId(), paymentTransactions);
+            if (cachedPaymentTransactionInfoPlugins != null) {
+                return cachedPaymentTransactionInfoPlugins;
+            }
+        }
+
+        final List<PaymentTransactionInfoPlugin> paymentTransactionInfoPlugins = getPaymentTransactionInfoPlugins(plugin, paymentModelDao, properties, context);
+        if (isCacheable) {
+            paymentTransactionInfoPluginCache.putPaymentTransactionInfoPlugins(pluginName, paymentModelDao.getId(), paymentTransactions, paymentTransactionInfoPlugins);
+        }
+        return paymentTransactionInfoPlugins;
+    }
+
     List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPlugins(final PaymentPluginApi plugin, final PaymentModelDao paymentModelDao, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentApiException {
         try {
             return plugin.getPaymentInfo(paymentModelDao.getAccountId(), paymentModelDao.getId(), properties, context);
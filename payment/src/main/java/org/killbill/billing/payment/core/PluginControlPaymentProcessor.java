@@ -21,7 +21,9 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -47,6 +49,7 @@ import org.killbill.billing.payment.core.sm.PluginControlPaymentAutomatonRunner;
 import org.killbill.billing.payment.core.sm.PluginControlPaymentAutomatonRunner.ControlOperation;
 import org.killbill.billing.payment.dao.PaymentAttemptModelDao;
 import org.killbill.billing.payment.dao.PaymentDao;
+import org.killbill.billing.payment.dao.PaymentMethodModelDao;
 import org.killbill.billing.payment.dao.PaymentModelDao;
 import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
 import org.killbill.billing.payment.dao.PluginPropertySerializer;
@@ -280,6 +283,58 @@ public class PluginControlPaymentProcessor extends ProcessorBase {
                                                           internalCallContext);
     }
 
+    // Payment plugin the attempt will be dispatched to (null if it cannot be determined)
+    @Nullable
+    public String getPaymentPluginNameForAttempt(final UUID attemptId, final InternalCallContext internalCallContext) {
+        try {
+            final PaymentAttemptModelDao attempt = paymentDao.getPaymentAttempt(attemptId, internalCallContext);
+            if (attempt == null) {
+                return null;
+            }
+
+            final UUID paymentMethodId = attempt.getPaymentMethodId() != null ? attempt.getPaymentMethodId() : accountInternalApi.getAccountById(attempt.getAccountId(), internalCallContext).getPaymentMethodId();
+            if (paymentMethodId == null) {
+                return null;
+            }
+            final PaymentMethodModelDao paymentMethodModelDao = paymentDao.getPaymentMethodIncludedDeleted(paymentMethodId, internalCallContext);
+            return paymentMethodModelDao != null ? paymentMethodModelDao.getPluginName() : null;
+        } catch (final AccountApiException e) {
+            log.warn("Failed to retrieve the payment plugin for attemptId='{}'", attemptId, e);
+            return null;
+        }
+    }
+
+    // Payment plugins the attempts of the account will be dispatched to, resolved at once (attempts for which it cannot be determined are left out)
+    public Map<UUID, String> getPaymentPluginNamesForAttempts(final Collection<UUID> attemptIds, final InternalCallContext internalCallContext) {
+        final Map<UUID, String> pluginNamePerPaymentMethodId = new HashMap<UUID, String>();
+        for (final PaymentMethodModelDao paymentMethodModelDao : paymentDao.getPaymentMethodsIncludedDeleted(internalCallContext)) {
+            pluginNamePerPaymentMethodId.put(paymentMethodModelDao.getId(), paymentMethodModelDao.getPluginName());
+        }
+
+        final Map<UUID, String> pluginNamePerAttemptId = new HashMap<UUID, String>();
+        UUID defaultPaymentMethodId = null;
+        for (final PaymentAttemptModelDao attempt : paymentDao.getPaymentAttempts(attemptIds, internalCallContext)) {
+            UUID paymentMethodId = attempt.getPaymentMethodId();
+            if (paymentMethodId == null) {
+                if (defaultPaymentMethodId == null) {
+                    try {
+                        defaultPaymentMethodId = accountInternalApi.getAccountById(attempt.getAccountId(), internalCallContext).getPaymentMethodId();
+                    } catch (final AccountApiException e) {
+                        log.warn("Failed to retrieve the payment plugin for attemptId='{}'", attempt.getId(), e);
+                        continue;
+                    }
+                }
+                paymentMethodId = defaultPaymentMethodId;
+            }
+
+            final String pluginName = paymentMethodId != null ? pluginNamePerPaymentMethodId.get(paymentMethodId) : null;
+            if (pluginName != null) {
+                pluginNamePerAttemptId.put(attempt.getId(), pluginName);
+            }
+        }
+        return pluginNamePerAttemptId;
+    }
+
     public void retryPaymentTransaction(final UUID attemptId, final List<String> paymentControlPluginNames, final InternalCallContext internalCallContext) {
         final PaymentAttemptModelDao attempt = paymentDao.getPaymentAttempt(attemptId, internalCallContext);
         log.info("Retrying attemptId='{}', paymentExternalKey='{}', transactionExternalKey='{}'. paymentControlPluginNames='{}'",
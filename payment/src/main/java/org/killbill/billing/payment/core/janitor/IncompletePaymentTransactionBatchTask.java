@@ -0,0 +1,387 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core.janitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.core.PaymentExecutors;
+import org.killbill.billing.payment.core.PaymentPluginServiceRegistration;
+import org.killbill.billing.payment.dao.PaymentDao;
+import org.killbill.billing.payment.dao.PaymentModelDao;
+import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.billing.util.globallocker.LockerType;
+import org.killbill.clock.Clock;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
+import org.killbill.commons.metrics.api.Gauge;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.killbill.billing.payment.core.janitor.IncompletePaymentTransactionTask.TRANSACTION_STATUSES_TO_CONSIDER;
+
+// Batch reconciliation of incomplete (PENDING or UNKNOWN) transactions, scheduled at the janitor rate when enabled.
+// As opposed to the janitor notifications (one plugin call per transaction, on a single thread), incomplete transactions
+// are fetched in batches across tenants (as many batches per run as org.killbill.payment.janitor.batch.maxRunTime allows, on a single node at a time)
+// and grouped by account (one task per account on the janitor batch executor) and by payment (a single getPaymentInfo call returns all the
+// transactions of a payment). Calls to a given plugin are limited (org.killbill.payment.janitor.batch.maxConcurrentCallsPerPlugin) and a plugin
+// which keeps failing is skipped until the next run.
+public class IncompletePaymentTransactionBatchTask implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(IncompletePaymentTransactionBatchTask.class);
+
+    private static final String PROP_METRIC_REG_JANITOR_BATCH = "payment.janitor.batch.";
+
+    private static final String PAYMENT_JANITOR_BATCH_LOCK_KEY = "PAYMENT_JANITOR_BATCH";
+    private static final String PAYMENT_JANITOR_BATCH_CURSOR_NAME = PAYMENT_JANITOR_BATCH_LOCK_KEY;
+
+    // Consecutive getPaymentInfo failures after which the plugin is considered down for the rest of the run
+    private static final int MAX_CONSECUTIVE_PLUGIN_ERRORS = 10;
+
+    private final PaymentConfig paymentConfig;
+    private final Clock clock;
+    private final PaymentDao paymentDao;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final PaymentPluginServiceRegistration paymentPluginServiceRegistration;
+    private final IncompletePaymentAttemptTask incompletePaymentAttemptTask;
+    private final PaymentExecutors paymentExecutors;
+    private final GlobalLocker locker;
+
+    // Progress of the current (or last) run
+    private final AtomicLong pendingTransactions = new AtomicLong();
+    private final AtomicLong lastRunThroughput = new AtomicLong();
+    // Cumulative counters
+    private final AtomicLong processedTransactions = new AtomicLong();
+    private final AtomicLong repairedTransactions = new AtomicLong();
+    private final AtomicLong pluginCallErrors = new AtomicLong();
+
+    private volatile boolean isStopped;
+
+    @Inject
+    public IncompletePaymentTransactionBatchTask(final InternalCallContextFactory internalCallContextFactory,
+                                                 final PaymentConfig paymentConfig,
+                                                 final PaymentDao paymentDao,
+                                                 final Clock clock,
+                                                 final PaymentPluginServiceRegistration paymentPluginServiceRegistration,
+                                                 final IncompletePaymentAttemptTask incompletePaymentAttemptTask,
+                                                 final PaymentExecutors paymentExecutors,
+                                                 final GlobalLocker locker,
+                                                 final MetricRegistry metricRegistry) {
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.paymentConfig = paymentConfig;
+        this.paymentDao = paymentDao;
+        this.clock = clock;
+        this.paymentPluginServiceRegistration = paymentPluginServiceRegistration;
+        this.incompletePaymentAttemptTask = incompletePaymentAttemptTask;
+        this.paymentExecutors = paymentExecutors;
+        this.locker = locker;
+        this.isStopped = false;
+
+        final Gauge<Object> pending = pendingTransactions::get;
+        final Gauge<Object> throughput = lastRunThroughput::get;
+        final Gauge<Object> processed = processedTransactions::get;
+        final Gauge<Object> repaired = repairedTransactions::get;
+        final Gauge<Object> errors = pluginCallErrors::get;
+        metricRegistry.gauge(PROP_METRIC_REG_JANITOR_BATCH + "pending", pending);
+        metricRegistry.gauge(PROP_METRIC_REG_JANITOR_BATCH + "throughput", throughput);
+        metricRegistry.gauge(PROP_METRIC_REG_JANITOR_BATCH + "processed", processed);
+        metricRegistry.gauge(PROP_METRIC_REG_JANITOR_BATCH + "repaired", repaired);
+        metricRegistry.gauge(PROP_METRIC_REG_JANITOR_BATCH + "pluginErrors", errors);
+    }
+
+    synchronized void start() {
+        this.isStopped = false;
+    }
+
+    synchronized void stop() {
+        this.isStopped = true;
+    }
+
+    @Override
+    public void run() {
+        if (isStopped) {
+            log.info("Janitor was requested to stop");
+            return;
+        }
+
+        // The reconciliation runs across tenants: one node at a time, so that the per plugin limits hold for the whole cluster
+        final GlobalLock lock;
+        try {
+            lock = locker.lockWithNumberOfTries(LockerType.PAYMENT_JANITOR_BATCH.toString(), PAYMENT_JANITOR_BATCH_LOCK_KEY, 1);
+        } catch (final LockFailedException e) {
+            log.debug("Skipping janitor batch reconciliation, already in progress on another node");
+            return;
+        }
+
+        try {
+            processBatches();
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Batches are processed until the end is reached or org.killbill.payment.janitor.batch.maxRunTime has elapsed. The record id of the last
+    // transaction looked at (0 to start over) is persisted after each batch: the next run resumes from there, on whichever node gets the lock
+    private void processBatches() {
+        final long startNanos = System.nanoTime();
+        final long maxRunTimeNanos = TimeUnit.MILLISECONDS.toNanos(paymentConfig.getJanitorBatchMaxRunTime().getMillis());
+        final long processedBefore = processedTransactions.get();
+        final long repairedBefore = repairedTransactions.get();
+
+        final DateTime now = clock.getUTCNow();
+        final DateTime createdBefore = now.minus(paymentConfig.getJanitorBatchDelay().getMillis());
+        final DateTime createdAfter = now.minus(paymentConfig.getJanitorBatchMaxAge().getMillis());
+        final int batchSize = paymentConfig.getJanitorBatchSize();
+        final Map<String, PluginThrottle> pluginThrottles = new ConcurrentHashMap<String, PluginThrottle>();
+
+        long lastRecordId = paymentDao.getJanitorBatchCursor(PAYMENT_JANITOR_BATCH_CURSOR_NAME);
+        if (lastRecordId == 0L) {
+            pendingTransactions.set(paymentDao.getCountByTransactionStatusAcrossTenants(TRANSACTION_STATUSES_TO_CONSIDER, createdBefore, createdAfter));
+        }
+
+        int nbUnresolved = 0;
+        while (!isStopped) {
+            // Keyset pagination: repaired transactions drop out of the result set, the other ones don't shift the next batches
+            final List<PaymentTransactionModelDao> transactions = paymentDao.getByTransactionStatusAcrossTenantsAfterRecordId(TRANSACTION_STATUSES_TO_CONSIDER, createdBefore, createdAfter, lastRecordId, (long) batchSize);
+            if (!transactions.isEmpty()) {
+                nbUnresolved += processTransactions(transactions, pluginThrottles);
+            }
+            if (isStopped) {
+                // Interrupted batch: it will be looked at again
+                break;
+            }
+
+            // Start over during the next run once we've reached the end
+            final long nextRecordId = transactions.size() < batchSize ? 0L : transactions.get(transactions.size() - 1).getRecordId();
+            if (nextRecordId != lastRecordId) {
+                paymentDao.updateJanitorBatchCursor(PAYMENT_JANITOR_BATCH_CURSOR_NAME, nextRecordId);
+                lastRecordId = nextRecordId;
+            }
+            if (lastRecordId == 0L || System.nanoTime() - startNanos >= maxRunTimeNanos) {
+                break;
+            }
+        }
+
+        final long processed = processedTransactions.get() - processedBefore;
+        final long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        lastRunThroughput.set(processed * 1000 / elapsedMs);
+        if (lastRecordId == 0L) {
+            pendingTransactions.set(0);
+        }
+        if (processed > 0) {
+            log.info("Janitor batch reconciliation: processed {} transactions ({} repaired, {} still incomplete) in {} ms",
+                     processed, repairedTransactions.get() - repairedBefore, nbUnresolved, elapsedMs);
+        }
+    }
+
+    // Return the number of transactions which are still incomplete
+    private int processTransactions(final Iterable<PaymentTransactionModelDao> transactions, final Map<String, PluginThrottle> pluginThrottles) {
+        final Map<Long, List<PaymentTransactionModelDao>> transactionsPerAccount = new LinkedHashMap<Long, List<PaymentTransactionModelDao>>();
+        for (final PaymentTransactionModelDao transaction : transactions) {
+            transactionsPerAccount.computeIfAbsent(transaction.getAccountRecordId(), accountRecordId -> new LinkedList<PaymentTransactionModelDao>()).add(transaction);
+        }
+
+        final List<Future<Integer>> futures = new ArrayList<Future<Integer>>(transactionsPerAccount.size());
+        for (final List<PaymentTransactionModelDao> accountTransactions : transactionsPerAccount.values()) {
+            final Callable<Integer> task = () -> processAccountTransactions(accountTransactions, pluginThrottles);
+            futures.add(paymentExecutors.getJanitorBatchExecutorService().submit(task));
+        }
+
+        int nbUnresolved = 0;
+        final Iterator<List<PaymentTransactionModelDao>> accountTransactionsIterator = transactionsPerAccount.values().iterator();
+        for (final Future<Integer> future : futures) {
+            final List<PaymentTransactionModelDao> accountTransactions = accountTransactionsIterator.next();
+            try {
+                nbUnresolved += future.get();
+                pendingTransactions.updateAndGet(value -> Math.max(0, value - accountTransactions.size()));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Janitor batch reconciliation got interrupted");
+                stop();
+                return nbUnresolved;
+            } catch (final ExecutionException e) {
+                log.warn("Error during Janitor batch reconciliation for accountRecordId='{}'", accountTransactions.get(0).getAccountRecordId(), e.getCause());
+                nbUnresolved += accountTransactions.size();
+            }
+        }
+        return nbUnresolved;
+    }
+
+    private int processAccountTransactions(final List<PaymentTransactionModelDao> accountTransactions, final Map<String, PluginThrottle> pluginThrottles) {
+        final PaymentTransactionModelDao firstTransaction = accountTransactions.get(0);
+        final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContext(firstTransaction.getTenantRecordId(), firstTransaction.getAccountRecordId());
+        final TenantContext tenantContext = internalCallContextFactory.createTenantContext(internalTenantContext);
+
+        // A single getPaymentInfo call returns all the transactions of a payment
+        final Map<UUID, List<PaymentTransactionModelDao>> transactionsPerPayment = new LinkedHashMap<UUID, List<PaymentTransactionModelDao>>();
+        for (final PaymentTransactionModelDao transaction : accountTransactions) {
+            transactionsPerPayment.computeIfAbsent(transaction.getPaymentId(), paymentId -> new LinkedList<PaymentTransactionModelDao>()).add(transaction);
+        }
+
+        int nbUnresolved = 0;
+        for (final Map.Entry<UUID, List<PaymentTransactionModelDao>> entry : transactionsPerPayment.entrySet()) {
+            if (isStopped) {
+                nbUnresolved += entry.getValue().size();
+                continue;
+            }
+            nbUnresolved += processPaymentTransactions(entry.getKey(), entry.getValue(), pluginThrottles, internalTenantContext, tenantContext);
+        }
+        return nbUnresolved;
+    }
+
+    private int processPaymentTransactions(final UUID paymentId,
+                                           final List<PaymentTransactionModelDao> paymentTransactions,
+                                           final Map<String, PluginThrottle> pluginThrottles,
+                                           final InternalTenantContext internalTenantContext,
+                                           final TenantContext tenantContext) {
+        final PaymentModelDao payment = paymentDao.getPayment(paymentId, internalTenantContext);
+
+        final List<PaymentTransactionInfoPlugin> paymentTransactionInfoPlugins;
+        try {
+            final String pluginName = paymentPluginServiceRegistration.getPaymentMethodById(payment.getPaymentMethodId(), true, internalTenantContext).getPluginName();
+            final PluginThrottle pluginThrottle = pluginThrottles.computeIfAbsent(pluginName, name -> new PluginThrottle(name, paymentConfig.getJanitorBatchMaxConcurrentCallsPerPlugin()));
+            final PaymentPluginApi paymentPluginApi = paymentPluginServiceRegistration.getPaymentPluginApi(pluginName);
+            paymentTransactionInfoPlugins = pluginThrottle.getPaymentInfo(paymentPluginApi, payment, tenantContext);
+        } catch (final PaymentApiException e) {
+            log.warn("Unable to retrieve plugin for paymentId='{}'", paymentId, e);
+            return paymentTransactions.size();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return paymentTransactions.size();
+        }
+
+        if (paymentTransactionInfoPlugins == null) {
+            // Plugin down
+            return paymentTransactions.size();
+        }
+
+        int nbUnresolved = 0;
+        for (final PaymentTransactionModelDao paymentTransaction : paymentTransactions) {
+            processedTransactions.incrementAndGet();
+
+            final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = paymentTransactionInfoPlugins.stream()
+                                                                                                          .filter(input -> paymentTransaction.getId().equals(input.getKbTransactionPaymentId()))
+                                                                                                          .findFirst()
+                                                                                                          .orElse(null);
+            if (paymentTransactionInfoPlugin == null) {
+                // Nothing more to learn from the plugin (see IncompletePaymentTransactionTask#getLatestPaymentTransactionInfoPlugin)
+                nbUnresolved++;
+                continue;
+            }
+
+            // Same path as the on-the-fly Janitor (the transaction is re-read under the account lock, and the attempt is completed if needed).
+            // Like for the attempt completion loop, isApiPayment=false might not always be correct here
+            final boolean hasChanged = incompletePaymentAttemptTask.updatePaymentAndTransactionIfNeeded(payment.getAccountId(),
+                                                                                                       paymentTransaction.getId(),
+                                                                                                       paymentTransaction.getTransactionStatus(),
+                                                                                                       paymentTransactionInfoPlugin,
+                                                                                                       false,
+                                                                                                       internalTenantContext);
+            if (hasChanged) {
+                repairedTransactions.incrementAndGet();
+            } else {
+                nbUnresolved++;
+            }
+        }
+        return nbUnresolved;
+    }
+
+    @VisibleForTesting
+    public long getProcessedTransactions() {
+        return processedTransactions.get();
+    }
+
+    @VisibleForTesting
+    public long getRepairedTransactions() {
+        return repairedTransactions.get();
+    }
+
+    // Back-pressure against a given gateway, for the duration of a run
+    private final class PluginThrottle {
+
+        private final String pluginName;
+        private final Semaphore permits;
+        private final AtomicInteger consecutiveErrors = new AtomicInteger();
+
+        PluginThrottle(final String pluginName, final int maxConcurrentCalls) {
+            this.pluginName = pluginName;
+            this.permits = new Semaphore(maxConcurrentCalls, true);
+        }
+
+        // Return null if the plugin is considered down
+        List<PaymentTransactionInfoPlugin> getPaymentInfo(final PaymentPluginApi paymentPluginApi,
+                                                          final PaymentModelDao payment,
+                                                          final TenantContext tenantContext) throws InterruptedException {
+            if (isDown()) {
+                return null;
+            }
+
+            permits.acquire();
+            try {
+                if (isDown()) {
+                    return null;
+                }
+
+                final List<PaymentTransactionInfoPlugin> result = paymentPluginApi.getPaymentInfo(payment.getAccountId(), payment.getId(), Collections.emptyList(), tenantContext);
+                consecutiveErrors.set(0);
+                return result;
+            } catch (final Exception e) {
+                pluginCallErrors.incrementAndGet();
+                if (consecutiveErrors.incrementAndGet() == MAX_CONSECUTIVE_PLUGIN_ERRORS) {
+                    log.warn("Janitor batch reconciliation: too many errors for plugin='{}', skipping it until the next run", pluginName, e);
+                } else {
+                    log.debug("Janitor batch reconciliation: error retrieving paymentId='{}' from plugin='{}'", payment.getId(), pluginName, e);
+                }
+                return null;
+            } finally {
+                permits.release();
+            }
+        }
+
+        boolean isDown() {
+            return consecutiveErrors.get() >= MAX_CONSECUTIVE_PLUGIN_ERRORS;
+        }
+    }
+}
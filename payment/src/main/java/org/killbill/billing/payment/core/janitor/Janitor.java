@@ -55,18 +55,22 @@ public class Janitor {
     private final PaymentExecutors paymentExecutors;
 
     private final IncompletePaymentAttemptTask incompletePaymentAttemptTask;
+    private final IncompletePaymentTransactionBatchTask incompletePaymentTransactionBatchTask;
     private NotificationQueue janitorQueue;
     private ScheduledExecutorService janitorExecutor;
+    private ScheduledExecutorService janitorBatchSchedulerExecutor;
 
     private volatile boolean isStopped;
 
     @Inject
     public Janitor(final IncompletePaymentAttemptTask incompletePaymentAttemptTask,
+                   final IncompletePaymentTransactionBatchTask incompletePaymentTransactionBatchTask,
                    final GlobalLocker locker,
                    final PaymentConfig paymentConfig,
                    final NotificationQueueService notificationQueueService,
                    final PaymentExecutors paymentExecutors) {
         this.incompletePaymentAttemptTask = incompletePaymentAttemptTask;
+        this.incompletePaymentTransactionBatchTask = incompletePaymentTransactionBatchTask;
         this.notificationQueueService = notificationQueueService;
         this.paymentExecutors = paymentExecutors;
         this.paymentConfig = paymentConfig;
@@ -99,8 +103,10 @@ public class Janitor {
         this.isStopped = false;
 
         incompletePaymentAttemptTask.start();
+        incompletePaymentTransactionBatchTask.start();
 
         janitorExecutor = paymentExecutors.getJanitorExecutorService();
+        janitorBatchSchedulerExecutor = paymentExecutors.getJanitorBatchSchedulerExecutorService();
 
         janitorQueue.startQueue();
 
@@ -108,6 +114,14 @@ public class Janitor {
         final TimeUnit attemptCompletionRateUnit = paymentConfig.getJanitorRunningRate().getUnit();
         final long attemptCompletionPeriod = paymentConfig.getJanitorRunningRate().getPeriod();
         janitorExecutor.scheduleAtFixedRate(incompletePaymentAttemptTask, attemptCompletionPeriod, attemptCompletionPeriod, attemptCompletionRateUnit);
+
+        // Start task for reconciling incomplete transactions in batches, on its own scheduler so it cannot delay the attempt completion
+        // (the work itself is done by the janitor batch executor)
+        if (paymentConfig.isJanitorBatchReconciliationEnabled()) {
+            final TimeUnit batchReconciliationRateUnit = paymentConfig.getJanitorBatchRunningRate().getUnit();
+            final long batchReconciliationPeriod = paymentConfig.getJanitorBatchRunningRate().getPeriod();
+            janitorBatchSchedulerExecutor.scheduleWithFixedDelay(incompletePaymentTransactionBatchTask, batchReconciliationPeriod, batchReconciliationPeriod, batchReconciliationRateUnit);
+        }
     }
 
     public void stop() throws NoSuchNotificationQueue {
@@ -117,6 +131,7 @@ public class Janitor {
         }
 
         incompletePaymentAttemptTask.stop();
+        incompletePaymentTransactionBatchTask.stop();
 
         try {
             /* Previously submitted tasks will be executed with shutdown(); when task executes as a result of shutdown being called
@@ -125,7 +140,9 @@ public class Janitor {
              * Then, awaitTermination with a timeout is required to ensure tasks completed.
              */
             janitorExecutor.shutdown();
-            final boolean success = janitorExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS);
+            janitorBatchSchedulerExecutor.shutdown();
+            final boolean success = janitorExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS) &&
+                                    janitorBatchSchedulerExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS);
             if (!success) {
                 log.warn("Janitor failed to complete termination within " + TERMINATION_TIMEOUT_SEC + "sec");
             }
@@ -35,8 +35,6 @@ import org.killbill.automaton.OperationResult;
 import org.killbill.automaton.State;
 import org.killbill.automaton.State.EnteringStateCallback;
 import org.killbill.automaton.State.LeavingStateCallback;
-import org.killbill.automaton.StateMachine;
-import org.killbill.automaton.StateMachineConfig;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.InternalCallContext;
@@ -237,10 +235,9 @@ public class PaymentAutomatonRunner {
                                           final PaymentStateContext paymentStateContext,
                                           final PaymentAutomatonDAOHelper daoHelper) throws PaymentApiException {
         try {
-            final StateMachineConfig stateMachineConfig = paymentSMHelper.getStateMachineConfig(daoHelper.getPaymentProviderPluginName(includeDeletedPaymentMethod), paymentStateContext.getInternalCallContext());
-            final StateMachine initialStateMachine = stateMachineConfig.getStateMachineForState(initialStateName);
-            final State initialState = initialStateMachine.getState(initialStateName);
-            final Operation operation = paymentSMHelper.getOperationForTransaction(stateMachineConfig, transactionType);
+            final PaymentStateMachineTransitions transitions = paymentSMHelper.getStateMachineTransitions(daoHelper.getPaymentProviderPluginName(includeDeletedPaymentMethod), paymentStateContext.getInternalCallContext());
+            final State initialState = transitions.getState(initialStateName);
+            final Operation operation = transitions.getOperation(transactionType);
 
             initialState.runOperation(operation, operationCallback, enteringStateCallback, leavingStateCallback);
         } catch (final MissingEntryException e) {
@@ -18,6 +18,8 @@
 package org.killbill.billing.payment.core.sm;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -79,6 +81,8 @@ public class PaymentStateMachineHelper {
     private static final String CHARGEBACK_ERRORED = "CHARGEBACK_ERRORED";
 
     private final StateMachineConfigCache stateMachineConfigCache;
+    // Compiled configs, per plugin and tenant
+    private final Map<String, PaymentStateMachineTransitions> stateMachineTransitions = new ConcurrentHashMap<String, PaymentStateMachineTransitions>();
 
     public static final List<String> STATE_NAMES = List.of(AUTHORIZE_ERRORED,
                                                 AUTHORIZE_FAILED,
@@ -206,6 +210,23 @@ public class PaymentStateMachineHelper {
         return stateMachineConfigCache.getPaymentStateMachineConfig(pluginName, internalCallContext);
     }
 
+    public PaymentStateMachineTransitions getStateMachineTransitions(final String pluginName, final InternalCallContext internalCallContext) throws PaymentApiException {
+        final StateMachineConfig stateMachineConfig = getStateMachineConfig(pluginName, internalCallContext);
+
+        final String key = pluginName + "::" + internalCallContext.getTenantRecordId();
+        final PaymentStateMachineTransitions cachedTransitions = stateMachineTransitions.get(key);
+        // Same instance (local cache) or same content (e.g. config deserialized from a shared cache on each lookup)
+        if (cachedTransitions != null &&
+            (cachedTransitions.getStateMachineConfig() == stateMachineConfig ||
+             cachedTransitions.getFingerprint() == PaymentStateMachineTransitions.computeFingerprint(stateMachineConfig))) {
+            return cachedTransitions;
+        }
+
+        final PaymentStateMachineTransitions transitions = new PaymentStateMachineTransitions(stateMachineConfig, this);
+        stateMachineTransitions.put(key, transitions);
+        return transitions;
+    }
+
     public Operation getOperationForTransaction(final StateMachineConfig stateMachineConfig, final TransactionType transactionType) throws MissingEntryException {
         final StateMachine stateMachine = getStateMachineForTransaction(stateMachineConfig, transactionType);
         // Only one operation defined, this is the current PaymentStates.xml model
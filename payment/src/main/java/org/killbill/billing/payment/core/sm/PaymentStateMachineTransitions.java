@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core.sm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.killbill.automaton.LinkStateMachine;
+import org.killbill.automaton.MissingEntryException;
+import org.killbill.automaton.Operation;
+import org.killbill.automaton.State;
+import org.killbill.automaton.StateMachine;
+import org.killbill.automaton.StateMachineConfig;
+import org.killbill.automaton.Transition;
+import org.killbill.billing.payment.api.TransactionType;
+
+/**
+ * Immutable view of a payment {@link StateMachineConfig}, compiled once per config (i.e. per tenant and plugin):
+ * states are resolved by name through a single hash lookup and operations are indexed by {@link TransactionType}
+ * ordinal, instead of walking the state machines for each payment operation.
+ * <p>
+ * The table is tied to the content of the config (see {@link #computeFingerprint(StateMachineConfig)}) rather than to its instance,
+ * since config caches may hand out a new (deserialized) instance on each lookup.
+ */
+public class PaymentStateMachineTransitions {
+
+    private final StateMachineConfig stateMachineConfig;
+    private final long fingerprint;
+    private final Map<String, State> statesByName;
+    private final Operation[] operationsByTransactionType;
+
+    public PaymentStateMachineTransitions(final StateMachineConfig stateMachineConfig, final PaymentStateMachineHelper paymentSMHelper) {
+        this.stateMachineConfig = stateMachineConfig;
+        this.fingerprint = computeFingerprint(stateMachineConfig);
+
+        final Map<String, State> states = new HashMap<String, State>();
+        for (final StateMachine stateMachine : stateMachineConfig.getStateMachines()) {
+            for (final State state : stateMachine.getStates()) {
+                // Same semantics as StateMachineConfig#getStateMachineForState: first match wins
+                states.putIfAbsent(state.getName(), state);
+            }
+        }
+        this.statesByName = Collections.unmodifiableMap(states);
+
+        this.operationsByTransactionType = new Operation[TransactionType.values().length];
+        for (final TransactionType transactionType : TransactionType.values()) {
+            try {
+                operationsByTransactionType[transactionType.ordinal()] = paymentSMHelper.getOperationForTransaction(stateMachineConfig, transactionType);
+            } catch (final MissingEntryException | IllegalStateException e) {
+                // Not supported by this config: reported lazily, see getOperation
+                operationsByTransactionType[transactionType.ordinal()] = null;
+            }
+        }
+    }
+
+    public StateMachineConfig getStateMachineConfig() {
+        return stateMachineConfig;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public State getState(final String stateName) throws MissingEntryException {
+        final State state = statesByName.get(stateName);
+        if (state == null) {
+            throw new MissingEntryException("Unknown state " + stateName);
+        }
+        return state;
+    }
+
+    public Operation getOperation(final TransactionType transactionType) throws MissingEntryException {
+        final Operation operation = operationsByTransactionType[transactionType.ordinal()];
+        if (operation == null) {
+            throw new MissingEntryException("No operation defined for transaction type " + transactionType);
+        }
+        return operation;
+    }
+
+    // Hash of the names of the state machines, states, operations and transitions, which is all the compiled table depends on
+    public static long computeFingerprint(final StateMachineConfig stateMachineConfig) {
+        long fingerprint = 17L;
+        for (final StateMachine stateMachine : stateMachineConfig.getStateMachines()) {
+            fingerprint = fingerprint(fingerprint, stateMachine.getName());
+            for (final State state : stateMachine.getStates()) {
+                fingerprint = fingerprint(fingerprint, state.getName());
+            }
+            for (final Operation operation : stateMachine.getOperations()) {
+                fingerprint = fingerprint(fingerprint, operation.getName());
+            }
+            for (final Transition transition : stateMachine.getTransitions()) {
+                fingerprint = fingerprint(fingerprint, transition.getInitialState().getName());
+                fingerprint = fingerprint(fingerprint, transition.getOperation().getName());
+                fingerprint = fingerprint(fingerprint, transition.getOperationResult().name());
+                fingerprint = fingerprint(fingerprint, transition.getFinalState().getName());
+            }
+        }
+        for (final LinkStateMachine linkStateMachine : stateMachineConfig.getLinkStateMachines()) {
+            fingerprint = fingerprint(fingerprint, linkStateMachine.getInitialState().getName());
+            fingerprint = fingerprint(fingerprint, linkStateMachine.getFinalState().getName());
+        }
+        return fingerprint;
+    }
+
+    private static long fingerprint(final long fingerprint, final String value) {
+        return 31L * fingerprint + (value == null ? 0 : value.hashCode());
+    }
+}
@@ -18,12 +18,23 @@
 package org.killbill.billing.payment.core.sm.control;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import org.apache.shiro.util.ThreadContext;
 import org.joda.time.DateTime;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.DefaultCallContext;
@@ -39,26 +50,45 @@ import org.killbill.billing.control.plugin.api.PriorPaymentControlResult;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.core.PaymentExecutors;
+import org.killbill.billing.payment.dispatcher.CallableWithRequestData;
 import org.killbill.billing.payment.retry.DefaultFailureCallResult;
 import org.killbill.billing.payment.retry.DefaultOnSuccessPaymentControlResult;
 import org.killbill.billing.payment.retry.DefaultPriorPaymentControlResult;
+import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.killbill.commons.metrics.api.Timer;
+import org.killbill.commons.request.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 public class ControlPluginRunner {
 
     private static final Logger log = LoggerFactory.getLogger(ControlPluginRunner.class);
 
+    private static final String PROP_METRIC_REG_CONTROL_PLUGIN = "payment.control.plugin.";
+
     private final OSGIServiceRegistration<PaymentControlPluginApi> paymentControlPluginRegistry;
     private final PaymentConfig paymentConfig;
+    private final PaymentExecutors paymentExecutors;
+    private final MetricRegistry metricRegistry;
+    // Plugins whose onSuccessCall/onFailureCall hooks can be invoked concurrently
+    private final Set<String> pluginsWithIndependentHooks;
+    private final ConcurrentMap<String, ControlPluginTimers> controlPluginTimers = new ConcurrentHashMap<String, ControlPluginTimers>();
 
     @Inject
     public ControlPluginRunner(final OSGIServiceRegistration<PaymentControlPluginApi> paymentControlPluginRegistry,
-                              final PaymentConfig paymentConfig) {
+                               final PaymentConfig paymentConfig,
+                               final PaymentExecutors paymentExecutors,
+                               final MetricRegistry metricRegistry) {
         this.paymentControlPluginRegistry = paymentControlPluginRegistry;
         this.paymentConfig = paymentConfig;
+        this.paymentExecutors = paymentExecutors;
+        this.metricRegistry = metricRegistry;
+        this.pluginsWithIndependentHooks = new HashSet<String>(paymentConfig.getPaymentControlPluginsWithIndependentHooks());
     }
 
     public PriorPaymentControlResult executePluginPriorCalls(final Account account,
@@ -92,6 +122,12 @@ public class ControlPluginRunner {
 
         final UUID accountId = account != null ? account.getId() : null;
         for (final String controlPluginName : paymentControlPluginNames) {
+            final PaymentControlPluginApi plugin = paymentControlPluginRegistry.getServiceForName(controlPluginName);
+            if (plugin == null) {
+                // First call to plugin, we log warn, if plugin is not registered
+                log.warn("Skipping unknown payment control plugin {} when fetching results", controlPluginName);
+                continue;
+            }
 
             final PaymentControlContext inputPaymentControlContext = new DefaultPaymentControlContext(accountId,
                                                                                                       inputPaymentMethodId,
@@ -111,20 +147,23 @@ public class ControlPluginRunner {
                                                                                                       isApiPayment,
                                                                                                       callContext);
 
-            final PaymentControlPluginApi plugin = paymentControlPluginRegistry.getServiceForName(controlPluginName);
-            if (plugin == null) {
-                // First call to plugin, we log warn, if plugin is not registered
-                log.warn("Skipping unknown payment control plugin {} when fetching results", controlPluginName);
-                continue;
-            }
             log.debug("Calling priorCall of plugin {}", controlPluginName);
-            prevResult = plugin.priorCall(inputPaymentControlContext, inputPluginProperties);
+            final long startNanos = System.nanoTime();
+            try {
+                prevResult = plugin.priorCall(inputPaymentControlContext, inputPluginProperties);
+            } finally {
+                getControlPluginTimers(controlPluginName).priorCall.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
             log.debug("Successful executed priorCall of plugin {}", controlPluginName);
             if (prevResult == null) {
                 // Nothing returned by the plugin
                 continue;
             }
 
+            if (prevResult.isAborted()) {
+                // No need to look at the adjustments, the chain stops here
+                throw new PaymentControlApiAbortException(controlPluginName);
+            }
             if (prevResult.getAdjustedPaymentMethodId() != null) {
                 // We only allow setting the paymentMethodId but disallow overwriting an existing paymentMethodId for a given Payment - See #1097
                 // unless the property isAllowedToOverwritePaymentMethodId was explicitly configured to allow this
@@ -146,9 +185,6 @@ public class ControlPluginRunner {
             if (prevResult.getAdjustedPluginProperties() != null) {
                 inputPluginProperties = prevResult.getAdjustedPluginProperties();
             }
-            if (prevResult.isAborted()) {
-                throw new PaymentControlApiAbortException(controlPluginName);
-            }
         }
         // Rebuild latest result to include inputPluginProperties
         prevResult = new DefaultPriorPaymentControlResult(prevResult != null && prevResult.isAborted(), inputPaymentMethodId, inputPaymentMethodName, inputAmount, inputCurrency, inputPluginProperties);
@@ -194,13 +230,17 @@ public class ControlPluginRunner {
                                                                                                   isApiPayment,
                                                                                                   callContext);
 
+        if (hasIndependentHooks(paymentControlPluginNames)) {
+            return executePluginOnSuccessCallsConcurrently(inputPaymentControlContext, paymentControlPluginNames, pluginProperties);
+        }
+
         Iterable<PluginProperty> inputPluginProperties = pluginProperties;
         for (final String controlPluginName : paymentControlPluginNames) {
             final PaymentControlPluginApi plugin = paymentControlPluginRegistry.getServiceForName(controlPluginName);
             if (plugin != null) {
                 try {
                     log.debug("Calling onSuccessCall of plugin {}", controlPluginName);
-                    final OnSuccessPaymentControlResult result = plugin.onSuccessCall(inputPaymentControlContext, inputPluginProperties);
+                    final OnSuccessPaymentControlResult result = onSuccessCall(controlPluginName, plugin, inputPaymentControlContext, inputPluginProperties);
                     log.debug("Successful executed onSuccessCall of plugin {}", controlPluginName);
                     if (result == null) {
                         // Nothing returned by the plugin
@@ -260,6 +300,10 @@ public class ControlPluginRunner {
                                                                                                   isApiPayment,
                                                                                                   callContext);
 
+        if (hasIndependentHooks(paymentControlPluginNames)) {
+            return executePluginOnFailureCallsConcurrently(inputPaymentControlContext, paymentControlPluginNames, pluginProperties);
+        }
+
         DateTime candidate = null;
         Iterable<PluginProperty> inputPluginProperties = pluginProperties;
 
@@ -268,18 +312,14 @@ public class ControlPluginRunner {
             if (plugin != null) {
                 try {
                     log.debug("Calling onSuccessCall of plugin {}", controlPluginName);
-                    final OnFailurePaymentControlResult result = plugin.onFailureCall(inputPaymentControlContext, inputPluginProperties);
+                    final OnFailurePaymentControlResult result = onFailureCall(controlPluginName, plugin, inputPaymentControlContext, inputPluginProperties);
                     log.debug("Successful executed onSuccessCall of plugin {}", controlPluginName);
                     if (result == null) {
                         // Nothing returned by the plugin
                         continue;
                     }
 
-                    if (candidate == null) {
-                        candidate = result.getNextRetryDate();
-                    } else if (result.getNextRetryDate() != null) {
-                        candidate = candidate.compareTo(result.getNextRetryDate()) > 0 ? result.getNextRetryDate() : candidate;
-                    }
+                    candidate = getEarliestRetryDate(candidate, result);
 
                     if (result.getAdjustedPluginProperties() != null) {
                         inputPluginProperties = result.getAdjustedPluginProperties();
@@ -294,6 +334,170 @@ public class ControlPluginRunner {
         return new DefaultFailureCallResult(candidate, inputPluginProperties);
     }
 
+    // All the plugins see the same input properties: the results are then combined in the order of the chain, as the serial execution would
+    private OnSuccessPaymentControlResult executePluginOnSuccessCallsConcurrently(final PaymentControlContext inputPaymentControlContext,
+                                                                                  final List<String> paymentControlPluginNames,
+                                                                                  final Iterable<PluginProperty> pluginProperties) {
+        final List<Future<OnSuccessPaymentControlResult>> futures = new ArrayList<Future<OnSuccessPaymentControlResult>>(paymentControlPluginNames.size());
+        for (final String controlPluginName : paymentControlPluginNames) {
+            final PaymentControlPluginApi plugin = paymentControlPluginRegistry.getServiceForName(controlPluginName);
+            futures.add(plugin == null ? null : submit(() -> onSuccessCall(controlPluginName, plugin, inputPaymentControlContext, pluginProperties)));
+        }
+
+        Iterable<PluginProperty> outputPluginProperties = pluginProperties;
+        for (int i = 0; i < futures.size(); i++) {
+            final Future<OnSuccessPaymentControlResult> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+
+            final String controlPluginName = paymentControlPluginNames.get(i);
+            try {
+                final OnSuccessPaymentControlResult result = getResult(future);
+                if (result != null && result.getAdjustedPluginProperties() != null) {
+                    outputPluginProperties = result.getAdjustedPluginProperties();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel(futures);
+                break;
+            } catch (final ExecutionException | TimeoutException | RuntimeException e) {
+                // Exceptions from the control plugins are ignored (and logged) because the semantics on what to do are undefined.
+                log.warn("Error during onSuccessCall for plugin='{}', paymentExternalKey='{}'", controlPluginName, inputPaymentControlContext.getPaymentExternalKey(), e);
+                future.cancel(true);
+            }
+        }
+        return new DefaultOnSuccessPaymentControlResult(outputPluginProperties);
+    }
+
+    private OnFailurePaymentControlResult executePluginOnFailureCallsConcurrently(final PaymentControlContext inputPaymentControlContext,
+                                                                                  final List<String> paymentControlPluginNames,
+                                                                                  final Iterable<PluginProperty> pluginProperties) {
+        final List<Future<OnFailurePaymentControlResult>> futures = new ArrayList<Future<OnFailurePaymentControlResult>>(paymentControlPluginNames.size());
+        for (final String controlPluginName : paymentControlPluginNames) {
+            final PaymentControlPluginApi plugin = paymentControlPluginRegistry.getServiceForName(controlPluginName);
+            futures.add(plugin == null ? null : submit(() -> onFailureCall(controlPluginName, plugin, inputPaymentControlContext, pluginProperties)));
+        }
+
+        DateTime candidate = null;
+        Iterable<PluginProperty> outputPluginProperties = pluginProperties;
+        for (int i = 0; i < futures.size(); i++) {
+            final Future<OnFailurePaymentControlResult> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+
+            final String controlPluginName = paymentControlPluginNames.get(i);
+            try {
+                final OnFailurePaymentControlResult result = getResult(future);
+                if (result == null) {
+                    continue;
+                }
+
+                candidate = getEarliestRetryDate(candidate, result);
+                if (result.getAdjustedPluginProperties() != null) {
+                    outputPluginProperties = result.getAdjustedPluginProperties();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel(futures);
+                break;
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    cancel(futures);
+                    throw (RuntimeException) e.getCause();
+                }
+                // Like the serial execution, the results of the next plugins in the chain are discarded
+                log.warn("Error during onFailureCall for plugin='{}', paymentExternalKey='{}'", controlPluginName, inputPaymentControlContext.getPaymentExternalKey(), e.getCause());
+                cancel(futures);
+                break;
+            } catch (final TimeoutException e) {
+                log.warn("Timeout during onFailureCall for plugin='{}', paymentExternalKey='{}'", controlPluginName, inputPaymentControlContext.getPaymentExternalKey());
+                cancel(futures);
+                break;
+            }
+        }
+        return new DefaultFailureCallResult(candidate, outputPluginProperties);
+    }
+
+    private boolean hasIndependentHooks(final List<String> paymentControlPluginNames) {
+        return paymentControlPluginNames.size() > 1 && pluginsWithIndependentHooks.containsAll(paymentControlPluginNames);
+    }
+
+    private <T> Future<T> submit(final Callable<T> task) {
+        // Propagate the request id, Shiro subject and MDC to the plugin calls
+        return paymentExecutors.getControlPluginExecutorService().submit(new CallableWithRequestData<T>(Request.getPerThreadRequestData(),
+                                                                                                        UUIDs.getRandom(),
+                                                                                                        ThreadContext.getSecurityManager(),
+                                                                                                        ThreadContext.getSubject(),
+                                                                                                        MDC.getCopyOfContextMap(),
+                                                                                                        task));
+    }
+
+    private <T> T getResult(final Future<T> future) throws InterruptedException, ExecutionException, TimeoutException {
+        return future.get(paymentConfig.getPaymentPluginTimeout().getMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void cancel(final Iterable<? extends Future<?>> futures) {
+        for (final Future<?> future : futures) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private OnSuccessPaymentControlResult onSuccessCall(final String controlPluginName,
+                                                        final PaymentControlPluginApi plugin,
+                                                        final PaymentControlContext paymentControlContext,
+                                                        final Iterable<PluginProperty> pluginProperties) throws PaymentControlApiException {
+        final long startNanos = System.nanoTime();
+        try {
+            return plugin.onSuccessCall(paymentControlContext, pluginProperties);
+        } finally {
+            getControlPluginTimers(controlPluginName).onSuccessCall.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private OnFailurePaymentControlResult onFailureCall(final String controlPluginName,
+                                                        final PaymentControlPluginApi plugin,
+                                                        final PaymentControlContext paymentControlContext,
+                                                        final Iterable<PluginProperty> pluginProperties) throws PaymentControlApiException {
+        final long startNanos = System.nanoTime();
+        try {
+            return plugin.onFailureCall(paymentControlContext, pluginProperties);
+        } finally {
+            getControlPluginTimers(controlPluginName).onFailureCall.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static DateTime getEarliestRetryDate(@Nullable final DateTime candidate, final OnFailurePaymentControlResult result) {
+        if (candidate == null) {
+            return result.getNextRetryDate();
+        } else if (result.getNextRetryDate() != null) {
+            return candidate.compareTo(result.getNextRetryDate()) > 0 ? result.getNextRetryDate() : candidate;
+        } else {
+            return candidate;
+        }
+    }
+
+    private ControlPluginTimers getControlPluginTimers(final String controlPluginName) {
+        return controlPluginTimers.computeIfAbsent(controlPluginName, name -> new ControlPluginTimers(metricRegistry, PROP_METRIC_REG_CONTROL_PLUGIN + name));
+    }
+
+    // Latency of each hook, per control plugin
+    private static final class ControlPluginTimers {
+
+        private final Timer priorCall;
+        private final Timer onSuccessCall;
+        private final Timer onFailureCall;
+
+        private ControlPluginTimers(final MetricRegistry metricRegistry, final String metricPrefix) {
+            this.priorCall = metricRegistry.timer(metricPrefix + ".priorCall");
+            this.onSuccessCall = metricRegistry.timer(metricPrefix + ".onSuccessCall");
+            this.onFailureCall = metricRegistry.timer(metricPrefix + ".onFailureCall");
+        }
+    }
+
     public static class DefaultPaymentControlContext extends DefaultCallContext implements PaymentControlContext {
 
         private final UUID paymentMethodId;
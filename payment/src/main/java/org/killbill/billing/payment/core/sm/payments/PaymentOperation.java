@@ -17,6 +17,8 @@
 
 package org.killbill.billing.payment.core.sm.payments;
 
+import java.util.concurrent.RejectedExecutionException;
+
 import org.killbill.automaton.Operation.OperationCallback;
 import org.killbill.automaton.OperationException;
 import org.killbill.automaton.OperationResult;
@@ -78,6 +80,11 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
 
     @Override
     protected OperationException unwrapExceptionFromDispatchedTask(final PaymentApiException e) {
+        if (e.getCause() instanceof RejectedExecutionException) {
+            // Plugin bulkhead exhausted: we know for sure the plugin wasn't called (PLUGIN_FAILURE)
+            paymentStateContext.setPaymentTransactionInfoPlugin(buildPaymentTransactionInfoPlugin(PaymentPluginStatus.CANCELED));
+            return new OperationException(e, OperationResult.EXCEPTION);
+        }
         return convertToUnknownTransactionStatusAndErroredPaymentState(e);
     }
 
@@ -89,16 +96,7 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
     //
     private OperationException convertToUnknownTransactionStatusAndErroredPaymentState(final Exception e) {
 
-        final PaymentTransactionInfoPlugin paymentInfoPlugin = new DefaultNoOpPaymentInfoPlugin(paymentStateContext.getPaymentId(),
-                                                                                                paymentStateContext.getTransactionId(),
-                                                                                                paymentStateContext.getTransactionType(),
-                                                                                                paymentStateContext.getAmount(),
-                                                                                                paymentStateContext.getCurrency(),
-                                                                                                paymentStateContext.getCallContext().getCreatedDate(),
-                                                                                                paymentStateContext.getCallContext().getCreatedDate(),
-                                                                                                PaymentPluginStatus.UNDEFINED,
-                                                                                                null,
-                                                                                                null);
+        final PaymentTransactionInfoPlugin paymentInfoPlugin = buildPaymentTransactionInfoPlugin(PaymentPluginStatus.UNDEFINED);
         paymentStateContext.setPaymentTransactionInfoPlugin(paymentInfoPlugin);
         if (e.getCause() instanceof OperationException) {
             return (OperationException) e.getCause();
@@ -110,6 +108,19 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
     }
 
 
+    private PaymentTransactionInfoPlugin buildPaymentTransactionInfoPlugin(final PaymentPluginStatus paymentPluginStatus) {
+        return new DefaultNoOpPaymentInfoPlugin(paymentStateContext.getPaymentId(),
+                                                paymentStateContext.getTransactionId(),
+                                                paymentStateContext.getTransactionType(),
+                                                paymentStateContext.getAmount(),
+                                                paymentStateContext.getCurrency(),
+                                                paymentStateContext.getCallContext().getCreatedDate(),
+                                                paymentStateContext.getCallContext().getCreatedDate(),
+                                                paymentPluginStatus,
+                                                null,
+                                                null);
+    }
+
     @Override
     protected abstract PaymentTransactionInfoPlugin doCallSpecificOperationCallback() throws PaymentPluginApiException;
 
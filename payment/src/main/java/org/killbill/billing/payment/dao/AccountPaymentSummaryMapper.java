@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionStatus;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.util.dao.MapperBase;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+public class AccountPaymentSummaryMapper extends MapperBase implements ResultSetMapper<PaymentAndTransactionModelDao> {
+
+    @Override
+    public PaymentAndTransactionModelDao map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+        final long paymentRecordId = r.getLong("payment_record_id");
+        final PaymentModelDao paymentModelDao = new PaymentModelDao(getUUID(r, "payment_id"),
+                                                                    getDateTime(r, "payment_created_date"),
+                                                                    getDateTime(r, "payment_updated_date"),
+                                                                    getUUID(r, "account_id"),
+                                                                    getUUID(r, "payment_method_id"),
+                                                                    (int) paymentRecordId,
+                                                                    r.getString("payment_external_key"));
+        paymentModelDao.setStateName(r.getString("state_name"));
+        paymentModelDao.setLastSuccessStateName(r.getString("last_success_state_name"));
+        paymentModelDao.setRecordId(paymentRecordId);
+        paymentModelDao.setAccountRecordId(r.getLong("account_record_id"));
+        paymentModelDao.setTenantRecordId(r.getLong("tenant_record_id"));
+
+        final UUID transactionId = getUUID(r, "transaction_id");
+        final String currency = r.getString("currency");
+        final PaymentTransactionModelDao paymentTransactionModelDao = new PaymentTransactionModelDao(transactionId,
+                                                                                                     getDateTime(r, "transaction_created_date"),
+                                                                                                     getDateTime(r, "transaction_updated_date"),
+                                                                                                     getUUID(r, "attempt_id"),
+                                                                                                     r.getString("transaction_external_key"),
+                                                                                                     paymentModelDao.getId(),
+                                                                                                     TransactionType.valueOf(r.getString("transaction_type")),
+                                                                                                     getDateTime(r, "effective_date"),
+                                                                                                     TransactionStatus.valueOf(r.getString("transaction_status")),
+                                                                                                     r.getBigDecimal("amount"),
+                                                                                                     currency == null ? null : Currency.valueOf(currency),
+                                                                                                     r.getString("gateway_error_code"),
+                                                                                                     r.getString("gateway_error_msg"));
+        final String processedCurrency = r.getString("processed_currency");
+        paymentTransactionModelDao.setProcessedAmount(r.getBigDecimal("processed_amount"));
+        paymentTransactionModelDao.setProcessedCurrency(processedCurrency == null ? null : Currency.valueOf(processedCurrency));
+        paymentTransactionModelDao.setRecordId(r.getLong("transaction_record_id"));
+        paymentTransactionModelDao.setAccountRecordId(paymentModelDao.getAccountRecordId());
+        paymentTransactionModelDao.setTenantRecordId(paymentModelDao.getTenantRecordId());
+
+        final PaymentAndTransactionModelDao paymentAndTransactionModelDao = new PaymentAndTransactionModelDao();
+        paymentAndTransactionModelDao.setPaymentModelDao(paymentModelDao);
+        paymentAndTransactionModelDao.setPaymentTransactionModelDao(paymentTransactionModelDao);
+        return paymentAndTransactionModelDao;
+    }
+}
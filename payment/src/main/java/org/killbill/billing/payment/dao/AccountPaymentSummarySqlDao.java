@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.dao;
+
+import java.util.List;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.commons.jdbi.binder.SmartBindBean;
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+
+// Not an EntitySqlDao: the summaries are a projection of payments and payment_transactions (no audit, no history)
+@KillBillSqlDaoStringTemplate
+@RegisterMapper(AccountPaymentSummaryMapper.class)
+public interface AccountPaymentSummarySqlDao {
+
+    @SqlUpdate
+    void deleteByPaymentId(@Bind("paymentId") final String paymentId,
+                           @SmartBindBean final InternalCallContext context);
+
+    @SqlUpdate
+    void createFromPayment(@Bind("paymentId") final String paymentId,
+                           @SmartBindBean final InternalCallContext context);
+
+    @SqlUpdate
+    void deleteByAccountRecordId(@SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    void createFromAccount(@SmartBindBean final InternalTenantContext context);
+
+    // Null if the account isn't tracked
+    @SqlQuery
+    Boolean isAccountBuilt(@SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    void trackAccount(@SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    int touchAccount(@SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    int markAccountBuilt(@SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    void untrackAccount(@SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    List<PaymentAndTransactionModelDao> getByAccountRecordId(@SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    List<PaymentAndTransactionModelDao> getByAccountRecordIdAfterPaymentRecordId(@Bind("afterPaymentRecordId") final Long afterPaymentRecordId,
+                                                                                 @Bind("maxPayments") final int maxPayments,
+                                                                                 @SmartBindBean final InternalTenantContext context);
+}
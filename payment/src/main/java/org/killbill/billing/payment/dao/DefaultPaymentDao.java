@@ -22,8 +22,11 @@ package org.killbill.billing.payment.dao;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -57,7 +60,9 @@ import org.killbill.billing.util.audit.AuditLogWithHistory;
 import org.killbill.billing.util.audit.dao.AuditDao;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.dao.SqlStates;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
@@ -90,15 +95,18 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
     private final BusOptimizer eventBus;
     private final Clock clock;
     private final AuditDao auditDao;
+    private final PaymentConfig paymentConfig;
 
     @Inject
     public DefaultPaymentDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                             final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory, final BusOptimizer eventBus, final AuditDao auditDao) {
+                             final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory, final BusOptimizer eventBus, final AuditDao auditDao,
+                             final PaymentConfig paymentConfig) {
         super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), PaymentSqlDao.class);
         this.paginationHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao);
         this.eventBus = eventBus;
         this.clock = clock;
         this.auditDao = auditDao;
+        this.paymentConfig = paymentConfig;
     }
 
     @Override
@@ -111,6 +119,22 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
         });
     }
 
+    @Override
+    public List<PaymentAttemptModelDao> getPaymentAttempts(final Collection<UUID> attemptIds, final InternalTenantContext context) {
+        if (attemptIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Collection<String> ids = attemptIds.stream()
+                .map(UUID::toString)
+                .collect(Collectors.toUnmodifiableList());
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentAttemptModelDao>>() {
+            @Override
+            public List<PaymentAttemptModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(PaymentAttemptSqlDao.class).getByIds(ids, context);
+            }
+        });
+    }
+
     @Override
     public PaymentAttemptModelDao insertPaymentAttemptWithProperties(final PaymentAttemptModelDao attempt, final InternalCallContext context) {
         return transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<PaymentAttemptModelDao>() {
@@ -217,6 +241,60 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
                                              );
     }
 
+    @Override
+    public Long getCountByTransactionStatusAcrossTenants(final Iterable<TransactionStatus> transactionStatuses, final DateTime createdBeforeDate, final DateTime createdAfterDate) {
+        final Collection<String> allTransactionStatus = Iterables.toStream(transactionStatuses)
+                .map(Enum::toString)
+                .collect(Collectors.toUnmodifiableList());
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<Long>() {
+            @Override
+            public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(TransactionSqlDao.class).getCountByTransactionStatusPriorDateAcrossTenants(allTransactionStatus, createdBeforeDate.toDate(), createdAfterDate.toDate());
+            }
+        });
+    }
+
+    @Override
+    public List<PaymentTransactionModelDao> getByTransactionStatusAcrossTenantsAfterRecordId(final Iterable<TransactionStatus> transactionStatuses, final DateTime createdBeforeDate, final DateTime createdAfterDate, final Long lastRecordId, final Long limit) {
+        final Collection<String> allTransactionStatus = Iterables.toStream(transactionStatuses)
+                .map(Enum::toString)
+                .collect(Collectors.toUnmodifiableList());
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentTransactionModelDao>>() {
+            @Override
+            public List<PaymentTransactionModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(TransactionSqlDao.class).getByTransactionStatusPriorDateAcrossTenantsAfterRecordId(allTransactionStatus, createdBeforeDate.toDate(), createdAfterDate.toDate(), lastRecordId, limit);
+            }
+        });
+    }
+
+    @Override
+    public Long getJanitorBatchCursor(final String cursorName) {
+        // Read from the main database: the cursor may just have been moved by another node
+        return transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<Long>() {
+            @Override
+            public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final Long lastRecordId = entitySqlDaoWrapperFactory.getHandle().attach(JanitorBatchCursorSqlDao.class).getLastRecordId(cursorName);
+                return lastRecordId == null ? 0L : lastRecordId;
+            }
+        });
+    }
+
+    @Override
+    public void updateJanitorBatchCursor(final String cursorName, final Long lastRecordId) {
+        transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final JanitorBatchCursorSqlDao janitorBatchCursorSqlDao = entitySqlDaoWrapperFactory.getHandle().attach(JanitorBatchCursorSqlDao.class);
+                final Date updatedDate = clock.getUTCNow().toDate();
+                // The cursor is only moved under the janitor batch lock: no concurrent creation
+                if (janitorBatchCursorSqlDao.updateLastRecordId(cursorName, lastRecordId, updatedDate) == 0) {
+                    janitorBatchCursorSqlDao.create(cursorName, lastRecordId, updatedDate);
+                }
+                return null;
+            }
+        });
+    }
+
     @Override
     public List<PaymentTransactionModelDao> getPaymentTransactionsByExternalKey(final String transactionExternalKey, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentTransactionModelDao>>() {
@@ -332,6 +410,8 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
                 final PaymentTransactionModelDao paymentTransactionModelDao = createAndRefresh(transactionSqlDao, paymentTransaction, context);
                 paymentAndTransactionModelDao.setPaymentTransactionModelDao(paymentTransactionModelDao);
 
+                refreshAccountPaymentSummaries(paymentModelDao.getId(), entitySqlDaoWrapperFactory, context);
+
                 return paymentAndTransactionModelDao;
             }
         });
@@ -347,6 +427,8 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
 
                 entitySqlDaoWrapperFactory.become(PaymentSqlDao.class).updatePaymentForNewTransaction(paymentId.toString(), contextWithUpdatedDate(context));
 
+                refreshAccountPaymentSummaries(paymentId, entitySqlDaoWrapperFactory, context);
+
                 return paymentTransactionModelDao;
             }
         });
@@ -465,6 +547,8 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
                 }
                 paymentAndTransactionModelDao.setPaymentModelDao(paymentModelDao);
 
+                refreshAccountPaymentSummaries(paymentId, entitySqlDaoWrapperFactory, context);
+
                 postPaymentEventFromTransaction(accountId, transactionStatus, transactionType, paymentId, transactionId, processedAmount, processedCurrency, contextWithUpdatedDate.getCreatedDate(), isApiPayment, gatewayErrorCode, entitySqlDaoWrapperFactory, context);
 
                 return paymentAndTransactionModelDao;
@@ -524,6 +608,36 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
         });
     }
 
+    @Override
+    public List<PaymentAndTransactionModelDao> getAccountPaymentSummaries(final InternalTenantContext context) {
+        Preconditions.checkArgument(context.getAccountRecordId() != null, "context.getAccountRecordId() is null");
+        if (!prepareAccountPaymentSummaries(context)) {
+            return null;
+        }
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentAndTransactionModelDao>>() {
+            @Override
+            public List<PaymentAndTransactionModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.getHandle().attach(AccountPaymentSummarySqlDao.class).getByAccountRecordId(context);
+            }
+        });
+    }
+
+    @Override
+    public List<PaymentAndTransactionModelDao> getAccountPaymentSummaries(@Nullable final Long afterPaymentNumber, final int maxPayments, final InternalTenantContext context) {
+        Preconditions.checkArgument(context.getAccountRecordId() != null, "context.getAccountRecordId() is null");
+        if (!prepareAccountPaymentSummaries(context)) {
+            return null;
+        }
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentAndTransactionModelDao>>() {
+            @Override
+            public List<PaymentAndTransactionModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.getHandle()
+                                                 .attach(AccountPaymentSummarySqlDao.class)
+                                                 .getByAccountRecordIdAfterPaymentRecordId(afterPaymentNumber == null ? 0L : afterPaymentNumber, maxPayments, context);
+            }
+        });
+    }
+
     @Override
     public List<PaymentTransactionModelDao> getTransactionsForPayment(final UUID paymentId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentTransactionModelDao>>() {
@@ -690,6 +804,11 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
 
     @Override
     public List<PaymentMethodModelDao> refreshPaymentMethods(final String pluginName, final List<PaymentMethodModelDao> newPaymentMethods, final InternalCallContext context) {
+        return refreshPaymentMethods(Map.of(pluginName, newPaymentMethods), context);
+    }
+
+    @Override
+    public List<PaymentMethodModelDao> refreshPaymentMethods(final Map<String, List<PaymentMethodModelDao>> newPaymentMethodsPerPlugin, final InternalCallContext context) {
         return transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<List<PaymentMethodModelDao>>() {
 
             @Override
@@ -703,36 +822,36 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
                 // but is still existing in the plugin, we will un-delete it.
                 final List<PaymentMethodModelDao> allPaymentMethodsForAccount = transactional.getForAccountIncludedDelete(contextWithUpdatedDate);
 
-                // Consider only the payment methods for the plugin we are refreshing
-                final Collection<PaymentMethodModelDao> existingPaymentMethods = allPaymentMethodsForAccount.stream()
-                        .filter(paymentMethod -> pluginName.equals(paymentMethod.getPluginName()))
-                        .collect(Collectors.toList());
-
-                for (final PaymentMethodModelDao finalPaymentMethod : newPaymentMethods) {
-                    PaymentMethodModelDao foundExistingPaymentMethod = null;
-                    for (final PaymentMethodModelDao existingPaymentMethod : existingPaymentMethods) {
-                        if (existingPaymentMethod.equals(finalPaymentMethod)) {
-                            // We already have it - nothing to do
-                            foundExistingPaymentMethod = existingPaymentMethod;
-                            break;
-                        } else if (existingPaymentMethod.equalsButActive(finalPaymentMethod)) {
+                // Consider only the payment methods for the plugins we are refreshing, indexed by id (see PaymentMethodModelDao#equals)
+                final Map<UUID, PaymentMethodModelDao> existingPaymentMethods = new HashMap<UUID, PaymentMethodModelDao>();
+                for (final PaymentMethodModelDao paymentMethod : allPaymentMethodsForAccount) {
+                    if (newPaymentMethodsPerPlugin.containsKey(paymentMethod.getPluginName())) {
+                        existingPaymentMethods.put(paymentMethod.getId(), paymentMethod);
+                    }
+                }
+
+                final List<PaymentMethodModelDao> paymentMethodsToInsert = new LinkedList<PaymentMethodModelDao>();
+                for (final List<PaymentMethodModelDao> newPaymentMethods : newPaymentMethodsPerPlugin.values()) {
+                    for (final PaymentMethodModelDao finalPaymentMethod : newPaymentMethods) {
+                        final PaymentMethodModelDao existingPaymentMethod = existingPaymentMethods.remove(finalPaymentMethod.getId());
+                        if (existingPaymentMethod == null) {
+                            // We don't have it
+                            paymentMethodsToInsert.add(finalPaymentMethod);
+                        } else if (!existingPaymentMethod.equals(finalPaymentMethod) && existingPaymentMethod.equalsButActive(finalPaymentMethod)) {
                             // We already have it but its status has changed - update it accordingly
                             undeletedPaymentMethodInTransaction(entitySqlDaoWrapperFactory, existingPaymentMethod.getId(), contextWithUpdatedDate);
-                            foundExistingPaymentMethod = existingPaymentMethod;
-                            break;
+                        } else if (!existingPaymentMethod.equalsButActive(finalPaymentMethod)) {
+                            // Same id but not the same payment method (e.g. different plugin)
+                            existingPaymentMethods.put(existingPaymentMethod.getId(), existingPaymentMethod);
+                            paymentMethodsToInsert.add(finalPaymentMethod);
                         }
-                        // Otherwise, we don't have it
-                    }
-
-                    if (foundExistingPaymentMethod == null) {
-                        insertPaymentMethodInTransaction(entitySqlDaoWrapperFactory, finalPaymentMethod, contextWithUpdatedDate);
-                    } else {
-                        existingPaymentMethods.remove(foundExistingPaymentMethod);
+                        // Otherwise, we already have it - nothing to do
                     }
                 }
+                bulkCreate(transactional, paymentMethodsToInsert, contextWithUpdatedDate);
 
                 // Finally, all payment methods left in the existingPaymentMethods should be marked as deleted
-                for (final PaymentMethodModelDao existingPaymentMethod : existingPaymentMethods) {
+                for (final PaymentMethodModelDao existingPaymentMethod : existingPaymentMethods.values()) {
                     // Need to verify if this is active -- failure to do so would provide an exception down the stream because
                     // the logic around audit/history will use getById to retrieve the entity and that method would not return
                     // a marked as deleted object
@@ -860,6 +979,75 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
         }
     }
 
+    // Summaries are only maintained for the accounts read with the setting enabled: the first read starts tracking the account
+    // (from then on, the payment writes maintain its rows), the next one builds them. Returns whether the summaries can be read.
+    private boolean prepareAccountPaymentSummaries(final InternalTenantContext context) {
+        if (!paymentConfig.isAccountPaymentSummariesEnabled(context)) {
+            return false;
+        }
+
+        // The tracking row is read from the main database (it may just have been written), and only written to when the account isn't built yet
+        final Boolean built = transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<Boolean>() {
+            @Override
+            public Boolean inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final AccountPaymentSummarySqlDao accountPaymentSummarySqlDao = entitySqlDaoWrapperFactory.getHandle().attach(AccountPaymentSummarySqlDao.class);
+                final Boolean isAccountBuilt = accountPaymentSummarySqlDao.isAccountBuilt(context);
+                if (isAccountBuilt == null || isAccountBuilt) {
+                    return isAccountBuilt;
+                }
+
+                // Locks the tracking row first: payment writes of the account either committed before, or refresh their payment after the build
+                if (accountPaymentSummarySqlDao.markAccountBuilt(context) == 1) {
+                    accountPaymentSummarySqlDao.deleteByAccountRecordId(context);
+                    accountPaymentSummarySqlDao.createFromAccount(context);
+                    return true;
+                }
+                // Built concurrently, or no longer tracked
+                return Boolean.TRUE.equals(accountPaymentSummarySqlDao.isAccountBuilt(context));
+            }
+        });
+        if (built == null) {
+            // Separate transaction: a concurrent insert aborts it on some databases
+            trackAccountPaymentSummaries(context);
+            return false;
+        }
+        return built;
+    }
+
+    private void trackAccountPaymentSummaries(final InternalTenantContext context) {
+        try {
+            transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<Void>() {
+                @Override
+                public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                    entitySqlDaoWrapperFactory.getHandle().attach(AccountPaymentSummarySqlDao.class).trackAccount(context);
+                    return null;
+                }
+            });
+        } catch (final RuntimeException e) {
+            // Tracked concurrently
+            if (!SqlStates.isIntegrityConstraintViolation(e)) {
+                throw e;
+            }
+        }
+    }
+
+    // Rebuild the pre-joined rows of the payment, in the transaction which updated it (i.e. along with the payment bus event)
+    private void refreshAccountPaymentSummaries(final UUID paymentId, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        final AccountPaymentSummarySqlDao accountPaymentSummarySqlDao = entitySqlDaoWrapperFactory.getHandle().attach(AccountPaymentSummarySqlDao.class);
+        if (accountPaymentSummarySqlDao.touchAccount(context) == 0) {
+            // Account not tracked
+            return;
+        }
+
+        if (!paymentConfig.isAccountPaymentSummariesEnabled(context)) {
+            // No projection writes, but make sure the summaries aren't read stale if the setting is enabled again (only once: the account isn't tracked anymore)
+            accountPaymentSummarySqlDao.untrackAccount(context);
+            return;
+        }
+        accountPaymentSummarySqlDao.deleteByPaymentId(paymentId.toString(), context);
+        accountPaymentSummarySqlDao.createFromPayment(paymentId.toString(), context);
+    }
+
     private InternalCallContext contextWithUpdatedDate(final InternalCallContext input) {
         return new InternalCallContext(input, input.getCreatedDate());
     }
@@ -868,4 +1056,10 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
     protected PaymentApiException generateAlreadyExistsException(final PaymentModelDao entity, final InternalCallContext context) {
         return new PaymentApiException(ErrorCode.PAYMENT_INTERNAL_ERROR, "Payment already exists");
     }
+
+    @Override
+    protected boolean isDefaultOrderingByRecordId() {
+        // See PaymentSqlDao.sql.stg: created_date first
+        return false;
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.dao;
+
+import java.util.Date;
+
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+
+// Not an EntitySqlDao: the cursors aren't per tenant (no audit, no history)
+@KillBillSqlDaoStringTemplate
+public interface JanitorBatchCursorSqlDao {
+
+    // Null if the cursor doesn't exist yet
+    @SqlQuery
+    Long getLastRecordId(@Bind("cursorName") final String cursorName);
+
+    @SqlUpdate
+    int updateLastRecordId(@Bind("cursorName") final String cursorName,
+                           @Bind("lastRecordId") final Long lastRecordId,
+                           @Bind("updatedDate") final Date updatedDate);
+
+    @SqlUpdate
+    void create(@Bind("cursorName") final String cursorName,
+                @Bind("lastRecordId") final Long lastRecordId,
+                @Bind("updatedDate") final Date updatedDate);
+}
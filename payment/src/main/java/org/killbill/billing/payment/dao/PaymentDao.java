@@ -19,9 +19,13 @@
 package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -39,6 +43,16 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public Pagination<PaymentTransactionModelDao> getByTransactionStatusAcrossTenants(final Iterable<TransactionStatus> transactionStatuses, DateTime createdBeforeDate, DateTime createdAfterDate, final Long offset, final Long limit);
 
+    public Long getCountByTransactionStatusAcrossTenants(final Iterable<TransactionStatus> transactionStatuses, DateTime createdBeforeDate, DateTime createdAfterDate);
+
+    // Keyset pagination: the transactions following lastRecordId, in record_id order
+    public List<PaymentTransactionModelDao> getByTransactionStatusAcrossTenantsAfterRecordId(final Iterable<TransactionStatus> transactionStatuses, DateTime createdBeforeDate, DateTime createdAfterDate, final Long lastRecordId, final Long limit);
+
+    // Position of the janitor batch reconciliation, shared by the nodes (0 if it hasn't started yet)
+    public Long getJanitorBatchCursor(final String cursorName);
+
+    public void updateJanitorBatchCursor(final String cursorName, final Long lastRecordId);
+
     public PaymentAttemptModelDao insertPaymentAttemptWithProperties(PaymentAttemptModelDao attempt, InternalCallContext context);
 
     public void updatePaymentAttemptWithProperties(UUID paymentAttemptId, UUID paymentMethodId, UUID transactionId, String state, final BigDecimal amount, final Currency currency, final byte[] pluginProperties, InternalCallContext context);
@@ -101,8 +115,19 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public List<PaymentTransactionModelDao> getTransactionsForPayment(UUID paymentId, InternalTenantContext context);
 
+    // Payments of the account pre-joined with their transactions (one entry per transaction), in the getPaymentsForAccount order.
+    // Null if the summaries are disabled or not built yet for this account: the caller needs to read the payments and transactions instead
+    @Nullable
+    public List<PaymentAndTransactionModelDao> getAccountPaymentSummaries(InternalTenantContext context);
+
+    // Same, for the next maxPayments payments of the account by payment number (keyset paging)
+    @Nullable
+    public List<PaymentAndTransactionModelDao> getAccountPaymentSummaries(@Nullable Long afterPaymentNumber, int maxPayments, InternalTenantContext context);
+
     public PaymentAttemptModelDao getPaymentAttempt(UUID attemptId, InternalTenantContext context);
 
+    public List<PaymentAttemptModelDao> getPaymentAttempts(Collection<UUID> attemptIds, InternalTenantContext context);
+
     public PaymentMethodModelDao insertPaymentMethod(PaymentMethodModelDao paymentMethod, InternalCallContext context);
 
     public PaymentMethodModelDao getPaymentMethod(UUID paymentMethodId, InternalTenantContext context);
@@ -125,6 +150,9 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public List<PaymentMethodModelDao> refreshPaymentMethods(String pluginName, List<PaymentMethodModelDao> paymentMethods, InternalCallContext context);
 
+    // Refresh the payment methods of the account for several plugins at once (single transaction)
+    public List<PaymentMethodModelDao> refreshPaymentMethods(Map<String, List<PaymentMethodModelDao>> paymentMethodsPerPlugin, InternalCallContext context);
+
     List<AuditLogWithHistory> getPaymentAuditLogsWithHistoryForId(UUID paymentId, AuditLevel auditLevel, InternalTenantContext context);
 
     List<AuditLogWithHistory> getPaymentMethodAuditLogsWithHistoryForId(UUID paymentMethodId, AuditLevel auditLevel, InternalTenantContext context);
@@ -69,6 +69,13 @@ public interface TransactionSqlDao extends EntitySqlDao<PaymentTransactionModelD
                                                                                       @Bind("rowCount") final Long rowCount,
                                                                                       @Define("ordering") final String ordering);
 
+    @SqlQuery
+    List<PaymentTransactionModelDao> getByTransactionStatusPriorDateAcrossTenantsAfterRecordId(@BindIn("statuses") final Collection<String> statuses,
+                                                                                               @Bind("createdBeforeDate") final Date createdBeforeDate,
+                                                                                               @Bind("createdAfterDate") final Date createdAfterDate,
+                                                                                               @Bind("lastRecordId") final Long lastRecordId,
+                                                                                               @Bind("rowCount") final Long rowCount);
+
     @SqlQuery
     public List<PaymentTransactionModelDao> getByPaymentId(@Bind("paymentId") final UUID paymentId,
                                                            @SmartBindBean final InternalTenantContext context);
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.dispatcher;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-plugin concurrency limit: at most maxConcurrentCalls calls run at the same time, at most maxQueueSize calls wait
+ * for a slot and any other call is rejected right away (RejectedExecutionException), so that a slow plugin cannot
+ * starve the other ones.
+ * <p/>
+ * Each call runs on its own thread (see PaymentExecutors, virtual threads when available): waiting calls simply
+ * block on the semaphore.
+ */
+public class PluginBulkhead {
+
+    private final String pluginName;
+    private final int maxConcurrentCalls;
+    private final int maxQueueSize;
+    private final ThreadFactory threadFactory;
+
+    private final Semaphore permits;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong waitTimeNanos = new AtomicLong();
+
+    private volatile boolean isShutdown = false;
+
+    public PluginBulkhead(final String pluginName, final int maxConcurrentCalls, final int maxQueueSize, final ThreadFactory threadFactory) {
+        this.pluginName = pluginName;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxQueueSize = maxQueueSize;
+        this.threadFactory = threadFactory;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    public <T> Future<T> submit(final Callable<T> task) {
+        if (isShutdown) {
+            throw new RejectedExecutionException(String.format("Bulkhead for plugin='%s' is shut down", pluginName));
+        }
+
+        final boolean hasPermit = permits.tryAcquire();
+        if (!hasPermit && queueDepth.incrementAndGet() > maxQueueSize) {
+            queueDepth.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException(String.format("Bulkhead for plugin='%s' is full (maxConcurrentCalls=%s, maxQueueSize=%s)", pluginName, maxConcurrentCalls, maxQueueSize));
+        }
+
+        final long submittedNanos = System.nanoTime();
+        final FutureTask<T> futureTask = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                if (!hasPermit) {
+                    try {
+                        permits.acquire();
+                    } finally {
+                        queueDepth.decrementAndGet();
+                    }
+                }
+                waitCount.incrementAndGet();
+                waitTimeNanos.addAndGet(System.nanoTime() - submittedNanos);
+
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            }
+        });
+
+        try {
+            threadFactory.newThread(futureTask).start();
+        } catch (final RuntimeException | Error e) {
+            if (hasPermit) {
+                permits.release();
+            } else {
+                queueDepth.decrementAndGet();
+            }
+            throw e;
+        }
+
+        return futureTask;
+    }
+
+    public void shutdown() {
+        isShutdown = true;
+    }
+
+    public String getPluginName() {
+        return pluginName;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getInFlightCount() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    // Cumulative time spent between submission and start of the calls
+    public long getWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTimeNanos.get());
+    }
+}
@@ -24,10 +24,14 @@ import org.killbill.automaton.DefaultStateMachineConfig;
 import org.killbill.automaton.StateMachineConfig;
 import org.killbill.billing.control.plugin.api.PaymentControlPluginApi;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.payment.BulkPaymentApi;
+import org.killbill.billing.payment.PaymentHistoryApi;
 import org.killbill.billing.payment.api.AdminPaymentApi;
 import org.killbill.billing.payment.api.DefaultAdminPaymentApi;
 import org.killbill.billing.payment.api.DefaultInvoicePaymentApi;
+import org.killbill.billing.payment.api.DefaultBulkPaymentApi;
 import org.killbill.billing.payment.api.DefaultPaymentApi;
+import org.killbill.billing.payment.api.DefaultPaymentHistoryApi;
 import org.killbill.billing.payment.api.DefaultPaymentGatewayApi;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
 import org.killbill.billing.payment.api.InvoicePaymentInternalApi;
@@ -38,7 +42,9 @@ import org.killbill.billing.payment.api.PaymentService;
 import org.killbill.billing.payment.api.svcs.DefaultInvoicePaymentInternalApi;
 import org.killbill.billing.payment.bus.PaymentBusEventHandler;
 import org.killbill.billing.payment.config.MultiTenantPaymentConfig;
+import org.killbill.billing.payment.caching.DefaultPaymentTransactionInfoPluginCache;
 import org.killbill.billing.payment.caching.DefaultStateMachineConfigCache;
+import org.killbill.billing.payment.caching.PaymentTransactionInfoPluginCache;
 import org.killbill.billing.payment.caching.StateMachineConfigCache;
 import org.killbill.billing.payment.caching.StateMachineConfigCacheInvalidationCallback;
 import org.killbill.billing.payment.core.PaymentExecutors;
@@ -48,6 +54,7 @@ import org.killbill.billing.payment.core.PaymentPluginServiceRegistration;
 import org.killbill.billing.payment.core.PaymentProcessor;
 import org.killbill.billing.payment.core.PluginControlPaymentProcessor;
 import org.killbill.billing.payment.core.janitor.IncompletePaymentAttemptTask;
+import org.killbill.billing.payment.core.janitor.IncompletePaymentTransactionBatchTask;
 import org.killbill.billing.payment.core.janitor.IncompletePaymentTransactionTask;
 import org.killbill.billing.payment.core.janitor.Janitor;
 import org.killbill.billing.payment.core.sm.PaymentControlStateMachineHelper;
@@ -121,6 +128,7 @@ public class PaymentModule extends KillBillModule {
         bind(PaymentControlStateMachineHelper.class).asEagerSingleton();
 
         bind(StateMachineConfigCache.class).to(DefaultStateMachineConfigCache.class).asEagerSingleton();
+        bind(PaymentTransactionInfoPluginCache.class).to(DefaultPaymentTransactionInfoPluginCache.class).asEagerSingleton();
         bind(CacheInvalidationCallback.class).annotatedWith(Names.named(STATE_MACHINE_CONFIG_INVALIDATION_CALLBACK)).to(StateMachineConfigCacheInvalidationCallback.class).asEagerSingleton();
 
         bind(PaymentStateMachineHelper.class).asEagerSingleton();
@@ -135,6 +143,7 @@ public class PaymentModule extends KillBillModule {
     protected void installProcessors(final PaymentConfig paymentConfig) {
         bind(IncompletePaymentAttemptTask.class).asEagerSingleton();
         bind(IncompletePaymentTransactionTask.class).asEagerSingleton();
+        bind(IncompletePaymentTransactionBatchTask.class).asEagerSingleton();
         bind(PaymentProcessor.class).asEagerSingleton();
         bind(PluginControlPaymentProcessor.class).asEagerSingleton();
         bind(PaymentGatewayProcessor.class).asEagerSingleton();
@@ -154,6 +163,8 @@ public class PaymentModule extends KillBillModule {
         bind(PaymentPluginServiceRegistration.class).asEagerSingleton();
 
         bind(PaymentApi.class).to(DefaultPaymentApi.class).asEagerSingleton();
+        bind(BulkPaymentApi.class).to(DefaultBulkPaymentApi.class).asEagerSingleton();
+        bind(PaymentHistoryApi.class).to(DefaultPaymentHistoryApi.class).asEagerSingleton();
         bind(InvoicePaymentApi.class).to(DefaultInvoicePaymentApi.class).asEagerSingleton();
         bind(InvoicePaymentInternalApi.class).to(DefaultInvoicePaymentInternalApi.class).asEagerSingleton();
         bind(PaymentGatewayApi.class).to(DefaultPaymentGatewayApi.class).asEagerSingleton();
@@ -20,8 +20,16 @@
 package org.killbill.billing.payment.retry;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -32,9 +40,15 @@ import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
 import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.clock.Clock;
+import org.killbill.commons.metrics.api.Gauge;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.killbill.commons.metrics.api.Timer;
+import org.killbill.commons.utils.collect.Iterables;
 import org.killbill.notificationq.api.NotificationEvent;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
@@ -50,21 +64,40 @@ public abstract class BaseRetryService extends RetryableService implements Retry
 
     private static final Logger log = LoggerFactory.getLogger(BaseRetryService.class);
 
+    private static final String PROP_METRIC_REG_RETRY = "payment.retry.";
+
     private final NotificationQueueService notificationQueueService;
     private final InternalCallContextFactory internalCallContextFactory;
     private final String paymentRetryService;
     private final Clock clock;
+    private final PaymentConfig paymentConfig;
+    private final RetryRateShaper rateShaper;
+    private final Timer dispatchTimer;
+    private final AtomicLong rateLimitedRetries = new AtomicLong();
+    private final AtomicLong coalescedRetries = new AtomicLong();
 
     private NotificationQueue retryQueue;
 
     public BaseRetryService(final NotificationQueueService notificationQueueService,
                             final Clock clock,
-                            final InternalCallContextFactory internalCallContextFactory) {
+                            final InternalCallContextFactory internalCallContextFactory,
+                            final PaymentConfig paymentConfig,
+                            final MetricRegistry metricRegistry) {
         super(notificationQueueService);
         this.notificationQueueService = notificationQueueService;
         this.internalCallContextFactory = internalCallContextFactory;
         this.clock = clock;
+        this.paymentConfig = paymentConfig;
         this.paymentRetryService = KILLBILL_SERVICES.PAYMENT_SERVICE.getServiceName() + "-" + getQueueName();
+        this.rateShaper = new RetryRateShaper(paymentConfig, clock, metricRegistry);
+
+        // The timer exposes the dispatch rate, the rate shaper the backlog per plugin
+        final String metricPrefix = PROP_METRIC_REG_RETRY + getQueueName();
+        this.dispatchTimer = metricRegistry.timer(metricPrefix + ".dispatch");
+        final Gauge<Object> rateLimited = rateLimitedRetries::get;
+        final Gauge<Object> coalesced = coalescedRetries::get;
+        metricRegistry.gauge(metricPrefix + ".rateLimited", rateLimited);
+        metricRegistry.gauge(metricPrefix + ".coalesced", coalesced);
     }
 
     @Override
@@ -78,7 +111,7 @@ public abstract class BaseRetryService extends RetryableService implements Retry
                 }
                 final PaymentRetryNotificationKey key = (PaymentRetryNotificationKey) notificationKey;
                 final InternalCallContext callContext = internalCallContextFactory.createInternalCallContext(tenantRecordId, accountRecordId, paymentRetryService, CallOrigin.INTERNAL, UserType.SYSTEM, userToken);
-                retryPaymentTransaction(key.getAttemptId(), key.getPaymentControlPluginNames(), callContext);
+                dispatchRetry(key, callContext);
             }
         };
         final RetryableHandler retryQueueHandler = new RetryableHandler(clock, this, originalHandler);
@@ -113,16 +146,125 @@ public abstract class BaseRetryService extends RetryableService implements Retry
     @Override
     public abstract String getQueueName();
 
+    // Used for the rate shaping (null if unknown)
+    protected String getPaymentPluginName(final UUID attemptId, final InternalCallContext context) {
+        return null;
+    }
+
+    // Used for the rate shaping of the coalesced retries of an account (attempts whose plugin is unknown are left out)
+    protected Map<UUID, String> getPaymentPluginNames(final Collection<UUID> attemptIds, final InternalCallContext context) {
+        return Collections.emptyMap();
+    }
+
+    private void dispatchRetry(final PaymentRetryNotificationKey key, final InternalCallContext callContext) {
+        if (delayIfRateLimited(key, callContext)) {
+            return;
+        }
+
+        timedRetryPaymentTransaction(key, callContext);
+
+        final long coalesceWindowMillis = paymentConfig.getPaymentRetryCoalesceWindow().getMillis();
+        if (coalesceWindowMillis > 0 && callContext.getAccountRecordId() != null) {
+            dispatchCoalescedRetries(key.getAttemptId(), coalesceWindowMillis, callContext);
+        }
+    }
+
+    // Returns true if the retry has been moved to its reserved slot
+    private boolean delayIfRateLimited(final PaymentRetryNotificationKey key, final InternalCallContext callContext) {
+        if (!rateShaper.isEnabled() || Boolean.TRUE.equals(key.isRateLimited())) {
+            return false;
+        }
+
+        final long delayMillis = rateShaper.reserve(getPaymentPluginName(key.getAttemptId(), callContext));
+        if (delayMillis == 0) {
+            return false;
+        }
+
+        final DateTime reservedSlot = clock.getUTCNow().plus(delayMillis);
+        final NotificationEvent rateLimitedKey = new PaymentRetryNotificationKey(key.getAttemptId(), key.getPaymentControlPluginNames(), true);
+        try {
+            log.debug("Delaying retry to {} (rate limit), key={}", reservedSlot, key);
+            retryQueue.recordFutureNotification(reservedSlot, rateLimitedKey, callContext.getUserToken(), callContext.getAccountRecordId(), callContext.getTenantRecordId());
+        } catch (final IOException e) {
+            log.warn("Failed to delay retry for attemptId='{}', dispatching it right away", key.getAttemptId(), e);
+            return false;
+        }
+        rateLimitedRetries.incrementAndGet();
+        return true;
+    }
+
+    // Retries of the same account are processed one after the other anyway (account lock): dispatch the upcoming ones along with this one
+    private void dispatchCoalescedRetries(final UUID attemptId, final long coalesceWindowMillis, final InternalCallContext callContext) {
+        final DateTime maxEffectiveDate = clock.getUTCNow().plus(coalesceWindowMillis);
+        // Copy the results to make sure the underlying JDBC connection is closed
+        final List<NotificationEventWithMetadata<NotificationEvent>> futureNotifications = Iterables.toUnmodifiableList(retryQueue.getFutureNotificationForSearchKeys(callContext.getAccountRecordId(), callContext.getTenantRecordId()));
+        final List<NotificationEventWithMetadata<NotificationEvent>> coalescedNotifications = new ArrayList<NotificationEventWithMetadata<NotificationEvent>>();
+        for (final NotificationEventWithMetadata<NotificationEvent> futureNotification : futureNotifications) {
+            if (!(futureNotification.getEvent() instanceof PaymentRetryNotificationKey) || futureNotification.getEffectiveDate().isAfter(maxEffectiveDate)) {
+                continue;
+            }
+
+            final PaymentRetryNotificationKey key = (PaymentRetryNotificationKey) futureNotification.getEvent();
+            // Retries delayed by the rate shaper keep their reserved slot
+            if (!key.getAttemptId().equals(attemptId) && !Boolean.TRUE.equals(key.isRateLimited())) {
+                coalescedNotifications.add(futureNotification);
+            }
+        }
+        if (coalescedNotifications.isEmpty()) {
+            return;
+        }
+
+        // Plugins of all the coalesced retries, resolved at once for the account
+        final Map<UUID, String> paymentPluginNames = rateShaper.isEnabled() ?
+                                                     getPaymentPluginNames(coalescedNotifications.stream()
+                                                                                                 .map(notification -> ((PaymentRetryNotificationKey) notification.getEvent()).getAttemptId())
+                                                                                                 .collect(Collectors.toUnmodifiableSet()),
+                                                                           callContext) :
+                                                     Collections.emptyMap();
+        for (final NotificationEventWithMetadata<NotificationEvent> coalescedNotification : coalescedNotifications) {
+            final PaymentRetryNotificationKey key = (PaymentRetryNotificationKey) coalescedNotification.getEvent();
+            if (rateShaper.isEnabled() && !rateShaper.tryAcquire(paymentPluginNames.get(key.getAttemptId()))) {
+                break;
+            }
+
+            log.debug("Coalescing retry effectiveDate={}, key={} with attemptId='{}'", coalescedNotification.getEffectiveDate(), key, attemptId);
+            try {
+                timedRetryPaymentTransaction(key, callContext);
+            } catch (final RuntimeException e) {
+                // The original retry has been processed: don't let the failure escape (it would be rescheduled and charged again).
+                // Instead, leave this one and the other ones to the queue (e.g. the account lock is busy).
+                log.warn("Failed to process coalesced retry for attemptId='{}', leaving it to the queue", key.getAttemptId(), e);
+                break;
+            }
+            // Only removed once processed: should the queue dispatch it in the meantime, the duplicate retry is a no-op (the attempt has moved on)
+            retryQueue.removeNotification(coalescedNotification.getRecordId());
+            coalescedRetries.incrementAndGet();
+        }
+    }
+
+    private void timedRetryPaymentTransaction(final PaymentRetryNotificationKey key, final InternalCallContext callContext) {
+        final long startNanos = System.nanoTime();
+        try {
+            retryPaymentTransaction(key.getAttemptId(), key.getPaymentControlPluginNames(), callContext);
+        } finally {
+            dispatchTimer.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
     public abstract static class RetryServiceScheduler {
 
         private final NotificationQueueService notificationQueueService;
         private final InternalCallContextFactory internalCallContextFactory;
+        private final PaymentConfig paymentConfig;
+        private final Random random = new Random();
 
         @Inject
         public RetryServiceScheduler(final NotificationQueueService notificationQueueService,
-                                     final InternalCallContextFactory internalCallContextFactory) {
+                                     final InternalCallContextFactory internalCallContextFactory,
+                                     final PaymentConfig paymentConfig) {
             this.notificationQueueService = notificationQueueService;
             this.internalCallContextFactory = internalCallContextFactory;
+            this.paymentConfig = paymentConfig;
         }
 
         public boolean scheduleRetry(final ObjectType objectType, final UUID objectId, final UUID attemptId, final Long tenantRecordId, final List<String> paymentControlPluginNames, final DateTime timeOfRetry) {
@@ -137,11 +279,12 @@ public abstract class BaseRetryService extends RetryableService implements Retry
                 final NotificationQueue retryQueue = notificationQueueService.getNotificationQueue(KILLBILL_SERVICES.PAYMENT_SERVICE.getServiceName(), getQueueName());
                 final NotificationEvent key = new PaymentRetryNotificationKey(attemptId, paymentControlPluginNames);
                 if (retryQueue != null) {
-                    log.debug("Scheduling retry timeOfRetry={}, key={}", timeOfRetry, key);
+                    final DateTime jitteredTimeOfRetry = addJitter(timeOfRetry);
+                    log.debug("Scheduling retry timeOfRetry={}, key={}", jitteredTimeOfRetry, key);
                     if (transactionalDao == null) {
-                        retryQueue.recordFutureNotification(timeOfRetry, key, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
+                        retryQueue.recordFutureNotification(jitteredTimeOfRetry, key, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
                     } else {
-                        retryQueue.recordFutureNotificationFromTransaction(transactionalDao.getHandle().getConnection(), timeOfRetry, key, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
+                        retryQueue.recordFutureNotificationFromTransaction(transactionalDao.getHandle().getConnection(), jitteredTimeOfRetry, key, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
                     }
                 }
             } catch (final NoSuchNotificationQueue e) {
@@ -155,6 +298,15 @@ public abstract class BaseRetryService extends RetryableService implements Retry
         }
 
 
+        // Spread the retries scheduled at the same time (e.g. all the payments which failed during an outage)
+        private DateTime addJitter(final DateTime timeOfRetry) {
+            final long jitterMillis = paymentConfig.getPaymentRetryJitter().getMillis();
+            if (jitterMillis <= 0) {
+                return timeOfRetry;
+            }
+            return timeOfRetry.plus((long) (random.nextDouble() * jitterMillis));
+        }
+
         protected InternalCallContext createCallContextFromPaymentId(final ObjectType objectType, final UUID objectId, final Long tenantRecordId) {
             final String paymentRetryService = KILLBILL_SERVICES.PAYMENT_SERVICE.getServiceName() + "-" + getQueueName();
             return internalCallContextFactory.createInternalCallContext(objectId, objectType, paymentRetryService, CallOrigin.INTERNAL, UserType.SYSTEM, null, tenantRecordId);
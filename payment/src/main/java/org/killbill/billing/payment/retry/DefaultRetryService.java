@@ -17,13 +17,17 @@
 
 package org.killbill.billing.payment.retry;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.payment.core.PluginControlPaymentProcessor;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.clock.Clock;
+import org.killbill.commons.metrics.api.MetricRegistry;
 import org.killbill.notificationq.api.NotificationQueueService;
 
 import com.google.inject.Inject;
@@ -35,8 +39,13 @@ public class DefaultRetryService extends BaseRetryService implements RetryServic
     private final PluginControlPaymentProcessor processor;
 
     @Inject
-    public DefaultRetryService(final NotificationQueueService notificationQueueService, final Clock clock, final InternalCallContextFactory internalCallContextFactory, final PluginControlPaymentProcessor processor) {
-        super(notificationQueueService, clock, internalCallContextFactory);
+    public DefaultRetryService(final NotificationQueueService notificationQueueService,
+                               final Clock clock,
+                               final InternalCallContextFactory internalCallContextFactory,
+                               final PluginControlPaymentProcessor processor,
+                               final PaymentConfig paymentConfig,
+                               final MetricRegistry metricRegistry) {
+        super(notificationQueueService, clock, internalCallContextFactory, paymentConfig, metricRegistry);
         this.processor = processor;
     }
 
@@ -50,11 +59,21 @@ public class DefaultRetryService extends BaseRetryService implements RetryServic
         processor.retryPaymentTransaction(attemptId, paymentControlPluginNames, context);
     }
 
+    @Override
+    protected String getPaymentPluginName(final UUID attemptId, final InternalCallContext context) {
+        return processor.getPaymentPluginNameForAttempt(attemptId, context);
+    }
+
+    @Override
+    protected Map<UUID, String> getPaymentPluginNames(final Collection<UUID> attemptIds, final InternalCallContext context) {
+        return processor.getPaymentPluginNamesForAttempts(attemptIds, context);
+    }
+
     public static class DefaultRetryServiceScheduler extends RetryServiceScheduler {
 
         @Inject
-        public DefaultRetryServiceScheduler(final NotificationQueueService notificationQueueService, final InternalCallContextFactory internalCallContextFactory) {
-            super(notificationQueueService, internalCallContextFactory);
+        public DefaultRetryServiceScheduler(final NotificationQueueService notificationQueueService, final InternalCallContextFactory internalCallContextFactory, final PaymentConfig paymentConfig) {
+            super(notificationQueueService, internalCallContextFactory, paymentConfig);
         }
 
         @Override
@@ -30,12 +30,19 @@ public class PaymentRetryNotificationKey implements NotificationEvent {
 
     private final UUID attemptId;
     private final List<String> paymentControlPluginNames;
+    private final Boolean isRateLimited;
+
+    public PaymentRetryNotificationKey(final UUID attemptId, final List<String> paymentControlPluginNames) {
+        this(attemptId, paymentControlPluginNames, false);
+    }
 
     @JsonCreator
     public PaymentRetryNotificationKey(@JsonProperty("attemptId") UUID attemptId,
-                                       @JsonProperty("paymentControlPluginNames") List<String> paymentControlPluginNames) {
+                                       @JsonProperty("paymentControlPluginNames") List<String> paymentControlPluginNames,
+                                       @JsonProperty("isRateLimited") Boolean isRateLimited) {
         this.attemptId = attemptId;
         this.paymentControlPluginNames = paymentControlPluginNames;
+        this.isRateLimited = isRateLimited;
     }
 
     public UUID getAttemptId() {
@@ -46,11 +53,18 @@ public class PaymentRetryNotificationKey implements NotificationEvent {
         return paymentControlPluginNames;
     }
 
+    // Whether the retry was already delayed by the rate shaper (i.e. its slot has been reserved)
+    @JsonProperty("isRateLimited")
+    public Boolean isRateLimited() {
+        return isRateLimited;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("PaymentRetryNotificationKey{");
         sb.append("attemptId=").append(attemptId);
         sb.append(", paymentControlPluginNames=").append(paymentControlPluginNames);
+        sb.append(", isRateLimited=").append(isRateLimited);
         sb.append('}');
         return sb.toString();
     }
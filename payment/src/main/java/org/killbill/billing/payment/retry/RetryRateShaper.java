@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.retry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.clock.Clock;
+import org.killbill.commons.metrics.api.Gauge;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per payment plugin token buckets for the retry queue (per node). A retry which doesn't get a token isn't dropped: a slot
+ * is reserved for it in the future (the bucket goes into debt), so that retries due at the same time (e.g. after an outage)
+ * are dispatched to the gateway at the configured rate instead of in a burst.
+ */
+public class RetryRateShaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryRateShaper.class);
+
+    private static final String PROP_METRIC_REG_RETRY_RATE = "payment.retry.rate.";
+    private static final String UNKNOWN_PLUGIN = "unknown";
+
+    private final Clock clock;
+    private final MetricRegistry metricRegistry;
+    // Maximum number of retries per second: per plugin and default (key null)
+    private final Map<String, Double> ratePerPlugin;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+
+    public RetryRateShaper(final PaymentConfig paymentConfig, final Clock clock, final MetricRegistry metricRegistry) {
+        this.clock = clock;
+        this.metricRegistry = metricRegistry;
+        this.ratePerPlugin = parseRates(paymentConfig.getPaymentRetryRateLimits());
+    }
+
+    public boolean isEnabled() {
+        return !ratePerPlugin.isEmpty();
+    }
+
+    /**
+     * @param pluginName the payment plugin the retry will go to (null if unknown)
+     * @return 0 if the retry can be dispatched right away, the delay (in milliseconds) of its reserved slot otherwise
+     */
+    public long reserve(@Nullable final String pluginName) {
+        final TokenBucket bucket = getTokenBucket(pluginName);
+        return bucket == null ? 0 : bucket.reserve(clock.getUTCNow().getMillis());
+    }
+
+    /**
+     * @param pluginName the payment plugin the retry will go to (null if unknown)
+     * @return true if a token was available (no slot is reserved otherwise)
+     */
+    public boolean tryAcquire(@Nullable final String pluginName) {
+        final TokenBucket bucket = getTokenBucket(pluginName);
+        return bucket == null || bucket.tryAcquire(clock.getUTCNow().getMillis());
+    }
+
+    private TokenBucket getTokenBucket(@Nullable final String pluginName) {
+        final String bucketName = pluginName != null ? pluginName : UNKNOWN_PLUGIN;
+        final Double rate = ratePerPlugin.getOrDefault(bucketName, ratePerPlugin.get(null));
+        if (rate == null) {
+            return null;
+        }
+        return buckets.computeIfAbsent(bucketName, name -> createTokenBucket(name, rate));
+    }
+
+    private TokenBucket createTokenBucket(final String pluginName, final double ratePerSecond) {
+        final TokenBucket bucket = new TokenBucket(ratePerSecond, clock.getUTCNow().getMillis());
+
+        final String metricPrefix = PROP_METRIC_REG_RETRY_RATE + pluginName;
+        final Gauge<Object> granted = bucket.grantedCount::get;
+        final Gauge<Object> delayed = bucket.delayedCount::get;
+        final Gauge<Object> backlog = () -> bucket.getBacklog(clock.getUTCNow().getMillis());
+        metricRegistry.gauge(metricPrefix + ".granted", granted);
+        metricRegistry.gauge(metricPrefix + ".delayed", delayed);
+        metricRegistry.gauge(metricPrefix + ".backlog", backlog);
+
+        return bucket;
+    }
+
+    // Format: [<pluginName>:]<maxRetriesPerSecond>
+    private static Map<String, Double> parseRates(final Iterable<String> rates) {
+        final Map<String, Double> result = new HashMap<String, Double>();
+        for (final String entry : rates) {
+            final String trimmedEntry = entry.trim();
+            if (trimmedEntry.isEmpty()) {
+                continue;
+            }
+
+            final int separator = trimmedEntry.lastIndexOf(':');
+            try {
+                final String pluginName = separator > 0 ? trimmedEntry.substring(0, separator) : null;
+                final double rate = Double.parseDouble(trimmedEntry.substring(separator + 1));
+                if (rate <= 0) {
+                    throw new IllegalArgumentException("The rate should be positive");
+                }
+                result.put(pluginName, rate);
+            } catch (final RuntimeException e) {
+                logger.warn("Ignoring invalid payment retry rate limit entry='{}'", trimmedEntry, e);
+            }
+        }
+        return result;
+    }
+
+    private static final class TokenBucket {
+
+        private final double tokensPerMillis;
+        // Allowed burst: one second worth of retries
+        private final double capacity;
+
+        private final AtomicLong grantedCount = new AtomicLong();
+        private final AtomicLong delayedCount = new AtomicLong();
+
+        private double tokens;
+        private long lastRefillMillis;
+
+        private TokenBucket(final double ratePerSecond, final long nowMillis) {
+            this.tokensPerMillis = ratePerSecond / 1000;
+            this.capacity = Math.max(1, ratePerSecond);
+            this.tokens = capacity;
+            this.lastRefillMillis = nowMillis;
+        }
+
+        private synchronized long reserve(final long nowMillis) {
+            refill(nowMillis);
+
+            tokens -= 1;
+            if (tokens >= 0) {
+                grantedCount.incrementAndGet();
+                return 0;
+            } else {
+                delayedCount.incrementAndGet();
+                return (long) Math.ceil(-tokens / tokensPerMillis);
+            }
+        }
+
+        private synchronized boolean tryAcquire(final long nowMillis) {
+            refill(nowMillis);
+
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            grantedCount.incrementAndGet();
+            return true;
+        }
+
+        // Number of retries which have a reserved slot in the future
+        private synchronized long getBacklog(final long nowMillis) {
+            refill(nowMillis);
+            return (long) Math.ceil(Math.max(0, -tokens));
+        }
+
+        private void refill(final long nowMillis) {
+            if (nowMillis > lastRefillMillis) {
+                tokens = Math.min(capacity, tokens + (nowMillis - lastRefillMillis) * tokensPerMillis);
+                lastRefillMillis = nowMillis;
+            }
+        }
+    }
+}
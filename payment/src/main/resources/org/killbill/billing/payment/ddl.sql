@@ -208,6 +208,65 @@ CREATE TABLE payment_transaction_history (
 CREATE INDEX transaction_history_target_record_id ON payment_transaction_history(target_record_id);
 CREATE INDEX transaction_history_tenant_account_record_id ON payment_transaction_history(tenant_record_id, account_record_id);
 
+/* Payments pre-joined with their transactions (one row per transaction), maintained along with payments and payment_transactions */
+DROP TABLE IF EXISTS account_payment_summaries;
+CREATE TABLE account_payment_summaries (
+    record_id serial unique,
+    payment_id varchar(36) NOT NULL,
+    payment_record_id bigint /*! unsigned */ not null,
+    account_id varchar(36) NOT NULL,
+    payment_method_id varchar(36) NOT NULL,
+    payment_external_key varchar(255) NOT NULL,
+    state_name varchar(64) DEFAULT NULL,
+    last_success_state_name varchar(64) DEFAULT NULL,
+    payment_created_date datetime NOT NULL,
+    payment_updated_date datetime NOT NULL,
+    transaction_id varchar(36) NOT NULL,
+    transaction_record_id bigint /*! unsigned */ not null,
+    attempt_id varchar(36) DEFAULT NULL,
+    transaction_external_key varchar(255) NOT NULL,
+    transaction_type varchar(32) NOT NULL,
+    effective_date datetime NOT NULL,
+    transaction_status varchar(50) NOT NULL,
+    amount numeric(15,9),
+    currency varchar(3),
+    processed_amount numeric(15,9),
+    processed_currency varchar(3),
+    gateway_error_code varchar(32),
+    gateway_error_msg text,
+    transaction_created_date datetime NOT NULL,
+    transaction_updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY (record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX account_payment_summaries_transaction_id ON account_payment_summaries(transaction_id);
+CREATE INDEX account_payment_summaries_payment_id ON account_payment_summaries(payment_id);
+CREATE INDEX account_payment_summaries_tenant_account_payment_record_id ON account_payment_summaries(tenant_record_id, account_record_id, payment_record_id);
+
+/* Accounts for which account_payment_summaries is maintained: tracked on first read, built on the next one */
+DROP TABLE IF EXISTS account_payment_summary_accounts;
+CREATE TABLE account_payment_summary_accounts (
+    record_id serial unique,
+    is_built boolean NOT NULL,
+    version int NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY (record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX account_payment_summary_accounts_tenant_account_record_id ON account_payment_summary_accounts(tenant_record_id, account_record_id);
+
+/* Position of the janitor batch reconciliation (across tenants), shared by the nodes */
+DROP TABLE IF EXISTS payment_janitor_batch_cursors;
+CREATE TABLE payment_janitor_batch_cursors (
+    record_id serial unique,
+    cursor_name varchar(64) NOT NULL,
+    last_record_id bigint /*! unsigned */ not null,
+    updated_date datetime NOT NULL,
+    PRIMARY KEY (record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX payment_janitor_batch_cursors_cursor_name ON payment_janitor_batch_cursors(cursor_name);
+
 
 /*  PaymentControlPlugin lives  here until this becomes a first class citizen plugin */
 DROP TABLE IF EXISTS invoice_payment_control_plugin_auto_pay_off;
@@ -0,0 +1,43 @@
+CREATE TABLE account_payment_summaries (
+    record_id serial unique,
+    payment_id varchar(36) NOT NULL,
+    payment_record_id bigint /*! unsigned */ not null,
+    account_id varchar(36) NOT NULL,
+    payment_method_id varchar(36) NOT NULL,
+    payment_external_key varchar(255) NOT NULL,
+    state_name varchar(64) DEFAULT NULL,
+    last_success_state_name varchar(64) DEFAULT NULL,
+    payment_created_date datetime NOT NULL,
+    payment_updated_date datetime NOT NULL,
+    transaction_id varchar(36) NOT NULL,
+    transaction_record_id bigint /*! unsigned */ not null,
+    attempt_id varchar(36) DEFAULT NULL,
+    transaction_external_key varchar(255) NOT NULL,
+    transaction_type varchar(32) NOT NULL,
+    effective_date datetime NOT NULL,
+    transaction_status varchar(50) NOT NULL,
+    amount numeric(15,9),
+    currency varchar(3),
+    processed_amount numeric(15,9),
+    processed_currency varchar(3),
+    gateway_error_code varchar(32),
+    gateway_error_msg text,
+    transaction_created_date datetime NOT NULL,
+    transaction_updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY (record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX account_payment_summaries_transaction_id ON account_payment_summaries(transaction_id);
+CREATE INDEX account_payment_summaries_payment_id ON account_payment_summaries(payment_id);
+CREATE INDEX account_payment_summaries_tenant_account_payment_record_id ON account_payment_summaries(tenant_record_id, account_record_id, payment_record_id);
+
+CREATE TABLE account_payment_summary_accounts (
+    record_id serial unique,
+    is_built boolean NOT NULL,
+    version int NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY (record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX account_payment_summary_accounts_tenant_account_record_id ON account_payment_summary_accounts(tenant_record_id, account_record_id);
@@ -0,0 +1,8 @@
+CREATE TABLE payment_janitor_batch_cursors (
+    record_id serial unique,
+    cursor_name varchar(64) NOT NULL,
+    last_record_id bigint /*! unsigned */ not null,
+    updated_date datetime NOT NULL,
+    PRIMARY KEY (record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX payment_janitor_batch_cursors_cursor_name ON payment_janitor_batch_cursors(cursor_name);
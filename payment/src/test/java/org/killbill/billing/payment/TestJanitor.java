@@ -49,6 +49,7 @@ import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.payment.bus.PaymentBusEventHandler;
+import org.killbill.billing.payment.core.janitor.IncompletePaymentTransactionBatchTask;
 import org.killbill.billing.payment.core.janitor.Janitor;
 import org.killbill.billing.payment.dao.PaymentAttemptModelDao;
 import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
@@ -108,6 +109,8 @@ public class TestJanitor extends PaymentTestSuiteWithEmbeddedDB {
     protected NotificationQueueService notificationQueueService;
     @Inject
     private PaymentBusEventHandler handler;
+    @Inject
+    private IncompletePaymentTransactionBatchTask incompletePaymentTransactionBatchTask;
     private MockPaymentProviderPlugin mockPaymentProviderPlugin;
 
     private Account account;
@@ -118,6 +121,9 @@ public class TestJanitor extends PaymentTestSuiteWithEmbeddedDB {
         allExtraProperties.put("org.killbill.payment.provider.default", MockPaymentProviderPlugin.PLUGIN_NAME);
         allExtraProperties.put("killbill.payment.engine.events.off", "false");
         allExtraProperties.put("org.killbill.payment.janitor.rate", "500ms");
+        allExtraProperties.put("org.killbill.payment.janitor.batch.delay", "1s");
+        // Several batches per run
+        allExtraProperties.put("org.killbill.payment.janitor.batch.size", "2");
         return getConfigSource(null, allExtraProperties);
     }
 
@@ -370,6 +376,45 @@ public class TestJanitor extends PaymentTestSuiteWithEmbeddedDB {
         assertEquals(updatedPayment.getTransactions().get(0).getTransactionStatus(), TransactionStatus.SUCCESS);
     }
 
+    @Test(groups = "slow")
+    public void testUnknownEntriesWithBatchReconciliation() throws PaymentApiException, EventBusException {
+        final BigDecimal requestedAmount = BigDecimal.TEN;
+
+        final List<Payment> payments = new ArrayList<Payment>();
+        for (int i = 0; i < 3; i++) {
+            testListener.pushExpectedEvent(NextEvent.PAYMENT);
+            payments.add(paymentApi.createAuthorization(account, account.getPaymentMethodId(), null, requestedAmount, account.getCurrency(), null, UUID.randomUUID().toString(),
+                                                        UUID.randomUUID().toString(), Collections.emptyList(), callContext));
+            testListener.assertListenerStatus();
+        }
+
+        // Artificially move the transaction statuses to UNKNOWN
+        final String paymentStateName = paymentSMHelper.getErroredStateForTransaction(TransactionType.AUTHORIZE).toString();
+        for (final Payment payment : payments) {
+            testListener.pushExpectedEvent(NextEvent.PAYMENT_PLUGIN_ERROR);
+            paymentDao.updatePaymentAndTransactionOnCompletion(account.getId(), null, payment.getId(), TransactionType.AUTHORIZE, paymentStateName, paymentStateName,
+                                                               payment.getTransactions().get(0).getId(), TransactionStatus.UNKNOWN, requestedAmount, account.getCurrency(),
+                                                               "foo", "bar", true, internalCallContext);
+            testListener.assertListenerStatus();
+        }
+
+        // Past org.killbill.payment.janitor.batch.delay, but before the first janitor notification
+        clock.addDeltaFromReality(2 * 1000);
+
+        final long repairedBefore = incompletePaymentTransactionBatchTask.getRepairedTransactions();
+        testListener.pushExpectedEvents(NextEvent.PAYMENT, NextEvent.PAYMENT, NextEvent.PAYMENT);
+        incompletePaymentTransactionBatchTask.run();
+        testListener.assertListenerStatus();
+        assertEquals(incompletePaymentTransactionBatchTask.getRepairedTransactions() - repairedBefore, 3);
+        // Back to the beginning for the next run
+        assertEquals((long) paymentDao.getJanitorBatchCursor("PAYMENT_JANITOR_BATCH"), 0L);
+
+        for (final Payment payment : payments) {
+            final Payment updatedPayment = paymentApi.getPayment(payment.getId(), false, false, Collections.emptyList(), callContext);
+            assertEquals(updatedPayment.getTransactions().get(0).getTransactionStatus(), TransactionStatus.SUCCESS);
+        }
+    }
+
     // Flaky, see https://github.com/killbill/killbill/issues/860
     @Test(groups = "slow", retryAnalyzer = FlakyRetryAnalyzer.class)
     public void testUnknownEntriesWithFailures() throws PaymentApiException, EventBusException {
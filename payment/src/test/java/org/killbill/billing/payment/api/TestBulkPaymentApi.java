@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.BulkPaymentApi;
+import org.killbill.billing.payment.BulkPaymentApi.BulkPaymentMethodRefreshResult;
+import org.killbill.billing.payment.BulkPaymentApi.BulkPaymentMethodRefreshResultHandler;
+import org.killbill.billing.payment.BulkPaymentApi.BulkPaymentRequest;
+import org.killbill.billing.payment.BulkPaymentApi.BulkPaymentResult;
+import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestBulkPaymentApi extends PaymentTestSuiteWithEmbeddedDB {
+
+    private static final PaymentOptions PAYMENT_OPTIONS = new PaymentOptions() {
+        @Override
+        public boolean isExternalPayment() {
+            return false;
+        }
+
+        @Override
+        public List<String> getPaymentControlPluginNames() {
+            return Collections.emptyList();
+        }
+    };
+
+    @Inject
+    private BulkPaymentApi bulkPaymentApi;
+
+    @Test(groups = "slow")
+    public void testCreatePurchases() throws Exception {
+        final Account account1 = testHelper.createTestAccount(UUID.randomUUID().toString(), true);
+        final Account account2 = testHelper.createTestAccount(UUID.randomUUID().toString(), true);
+
+        final List<BulkPaymentRequest> requests = new ArrayList<BulkPaymentRequest>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(new TestBulkPaymentRequest(account1.getId(), BigDecimal.TEN));
+            requests.add(new TestBulkPaymentRequest(account2.getId(), BigDecimal.ONE));
+        }
+        // Unknown account: shouldn't prevent the other payments from going through
+        final BulkPaymentRequest invalidRequest = new TestBulkPaymentRequest(UUID.randomUUID(), BigDecimal.TEN);
+        requests.add(invalidRequest);
+
+        final Map<String, BulkPaymentResult> results = new HashMap<String, BulkPaymentResult>();
+        bulkPaymentApi.createPayments(TransactionType.PURCHASE,
+                                      requests.iterator(),
+                                      PAYMENT_OPTIONS,
+                                      result -> results.put(result.getRequest().getPaymentTransactionExternalKey(), result),
+                                      callContext);
+        Assert.assertEquals(results.size(), requests.size());
+
+        final BulkPaymentResult invalidResult = results.get(invalidRequest.getPaymentTransactionExternalKey());
+        Assert.assertNull(invalidResult.getPayment());
+        Assert.assertNotNull(invalidResult.getException());
+
+        for (final BulkPaymentRequest request : requests) {
+            if (request == invalidRequest) {
+                continue;
+            }
+
+            final BulkPaymentResult result = results.get(request.getPaymentTransactionExternalKey());
+            Assert.assertNull(result.getException());
+            Assert.assertEquals(result.getPayment().getAccountId(), request.getAccountId());
+            Assert.assertEquals(result.getPayment().getPurchasedAmount().compareTo(request.getAmount()), 0);
+            Assert.assertEquals(result.getPayment().getCurrency(), Currency.USD);
+            Assert.assertEquals(result.getPayment().getTransactions().size(), 1);
+            Assert.assertEquals(result.getPayment().getTransactions().get(0).getTransactionStatus(), TransactionStatus.SUCCESS);
+
+            final Payment payment = paymentApi.getPayment(result.getPayment().getId(), false, false, Collections.emptyList(), callContext);
+            Assert.assertEquals(payment.getExternalKey(), request.getPaymentExternalKey());
+        }
+
+        Assert.assertEquals(paymentApi.getAccountPayments(account1.getId(), false, false, Collections.emptyList(), callContext).size(), 3);
+        Assert.assertEquals(paymentApi.getAccountPayments(account2.getId(), false, false, Collections.emptyList(), callContext).size(), 3);
+    }
+
+    @Test(groups = "slow", expectedExceptions = PaymentApiException.class)
+    public void testUnsupportedTransactionType() throws Exception {
+        bulkPaymentApi.createPayments(TransactionType.REFUND,
+                                      Collections.<BulkPaymentRequest>emptyIterator(),
+                                      PAYMENT_OPTIONS,
+                                      result -> Assert.fail(),
+                                      callContext);
+    }
+
+    @Test(groups = "slow")
+    public void testRefreshPaymentMethods() throws Exception {
+        final Account account1 = testHelper.createTestAccount(UUID.randomUUID().toString(), true);
+        final Account account2 = testHelper.createTestAccount(UUID.randomUUID().toString(), true);
+        final UUID unknownAccountId = UUID.randomUUID();
+
+        final Map<UUID, BulkPaymentMethodRefreshResult> results = new HashMap<UUID, BulkPaymentMethodRefreshResult>();
+        final List<Long> progress = new ArrayList<Long>();
+        bulkPaymentApi.refreshPaymentMethods(List.of(account1.getId(), unknownAccountId, account2.getId()).iterator(),
+                                             null,
+                                             Collections.emptyList(),
+                                             new BulkPaymentMethodRefreshResultHandler() {
+                                                 @Override
+                                                 public void onResult(final BulkPaymentMethodRefreshResult result) {
+                                                     results.put(result.getAccountId(), result);
+                                                 }
+
+                                                 @Override
+                                                 public void onProgress(final long nbAccountsProcessed, final long nbAccountsFailed) {
+                                                     progress.add(nbAccountsProcessed);
+                                                     progress.add(nbAccountsFailed);
+                                                 }
+                                             },
+                                             callContext);
+        Assert.assertEquals(results.size(), 3);
+        Assert.assertEquals(progress, List.of(3L, 1L));
+
+        Assert.assertNull(results.get(unknownAccountId).getPaymentMethods());
+        Assert.assertNotNull(results.get(unknownAccountId).getException());
+        for (final Account account : List.of(account1, account2)) {
+            final BulkPaymentMethodRefreshResult result = results.get(account.getId());
+            Assert.assertNull(result.getException());
+            Assert.assertEquals(result.getPaymentMethods().size(), 1);
+            Assert.assertEquals(result.getPaymentMethods().get(0).getId(), account.getPaymentMethodId());
+        }
+    }
+
+    private static final class TestBulkPaymentRequest implements BulkPaymentRequest {
+
+        private final UUID accountId;
+        private final BigDecimal amount;
+        private final String paymentExternalKey = UUID.randomUUID().toString();
+        private final String paymentTransactionExternalKey = UUID.randomUUID().toString();
+
+        private TestBulkPaymentRequest(final UUID accountId, final BigDecimal amount) {
+            this.accountId = accountId;
+            this.amount = amount;
+        }
+
+        @Override
+        public UUID getAccountId() {
+            return accountId;
+        }
+
+        @Override
+        public UUID getPaymentMethodId() {
+            return null;
+        }
+
+        @Override
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        @Override
+        public Currency getCurrency() {
+            return null;
+        }
+
+        @Override
+        public DateTime getEffectiveDate() {
+            return null;
+        }
+
+        @Override
+        public String getPaymentExternalKey() {
+            return paymentExternalKey;
+        }
+
+        @Override
+        public String getPaymentTransactionExternalKey() {
+            return paymentTransactionExternalKey;
+        }
+
+        @Override
+        public Iterable<PluginProperty> getProperties() {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.caching;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.payment.api.TransactionStatus;
+import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestPaymentTransactionInfoPluginCache extends PaymentTestSuiteNoDB {
+
+    private static final String PLUGIN_NAME = "my-plugin";
+    private static final String OTHER_PLUGIN_NAME = "my-other-plugin";
+
+    private PaymentTransactionInfoPluginCache cache;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+        super.beforeMethod();
+
+        final PaymentConfig config = Mockito.mock(PaymentConfig.class);
+        Mockito.when(config.isPaymentPluginInfoCacheEnabled()).thenReturn(true);
+        Mockito.when(config.getPaymentPluginInfoCacheTtl()).thenReturn(List.of("SUCCESS:forever", "PENDING:1m", OTHER_PLUGIN_NAME + ":SUCCESS:0s"));
+        Mockito.when(config.getPaymentPluginInfoCacheMaxSize()).thenReturn(100);
+        cache = new DefaultPaymentTransactionInfoPluginCache(config, clock);
+    }
+
+    @Test(groups = "fast")
+    public void testTerminalTransactionsAreCachedForever() {
+        final UUID paymentId = UUID.randomUUID();
+        final PaymentTransactionModelDao transaction = createTransaction(TransactionStatus.SUCCESS);
+        final List<PaymentTransactionInfoPlugin> infoPlugins = List.of(Mockito.mock(PaymentTransactionInfoPlugin.class));
+
+        cache.putPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(transaction), infoPlugins);
+        clock.addDays(365);
+        Assert.assertEquals(cache.getPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(transaction)), infoPlugins);
+
+        // Explicit invalidation
+        cache.invalidate(paymentId);
+        Assert.assertNull(cache.getPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(transaction)));
+    }
+
+    @Test(groups = "fast")
+    public void testTtlPerStatusAndPerPlugin() {
+        final UUID paymentId = UUID.randomUUID();
+        final PaymentTransactionModelDao successTransaction = createTransaction(TransactionStatus.SUCCESS);
+        final PaymentTransactionModelDao pendingTransaction = createTransaction(TransactionStatus.PENDING);
+        final List<PaymentTransactionInfoPlugin> infoPlugins = List.of(Mockito.mock(PaymentTransactionInfoPlugin.class));
+
+        // The least cacheable transaction drives the freshness of the entry
+        cache.putPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(successTransaction, pendingTransaction), infoPlugins);
+        Assert.assertEquals(cache.getPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(successTransaction, pendingTransaction)), infoPlugins);
+        clock.addDeltaFromReality(2 * 60 * 1000);
+        Assert.assertNull(cache.getPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(successTransaction, pendingTransaction)));
+
+        // Statuses not configured aren't cached
+        final PaymentTransactionModelDao unknownTransaction = createTransaction(TransactionStatus.UNKNOWN);
+        cache.putPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(unknownTransaction), infoPlugins);
+        Assert.assertNull(cache.getPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(unknownTransaction)));
+
+        // Plugin specific override
+        cache.putPaymentTransactionInfoPlugins(OTHER_PLUGIN_NAME, paymentId, List.of(successTransaction), infoPlugins);
+        Assert.assertNull(cache.getPaymentTransactionInfoPlugins(OTHER_PLUGIN_NAME, paymentId, List.of(successTransaction)));
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidationOnStateChange() {
+        final UUID paymentId = UUID.randomUUID();
+        final UUID transactionId = UUID.randomUUID();
+        final PaymentTransactionModelDao pendingTransaction = createTransaction(transactionId, TransactionStatus.PENDING);
+        final List<PaymentTransactionInfoPlugin> infoPlugins = List.of(Mockito.mock(PaymentTransactionInfoPlugin.class));
+
+        cache.putPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(pendingTransaction), infoPlugins);
+        Assert.assertEquals(cache.getPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(pendingTransaction)), infoPlugins);
+
+        // Status updated (e.g. by another node)
+        final PaymentTransactionModelDao successTransaction = createTransaction(transactionId, TransactionStatus.SUCCESS);
+        Assert.assertNull(cache.getPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(successTransaction)));
+
+        // New transaction
+        cache.putPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(successTransaction), infoPlugins);
+        Assert.assertNull(cache.getPaymentTransactionInfoPlugins(PLUGIN_NAME, paymentId, List.of(successTransaction, createTransaction(TransactionStatus.SUCCESS))));
+    }
+
+    private PaymentTransactionModelDao createTransaction(final TransactionStatus transactionStatus) {
+        return createTransaction(UUID.randomUUID(), transactionStatus);
+    }
+
+    private PaymentTransactionModelDao createTransaction(final UUID transactionId, final TransactionStatus transactionStatus) {
+        final PaymentTransactionModelDao transaction = Mockito.mock(PaymentTransactionModelDao.class);
+        Mockito.when(transaction.getId()).thenReturn(transactionId);
+        Mockito.when(transaction.getTransactionStatus()).thenReturn(transactionStatus);
+        return transaction;
+    }
+}
@@ -91,6 +91,28 @@ public class TestPaymentMethodProcessorRefreshWithDB extends PaymentTestSuiteWit
         Assert.assertFalse(deletedPMModel.isActive());
     }
 
+    @Test(groups = "slow")
+    public void testRefreshAllPlugins() throws Exception {
+        final Account account = testHelper.createTestAccount("all@bar.com", true);
+        final UUID existingPMId = account.getPaymentMethodId();
+
+        // Add new payment in plugin directly
+        final UUID newPmId = UUID.randomUUID();
+        getPluginApi().addPaymentMethod(account.getId(), newPmId, new DefaultNoOpPaymentMethodPlugin(UUID.randomUUID().toString(), false, Collections.emptyList()), false, PLUGIN_PROPERTIES, callContext);
+
+        // All plugins are queried at once: each payment method should be returned only once
+        final List<PaymentMethod> methods = paymentMethodProcessor.refreshPaymentMethods(paymentMethodProcessor.getAvailablePlugins(), account, PLUGIN_PROPERTIES, callContext, internalCallContext);
+        Assert.assertEquals(methods.size(), 2);
+        checkPaymentMethodExistsWithStatus(methods, existingPMId, true);
+        checkPaymentMethodExistsWithStatus(methods, newPmId, true);
+
+        // Nothing changed in the plugin
+        final List<PaymentMethod> refreshedMethods = paymentMethodProcessor.refreshPaymentMethods(paymentMethodProcessor.getAvailablePlugins(), account, PLUGIN_PROPERTIES, callContext, internalCallContext);
+        Assert.assertEquals(refreshedMethods.size(), 2);
+        checkPaymentMethodExistsWithStatus(refreshedMethods, existingPMId, true);
+        checkPaymentMethodExistsWithStatus(refreshedMethods, newPmId, true);
+    }
+
     private void checkPaymentMethodExistsWithStatus(final List<PaymentMethod> methods, final UUID expectedPaymentMethodId, final boolean expectedActive) {
         PaymentMethod foundPM = null;
         for (final PaymentMethod cur : methods) {
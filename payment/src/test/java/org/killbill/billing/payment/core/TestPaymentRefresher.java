@@ -103,7 +103,8 @@ public class TestPaymentRefresher extends PaymentTestSuiteNoDB {
                                                              invoiceApi,
                                                              clock,
                                                              null, // notificationQueueService
-                                                             null /* incompletePaymentTransactionTask */);
+                                                             null, // incompletePaymentTransactionTask
+                                                             null /* paymentTransactionInfoPluginCache */);
         final PaymentRefresher toMock = Mockito.spy(result);
         Mockito.doReturn(anyPayment())
                .when(toMock).toPayment(Mockito.any(UUID.class),
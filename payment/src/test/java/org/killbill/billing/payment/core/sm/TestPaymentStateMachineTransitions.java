@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core.sm;
+
+import org.killbill.automaton.MissingEntryException;
+import org.killbill.automaton.StateMachineConfig;
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.glue.PaymentModule;
+import org.killbill.billing.payment.glue.PaymentModule.StateMachineProvider;
+import org.killbill.billing.payment.provider.MockPaymentProviderPlugin;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPaymentStateMachineTransitions extends PaymentTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testCompiledTransitionsMatchConfig() throws Exception {
+        final StateMachineConfig stateMachineConfig = new StateMachineProvider(PaymentModule.DEFAULT_STATE_MACHINE_PAYMENT_XML).get();
+        final PaymentStateMachineTransitions transitions = new PaymentStateMachineTransitions(stateMachineConfig, paymentSMHelper);
+
+        final String initStateName = paymentSMHelper.getInitStateNameForTransaction();
+        Assert.assertEquals(transitions.getState(initStateName), stateMachineConfig.getStateMachineForState(initStateName).getState(initStateName));
+        for (final String stateName : PaymentStateMachineHelper.STATE_NAMES) {
+            Assert.assertEquals(transitions.getState(stateName), stateMachineConfig.getStateMachineForState(stateName).getState(stateName));
+        }
+        for (final TransactionType transactionType : TransactionType.values()) {
+            Assert.assertEquals(transitions.getOperation(transactionType), paymentSMHelper.getOperationForTransaction(stateMachineConfig, transactionType));
+        }
+
+        try {
+            transitions.getState("UNKNOWN_STATE");
+            Assert.fail();
+        } catch (final MissingEntryException e) {
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testTransitionsAreCompiledOncePerConfig() throws Exception {
+        final PaymentStateMachineTransitions transitions = paymentSMHelper.getStateMachineTransitions(MockPaymentProviderPlugin.PLUGIN_NAME, internalCallContext);
+        Assert.assertSame(paymentSMHelper.getStateMachineTransitions(MockPaymentProviderPlugin.PLUGIN_NAME, internalCallContext), transitions);
+        Assert.assertSame(transitions.getStateMachineConfig(), paymentSMHelper.getStateMachineConfig(MockPaymentProviderPlugin.PLUGIN_NAME, internalCallContext));
+    }
+
+    @Test(groups = "fast")
+    public void testFingerprintDependsOnContentOnly() throws Exception {
+        final StateMachineConfig stateMachineConfig = new StateMachineProvider(PaymentModule.DEFAULT_STATE_MACHINE_PAYMENT_XML).get();
+        final StateMachineConfig otherInstance = new StateMachineProvider(PaymentModule.DEFAULT_STATE_MACHINE_PAYMENT_XML).get();
+        final StateMachineConfig retryStateMachineConfig = new StateMachineProvider(PaymentModule.DEFAULT_STATE_MACHINE_RETRY_XML).get();
+
+        Assert.assertNotSame(otherInstance, stateMachineConfig);
+        Assert.assertEquals(PaymentStateMachineTransitions.computeFingerprint(otherInstance), PaymentStateMachineTransitions.computeFingerprint(stateMachineConfig));
+        Assert.assertNotEquals(PaymentStateMachineTransitions.computeFingerprint(retryStateMachineConfig), PaymentStateMachineTransitions.computeFingerprint(stateMachineConfig));
+        Assert.assertEquals(new PaymentStateMachineTransitions(stateMachineConfig, paymentSMHelper).getFingerprint(), PaymentStateMachineTransitions.computeFingerprint(otherInstance));
+    }
+}
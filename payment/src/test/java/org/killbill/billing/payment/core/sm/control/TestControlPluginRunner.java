@@ -22,16 +22,27 @@ import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.control.plugin.api.OnFailurePaymentControlResult;
+import org.killbill.billing.control.plugin.api.OnSuccessPaymentControlResult;
 import org.killbill.billing.control.plugin.api.PaymentApiType;
+import org.killbill.billing.control.plugin.api.PaymentControlContext;
+import org.killbill.billing.control.plugin.api.PaymentControlPluginApi;
 import org.killbill.billing.control.plugin.api.PriorPaymentControlResult;
+import org.killbill.billing.osgi.api.OSGIServiceDescriptor;
 import org.killbill.billing.payment.PaymentTestSuiteNoDB;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.payment.provider.DefaultPaymentControlProviderPluginRegistry;
+import org.killbill.billing.payment.retry.DefaultFailureCallResult;
+import org.killbill.billing.payment.retry.DefaultOnSuccessPaymentControlResult;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.commons.metrics.impl.NoOpMetricRegistry;
 import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -50,7 +61,7 @@ public class TestControlPluginRunner extends PaymentTestSuiteNoDB {
         final List<String> paymentControlPluginNames = List.of("not-registered");
         final List<PluginProperty> pluginProperties = Collections.emptyList();
 
-        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(new DefaultPaymentControlProviderPluginRegistry(), paymentConfig);
+        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(new DefaultPaymentControlProviderPluginRegistry(), paymentConfig, paymentExecutors, new NoOpMetricRegistry());
         final PriorPaymentControlResult paymentControlResult = controlPluginRunner.executePluginPriorCalls(account,
                                                                                                            paymentMethodId,
                                                                                                            null,
@@ -89,7 +100,7 @@ public class TestControlPluginRunner extends PaymentTestSuiteNoDB {
         final List<String> paymentControlPluginNames = List.of("not-registered");
         final List<PluginProperty> pluginProperties = Collections.emptyList();
 
-        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(new DefaultPaymentControlProviderPluginRegistry(), paymentConfig);
+        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(new DefaultPaymentControlProviderPluginRegistry(), paymentConfig, paymentExecutors, new NoOpMetricRegistry());
         final PriorPaymentControlResult paymentControlResult = controlPluginRunner.executePluginPriorCalls(null,
                 null,
                 null,
@@ -113,4 +124,61 @@ public class TestControlPluginRunner extends PaymentTestSuiteNoDB {
         Assert.assertNotNull(paymentControlResult);
     }
 
+    @Test(groups = "fast")
+    public void testConcurrentOnSuccessAndOnFailureCalls() throws Exception {
+        final List<PluginProperty> pluginProperties = List.of(new PluginProperty("input", "value", false));
+        final List<PluginProperty> adjustedPluginProperties = List.of(new PluginProperty("adjusted", "value", false));
+        final DateTime earliestRetryDate = clock.getUTCNow().plusDays(1);
+
+        final PaymentControlPluginApi pluginA = Mockito.mock(PaymentControlPluginApi.class);
+        Mockito.when(pluginA.onSuccessCall(Mockito.<PaymentControlContext>any(), Mockito.<Iterable<PluginProperty>>any())).thenReturn(new DefaultOnSuccessPaymentControlResult(adjustedPluginProperties));
+        Mockito.when(pluginA.onFailureCall(Mockito.<PaymentControlContext>any(), Mockito.<Iterable<PluginProperty>>any())).thenReturn(new DefaultFailureCallResult(earliestRetryDate.plusDays(1)));
+        final PaymentControlPluginApi pluginB = Mockito.mock(PaymentControlPluginApi.class);
+        Mockito.when(pluginB.onSuccessCall(Mockito.<PaymentControlContext>any(), Mockito.<Iterable<PluginProperty>>any())).thenReturn(null);
+        Mockito.when(pluginB.onFailureCall(Mockito.<PaymentControlContext>any(), Mockito.<Iterable<PluginProperty>>any())).thenReturn(new DefaultFailureCallResult(earliestRetryDate, adjustedPluginProperties));
+
+        final DefaultPaymentControlProviderPluginRegistry registry = new DefaultPaymentControlProviderPluginRegistry();
+        registerControlPlugin(registry, "plugin-a", pluginA);
+        registerControlPlugin(registry, "plugin-b", pluginB);
+        final List<String> paymentControlPluginNames = List.of("plugin-a", "not-registered", "plugin-b");
+
+        final PaymentConfig independentHooksPaymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(independentHooksPaymentConfig.getPaymentControlPluginsWithIndependentHooks()).thenReturn(paymentControlPluginNames);
+        Mockito.when(independentHooksPaymentConfig.getPaymentPluginTimeout()).thenReturn(new TimeSpan("30s"));
+        final ControlPluginRunner controlPluginRunner = new ControlPluginRunner(registry, independentHooksPaymentConfig, paymentExecutors, new NoOpMetricRegistry());
+
+        final OnSuccessPaymentControlResult onSuccessResult = controlPluginRunner.executePluginOnSuccessCalls(null, null, null, null, UUIDs.randomUUID(), UUIDs.randomUUID().toString(), UUIDs.randomUUID(), UUIDs.randomUUID().toString(),
+                                                                                                             PaymentApiType.PAYMENT_TRANSACTION, TransactionType.AUTHORIZE, null, BigDecimal.ONE, Currency.USD, BigDecimal.ONE, Currency.USD,
+                                                                                                             true, paymentControlPluginNames, pluginProperties, callContext);
+        // Adjustments are applied in the order of the chain
+        Assert.assertEquals(onSuccessResult.getAdjustedPluginProperties(), adjustedPluginProperties);
+        Mockito.verify(pluginA).onSuccessCall(Mockito.<PaymentControlContext>any(), Mockito.eq(pluginProperties));
+        Mockito.verify(pluginB).onSuccessCall(Mockito.<PaymentControlContext>any(), Mockito.eq(pluginProperties));
+
+        final OnFailurePaymentControlResult onFailureResult = controlPluginRunner.executePluginOnFailureCalls(null, null, null, null, UUIDs.randomUUID(), UUIDs.randomUUID().toString(), UUIDs.randomUUID(), UUIDs.randomUUID().toString(),
+                                                                                                             PaymentApiType.PAYMENT_TRANSACTION, TransactionType.AUTHORIZE, null, BigDecimal.ONE, Currency.USD, BigDecimal.ONE, Currency.USD,
+                                                                                                             true, paymentControlPluginNames, pluginProperties, callContext);
+        Assert.assertEquals(onFailureResult.getNextRetryDate().compareTo(earliestRetryDate), 0);
+        Assert.assertEquals(onFailureResult.getAdjustedPluginProperties(), adjustedPluginProperties);
+    }
+
+    private void registerControlPlugin(final DefaultPaymentControlProviderPluginRegistry registry, final String pluginName, final PaymentControlPluginApi plugin) {
+        registry.registerService(new OSGIServiceDescriptor() {
+                                     @Override
+                                     public String getPluginSymbolicName() {
+                                         return null;
+                                     }
+
+                                     @Override
+                                     public String getPluginName() {
+                                         return pluginName;
+                                     }
+
+                                     @Override
+                                     public String getRegistrationName() {
+                                         return pluginName;
+                                     }
+                                 },
+                                 plugin);
+    }
 }
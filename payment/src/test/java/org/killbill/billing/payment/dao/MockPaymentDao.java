@@ -20,7 +20,9 @@ package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -53,6 +55,7 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
     private final Map<UUID, PaymentModelDao> payments = new HashMap<>();
     private final Map<UUID, PaymentTransactionModelDao> transactions = new HashMap<>();
     private final Map<UUID, PaymentAttemptModelDao> attempts = new HashMap<>();
+    private final Map<String, Long> janitorBatchCursors = new HashMap<>();
 
     private final MockNonEntityDao mockNonEntityDao;
     private final List<PaymentMethodModelDao> paymentMethods = new LinkedList<>();
@@ -68,6 +71,7 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
             paymentMethods.clear();
             transactions.clear();
             attempts.clear();
+            janitorBatchCursors.clear();
         }
     }
 
@@ -119,6 +123,35 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         }
     }
 
+    @Override
+    public Long getCountByTransactionStatusAcrossTenants(final Iterable<TransactionStatus> transactionStatuses, final DateTime createdBeforeDate, final DateTime createdAfterDate) {
+        return transactions.values().stream()
+                .filter(input -> Iterables.toStream(transactionStatuses)
+                                          .anyMatch(transactionStatus -> input.getTransactionStatus() == transactionStatus))
+                .count();
+    }
+
+    @Override
+    public List<PaymentTransactionModelDao> getByTransactionStatusAcrossTenantsAfterRecordId(final Iterable<TransactionStatus> transactionStatuses, final DateTime createdBeforeDate, final DateTime createdAfterDate, final Long lastRecordId, final Long limit) {
+        return transactions.values().stream()
+                .filter(input -> Iterables.toStream(transactionStatuses)
+                                          .anyMatch(transactionStatus -> input.getTransactionStatus() == transactionStatus))
+                .filter(input -> input.getRecordId() != null && input.getRecordId() > lastRecordId)
+                .sorted(Comparator.comparing(PaymentTransactionModelDao::getRecordId))
+                .limit(limit)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    @Override
+    public Long getJanitorBatchCursor(final String cursorName) {
+        return janitorBatchCursors.getOrDefault(cursorName, 0L);
+    }
+
+    @Override
+    public void updateJanitorBatchCursor(final String cursorName, final Long lastRecordId) {
+        janitorBatchCursors.put(cursorName, lastRecordId);
+    }
+
     @Override
     public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(final String stateName, final DateTime createdBeforeDate, final Long offset, final Long limit) {
         return null;
@@ -316,6 +349,16 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         }
     }
 
+    @Override
+    public List<PaymentAndTransactionModelDao> getAccountPaymentSummaries(final InternalTenantContext context) {
+        return null;
+    }
+
+    @Override
+    public List<PaymentAndTransactionModelDao> getAccountPaymentSummaries(final Long afterPaymentNumber, final int maxPayments, final InternalTenantContext context) {
+        return null;
+    }
+
     @Override
     public PaymentAttemptModelDao getPaymentAttempt(final UUID attemptId, final InternalTenantContext context) {
         synchronized (this) {
@@ -325,6 +368,15 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         }
     }
 
+    @Override
+    public List<PaymentAttemptModelDao> getPaymentAttempts(final Collection<UUID> attemptIds, final InternalTenantContext context) {
+        synchronized (this) {
+            return attempts.values().stream()
+                    .filter(input -> attemptIds.contains(input.getId()))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
     @Override
     public PaymentMethodModelDao insertPaymentMethod(final PaymentMethodModelDao paymentMethod, final InternalCallContext context) {
         synchronized (this) {
@@ -406,6 +458,11 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         return Collections.emptyList();
     }
 
+    @Override
+    public List<PaymentMethodModelDao> refreshPaymentMethods(final Map<String, List<PaymentMethodModelDao>> paymentMethodsPerPlugin, final InternalCallContext context) {
+        return Collections.emptyList();
+    }
+
     @Override
     public List<AuditLogWithHistory> getPaymentAuditLogsWithHistoryForId(final UUID paymentId, final AuditLevel auditLevel, final InternalTenantContext context) {
         throw new UnsupportedOperationException();
@@ -20,8 +20,10 @@ package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -30,6 +32,7 @@ import org.killbill.billing.account.api.Account;
 import org.killbill.billing.api.FlakyRetryAnalyzer;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
+import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.api.TransactionType;
@@ -49,6 +52,13 @@ import static org.testng.Assert.assertNull;
 
 public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
 
+    @Override
+    protected KillbillConfigSource getConfigSource(final Map<String, String> extraProperties) {
+        final Map<String, String> allExtraProperties = new HashMap<String, String>(extraProperties);
+        allExtraProperties.put("org.killbill.payment.readAccountPaymentSummaries", "true");
+        return super.getConfigSource(allExtraProperties);
+    }
+
     @Test(groups = "slow")
     public void testPaymentAttempt() throws PluginPropertySerializerException {
         final UUID transactionId = UUID.randomUUID();
@@ -602,6 +612,69 @@ public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
         checkProperty(properties2, new PluginProperty("prop2", "value2", false));
     }
 
+    @Test(groups = "slow")
+    public void testAccountPaymentSummaries() {
+        final UUID accountId = UUID.randomUUID();
+        final UUID paymentMethodId = UUID.randomUUID();
+        final DateTime initialTime = clock.getUTCNow().minusMinutes(1);
+
+        final PaymentModelDao paymentModelDao1 = new PaymentModelDao(initialTime, initialTime, accountId, paymentMethodId, UUID.randomUUID().toString());
+        final PaymentTransactionModelDao transaction1 = new PaymentTransactionModelDao(initialTime, initialTime, null, UUID.randomUUID().toString(),
+                                                                                       paymentModelDao1.getId(), TransactionType.PURCHASE, initialTime,
+                                                                                       TransactionStatus.SUCCESS, BigDecimal.TEN, Currency.USD,
+                                                                                       null, null);
+        final PaymentModelDao payment1 = paymentDao.insertPaymentWithFirstTransaction(paymentModelDao1, transaction1, internalCallContext).getPaymentModelDao();
+
+        // The first read only starts tracking the account, the next one builds the summaries out of the existing payments
+        assertNull(paymentDao.getAccountPaymentSummaries(internalCallContext));
+        final List<PaymentAndTransactionModelDao> initialSummaries = paymentDao.getAccountPaymentSummaries(null, 10, internalCallContext);
+        assertEquals(initialSummaries.size(), 1);
+        assertEquals(initialSummaries.get(0).getPaymentTransactionModelDao().getId(), transaction1.getId());
+
+        final PaymentModelDao paymentModelDao2 = new PaymentModelDao(initialTime, initialTime, accountId, paymentMethodId, UUID.randomUUID().toString());
+        final PaymentTransactionModelDao transaction2 = new PaymentTransactionModelDao(initialTime, initialTime, null, UUID.randomUUID().toString(),
+                                                                                       paymentModelDao2.getId(), TransactionType.AUTHORIZE, initialTime,
+                                                                                       TransactionStatus.PENDING, BigDecimal.TEN, Currency.USD,
+                                                                                       null, null);
+        final PaymentModelDao payment2 = paymentDao.insertPaymentWithFirstTransaction(paymentModelDao2, transaction2, internalCallContext).getPaymentModelDao();
+        final PaymentTransactionModelDao transaction3 = new PaymentTransactionModelDao(initialTime, initialTime, null, UUID.randomUUID().toString(),
+                                                                                       paymentModelDao2.getId(), TransactionType.CAPTURE, initialTime,
+                                                                                       TransactionStatus.PENDING, BigDecimal.ONE, Currency.USD,
+                                                                                       null, null);
+        paymentDao.updatePaymentWithNewTransaction(paymentModelDao2.getId(), transaction3, internalCallContext);
+
+        // From then on, the payment writes maintain the summaries (completion of the pending authorization included)
+        paymentDao.updatePaymentAndTransactionOnCompletion(accountId, null, payment2.getId(), TransactionType.AUTHORIZE, "AUTH_SUCCESS", "AUTH_SUCCESS",
+                                                           transaction2.getId(), TransactionStatus.SUCCESS, BigDecimal.TEN, Currency.USD,
+                                                           null, null, true, internalCallContext);
+
+        final List<PaymentAndTransactionModelDao> summaries = paymentDao.getAccountPaymentSummaries(internalCallContext);
+        assertEquals(summaries.size(), 3);
+        assertEquals(summaries.get(0).getPaymentModelDao().getId(), payment1.getId());
+        assertEquals(summaries.get(0).getPaymentTransactionModelDao().getId(), transaction1.getId());
+        assertEquals(summaries.get(1).getPaymentModelDao().getId(), payment2.getId());
+        assertEquals(summaries.get(1).getPaymentModelDao().getStateName(), "AUTH_SUCCESS");
+        final PaymentAndTransactionModelDao authorizationSummary = Iterables.toStream(summaries)
+                                                                            .filter(summary -> transaction2.getId().equals(summary.getPaymentTransactionModelDao().getId()))
+                                                                            .findFirst()
+                                                                            .orElse(null);
+        assertNotNull(authorizationSummary);
+        assertEquals(authorizationSummary.getPaymentTransactionModelDao().getTransactionStatus(), TransactionStatus.SUCCESS);
+        assertEquals(authorizationSummary.getPaymentTransactionModelDao().getProcessedAmount().compareTo(BigDecimal.TEN), 0);
+
+        // Keyset paging on the payment number: all the transactions of a payment belong to the same page
+        final List<PaymentAndTransactionModelDao> firstPage = paymentDao.getAccountPaymentSummaries(null, 1, internalCallContext);
+        assertEquals(firstPage.size(), 1);
+        assertEquals(firstPage.get(0).getPaymentModelDao().getId(), payment1.getId());
+
+        final List<PaymentAndTransactionModelDao> secondPage = paymentDao.getAccountPaymentSummaries(firstPage.get(0).getPaymentModelDao().getPaymentNumber().longValue(), 1, internalCallContext);
+        assertEquals(secondPage.size(), 2);
+        assertEquals(secondPage.get(0).getPaymentModelDao().getId(), payment2.getId());
+        assertEquals(secondPage.get(1).getPaymentModelDao().getId(), payment2.getId());
+
+        assertEquals(paymentDao.getAccountPaymentSummaries(secondPage.get(0).getPaymentModelDao().getPaymentNumber().longValue(), 1, internalCallContext).size(), 0);
+    }
+
     private void checkProperty(final Iterable<PluginProperty> properties, final PluginProperty expected) {
         final PluginProperty found = Iterables.toStream(properties)
                 .filter(input -> input.getKey().equals(expected.getKey()))
@@ -19,7 +19,10 @@
 package org.killbill.billing.payment.dispatcher;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -151,4 +154,35 @@ public class TestPluginDispatcher extends PaymentTestSuiteNoDB {
         Assert.assertEquals(actualRequestId, requestId);
     }
 
+    @Test(groups = "fast")
+    public void testBulkheadFailsFastWhenExhausted() throws Exception {
+        final PluginBulkhead pluginBulkhead = new PluginBulkhead("slow-plugin", 1, 1, Thread::new);
+
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final Callable<String> blockingCall = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                blocker.await();
+                return "done";
+            }
+        };
+
+        final Future<String> running = pluginBulkhead.submit(blockingCall);
+        final Future<String> queued = pluginBulkhead.submit(blockingCall);
+        Assert.assertEquals(pluginBulkhead.getInFlightCount(), 1);
+        Assert.assertEquals(pluginBulkhead.getQueueDepth(), 1);
+
+        try {
+            pluginBulkhead.submit(blockingCall);
+            Assert.fail("Bulkhead should be exhausted");
+        } catch (final RejectedExecutionException e) {
+            Assert.assertEquals(pluginBulkhead.getRejectedCount(), 1);
+        }
+
+        blocker.countDown();
+        Assert.assertEquals(running.get(5, TimeUnit.SECONDS), "done");
+        Assert.assertEquals(queued.get(5, TimeUnit.SECONDS), "done");
+        Assert.assertEquals(pluginBulkhead.getQueueDepth(), 0);
+        Assert.assertEquals(pluginBulkhead.getWaitCount(), 2);
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.retry;
+
+import java.util.List;
+
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.commons.metrics.impl.NoOpMetricRegistry;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestRetryRateShaper extends PaymentTestSuiteNoDB {
+
+    private static final String PLUGIN_NAME = "my-plugin";
+    private static final String OTHER_PLUGIN_NAME = "my-other-plugin";
+
+    @Test(groups = "fast")
+    public void testDisabledByDefault() {
+        final RetryRateShaper rateShaper = createRateShaper(List.of(""));
+        Assert.assertFalse(rateShaper.isEnabled());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(rateShaper.reserve(PLUGIN_NAME), 0);
+            Assert.assertTrue(rateShaper.tryAcquire(PLUGIN_NAME));
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testSlotsAreReservedOnceTheBurstIsConsumed() {
+        final RetryRateShaper rateShaper = createRateShaper(List.of(PLUGIN_NAME + ":2", "invalid"));
+        Assert.assertTrue(rateShaper.isEnabled());
+
+        // One second worth of retries is dispatched right away
+        Assert.assertEquals(rateShaper.reserve(PLUGIN_NAME), 0);
+        Assert.assertEquals(rateShaper.reserve(PLUGIN_NAME), 0);
+
+        // The next ones are spread at the configured rate
+        final long firstDelay = rateShaper.reserve(PLUGIN_NAME);
+        final long secondDelay = rateShaper.reserve(PLUGIN_NAME);
+        Assert.assertTrue(firstDelay > 0 && firstDelay <= 500, "firstDelay=" + firstDelay);
+        Assert.assertTrue(secondDelay > firstDelay && secondDelay <= 1000, "secondDelay=" + secondDelay);
+        Assert.assertFalse(rateShaper.tryAcquire(PLUGIN_NAME));
+
+        // Other plugins aren't limited (no default rate)
+        Assert.assertEquals(rateShaper.reserve(OTHER_PLUGIN_NAME), 0);
+        Assert.assertEquals(rateShaper.reserve(null), 0);
+
+        // Once the reserved slots are consumed, the bucket refills
+        clock.addDeltaFromReality(2000);
+        Assert.assertTrue(rateShaper.tryAcquire(PLUGIN_NAME));
+    }
+
+    @Test(groups = "fast")
+    public void testDefaultRate() {
+        final RetryRateShaper rateShaper = createRateShaper(List.of("1", OTHER_PLUGIN_NAME + ":100"));
+
+        // Plugin unknown (or not configured) retries share the default rate, per plugin
+        Assert.assertEquals(rateShaper.reserve(null), 0);
+        Assert.assertTrue(rateShaper.reserve(null) > 0);
+        Assert.assertEquals(rateShaper.reserve(PLUGIN_NAME), 0);
+        Assert.assertTrue(rateShaper.reserve(PLUGIN_NAME) > 0);
+
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(rateShaper.reserve(OTHER_PLUGIN_NAME), 0);
+        }
+    }
+
+    private RetryRateShaper createRateShaper(final List<String> rateLimits) {
+        final PaymentConfig paymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(paymentConfig.getPaymentRetryRateLimits()).thenReturn(rateLimits);
+        return new RetryRateShaper(paymentConfig, clock, new NoOpMetricRegistry());
+    }
+}
@@ -17,7 +17,9 @@
 
 package org.killbill.billing.jaxrs;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.net.http.HttpResponse;
 import java.util.List;
 import java.util.UUID;
 
@@ -40,11 +42,16 @@ import org.killbill.billing.client.model.gen.UsageRecord;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.billing.notification.plugin.api.ExtBusEventType;
 import org.killbill.billing.util.api.AuditLevel;
+import org.killbill.billing.util.jackson.ObjectMapper;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+
 public class TestUsage extends TestJaxrsBase {
 
+    private static final ObjectMapper mapper = new ObjectMapper();
+
     private  static Subscriptions createSubscriptions(final Account accountJson) {
         final Subscription base = new Subscription();
         base.setAccountId(accountJson.getAccountId());
@@ -234,4 +241,50 @@ public class TestUsage extends TestJaxrsBase {
         final RolledUpUsage retrievedUsage3 = usageApi.getUsage(addOnSubscriptionId, unitUsageRecord.getUnitType(), clock.getUTCToday(), clock.getUTCToday().plusDays(2), NULL_PLUGIN_PROPERTIES, requestOptions);
         Assert.assertEquals(new BigDecimal("555555555.555555555").compareTo(retrievedUsage3.getRolledUpUnits().get(0).getAmount()), 0);
     }
+
+    @Test(groups = "slow", description = "Can record usage data in bulk")
+    public void testRecordBulkUsage() throws Exception {
+        final Account accountJson = createAccountWithDefaultPaymentMethod();
+        final Subscriptions body = createSubscriptions(accountJson);
+        final Bundle bundle = subscriptionApi.createSubscriptionWithAddOns(body, (LocalDate) null, (LocalDate) null, NULL_PLUGIN_PROPERTIES, requestOptions);
+        final UUID addOnSubscriptionId = findSubscriptionIdByProductCategory(bundle.getSubscriptions(), ProductCategory.ADD_ON);
+
+        clock.addDays(1);
+
+        final UnitUsageRecord yesterdayUsage = new UnitUsageRecord("bullets", List.of(new UsageRecord(clock.getUTCNow().minusDays(1), BigDecimal.TEN)));
+        final UnitUsageRecord todayUsage = new UnitUsageRecord("bullets", List.of(new UsageRecord(clock.getUTCNow(), new BigDecimal("5"))));
+        usageApi.recordUsage(new SubscriptionUsageRecord(addOnSubscriptionId, "existing", List.of(yesterdayUsage)), requestOptions);
+
+        final List<SubscriptionUsageRecord> records = List.of(new SubscriptionUsageRecord(addOnSubscriptionId, "existing", List.of(todayUsage)),
+                                                              new SubscriptionUsageRecord(addOnSubscriptionId, "bulk", List.of(todayUsage)),
+                                                              new SubscriptionUsageRecord(addOnSubscriptionId, "bulk", List.of(todayUsage)),
+                                                              new SubscriptionUsageRecord(addOnSubscriptionId, null, List.of(yesterdayUsage)));
+        final HttpResponse<InputStream> response = recordBulkUsage(mapper.writeValueAsString(records));
+        Assert.assertEquals(response.statusCode(), 201);
+        // Already recorded tracking ids (including earlier in the stream) are skipped
+        Assert.assertEquals(mapper.readValue(response.body(), new TypeReference<List<String>>() {}), List.of("existing", "bulk"));
+
+        final RolledUpUsage yesterdayRolledUpUsage = usageApi.getUsage(addOnSubscriptionId, "bullets", clock.getUTCToday().minusDays(1), clock.getUTCToday(), NULL_PLUGIN_PROPERTIES, requestOptions);
+        Assert.assertEquals(new BigDecimal("20").compareTo(yesterdayRolledUpUsage.getRolledUpUnits().get(0).getAmount()), 0);
+        final RolledUpUsage todayRolledUpUsage = usageApi.getUsage(addOnSubscriptionId, "bullets", clock.getUTCToday(), clock.getUTCToday().plusDays(1), NULL_PLUGIN_PROPERTIES, requestOptions);
+        Assert.assertEquals(new BigDecimal("5").compareTo(todayRolledUpUsage.getRolledUpUnits().get(0).getAmount()), 0);
+
+        // Invalid record: the records before it are recorded, the ones after it aren't
+        final List<SubscriptionUsageRecord> invalidRecords = List.of(new SubscriptionUsageRecord(addOnSubscriptionId, "valid", List.of(todayUsage)),
+                                                                     new SubscriptionUsageRecord(UUID.randomUUID(), "unknown", List.of(todayUsage)),
+                                                                     new SubscriptionUsageRecord(addOnSubscriptionId, "after", List.of(todayUsage)));
+        try {
+            recordBulkUsage(mapper.writeValueAsString(invalidRecords));
+            Assert.fail();
+        } catch (final KillBillClientException e) {
+            Assert.assertEquals(e.getResponse().statusCode(), 400);
+        }
+        final RolledUpUsage partialRolledUpUsage = usageApi.getUsage(addOnSubscriptionId, "bullets", clock.getUTCToday(), clock.getUTCToday().plusDays(1), NULL_PLUGIN_PROPERTIES, requestOptions);
+        Assert.assertEquals(new BigDecimal("10").compareTo(partialRolledUpUsage.getRolledUpUnits().get(0).getAmount()), 0);
+    }
+
+    // Not exposed by the client yet
+    private HttpResponse<InputStream> recordBulkUsage(final String body) throws KillBillClientException {
+        return killBillHttpClient.doPost("/1.0/kb/usages/bulk", body, requestOptions);
+    }
 }
@@ -19,7 +19,9 @@ package org.killbill.billing.subscription.api.svcs;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -76,11 +78,14 @@ public class DefaultSubscriptionBaseCreateApi extends SubscriptionApiBase {
                                                                        final InternalCallContext context) throws SubscriptionBaseApiException, CatalogApiException {
         // Prepare the subscription specifiers from the entitlement specifiers
         final Collection<SubscriptionAndAddOnsSpecifier> baseAndAddOnSubscriptionsSpecifiers = new ArrayList<SubscriptionAndAddOnsSpecifier>();
+        // Plans without price overrides are resolved once per catalog version for the whole (potentially very large) input
+        final Map<String, Plan> resolvedPlans = new HashMap<String, Plan>();
         for (final SubscriptionBaseWithAddOnsSpecifier baseAndAddOnEntitlementsSpecifier : baseAndAddOnEntitlementsSpecifiers) {
             prepareSubscriptionAndAddOnsSpecifier(baseAndAddOnSubscriptionsSpecifiers,
                                                   baseAndAddOnEntitlementsSpecifier,
                                                   renameCancelledBundleIfExist,
                                                   catalog,
+                                                  resolvedPlans,
                                                   addonUtils,
                                                   accountIdCacheController,
                                                   callContext,
@@ -107,6 +112,7 @@ public class DefaultSubscriptionBaseCreateApi extends SubscriptionApiBase {
                                                        final SubscriptionBaseWithAddOnsSpecifier subscriptionBaseWithAddOnsSpecifier,
                                                        final boolean renameCancelledBundleIfExist,
                                                        final SubscriptionCatalog catalog,
+                                                       final Map<String, Plan> resolvedPlans,
                                                        final AddonUtils addonUtils,
                                                        final CacheController<UUID, UUID> accountIdCacheController,
                                                        final CallContext callContext,
@@ -130,6 +136,7 @@ public class DefaultSubscriptionBaseCreateApi extends SubscriptionApiBase {
         final List<Plan> createdOrRetrievedPlans = new ArrayList<Plan>();
         final boolean hasBaseOrStandalonePlanSpecifier = createPlansIfNeededAndReorderBPOrStandaloneSpecFirstWithSanity(subscriptionBaseWithAddOnsSpecifier,
                                                                                                                         catalog,
+                                                                                                                        resolvedPlans,
                                                                                                                         billingRequestedDate,
                                                                                                                         reorderedSpecifiers,
                                                                                                                         createdOrRetrievedPlans,
@@ -278,6 +285,7 @@ public class DefaultSubscriptionBaseCreateApi extends SubscriptionApiBase {
 
     private boolean createPlansIfNeededAndReorderBPOrStandaloneSpecFirstWithSanity(final SubscriptionBaseWithAddOnsSpecifier subscriptionBaseWithAddOnsSpecifier,
                                                                                    final SubscriptionCatalog catalog,
+                                                                                   final Map<String, Plan> resolvedPlans,
                                                                                    final DateTime effectiveDate,
                                                                                    final Collection<EntitlementSpecifier> outputEntitlementSpecifier,
                                                                                    final Collection<Plan> outputEntitlementPlans,
@@ -290,10 +298,9 @@ public class DefaultSubscriptionBaseCreateApi extends SubscriptionApiBase {
         final Collection<Plan> standalonePlans = new ArrayList<Plan>();
 
         for (final EntitlementSpecifier cur : subscriptionBaseWithAddOnsSpecifier.getEntitlementSpecifiers()) {
-            final PlanPhasePriceOverridesWithCallContext overridesWithContext = new DefaultPlanPhasePriceOverridesWithCallContext(cur.getOverrides(), callContext);
             // Called by createBaseSubscriptionsWithAddOns only -- no need for subscription start date
             final StaticCatalog catalogVersion = catalog.versionForDate(effectiveDate);
-            final Plan plan = catalogVersion.createOrFindPlan(cur.getPlanPhaseSpecifier(), overridesWithContext);
+            final Plan plan = createOrFindPlan(catalogVersion, cur, resolvedPlans, callContext);
 
             final boolean isBase = isBaseSpecifier(plan);
             final boolean isStandalone = isStandaloneSpecifier(plan);
@@ -335,6 +342,31 @@ public class DefaultSubscriptionBaseCreateApi extends SubscriptionApiBase {
         }
     }
 
+    private Plan createOrFindPlan(final StaticCatalog catalogVersion,
+                                  final EntitlementSpecifier entitlementSpecifier,
+                                  final Map<String, Plan> resolvedPlans,
+                                  final CallContext callContext) throws CatalogApiException {
+        final PlanPhaseSpecifier spec = entitlementSpecifier.getPlanPhaseSpecifier();
+        if (entitlementSpecifier.getOverrides() != null && !entitlementSpecifier.getOverrides().isEmpty()) {
+            // Overridden plans may have to be created: never cached
+            final PlanPhasePriceOverridesWithCallContext overridesWithContext = new DefaultPlanPhasePriceOverridesWithCallContext(entitlementSpecifier.getOverrides(), callContext);
+            return catalogVersion.createOrFindPlan(spec, overridesWithContext);
+        }
+
+        final String key = String.format("%s:%s:%s:%s:%s",
+                                         catalogVersion.getEffectiveDate().getTime(),
+                                         spec.getPlanName(),
+                                         spec.getProductName(),
+                                         spec.getBillingPeriod(),
+                                         spec.getPriceListName());
+        Plan plan = resolvedPlans.get(key);
+        if (plan == null) {
+            plan = catalogVersion.createOrFindPlan(spec, new DefaultPlanPhasePriceOverridesWithCallContext(entitlementSpecifier.getOverrides(), callContext));
+            resolvedPlans.put(key, plan);
+        }
+        return plan;
+    }
+
     private boolean isBaseSpecifier(final Plan inputPlan) {
         return inputPlan.getProduct().getCategory() == ProductCategory.BASE;
     }
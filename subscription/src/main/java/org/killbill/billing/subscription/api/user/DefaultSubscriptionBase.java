@@ -932,15 +932,31 @@ public class DefaultSubscriptionBase extends EntityBase implements SubscriptionB
     }
 
     public void rebuildTransitions(final List<SubscriptionBaseEvent> inputEvents, final SubscriptionCatalog catalog) throws CatalogApiException {
+        rebuildTransitions(inputEvents, catalog, null);
+    }
+
+    public void rebuildTransitions(final List<SubscriptionBaseEvent> inputEvents, final SubscriptionCatalog catalog, @Nullable final SubscriptionBaseTransitionsCache transitionsCache) throws CatalogApiException {
         if (inputEvents == null) {
             return;
         }
         this.events = inputEvents;
 
+        // The key is computed on the events as read from disk, i.e. before any past-cancellation event is removed
+        final SubscriptionBaseTransitionsCache.TransitionsKey transitionsKey = transitionsCache != null ? transitionsCache.getKey(this, inputEvents, catalog) : null;
+
         Collections.sort(inputEvents);
 
         removeEverythingPastCancelEvent(events);
 
+        if (transitionsKey != null) {
+            final SubscriptionBaseTransitionsCache.CachedTransitions cachedTransitions = transitionsCache.get(id, transitionsKey);
+            if (cachedTransitions != null) {
+                transitions = cachedTransitions.getTransitions();
+                transitionsWithDeletedEvents = cachedTransitions.getTransitionsWithDeletedEvents();
+                return;
+            }
+        }
+
         transitions = new LinkedList<SubscriptionBaseTransition>();
         transitionsWithDeletedEvents = new LinkedList<SubscriptionBaseTransition>();
 
@@ -951,6 +967,10 @@ public class DefaultSubscriptionBase extends EntityBase implements SubscriptionB
             rebuildTransitionsInternal(inputEvents, catalog, transitionsWithDeletedEvents, id, bundleId, bundleExternalKey); //use all events to build transitionsWithDeletedEvents
         }
 
+        if (transitionsKey != null) {
+            transitionsCache.put(id, transitionsKey, transitions, transitionsWithDeletedEvents);
+        }
+
     }
 
     private static void rebuildTransitionsInternal(final List<SubscriptionBaseEvent> inputEvents, final SubscriptionCatalog catalog, final LinkedList<SubscriptionBaseTransition> transitions, final UUID id, final UUID bundleId, final String bundleExternalKey) throws CatalogApiException {
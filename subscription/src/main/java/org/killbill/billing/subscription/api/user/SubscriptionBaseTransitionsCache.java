@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.subscription.api.user;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransition;
+import org.killbill.billing.subscription.catalog.SubscriptionCatalog;
+import org.killbill.billing.subscription.events.SubscriptionBaseEvent;
+import org.killbill.billing.util.config.definition.SubscriptionConfig;
+
+// Local (per node) cache of the transitions computed in DefaultSubscriptionBase#rebuildTransitions. Entries are validated against the
+// events read from the database: events are only ever inserted (new record id) or deactivated (fewer active events), so the highest
+// record id along with the number of (active) events identifies the timeline. The catalog instance is part of the key as well, since plans
+// and phases are resolved against it (tenant catalogs are cached, so the same instance is used until the catalog is invalidated).
+//
+// Cached transitions are shared across DefaultSubscriptionBase instances and must never be modified.
+public class SubscriptionBaseTransitionsCache {
+
+    private final boolean isEnabled;
+    private final Map<UUID, CachedTransitions> cache;
+
+    @Inject
+    public SubscriptionBaseTransitionsCache(final SubscriptionConfig subscriptionConfig) {
+        this.isEnabled = subscriptionConfig.isTransitionsCacheEnabled();
+
+        final int maxSize = subscriptionConfig.getTransitionsCacheMaxSize();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<UUID, CachedTransitions>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<UUID, CachedTransitions> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    // Returns null if these events cannot be cached (e.g. in-memory events from dry-runs or computed add-on cancellations)
+    TransitionsKey getKey(final DefaultSubscriptionBase subscription, final List<SubscriptionBaseEvent> events, final SubscriptionCatalog catalog) {
+        if (!isEnabled || catalog == null) {
+            return null;
+        }
+
+        long maxRecordId = 0L;
+        int nbActiveEvents = 0;
+        for (final SubscriptionBaseEvent event : events) {
+            // In-memory events don't have a record id
+            if (event.getTotalOrdering() <= 0L) {
+                return null;
+            }
+            maxRecordId = Math.max(maxRecordId, event.getTotalOrdering());
+            if (event.isActive()) {
+                nbActiveEvents++;
+            }
+        }
+
+        return new TransitionsKey(subscription.getIncludeDeletedEvents(),
+                                  subscription.getBundleExternalKey(),
+                                  catalog.getCatalog(),
+                                  maxRecordId,
+                                  events.size(),
+                                  nbActiveEvents);
+    }
+
+    CachedTransitions get(final UUID subscriptionId, final TransitionsKey key) {
+        final CachedTransitions cached = cache.get(subscriptionId);
+        if (cached == null || !cached.key.equals(key)) {
+            return null;
+        }
+        return cached;
+    }
+
+    void put(final UUID subscriptionId,
+             final TransitionsKey key,
+             final LinkedList<SubscriptionBaseTransition> transitions,
+             final LinkedList<SubscriptionBaseTransition> transitionsWithDeletedEvents) {
+        cache.put(subscriptionId, new CachedTransitions(key, transitions, transitionsWithDeletedEvents));
+    }
+
+    static final class TransitionsKey {
+
+        private final boolean includeDeletedEvents;
+        private final String bundleExternalKey;
+        private final VersionedCatalog catalog;
+        private final long maxRecordId;
+        private final int nbEvents;
+        private final int nbActiveEvents;
+
+        private TransitionsKey(final boolean includeDeletedEvents,
+                               final String bundleExternalKey,
+                               final VersionedCatalog catalog,
+                               final long maxRecordId,
+                               final int nbEvents,
+                               final int nbActiveEvents) {
+            this.includeDeletedEvents = includeDeletedEvents;
+            this.bundleExternalKey = bundleExternalKey;
+            this.catalog = catalog;
+            this.maxRecordId = maxRecordId;
+            this.nbEvents = nbEvents;
+            this.nbActiveEvents = nbActiveEvents;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final TransitionsKey that = (TransitionsKey) o;
+            // Catalog identity on purpose: a reloaded catalog may resolve plans and phases differently
+            return includeDeletedEvents == that.includeDeletedEvents &&
+                   catalog == that.catalog &&
+                   maxRecordId == that.maxRecordId &&
+                   nbEvents == that.nbEvents &&
+                   nbActiveEvents == that.nbActiveEvents &&
+                   Objects.equals(bundleExternalKey, that.bundleExternalKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(includeDeletedEvents, bundleExternalKey, System.identityHashCode(catalog), maxRecordId, nbEvents, nbActiveEvents);
+        }
+    }
+
+    static final class CachedTransitions {
+
+        private final TransitionsKey key;
+        private final LinkedList<SubscriptionBaseTransition> transitions;
+        private final LinkedList<SubscriptionBaseTransition> transitionsWithDeletedEvents;
+
+        private CachedTransitions(final TransitionsKey key,
+                                  final LinkedList<SubscriptionBaseTransition> transitions,
+                                  final LinkedList<SubscriptionBaseTransition> transitionsWithDeletedEvents) {
+            this.key = key;
+            this.transitions = transitions;
+            this.transitionsWithDeletedEvents = transitionsWithDeletedEvents;
+        }
+
+        LinkedList<SubscriptionBaseTransition> getTransitions() {
+            return transitions;
+        }
+
+        LinkedList<SubscriptionBaseTransition> getTransitionsWithDeletedEvents() {
+            return transitionsWithDeletedEvents;
+        }
+    }
+}
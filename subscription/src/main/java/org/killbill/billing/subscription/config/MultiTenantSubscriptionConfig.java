@@ -51,6 +51,16 @@ public class MultiTenantSubscriptionConfig extends MultiTenantConfigBase impleme
         return isEffectiveDateForExistingSubscriptionsAlignedToBCD();
     }
 
+    @Override
+    public boolean isTransitionsCacheEnabled() {
+        return staticConfig.isTransitionsCacheEnabled();
+    }
+
+    @Override
+    public int getTransitionsCacheMaxSize() {
+        return staticConfig.getTransitionsCacheMaxSize();
+    }
+
     @Override
     protected Class<? extends KillbillConfig> getConfigClass() {
         return SubscriptionConfig.class;
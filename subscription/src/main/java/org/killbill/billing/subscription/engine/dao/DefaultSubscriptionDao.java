@@ -66,6 +66,7 @@ import org.killbill.billing.subscription.api.user.DefaultSubscriptionBaseBundle;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseBundle;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseTransitionData;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseTransitionsCache;
 import org.killbill.billing.subscription.api.user.SubscriptionBuilder;
 import org.killbill.billing.subscription.catalog.SubscriptionCatalog;
 import org.killbill.billing.subscription.engine.addon.AddonUtils;
@@ -130,24 +131,30 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
 
     private static final LocalDate NO_CUTOFF_DT = new LocalDate(1970, 01, 02);
 
+    // Same as the JDBC batch size, see EntitySqlDao#create
+    private static final int BULK_CREATE_CHUNK_SIZE = 1000;
+
     private final Clock clock;
     private final NotificationQueueService notificationQueueService;
     private final AddonUtils addonUtils;
     private final BusOptimizer eventBus;
     private final AuditDao auditDao;
+    private final SubscriptionBaseTransitionsCache transitionsCache;
 
     @Inject
     public DefaultSubscriptionDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock, final AddonUtils addonUtils,
                                   final NotificationQueueService notificationQueueService, final BusOptimizer eventBus,
                                   final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
                                   final AuditDao auditDao,
-                                  final InternalCallContextFactory internalCallContextFactory) {
+                                  final InternalCallContextFactory internalCallContextFactory,
+                                  final SubscriptionBaseTransitionsCache transitionsCache) {
         super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), BundleSqlDao.class);
         this.clock = clock;
         this.notificationQueueService = notificationQueueService;
         this.addonUtils = addonUtils;
         this.eventBus = eventBus;
         this.auditDao = auditDao;
+        this.transitionsCache = transitionsCache;
     }
 
     @Override
@@ -527,23 +534,45 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                                                                      final SubscriptionCatalog catalog,
                                                                      final InternalCallContext context) {
         final boolean groupBusEvents = eventBus.shouldAggregateSubscriptionEvents(context);
+        final List<DefaultSubscriptionBase> allSubscriptions = new ArrayList<DefaultSubscriptionBase>();
+        for (final SubscriptionBaseWithAddOns subscription : subscriptions) {
+            for (final SubscriptionBase subscriptionBase : subscription.getSubscriptionBaseList()) {
+                // Safe cast
+                allSubscriptions.add((DefaultSubscriptionBase) subscriptionBase);
+            }
+        }
+
         return transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
             final SubscriptionSqlDao transactional = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class);
             final SubscriptionEventSqlDao eventsDaoFromSameTransaction = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class);
             int busEffSeqId = 0;
             int busReqSeqId = 0;
-            final List<SubscriptionEventModelDao> createdEvents = new LinkedList<SubscriptionEventModelDao>();
-            for (final SubscriptionBaseWithAddOns subscription : subscriptions) {
-                for (final SubscriptionBase subscriptionBase : subscription.getSubscriptionBaseList()) {
-                    // Safe cast
-                    final DefaultSubscriptionBase defaultSubscriptionBase = (DefaultSubscriptionBase) subscriptionBase;
-                    createAndRefresh(transactional, new SubscriptionModelDao(defaultSubscriptionBase), context);
+            final List<SubscriptionEventModelDao> createdEvents = new ArrayList<SubscriptionEventModelDao>();
+            int nbCreatedSubscriptions = 0;
+            for (final List<DefaultSubscriptionBase> chunk : partition(allSubscriptions, BULK_CREATE_CHUNK_SIZE)) {
+                // Insert the subscriptions and their events using JDBC batches
+                final List<SubscriptionModelDao> subscriptionModels = new ArrayList<SubscriptionModelDao>(chunk.size());
+                final List<SubscriptionEventModelDao> eventModels = new ArrayList<SubscriptionEventModelDao>();
+                for (final DefaultSubscriptionBase defaultSubscriptionBase : chunk) {
+                    subscriptionModels.add(new SubscriptionModelDao(defaultSubscriptionBase));
+                    for (final SubscriptionBaseEvent cur : initialEventsMap.get(defaultSubscriptionBase.getId())) {
+                        eventModels.add(new SubscriptionEventModelDao(cur));
+                    }
+                }
+                bulkCreate(transactional, subscriptionModels, context);
+                bulkCreate(eventsDaoFromSameTransaction, eventModels, context);
+
+                // Generated keys cannot be matched with the entities, so reload the events to get their record ids
+                for (final List<SubscriptionEventModelDao> eventModelsChunk : partition(eventModels, BULK_CREATE_CHUNK_SIZE)) {
+                    final List<String> eventIds = eventModelsChunk.stream().map(eventModel -> eventModel.getId().toString()).collect(Collectors.toList());
+                    createdEvents.addAll(eventsDaoFromSameTransaction.getByIds(eventIds, context));
+                }
 
+                // Bus events and future notifications, once all events for the chunk are on disk
+                for (final DefaultSubscriptionBase defaultSubscriptionBase : chunk) {
                     final List<SubscriptionBaseEvent> initialEvents = initialEventsMap.get(defaultSubscriptionBase.getId());
 
                     for (final SubscriptionBaseEvent cur : initialEvents) {
-                        createdEvents.add(createAndRefresh(eventsDaoFromSameTransaction, new SubscriptionEventModelDao(cur), context));
-
                         final boolean isBusEvent = cur.getEffectiveDate().compareTo(context.getCreatedDate()) <= 0 && (cur.getType() == EventType.API_USER || cur.getType() == EventType.BCD_UPDATE || cur.getType() == EventType.QUANTITY_UPDATE);
                         final int seqId = isBusEvent ? busEffSeqId++ : 0;
                         if (!isBusEvent || !groupBusEvents || seqId == 0) {
@@ -558,11 +587,24 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                         }
                     }
                 }
+
+                nbCreatedSubscriptions += chunk.size();
+                if (allSubscriptions.size() > BULK_CREATE_CHUNK_SIZE) {
+                    log.info("Bulk subscription creation: {}/{} subscriptions created for accountRecordId='{}'", nbCreatedSubscriptions, allSubscriptions.size(), context.getAccountRecordId());
+                }
             }
             return toSubscriptionBaseEvents(createdEvents);
         });
     }
 
+    private static <T> List<List<T>> partition(final List<T> input, final int chunkSize) {
+        final List<List<T>> result = new ArrayList<List<T>>((input.size() + chunkSize - 1) / chunkSize);
+        for (int i = 0; i < input.size(); i += chunkSize) {
+            result.add(input.subList(i, Math.min(i + chunkSize, input.size())));
+        }
+        return result;
+    }
+
     @Override
     public void cancelOrExpireSubscriptionOnNotification(final DefaultSubscriptionBase subscription, final SubscriptionBaseEvent event, final List<DefaultSubscriptionBase> subscriptions, final List<SubscriptionBaseEvent> cancelOrExpireEvents, final SubscriptionCatalog catalog, final InternalCallContext context) {
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
@@ -1050,7 +1092,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
         final DefaultSubscriptionBase result = new DefaultSubscriptionBase(new SubscriptionBuilder(((DefaultSubscriptionBase) shellSubscription)), null, clock);
 
         if (!events.isEmpty()) {
-            result.rebuildTransitions(events, catalog);
+            result.rebuildTransitions(events, catalog, transitionsCache);
         }
         return result;
     }
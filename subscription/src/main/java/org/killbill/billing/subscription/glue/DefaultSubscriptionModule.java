@@ -30,6 +30,7 @@ import org.killbill.billing.subscription.api.timeline.SubscriptionBaseTimelineAp
 import org.killbill.billing.subscription.api.transfer.DefaultSubscriptionBaseTransferApi;
 import org.killbill.billing.subscription.api.transfer.SubscriptionBaseTransferApi;
 import org.killbill.billing.subscription.api.user.DefaultSubscriptionBaseApiService;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseTransitionsCache;
 import org.killbill.billing.subscription.catalog.DefaultSubscriptionCatalogApi;
 import org.killbill.billing.subscription.catalog.SubscriptionCatalogApi;
 import org.killbill.billing.subscription.config.MultiTenantSubscriptionConfig;
@@ -69,6 +70,7 @@ public class DefaultSubscriptionModule extends KillBillModule implements Subscri
         bind(DefaultSubscriptionBaseService.class).asEagerSingleton();
         bind(PlanAligner.class).asEagerSingleton();
         bind(AddonUtils.class).asEagerSingleton();
+        bind(SubscriptionBaseTransitionsCache.class).asEagerSingleton();
         installSubscriptionService();
         installSubscriptionTimelineApi();
         installSubscriptionInternalApi();
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.subscription.api.user;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.entitlement.api.Entitlement.EntitlementState;
+import org.killbill.billing.subscription.SubscriptionTestSuiteNoDB;
+import org.killbill.billing.subscription.catalog.SubscriptionCatalog;
+import org.killbill.billing.subscription.events.SubscriptionBaseEvent;
+import org.killbill.billing.subscription.events.phase.PhaseEventBuilder;
+import org.killbill.billing.subscription.events.phase.PhaseEventData;
+import org.killbill.billing.subscription.events.user.ApiEventBuilder;
+import org.killbill.billing.subscription.events.user.ApiEventCancel;
+import org.killbill.billing.subscription.events.user.ApiEventCreate;
+import org.killbill.billing.subscription.events.user.ApiEventType;
+import org.killbill.billing.util.config.definition.SubscriptionConfig;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestSubscriptionBaseTransitionsCache extends SubscriptionTestSuiteNoDB {
+
+    private static final DateTime START_DATE = new DateTime(2012, 5, 1, 0, 0, DateTimeZone.UTC);
+    private static final DateTime PHASE_DATE = new DateTime(2012, 6, 1, 0, 0, DateTimeZone.UTC);
+    private static final DateTime CANCEL_DATE = new DateTime(2012, 7, 1, 0, 0, DateTimeZone.UTC);
+
+    private SubscriptionBaseTransitionsCache transitionsCache;
+    private SubscriptionCatalog catalogSpy;
+    private UUID subscriptionId;
+    private UUID createEventId;
+    private UUID phaseEventId;
+    private UUID cancelEventId;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+        super.beforeMethod();
+
+        final SubscriptionConfig subscriptionConfig = Mockito.mock(SubscriptionConfig.class);
+        Mockito.when(subscriptionConfig.isTransitionsCacheEnabled()).thenReturn(true);
+        Mockito.when(subscriptionConfig.getTransitionsCacheMaxSize()).thenReturn(100);
+        transitionsCache = new SubscriptionBaseTransitionsCache(subscriptionConfig);
+        catalogSpy = Mockito.spy(catalog);
+
+        subscriptionId = UUID.randomUUID();
+        createEventId = UUID.randomUUID();
+        phaseEventId = UUID.randomUUID();
+        cancelEventId = UUID.randomUUID();
+    }
+
+    @Test(groups = "fast")
+    public void testUnchangedEventsAreNotRebuilt() throws Exception {
+        final DefaultSubscriptionBase first = rebuild(createEvents(false, 0));
+        Assert.assertEquals(first.getAllTransitions(false).size(), 2);
+        Mockito.verify(catalogSpy, Mockito.atLeastOnce()).findPlan(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any());
+
+        // Same events read again from disk
+        Mockito.clearInvocations(catalogSpy);
+        final DefaultSubscriptionBase second = rebuild(createEvents(false, 0));
+        Mockito.verify(catalogSpy, Mockito.never()).findPlan(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any());
+        Assert.assertEquals(second.getAllTransitions(false), first.getAllTransitions(false));
+        Assert.assertEquals(second.getAllTransitions(false).get(1).getNextState(), EntitlementState.ACTIVE);
+    }
+
+    @Test(groups = "fast")
+    public void testNewOrDeactivatedEventsAreRebuilt() throws Exception {
+        Assert.assertEquals(rebuild(createEvents(false, 0), true).getAllTransitions(true).size(), 2);
+
+        // New event
+        Mockito.clearInvocations(catalogSpy);
+        final DefaultSubscriptionBase cancelled = rebuild(createEvents(true, 5), true);
+        Mockito.verify(catalogSpy, Mockito.atLeastOnce()).findPlan(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any());
+        Assert.assertEquals(cancelled.getAllTransitions(false).size(), 3);
+        Assert.assertEquals(cancelled.getAllTransitions(true).size(), 3);
+
+        // Event deactivated (e.g. uncancel): same record ids, fewer active events
+        Mockito.clearInvocations(catalogSpy);
+        final DefaultSubscriptionBase uncancelled = rebuild(createEvents(false, 5), true);
+        Mockito.verify(catalogSpy, Mockito.atLeastOnce()).findPlan(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any());
+        Assert.assertEquals(uncancelled.getAllTransitions(false).size(), 2);
+        Assert.assertEquals(uncancelled.getAllTransitions(true).size(), 3);
+    }
+
+    @Test(groups = "fast")
+    public void testInMemoryEventsAreNotCached() throws Exception {
+        rebuild(createEvents(true, 0));
+
+        Mockito.clearInvocations(catalogSpy);
+        Assert.assertEquals(rebuild(createEvents(true, 0)).getAllTransitions(false).size(), 3);
+        Mockito.verify(catalogSpy, Mockito.atLeastOnce()).findPlan(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    private DefaultSubscriptionBase rebuild(final List<SubscriptionBaseEvent> events) throws Exception {
+        return rebuild(events, false);
+    }
+
+    private DefaultSubscriptionBase rebuild(final List<SubscriptionBaseEvent> events, final boolean includeDeletedEvents) throws Exception {
+        final DefaultSubscriptionBase subscriptionBase = new DefaultSubscriptionBase(new SubscriptionBuilder().setId(subscriptionId)
+                                                                                                             .setAlignStartDate(START_DATE)
+                                                                                                             .setIncludeDeletedEvents(includeDeletedEvents));
+        subscriptionBase.rebuildTransitions(events, catalogSpy, transitionsCache);
+        return subscriptionBase;
+    }
+
+    // A cancel record id of 0 means an in-memory cancellation event
+    private List<SubscriptionBaseEvent> createEvents(final boolean isCancelActive, final long cancelRecordId) {
+        final List<SubscriptionBaseEvent> events = new LinkedList<SubscriptionBaseEvent>();
+        events.add(new ApiEventCreate(new ApiEventBuilder().setApiEventType(ApiEventType.CREATE)
+                                                           .setEventPlan("laser-scope-monthly")
+                                                           .setEventPlanPhase("laser-scope-monthly-discount")
+                                                           .setEventPriceList("DEFAULT")
+                                                           .setFromDisk(true)
+                                                           .setUuid(createEventId)
+                                                           .setSubscriptionId(subscriptionId)
+                                                           .setCreatedDate(START_DATE)
+                                                           .setUpdatedDate(START_DATE)
+                                                           .setEffectiveDate(START_DATE)
+                                                           .setTotalOrdering(3)
+                                                           .setActive(true)));
+        events.add(new PhaseEventData(new PhaseEventBuilder().setPhaseName("laser-scope-monthly-evergreen")
+                                                             .setUuid(phaseEventId)
+                                                             .setSubscriptionId(subscriptionId)
+                                                             .setCreatedDate(START_DATE)
+                                                             .setUpdatedDate(START_DATE)
+                                                             .setEffectiveDate(PHASE_DATE)
+                                                             .setTotalOrdering(4)
+                                                             .setActive(true)));
+        if (cancelRecordId > 0 || isCancelActive) {
+            events.add(new ApiEventCancel(new ApiEventBuilder().setApiEventType(ApiEventType.CANCEL)
+                                                               .setFromDisk(cancelRecordId > 0)
+                                                               .setUuid(cancelEventId)
+                                                               .setSubscriptionId(subscriptionId)
+                                                               .setCreatedDate(START_DATE)
+                                                               .setUpdatedDate(START_DATE)
+                                                               .setEffectiveDate(CANCEL_DATE)
+                                                               .setTotalOrdering(cancelRecordId)
+                                                               .setActive(isCancelActive)));
+        }
+        return events;
+    }
+}
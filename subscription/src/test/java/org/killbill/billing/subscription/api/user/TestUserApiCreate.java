@@ -20,7 +20,9 @@ package org.killbill.billing.subscription.api.user;
 
 import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
@@ -363,6 +365,52 @@ public class TestUserApiCreate extends SubscriptionTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testCreateSubscriptionsInBulk() throws SubscriptionBaseApiException {
+        final DateTime init = clock.getUTCNow();
+
+        final InternalCallContext internalCallContext = internalCallContextFactory.createInternalCallContext(bundle.getAccountId(),
+                                                                                                             ObjectType.ACCOUNT,
+                                                                                                             this.internalCallContext.getUpdatedBy(),
+                                                                                                             this.internalCallContext.getCallOrigin(),
+                                                                                                             this.internalCallContext.getContextUserType(),
+                                                                                                             this.internalCallContext.getUserToken(),
+                                                                                                             this.internalCallContext.getTenantRecordId());
+
+        final int nbBundles = 3;
+        final List<SubscriptionBaseWithAddOnsSpecifier> subscriptionBaseWithAddOnsSpecifiers = new ArrayList<SubscriptionBaseWithAddOnsSpecifier>();
+        for (int i = 0; i < nbBundles; i++) {
+            final Iterable<EntitlementSpecifier> specifiers = List.of(new DefaultEntitlementSpecifier(new PlanPhaseSpecifier("shotgun-monthly")));
+            subscriptionBaseWithAddOnsSpecifiers.add(new SubscriptionBaseWithAddOnsSpecifier(null,
+                                                                                             UUID.randomUUID().toString(),
+                                                                                             specifiers,
+                                                                                             init,
+                                                                                             false));
+        }
+
+        testListener.pushExpectedEvents(NextEvent.CREATE, NextEvent.CREATE, NextEvent.CREATE);
+        final List<SubscriptionBaseWithAddOns> subscriptionBaseWithAddOns = subscriptionInternalApi.createBaseSubscriptionsWithAddOns(catalog.getCatalog(),
+                                                                                                                                      subscriptionBaseWithAddOnsSpecifiers,
+                                                                                                                                      false,
+                                                                                                                                      internalCallContext);
+        testListener.assertListenerStatus();
+
+        assertEquals(subscriptionBaseWithAddOns.size(), nbBundles);
+        for (final SubscriptionBaseWithAddOns cur : subscriptionBaseWithAddOns) {
+            assertEquals(cur.getSubscriptionBaseList().size(), 1);
+            final DefaultSubscriptionBase subscription = (DefaultSubscriptionBase) cur.getSubscriptionBaseList().get(0);
+            assertEquals(subscription.getCurrentPlan().getName(), "shotgun-monthly");
+            assertEquals(subscription.getCurrentPhase().getPhaseType(), PhaseType.TRIAL);
+
+            // Events inserted in batch are returned with their record ids
+            assertEquals(subscription.getEvents().size(), 2);
+            for (final SubscriptionBaseEvent event : subscription.getEvents()) {
+                assertTrue(event.getTotalOrdering() > 0);
+            }
+            assertEquals(dao.getEventsForSubscription(subscription.getId(), false, internalCallContext).size(), 2);
+        }
+    }
+
     @Test(groups = "slow")
     public void testCreateSubscriptionAndCheckSubscriptionEvents() throws SubscriptionBaseApiException {
         final DateTime init = clock.getUTCNow();
@@ -21,6 +21,7 @@ package org.killbill.billing.subscription.engine.dao;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.killbill.billing.subscription.api.user.SubscriptionBaseTransitionsCache;
 import org.killbill.billing.subscription.engine.addon.AddonUtils;
 import org.killbill.billing.util.audit.dao.AuditDao;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
@@ -41,11 +42,13 @@ public class MockSubscriptionDaoSql extends DefaultSubscriptionDao {
                                   final Clock clock, final AddonUtils addonUtils,
                                   final NotificationQueueService notificationQueueService, final BusOptimizer eventBus,
                                   final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
-                                  final AuditDao auditDao, final InternalCallContextFactory internalCallContextFactory) {
+                                  final AuditDao auditDao, final InternalCallContextFactory internalCallContextFactory,
+                                  final SubscriptionBaseTransitionsCache transitionsCache) {
         super(dbi, roDbi,
               clock, addonUtils,
               notificationQueueService, eventBus,
               cacheControllerDispatcher, nonEntityDao,
-              auditDao, internalCallContextFactory);
+              auditDao, internalCallContextFactory,
+              transitionsCache);
     }
 }
@@ -65,6 +65,30 @@ public class DefaultInternalUserApi extends BaseUserApi implements InternalUserA
 
         log.info("GetRawUsageForAccount startDate='{}', endDate='{}'", startDate, endDate);
 
+        final List<RawUsageRecord> resultFromPlugin = getAccountUsageFromPlugin(startDate, endDate, dryRunInfo, pluginProperties, internalTenantContext);
+        if (resultFromPlugin != null) {
+            return resultFromPlugin;
+        }
+
+        final List<RolledUpUsageModelDao> usage = rolledUpUsageDao.getRawUsageForAccount(startDate, endDate, internalTenantContext);
+        return toRawUsageRecords(usage);
+    }
+
+    @Override
+    public List<RawUsageRecord> getAggregatedUsageForAccount(final DateTime startDate, final DateTime endDate, @Nullable final DryRunInfo dryRunInfo, final Iterable<PluginProperty> pluginProperties, final InternalTenantContext internalTenantContext) {
+
+        log.info("GetAggregatedUsageForAccount startDate='{}', endDate='{}'", startDate, endDate);
+
+        final List<RawUsageRecord> resultFromPlugin = getAccountUsageFromPlugin(startDate, endDate, dryRunInfo, pluginProperties, internalTenantContext);
+        if (resultFromPlugin != null) {
+            return resultFromPlugin;
+        }
+
+        final List<RolledUpUsageModelDao> usage = rolledUpUsageDao.getAggregatedUsageForAccount(startDate, endDate, internalTenantContext);
+        return toRawUsageRecords(usage);
+    }
+
+    private List<RawUsageRecord> getAccountUsageFromPlugin(final DateTime startDate, final DateTime endDate, @Nullable final DryRunInfo dryRunInfo, final Iterable<PluginProperty> pluginProperties, final InternalTenantContext internalTenantContext) {
         final TenantContext tenantContext = internalCallContextFactory.createTenantContext(internalTenantContext);
 
         final DryRunType dryRunType = dryRunInfo != null ? dryRunInfo.getDryRunType() : null;
@@ -72,12 +96,10 @@ public class DefaultInternalUserApi extends BaseUserApi implements InternalUserA
 
         final UsageContext usageContext = new DefaultUsageContext(dryRunType, inputTargetDate, tenantContext);
 
-        final List<RawUsageRecord> resultFromPlugin = getAccountUsageFromPlugin(startDate, endDate, pluginProperties, usageContext);
-        if (resultFromPlugin != null) {
-            return resultFromPlugin;
-        }
+        return getAccountUsageFromPlugin(startDate, endDate, pluginProperties, usageContext);
+    }
 
-        final List<RolledUpUsageModelDao> usage = rolledUpUsageDao.getRawUsageForAccount(startDate, endDate, internalTenantContext);
+    private static List<RawUsageRecord> toRawUsageRecords(final List<RolledUpUsageModelDao> usage) {
         return usage.stream()
                 .map(input -> new DefaultRawUsage(input.getSubscriptionId(), input.getRecordDate(), input.getUnitType(), input.getAmount(), input.getTrackingId()))
                 .collect(Collectors.toUnmodifiableList());
@@ -19,8 +19,13 @@ package org.killbill.billing.usage.api.user;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -34,6 +39,8 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.usage.BulkUsageException;
+import org.killbill.billing.usage.BulkUsageUserApi;
 import org.killbill.billing.usage.api.BaseUserApi;
 import org.killbill.billing.usage.api.DefaultUsageContext;
 import org.killbill.billing.usage.api.RawUsageRecord;
@@ -53,7 +60,10 @@ import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 
-public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
+public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi, BulkUsageUserApi {
+
+    // Number of records deduped (one tracking id query) and inserted together by the bulk API
+    private static final int BULK_BATCH_SIZE = 1000;
 
     private final RolledUpUsageDao rolledUpUsageDao;
     private final InternalCallContextFactory internalCallContextFactory;
@@ -91,6 +101,102 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
         rolledUpUsageDao.record(usages, internalCallContext);
     }
 
+    @Override
+    public List<String> recordRolledUpUsage(final Iterator<SubscriptionUsageRecord> records, final CallContext callContext) {
+        final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(callContext);
+        // Resolved once per subscription for the whole stream
+        final Map<UUID, InternalCallContext> internalCallContextsBySubscriptionId = new HashMap<>();
+        final List<String> skippedTrackingIds = new LinkedList<>();
+
+        final List<SubscriptionUsageRecord> batch = new ArrayList<>(BULK_BATCH_SIZE);
+        int nbRecords = 0;
+        int nbRecordedRecords = 0;
+        while (true) {
+            final SubscriptionUsageRecord record;
+            try {
+                if (!records.hasNext()) {
+                    break;
+                }
+                record = records.next();
+            } catch (final RuntimeException e) {
+                // Record the valid records pulled so far, so that the caller knows exactly where the stream stopped
+                nbRecordedRecords += recordRolledUpUsageBatch(batch, internalCallContextsBySubscriptionId, skippedTrackingIds, internalTenantContext, callContext);
+                throw new BulkUsageException(nbRecords, nbRecordedRecords, skippedTrackingIds, e);
+            }
+
+            nbRecords++;
+            batch.add(record);
+            if (batch.size() == BULK_BATCH_SIZE) {
+                nbRecordedRecords += recordRolledUpUsageBatch(batch, internalCallContextsBySubscriptionId, skippedTrackingIds, internalTenantContext, callContext);
+                batch.clear();
+            }
+        }
+        recordRolledUpUsageBatch(batch, internalCallContextsBySubscriptionId, skippedTrackingIds, internalTenantContext, callContext);
+        return skippedTrackingIds;
+    }
+
+    // Returns the number of records recorded (i.e. not skipped)
+    private int recordRolledUpUsageBatch(final List<SubscriptionUsageRecord> batch,
+                                         final Map<UUID, InternalCallContext> internalCallContextsBySubscriptionId,
+                                         final List<String> skippedTrackingIds,
+                                         final InternalTenantContext internalTenantContext,
+                                         final CallContext callContext) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        final Set<String> trackingIds = new HashSet<>();
+        for (final SubscriptionUsageRecord record : batch) {
+            if (record.getTrackingId() != null && !record.getTrackingId().isEmpty()) {
+                trackingIds.add(record.getTrackingId());
+            }
+        }
+
+        // Single query for the whole batch (previous batches have been committed at this point)
+        final Set<String> recordedKeys = new HashSet<>();
+        if (!trackingIds.isEmpty()) {
+            for (final RolledUpUsageModelDao existing : rolledUpUsageDao.getRecordsWithTrackingIds(trackingIds, internalTenantContext)) {
+                recordedKeys.add(trackingKey(existing.getSubscriptionId(), existing.getTrackingId()));
+            }
+        }
+
+        // Rows are bound to the account record id of the context, so we insert one batch per account
+        final Map<Long, InternalCallContext> internalCallContextsByAccountRecordId = new HashMap<>();
+        final Map<Long, List<RolledUpUsageModelDao>> usagesByAccountRecordId = new LinkedHashMap<>();
+        int nbRecordedRecords = 0;
+        for (final SubscriptionUsageRecord record : batch) {
+            final String trackingId;
+            if (record.getTrackingId() == null || record.getTrackingId().isEmpty()) {
+                trackingId = UUIDs.randomUUID().toString();
+            } else if (!recordedKeys.add(trackingKey(record.getSubscriptionId(), record.getTrackingId()))) {
+                skippedTrackingIds.add(record.getTrackingId());
+                continue;
+            } else {
+                trackingId = record.getTrackingId();
+            }
+            nbRecordedRecords++;
+
+            final InternalCallContext internalCallContext = internalCallContextsBySubscriptionId.computeIfAbsent(record.getSubscriptionId(),
+                                                                                                                 subscriptionId -> internalCallContextFactory.createInternalCallContext(subscriptionId, ObjectType.SUBSCRIPTION, callContext));
+            internalCallContextsByAccountRecordId.putIfAbsent(internalCallContext.getAccountRecordId(), internalCallContext);
+            final List<RolledUpUsageModelDao> usages = usagesByAccountRecordId.computeIfAbsent(internalCallContext.getAccountRecordId(), accountRecordId -> new ArrayList<>());
+            for (final UnitUsageRecord unitUsageRecord : record.getUnitUsageRecord()) {
+                for (final UsageRecord usageRecord : unitUsageRecord.getDailyAmount()) {
+                    usages.add(new RolledUpUsageModelDao(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount(), trackingId));
+                }
+            }
+        }
+
+        for (final Map.Entry<Long, List<RolledUpUsageModelDao>> entry : usagesByAccountRecordId.entrySet()) {
+            rolledUpUsageDao.record(entry.getValue(), internalCallContextsByAccountRecordId.get(entry.getKey()));
+        }
+        return nbRecordedRecords;
+    }
+
+    private static String trackingKey(final UUID subscriptionId, final String trackingId) {
+        return subscriptionId + "/" + trackingId;
+    }
+
     @Override
     public RolledUpUsage getUsageForSubscription(final UUID subscriptionId, final String unitType, final DateTime startDate, final DateTime endDate, final Iterable<PluginProperty> properties, final TenantContext tenantContextNoAccountId) {
         final InternalTenantContext internalCallContext = internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContextNoAccountId);
@@ -18,7 +18,10 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -28,23 +31,81 @@ import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.dao.SqlStates;
 import org.killbill.billing.util.entity.dao.DBRouter;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.clock.Clock;
 import org.skife.jdbi.v2.IDBI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
 public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
 
+    private static final Logger log = LoggerFactory.getLogger(DefaultRolledUpUsageDao.class);
+
     private final DBRouter<RolledUpUsageSqlDao> dbRouter;
+    private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
 
     @Inject
-    public DefaultRolledUpUsageDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi) {
+    public DefaultRolledUpUsageDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock,
+                                   final InternalCallContextFactory internalCallContextFactory) {
         this.dbRouter = new DBRouter<RolledUpUsageSqlDao>(dbi, roDbi, RolledUpUsageSqlDao.class);
+        // Usage records aren't cached
+        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, null, null, internalCallContextFactory);
     }
 
     @Override
     public void record(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
-        dbRouter.onDemand(false).create(usages, context);
+        // The aggregates are always maintained, so that org.killbill.invoice.usage.readAggregates can be enabled at any time
+        final Iterable<RolledUpUsageModelDao> aggregates = aggregate(usages);
+        createMissingAggregates(aggregates, context);
+
+        // The aggregates are maintained in the same transaction as the raw records (exceptions are propagated as-is to the caller)
+        transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            final RolledUpUsageSqlDao sqlDao = entitySqlDaoWrapperFactory.getHandle().attach(RolledUpUsageSqlDao.class);
+            sqlDao.create(usages, context);
+            for (final RolledUpUsageModelDao aggregate : aggregates) {
+                sqlDao.addToAggregate(aggregate, context);
+            }
+            return null;
+        });
+    }
+
+    // Empty aggregates are created outside of the main transaction: when two calls create the same aggregate concurrently,
+    // the unique index makes one of them fail, which would abort the whole transaction (PostgreSQL)
+    private void createMissingAggregates(final Iterable<RolledUpUsageModelDao> aggregates, final InternalCallContext context) {
+        final RolledUpUsageSqlDao sqlDao = dbRouter.onDemand(false);
+        for (final RolledUpUsageModelDao aggregate : aggregates) {
+            if (sqlDao.aggregateExists(aggregate, context) != null) {
+                continue;
+            }
+            try {
+                sqlDao.createEmptyAggregate(aggregate, context);
+            } catch (final RuntimeException e) {
+                if (!SqlStates.isIntegrityConstraintViolation(e)) {
+                    throw e;
+                }
+                log.debug("Aggregate subscriptionId='{}', unitType='{}', recordDate='{}' created concurrently", aggregate.getSubscriptionId(), aggregate.getUnitType(), aggregate.getRecordDate());
+            }
+        }
+    }
+
+    // Sum the amounts per (subscriptionId, unitType, recordDate), in a stable order to limit lock contention across calls
+    private static Iterable<RolledUpUsageModelDao> aggregate(final Iterable<RolledUpUsageModelDao> usages) {
+        final Map<String, RolledUpUsageModelDao> aggregates = new TreeMap<>();
+        for (final RolledUpUsageModelDao usage : usages) {
+            final String key = usage.getSubscriptionId() + "/" + usage.getUnitType() + "/" + usage.getRecordDate().getMillis();
+            final RolledUpUsageModelDao aggregate = aggregates.get(key);
+            if (aggregate == null) {
+                aggregates.put(key, new RolledUpUsageModelDao(usage.getSubscriptionId(), usage.getUnitType(), usage.getRecordDate(), usage.getAmount(), null));
+            } else {
+                aggregate.setAmount(aggregate.getAmount().add(usage.getAmount()));
+            }
+        }
+        return aggregates.values();
     }
 
     @Override
@@ -52,6 +113,11 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
         return dbRouter.onDemand(false).recordsWithTrackingIdExist(subscriptionId, trackingId, context) != null;
     }
 
+    @Override
+    public List<RolledUpUsageModelDao> getRecordsWithTrackingIds(final Collection<String> trackingIds, final InternalTenantContext context) {
+        return dbRouter.onDemand(false).getRecordsWithTrackingIds(trackingIds, context);
+    }
+
     @Override
     public List<RolledUpUsageModelDao> getUsageForSubscription(final UUID subscriptionId, final DateTime startDate, final DateTime endDate, final String unitType, final InternalTenantContext context) {
         return dbRouter.onDemand(true).getUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), unitType, context);
@@ -67,4 +133,9 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
     public List<RolledUpUsageModelDao> getRawUsageForAccount(final DateTime startDate, final DateTime endDate, final InternalTenantContext context) {
         return dbRouter.onDemand(true).getRawUsageForAccount(startDate.toDate(), endDate.toDate(), context);
     }
+
+    @Override
+    public List<RolledUpUsageModelDao> getAggregatedUsageForAccount(final DateTime startDate, final DateTime endDate, final InternalTenantContext context) {
+        return dbRouter.onDemand(true).getAggregatedUsageForAccount(startDate.toDate(), endDate.toDate(), context);
+    }
 }
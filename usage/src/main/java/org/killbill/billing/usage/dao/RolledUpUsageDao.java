@@ -16,6 +16,7 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,9 +30,15 @@ public interface RolledUpUsageDao {
 
     Boolean recordsWithTrackingIdExist(UUID subscriptionId, String trackingId, InternalTenantContext context);
 
+    // Distinct (subscriptionId, trackingId) pairs already recorded for these tracking ids (other fields aren't populated)
+    List<RolledUpUsageModelDao> getRecordsWithTrackingIds(Collection<String> trackingIds, InternalTenantContext context);
+
     List<RolledUpUsageModelDao> getUsageForSubscription(UUID subscriptionId, DateTime startDate, DateTime endDate, String unitType, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getAllUsageForSubscription(UUID subscriptionId, DateTime startDate, DateTime endDate, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getRawUsageForAccount(DateTime startDate, DateTime endDate, InternalTenantContext context);
+
+    // Amounts summed per (subscriptionId, unitType, recordDate), with the aggregate id as tracking id
+    List<RolledUpUsageModelDao> getAggregatedUsageForAccount(DateTime startDate, DateTime endDate, InternalTenantContext context);
 }
@@ -18,10 +18,12 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
@@ -29,6 +31,8 @@ import org.killbill.commons.jdbi.binder.SmartBindBean;
 import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface RolledUpUsageSqlDao extends EntitySqlDao<RolledUpUsageModelDao, Entity> {
@@ -38,6 +42,10 @@ public interface RolledUpUsageSqlDao extends EntitySqlDao<RolledUpUsageModelDao,
                                     @Bind("trackingId") final String trackingId,
                                     @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    List<RolledUpUsageModelDao> getRecordsWithTrackingIds(@BindIn("trackingIds") final Collection<String> trackingIds,
+                                                          @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     List<RolledUpUsageModelDao> getUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
                                                         @Bind("startDate") final Date startDate,
@@ -55,4 +63,21 @@ public interface RolledUpUsageSqlDao extends EntitySqlDao<RolledUpUsageModelDao,
     List<RolledUpUsageModelDao> getRawUsageForAccount(@Bind("startDate") final Date startDate,
                                                       @Bind("endDate") final Date endDate,
                                                       @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    Long aggregateExists(@SmartBindBean final RolledUpUsageModelDao aggregate,
+                         @SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    void createEmptyAggregate(@SmartBindBean final RolledUpUsageModelDao aggregate,
+                              @SmartBindBean final InternalCallContext context);
+
+    @SqlUpdate
+    int addToAggregate(@SmartBindBean final RolledUpUsageModelDao aggregate,
+                       @SmartBindBean final InternalCallContext context);
+
+    @SqlQuery
+    List<RolledUpUsageModelDao> getAggregatedUsageForAccount(@Bind("startDate") final Date startDate,
+                                                             @Bind("endDate") final Date endDate,
+                                                             @SmartBindBean final InternalTenantContext context);
 }
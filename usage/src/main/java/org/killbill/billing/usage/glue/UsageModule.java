@@ -20,6 +20,7 @@ package org.killbill.billing.usage.glue;
 
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.usage.BulkUsageUserApi;
 import org.killbill.billing.usage.InternalUserApi;
 import org.killbill.billing.usage.api.UsageUserApi;
 import org.killbill.billing.usage.api.svcs.DefaultInternalUserApi;
@@ -45,6 +46,10 @@ public class UsageModule extends KillBillModule {
         bind(UsageUserApi.class).to(DefaultUsageUserApi.class).asEagerSingleton();
     }
 
+    protected void installBulkUsageUserApi() {
+        bind(BulkUsageUserApi.class).to(DefaultUsageUserApi.class).asEagerSingleton();
+    }
+
     protected void installInternalUserApi() {
         bind(InternalUserApi.class).to(DefaultInternalUserApi.class).asEagerSingleton();
     }
@@ -59,6 +64,7 @@ public class UsageModule extends KillBillModule {
     protected void configure() {
         installRolledUpUsageDao();
         installUsageUserApi();
+        installBulkUsageUserApi();
         installInternalUserApi();
         installUsagePluginApi();
     }
@@ -20,3 +20,22 @@ CREATE INDEX rolled_up_usage_subscription_id ON rolled_up_usage(subscription_id
 CREATE INDEX rolled_up_usage_tenant_account_record_id ON rolled_up_usage(tenant_record_id, account_record_id);
 CREATE INDEX rolled_up_usage_account_record_id ON rolled_up_usage(account_record_id);
 CREATE INDEX rolled_up_usage_tracking_id_subscription_id_tenant_record_id ON rolled_up_usage(tracking_id, subscription_id, tenant_record_id);
+
+DROP TABLE IF EXISTS rolled_up_usage_aggregates;
+CREATE TABLE rolled_up_usage_aggregates (
+    record_id serial unique,
+    id varchar(36) NOT NULL,
+    subscription_id varchar(36) NOT NULL,
+    unit_type varchar(255) NOT NULL,
+    record_date datetime NOT NULL,
+    amount decimal(18, 9) NOT NULL,
+    version int NOT NULL,
+    created_date datetime NOT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX rolled_up_usage_aggregates_id ON rolled_up_usage_aggregates(id);
+CREATE UNIQUE INDEX rolled_up_usage_aggregates_subscription_id_unit_type_record_date ON rolled_up_usage_aggregates(subscription_id, unit_type, record_date, tenant_record_id);
+CREATE INDEX rolled_up_usage_aggregates_tenant_account_record_id ON rolled_up_usage_aggregates(tenant_record_id, account_record_id, record_date);
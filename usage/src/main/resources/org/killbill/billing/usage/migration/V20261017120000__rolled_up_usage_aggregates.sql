@@ -0,0 +1,26 @@
+CREATE TABLE rolled_up_usage_aggregates (
+    record_id serial unique,
+    id varchar(36) NOT NULL,
+    subscription_id varchar(36) NOT NULL,
+    unit_type varchar(255) NOT NULL,
+    record_date datetime NOT NULL,
+    amount decimal(18, 9) NOT NULL,
+    version int NOT NULL,
+    created_date datetime NOT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX rolled_up_usage_aggregates_id ON rolled_up_usage_aggregates(id);
+CREATE UNIQUE INDEX rolled_up_usage_aggregates_subscription_id_unit_type_record_date ON rolled_up_usage_aggregates(subscription_id, unit_type, record_date, tenant_record_id);
+CREATE INDEX rolled_up_usage_aggregates_tenant_account_record_id ON rolled_up_usage_aggregates(tenant_record_id, account_record_id, record_date);
+
+/* Portable (MySQL and PostgreSQL) backfill: ids are derived from the aggregate key, dates from the raw records */
+INSERT INTO rolled_up_usage_aggregates (id, subscription_id, unit_type, record_date, amount, version, created_date, updated_date, account_record_id, tenant_record_id)
+SELECT concat(substr(h, 1, 8), '-', substr(h, 9, 4), '-', substr(h, 13, 4), '-', substr(h, 17, 4), '-', substr(h, 21, 12)), subscription_id, unit_type, record_date, amount, 1, created_date, updated_date, account_record_id, tenant_record_id
+FROM (
+    SELECT md5(concat(subscription_id, '/', unit_type, '/', record_date, '/', tenant_record_id)) AS h, subscription_id, unit_type, record_date, sum(amount) AS amount, min(created_date) AS created_date, max(created_date) AS updated_date, account_record_id, tenant_record_id
+    FROM rolled_up_usage
+    GROUP BY subscription_id, unit_type, record_date, account_record_id, tenant_record_id
+) aggregates;
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.KillbillTestSuite;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.usage.BulkUsageException;
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UnitUsageRecord;
+import org.killbill.billing.usage.api.UsageRecord;
+import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestDefaultUsageUserApi extends KillbillTestSuite {
+
+    private final DateTime recordDate = new DateTime(2026, 10, 1, 0, 0);
+
+    private RolledUpUsageDao rolledUpUsageDao;
+    private InternalCallContextFactory internalCallContextFactory;
+    private CallContext callContext;
+    private DefaultUsageUserApi usageUserApi;
+
+    // Rows recorded through the DAO, by account record id
+    private Map<Long, List<RolledUpUsageModelDao>> recordedUsages;
+    private List<Collection<String>> trackingIdQueries;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        recordedUsages = new LinkedHashMap<>();
+        trackingIdQueries = new ArrayList<>();
+
+        rolledUpUsageDao = Mockito.mock(RolledUpUsageDao.class);
+        Mockito.doAnswer(invocation -> {
+            final Iterable<RolledUpUsageModelDao> usages = invocation.getArgument(0);
+            final InternalCallContext context = invocation.getArgument(1);
+            final List<RolledUpUsageModelDao> recorded = recordedUsages.computeIfAbsent(context.getAccountRecordId(), accountRecordId -> new ArrayList<>());
+            usages.forEach(recorded::add);
+            return null;
+        }).when(rolledUpUsageDao).record(Mockito.any(), Mockito.any(InternalCallContext.class));
+        Mockito.doAnswer(invocation -> {
+            final Collection<String> trackingIds = invocation.getArgument(0);
+            trackingIdQueries.add(new ArrayList<>(trackingIds));
+            return recordedUsages.values()
+                                 .stream()
+                                 .flatMap(List::stream)
+                                 .filter(usage -> trackingIds.contains(usage.getTrackingId()))
+                                 .collect(Collectors.toUnmodifiableList());
+        }).when(rolledUpUsageDao).getRecordsWithTrackingIds(Mockito.any(), Mockito.any(InternalTenantContext.class));
+
+        internalCallContextFactory = Mockito.mock(InternalCallContextFactory.class);
+        callContext = Mockito.mock(CallContext.class);
+        Mockito.when(internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(callContext)).thenReturn(Mockito.mock(InternalTenantContext.class));
+
+        usageUserApi = new DefaultUsageUserApi(rolledUpUsageDao, internalCallContextFactory, null);
+    }
+
+    @Test(groups = "fast")
+    public void testBulkRecordSkipsKnownTrackingIds() {
+        final UUID subscriptionId = newSubscription(1L);
+        final UUID otherSubscriptionId = newSubscription(1L);
+
+        // Already recorded
+        recordedUsages.put(1L, new ArrayList<>(List.of(new RolledUpUsageModelDao(subscriptionId, "unit", recordDate, BigDecimal.ONE, "t1"))));
+
+        final List<String> skippedTrackingIds = usageUserApi.recordRolledUpUsage(List.of(usageRecord(subscriptionId, "t1"),
+                                                                                         usageRecord(subscriptionId, "t2"),
+                                                                                         // Duplicate within the stream
+                                                                                         usageRecord(subscriptionId, "t2"),
+                                                                                         // Tracking ids are unique per subscription
+                                                                                         usageRecord(otherSubscriptionId, "t1"),
+                                                                                         usageRecord(subscriptionId, null)).iterator(),
+                                                                                 callContext);
+        Assert.assertEquals(skippedTrackingIds, List.of("t1", "t2"));
+
+        final List<RolledUpUsageModelDao> recorded = recordedUsages.get(1L);
+        Assert.assertEquals(recorded.size(), 4);
+        Assert.assertEquals(recorded.get(1).getSubscriptionId(), subscriptionId);
+        Assert.assertEquals(recorded.get(1).getTrackingId(), "t2");
+        Assert.assertEquals(recorded.get(2).getSubscriptionId(), otherSubscriptionId);
+        Assert.assertEquals(recorded.get(2).getTrackingId(), "t1");
+        // A tracking id is generated when none is specified
+        Assert.assertEquals(recorded.get(3).getSubscriptionId(), subscriptionId);
+        Assert.assertNotNull(recorded.get(3).getTrackingId());
+
+        // Single tracking id query for the stream
+        Assert.assertEquals(trackingIdQueries.size(), 1);
+        Assert.assertEquals(new HashSet<>(trackingIdQueries.get(0)), Set.of("t1", "t2"));
+    }
+
+    @Test(groups = "fast")
+    public void testBulkRecordBatches() {
+        final UUID subscriptionId = newSubscription(1L);
+
+        final List<SubscriptionUsageRecord> records = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            records.add(usageRecord(subscriptionId, "t" + i));
+        }
+        // Duplicate of a record from a previous (committed) batch
+        records.add(usageRecord(subscriptionId, "t0"));
+
+        final List<String> skippedTrackingIds = usageUserApi.recordRolledUpUsage(records.iterator(), callContext);
+        Assert.assertEquals(skippedTrackingIds, List.of("t0"));
+        Assert.assertEquals(recordedUsages.get(1L).size(), 2500);
+
+        // One tracking id query and one insert per batch of 1000 records
+        Assert.assertEquals(trackingIdQueries.stream().map(Collection::size).collect(Collectors.toUnmodifiableList()), List.of(1000, 1000, 501));
+        Mockito.verify(rolledUpUsageDao, Mockito.times(3)).record(Mockito.any(), Mockito.any(InternalCallContext.class));
+        // Subscription resolved once for the whole stream
+        Mockito.verify(internalCallContextFactory, Mockito.times(1)).createInternalCallContext(subscriptionId, ObjectType.SUBSCRIPTION, callContext);
+    }
+
+    @Test(groups = "fast")
+    public void testBulkRecordOneInsertPerAccount() {
+        final UUID firstAccountSubscriptionId = newSubscription(1L);
+        final UUID secondAccountSubscriptionId = newSubscription(2L);
+
+        final List<String> skippedTrackingIds = usageUserApi.recordRolledUpUsage(List.of(usageRecord(firstAccountSubscriptionId, "t1"),
+                                                                                         usageRecord(secondAccountSubscriptionId, "t2"),
+                                                                                         usageRecord(firstAccountSubscriptionId, "t3")).iterator(),
+                                                                                 callContext);
+        Assert.assertTrue(skippedTrackingIds.isEmpty());
+
+        Mockito.verify(rolledUpUsageDao, Mockito.times(2)).record(Mockito.any(), Mockito.any(InternalCallContext.class));
+        Assert.assertEquals(recordedUsages.get(1L).stream().map(RolledUpUsageModelDao::getTrackingId).collect(Collectors.toUnmodifiableList()), List.of("t1", "t3"));
+        Assert.assertEquals(recordedUsages.get(2L).stream().map(RolledUpUsageModelDao::getTrackingId).collect(Collectors.toUnmodifiableList()), List.of("t2"));
+    }
+
+    @Test(groups = "fast")
+    public void testBulkRecordInvalidRecord() {
+        final UUID subscriptionId = newSubscription(1L);
+
+        final List<SubscriptionUsageRecord> records = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            records.add(usageRecord(subscriptionId, "t" + i));
+        }
+        // Duplicate, skipped
+        records.add(usageRecord(subscriptionId, "t0"));
+        final Iterator<SubscriptionUsageRecord> delegate = records.iterator();
+        final IllegalArgumentException invalidRecord = new IllegalArgumentException("Invalid record");
+        final Iterator<SubscriptionUsageRecord> failingIterator = new Iterator<SubscriptionUsageRecord>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public SubscriptionUsageRecord next() {
+                if (!delegate.hasNext()) {
+                    throw invalidRecord;
+                }
+                return delegate.next();
+            }
+        };
+
+        try {
+            usageUserApi.recordRolledUpUsage(failingIterator, callContext);
+            Assert.fail();
+        } catch (final BulkUsageException e) {
+            Assert.assertSame(e.getCause(), invalidRecord);
+            Assert.assertEquals(e.getFailedRecordIndex(), 1501);
+            Assert.assertEquals(e.getNbRecordedRecords(), 1500);
+            Assert.assertEquals(e.getSkippedTrackingIds(), List.of("t0"));
+        }
+
+        // All the records before the failing one are recorded
+        Assert.assertEquals(recordedUsages.get(1L).size(), 1500);
+        Assert.assertEquals(trackingIdQueries.stream().map(Collection::size).collect(Collectors.toUnmodifiableList()), List.of(1000, 501));
+    }
+
+    @Test(groups = "fast")
+    public void testBulkRecordEmptyStream() {
+        Assert.assertTrue(usageUserApi.recordRolledUpUsage(List.<SubscriptionUsageRecord>of().iterator(), callContext).isEmpty());
+        Mockito.verify(rolledUpUsageDao, Mockito.never()).getRecordsWithTrackingIds(Mockito.any(), Mockito.any(InternalTenantContext.class));
+        Mockito.verify(rolledUpUsageDao, Mockito.never()).record(Mockito.any(), Mockito.any(InternalCallContext.class));
+    }
+
+    private UUID newSubscription(final Long accountRecordId) {
+        final UUID subscriptionId = UUID.randomUUID();
+        final InternalCallContext internalCallContext = Mockito.mock(InternalCallContext.class);
+        Mockito.when(internalCallContext.getAccountRecordId()).thenReturn(accountRecordId);
+        Mockito.when(internalCallContextFactory.createInternalCallContext(subscriptionId, ObjectType.SUBSCRIPTION, callContext)).thenReturn(internalCallContext);
+        return subscriptionId;
+    }
+
+    private SubscriptionUsageRecord usageRecord(final UUID subscriptionId, final String trackingId) {
+        final List<UnitUsageRecord> unitUsageRecords = List.of(new UnitUsageRecord("unit", List.of(new UsageRecord(recordDate, BigDecimal.TEN))));
+        return new SubscriptionUsageRecord(subscriptionId, trackingId, unitUsageRecords);
+    }
+}
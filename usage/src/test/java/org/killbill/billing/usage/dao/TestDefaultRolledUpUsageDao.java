@@ -19,7 +19,9 @@ package org.killbill.billing.usage.dao;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -31,6 +33,7 @@ import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.fail;
 
 public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
@@ -194,4 +197,90 @@ public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
         assertEquals(rolledUpUsageDao.recordsWithTrackingIdExist(subscriptionId, trackingId, internalCallContext),
                      Boolean.TRUE);
     }
-}
\ No newline at end of file
+
+    @Test(groups = "slow")
+    public void testGetRecordsWithTrackingIds() {
+        final UUID subscriptionId1 = UUIDs.randomUUID();
+        final UUID subscriptionId2 = UUIDs.randomUUID();
+        final DateTime startDate = new LocalDate(2013, 1, 1).toDateTimeAtStartOfDay();
+        final String trackingId1 = UUIDs.randomUUID().toString();
+        final String trackingId2 = UUIDs.randomUUID().toString();
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, "foo", startDate, BigDecimal.TEN, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, "bar", startDate, BigDecimal.ONE, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId2, "foo", startDate, BigDecimal.ONE, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId2, "foo", startDate.plusDays(1), BigDecimal.ONE, trackingId2));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getRecordsWithTrackingIds(List.of(trackingId1, UUIDs.randomUUID().toString()), internalCallContext);
+        // One row per (subscriptionId, trackingId)
+        assertEquals(result.size(), 2);
+        final Set<UUID> subscriptionIds = new HashSet<UUID>();
+        for (final RolledUpUsageModelDao cur : result) {
+            assertEquals(cur.getTrackingId(), trackingId1);
+            subscriptionIds.add(cur.getSubscriptionId());
+        }
+        assertEquals(subscriptionIds, Set.of(subscriptionId1, subscriptionId2));
+    }
+
+    @Test(groups = "slow")
+    public void testAggregatedUsageForAccount() {
+        final UUID subscriptionId = UUIDs.randomUUID();
+        final DateTime day1 = new LocalDate(2013, 1, 1).toDateTimeAtStartOfDay(DateTimeZone.UTC);
+        final DateTime day2 = day1.plusDays(1);
+
+        final List<RolledUpUsageModelDao> usages1 = new ArrayList<RolledUpUsageModelDao>();
+        usages1.add(new RolledUpUsageModelDao(subscriptionId, "foo", day1, BigDecimal.valueOf(10L), UUIDs.randomUUID().toString()));
+        usages1.add(new RolledUpUsageModelDao(subscriptionId, "foo", day1, BigDecimal.valueOf(5L), UUIDs.randomUUID().toString()));
+        usages1.add(new RolledUpUsageModelDao(subscriptionId, "bar", day1, BigDecimal.valueOf(7L), UUIDs.randomUUID().toString()));
+        rolledUpUsageDao.record(usages1, internalCallContext);
+
+        final List<RolledUpUsageModelDao> initialResult = rolledUpUsageDao.getAggregatedUsageForAccount(day1, day2, internalCallContext);
+        assertEquals(initialResult.size(), 2);
+        String fooDay1InitialTrackingId = null;
+        for (final RolledUpUsageModelDao cur : initialResult) {
+            // Aggregates are tracked by their own id and version
+            assertEquals(cur.getTrackingId(), cur.getId().toString() + "-1");
+            if ("foo".equals(cur.getUnitType())) {
+                fooDay1InitialTrackingId = cur.getTrackingId();
+            }
+        }
+
+        // Subsequent calls update the existing aggregates
+        final List<RolledUpUsageModelDao> usages2 = new ArrayList<RolledUpUsageModelDao>();
+        usages2.add(new RolledUpUsageModelDao(subscriptionId, "foo", day1, BigDecimal.valueOf(3L), UUIDs.randomUUID().toString()));
+        usages2.add(new RolledUpUsageModelDao(subscriptionId, "foo", day2, BigDecimal.valueOf(1L), UUIDs.randomUUID().toString()));
+        rolledUpUsageDao.record(usages2, internalCallContext);
+
+        final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getAggregatedUsageForAccount(day1, day2, internalCallContext);
+        assertEquals(result.size(), 3);
+        BigDecimal fooDay1 = null;
+        BigDecimal barDay1 = null;
+        BigDecimal fooDay2 = null;
+        for (final RolledUpUsageModelDao cur : result) {
+            assertEquals(cur.getSubscriptionId(), subscriptionId);
+            if ("bar".equals(cur.getUnitType())) {
+                barDay1 = cur.getAmount();
+                assertEquals(cur.getTrackingId(), cur.getId().toString() + "-1");
+            } else if (cur.getRecordDate().compareTo(day1) == 0) {
+                fooDay1 = cur.getAmount();
+                // Late usage yields a new tracking id
+                assertEquals(cur.getTrackingId(), cur.getId().toString() + "-2");
+                assertNotEquals(cur.getTrackingId(), fooDay1InitialTrackingId);
+            } else {
+                fooDay2 = cur.getAmount();
+            }
+        }
+        assertEquals(fooDay1.compareTo(BigDecimal.valueOf(18L)), 0);
+        assertEquals(barDay1.compareTo(BigDecimal.valueOf(7L)), 0);
+        assertEquals(fooDay2.compareTo(BigDecimal.ONE), 0);
+
+        // Same amounts as the raw records
+        BigDecimal rawTotal = BigDecimal.ZERO;
+        for (final RolledUpUsageModelDao cur : rolledUpUsageDao.getRawUsageForAccount(day1, day2, internalCallContext)) {
+            rawTotal = rawTotal.add(cur.getAmount());
+        }
+        assertEquals(rawTotal.compareTo(BigDecimal.valueOf(26L)), 0);
+    }
+}
@@ -29,6 +29,7 @@ import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
 import org.killbill.billing.util.broadcast.dao.BroadcastDao;
 import org.killbill.billing.util.broadcast.dao.BroadcastModelDao;
+import org.killbill.billing.util.cache.NearCacheInvalidationListener;
 import org.killbill.billing.util.config.definition.BroadcastConfig;
 import org.killbill.billing.util.optimizer.BusOptimizer;
 import org.killbill.bus.api.PersistentBus;
@@ -47,16 +48,21 @@ public class DefaultBroadcastService implements BroadcastService {
     private final BroadcastConfig broadcastConfig;
     private final BroadcastDao broadcastDao;
     private final PersistentBus eventBus;
+    private final NearCacheInvalidationListener nearCacheInvalidationListener;
 
     private AtomicLong latestRecordIdProcessed;
     private ScheduledExecutorService broadcastExecutor;
     private volatile boolean isStopped;
 
     @Inject
-    public DefaultBroadcastService(final BroadcastDao broadcastDao, final BroadcastConfig broadcastConfig, final PersistentBus eventBus) {
+    public DefaultBroadcastService(final BroadcastDao broadcastDao,
+                                   final BroadcastConfig broadcastConfig,
+                                   final PersistentBus eventBus,
+                                   final NearCacheInvalidationListener nearCacheInvalidationListener) {
         this.broadcastDao = broadcastDao;
         this.broadcastConfig = broadcastConfig;
         this.eventBus = eventBus;
+        this.nearCacheInvalidationListener = nearCacheInvalidationListener;
         this.isStopped = false;
     }
 
@@ -76,6 +82,7 @@ public class DefaultBroadcastService implements BroadcastService {
         this.latestRecordIdProcessed = entry != null ? new AtomicLong(entry.getRecordId()) : new AtomicLong(0L);
         this.broadcastExecutor = Executors.newSingleThreadScheduledExecutor("BroadcastExecutor");
         this.isStopped = false;
+        nearCacheInvalidationListener.register();
     }
 
     @LifecycleHandlerType(LifecycleHandlerType.LifecycleLevel.START_SERVICE)
@@ -103,6 +110,7 @@ public class DefaultBroadcastService implements BroadcastService {
             logger.warn("BroadcastExecutor stop sequence got interrupted");
         } finally {
             isStopped = true;
+            nearCacheInvalidationListener.unregister();
         }
     }
 
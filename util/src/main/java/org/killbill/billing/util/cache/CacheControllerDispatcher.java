@@ -17,11 +17,15 @@
 package org.killbill.billing.util.cache;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.inject.Inject;
 
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.dao.TableName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +37,14 @@ public class CacheControllerDispatcher {
     public static final String CACHE_KEY_SEPARATOR = "::";
 
     private final Map<CacheType, CacheController<Object, Object>> caches;
+    private final List<PostCommitListener> postCommitListeners = new CopyOnWriteArrayList<PostCommitListener>();
+
+    // For caches derived from several tables (e.g. the billing events of an account), which cannot be invalidated per entity
+    public interface PostCommitListener {
+
+        // Invoked once a transaction has committed, with the accounts written by its @Audited calls, by table
+        void afterCommit(Map<TableName, Set<Long>> writtenAccountRecordIds);
+    }
 
     @Inject
     public CacheControllerDispatcher(final Map<CacheType, CacheController<Object, Object>> caches) {
@@ -54,6 +66,29 @@ public class CacheControllerDispatcher {
         }
     }
 
+    public void addPostCommitListener(final PostCommitListener listener) {
+        postCommitListeners.add(listener);
+    }
+
+    public void removePostCommitListener(final PostCommitListener listener) {
+        postCommitListeners.remove(listener);
+    }
+
+    public boolean hasPostCommitListeners() {
+        return !postCommitListeners.isEmpty();
+    }
+
+    public void dispatchPostCommit(final Map<TableName, Set<Long>> writtenAccountRecordIds) {
+        for (final PostCommitListener listener : postCommitListeners) {
+            try {
+                listener.afterCommit(writtenAccountRecordIds);
+            } catch (final RuntimeException e) {
+                // The transaction has committed already
+                logger.warn("Post-commit listener {} failed", listener, e);
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private static <K, V> CacheController<K, V> cast(final CacheController<?, ?> cache) {
         return (CacheController<K, V>) cache;
@@ -22,6 +22,7 @@ package org.killbill.billing.util.cache;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.cache.Cache;
 import javax.cache.CacheManager;
@@ -31,6 +32,8 @@ import javax.inject.Provider;
 import org.killbill.commons.utils.Preconditions;
 import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.config.definition.CacheConfig;
+import org.killbill.commons.metrics.api.Gauge;
+import org.killbill.commons.metrics.api.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,17 +42,22 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
 
     private static final Logger logger = LoggerFactory.getLogger(CacheControllerDispatcherProvider.class);
 
+    private static final String PROP_METRIC_REG_NEAR_CACHE_STATISTICS = "near-cache.statistics.";
+
     private final CacheManager cacheManager;
     private final Set<BaseCacheLoader> cacheLoaders;
     private final CacheConfig cacheConfig;
+    private final MetricRegistry metricRegistry;
 
     @Inject
     public CacheControllerDispatcherProvider(final CacheManager cacheManager,
                                              final Set<BaseCacheLoader> cacheLoaders,
-                                             final CacheConfig cacheConfig) {
+                                             final CacheConfig cacheConfig,
+                                             final MetricRegistry metricRegistry) {
         this.cacheManager = cacheManager;
         this.cacheLoaders = cacheLoaders;
         this.cacheConfig = cacheConfig;
+        this.metricRegistry = metricRegistry;
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -59,7 +67,7 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
         for (final BaseCacheLoader cacheLoader : cacheLoaders) {
             final CacheType cacheType = cacheLoader.getCacheType();
 
-            final CacheController<Object, Object> cacheController;
+            CacheController<Object, Object> cacheController;
             if (cacheConfig.getDisabledCaches() != null && cacheConfig.getDisabledCaches().contains(cacheType.getCacheName())) {
                 logger.info("Disabling cache for cacheName='{}'", cacheLoader.getCacheType().getCacheName());
                 cacheController = new NoOpCacheController(cacheLoader);
@@ -72,6 +80,10 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
                 Preconditions.checkState(!cache.isClosed(), "Cache '%s' should not be closed", cacheType.getCacheName());
 
                 cacheController = new KillBillCacheController<Object, Object>(cache, cacheLoader);
+                if (cacheConfig.getNearCaches() != null && cacheConfig.getNearCaches().contains(cacheType.getCacheName())) {
+                    logger.info("Enabling near cache for cacheName='{}'", cacheType.getCacheName());
+                    cacheController = createNearCacheController(cacheController);
+                }
             }
 
             cacheControllers.put(cacheType, cacheController);
@@ -79,4 +91,21 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
 
         return new CacheControllerDispatcher(cacheControllers);
     }
+
+    private CacheController<Object, Object> createNearCacheController(final CacheController<Object, Object> sharedCacheController) {
+        final NearCacheController<Object, Object> nearCacheController = new NearCacheController<Object, Object>(sharedCacheController,
+                                                                                                                cacheConfig.getNearCacheMaxSize(),
+                                                                                                                cacheConfig.getNearCacheTtl().getMillis(),
+                                                                                                                TimeUnit.MILLISECONDS);
+
+        final String metricPrefix = PROP_METRIC_REG_NEAR_CACHE_STATISTICS + sharedCacheController.getCacheType().getCacheName();
+        final Gauge<Object> hits = nearCacheController::getHitCount;
+        final Gauge<Object> misses = nearCacheController::getMissCount;
+        final Gauge<Object> size = nearCacheController::getLocalSize;
+        metricRegistry.gauge(metricPrefix + ".hits", hits);
+        metricRegistry.gauge(metricPrefix + ".misses", misses);
+        metricRegistry.gauge(metricPrefix + ".size", size);
+
+        return nearCacheController;
+    }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.cache.Cachable.CacheType;
+
+/**
+ * Bounded per-node cache tier in front of a shared (e.g. Redis) cache controller.
+ * <p/>
+ * Reads are first served from the local tier; misses go to the shared controller (and its loader) and populate the local
+ * tier. Removals are applied to both tiers and published through the {@link InvalidationPublisher}, so that the other
+ * nodes can drop their local copy (see {@link NearCacheInvalidationListener}).
+ * <p/>
+ * Keys of the id-mapping caches (object id as String) are stored as {@link UUID} to keep the local footprint small.
+ */
+public class NearCacheController<K, V> implements CacheController<K, V> {
+
+    public interface InvalidationPublisher {
+
+        // A null key means that all entries for that cache should be dropped
+        void publishInvalidation(CacheType cacheType, @Nullable Object key);
+    }
+
+    private final CacheController<K, V> delegate;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Incremented on each invalidation: a value loaded before an invalidation isn't kept locally
+    private final AtomicLong generation = new AtomicLong();
+    // Access ordered (guarded by this)
+    private final Map<Object, LocalEntry> localEntries;
+
+    private volatile InvalidationPublisher invalidationPublisher;
+
+    public NearCacheController(final CacheController<K, V> delegate, final int maxSize, final long ttl, final TimeUnit ttlUnit) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlUnit.toNanos(ttl);
+        this.localEntries = new LinkedHashMap<Object, LocalEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Object, LocalEntry> eldest) {
+                return size() > NearCacheController.this.maxSize;
+            }
+        };
+    }
+
+    public void setInvalidationPublisher(@Nullable final InvalidationPublisher invalidationPublisher) {
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public List<K> getKeys() {
+        return delegate.getKeys();
+    }
+
+    @Override
+    public boolean isKeyInCache(final K key) {
+        return getLocal(toLocalKey(key)) != null || delegate.isKeyInCache(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(final K key, final CacheLoaderArgument cacheLoaderArgument) {
+        if (key == null) {
+            return null;
+        }
+
+        final Object localKey = toLocalKey(key);
+        final Object localValue = getLocal(localKey);
+        if (localValue != null) {
+            hits.incrementAndGet();
+            return (V) localValue;
+        }
+
+        misses.incrementAndGet();
+        final long generationBeforeLoad = generation.get();
+        final V value = delegate.get(key, cacheLoaderArgument);
+        if (value != null) {
+            putLocal(localKey, value, generationBeforeLoad);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean remove(final K key) {
+        invalidateLocal(key);
+        final boolean removed = delegate.remove(key);
+        publishInvalidation(key);
+        return removed;
+    }
+
+    @Override
+    public void remove(final Function<K, Boolean> keyMatcher) {
+        // Local keys may be encoded, so drop the whole local tier
+        invalidateAllLocal();
+        delegate.remove(keyMatcher);
+        publishInvalidation(null);
+    }
+
+    @Override
+    public void putIfAbsent(final K key, final V value) {
+        delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void removeAll() {
+        invalidateAllLocal();
+        delegate.removeAll();
+        publishInvalidation(null);
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return delegate.getCacheType();
+    }
+
+    public void invalidateLocal(final Object key) {
+        final Object localKey = toLocalKey(key);
+        synchronized (this) {
+            generation.incrementAndGet();
+            localEntries.remove(localKey);
+        }
+    }
+
+    public void invalidateAllLocal() {
+        synchronized (this) {
+            generation.incrementAndGet();
+            localEntries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int getLocalSize() {
+        return localEntries.size();
+    }
+
+    private synchronized Object getLocal(final Object localKey) {
+        final LocalEntry localEntry = localEntries.get(localKey);
+        if (localEntry == null) {
+            return null;
+        } else if (localEntry.expirationNanos - System.nanoTime() < 0) {
+            localEntries.remove(localKey);
+            return null;
+        } else {
+            return localEntry.value;
+        }
+    }
+
+    private synchronized void putLocal(final Object localKey, final Object value, final long generationBeforeLoad) {
+        if (generation.get() != generationBeforeLoad) {
+            // Invalidated while loading, the value might be stale
+            return;
+        }
+        localEntries.put(localKey, new LocalEntry(value, System.nanoTime() + ttlNanos));
+    }
+
+    private void publishInvalidation(@Nullable final Object key) {
+        final InvalidationPublisher publisher = invalidationPublisher;
+        if (publisher != null) {
+            publisher.publishInvalidation(getCacheType(), key);
+        }
+    }
+
+    private static Object toLocalKey(final Object key) {
+        if (key instanceof String && ((String) key).length() == 36) {
+            try {
+                final UUID uuid = UUID.fromString((String) key);
+                // Only if the encoding is lossless (lowercase canonical form)
+                if (uuid.toString().equals(key)) {
+                    return uuid;
+                }
+            } catch (final IllegalArgumentException ignored) {
+            }
+        }
+        return key;
+    }
+
+    private static final class LocalEntry {
+
+        private final Object value;
+        private final long expirationNanos;
+
+        private LocalEntry(final Object value, final long expirationNanos) {
+            this.value = value;
+            this.expirationNanos = expirationNanos;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.broadcast.BroadcastApi;
+import org.killbill.billing.events.BroadcastInternalEvent;
+import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.jackson.ObjectMapper;
+import org.killbill.bus.api.PersistentBus;
+import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.killbill.clock.Clock;
+import org.killbill.commons.eventbus.AllowConcurrentEvents;
+import org.killbill.commons.eventbus.Subscribe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+/**
+ * Keeps the per-node near caches coherent across the cluster: local removals are broadcast (through the broadcasts table)
+ * and, once the BroadcastService picks them up on each node, the matching near cache entries are dropped.
+ */
+public class NearCacheInvalidationListener implements NearCacheController.InvalidationPublisher {
+
+    public static final String NEAR_CACHE_INVALIDATION_TYPE = "NEAR_CACHE_INVALIDATION";
+
+    private static final Logger logger = LoggerFactory.getLogger(NearCacheInvalidationListener.class);
+
+    private static final String CACHE_NAME = "cacheName";
+    private static final String KEY = "key";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<CacheType, NearCacheController<Object, Object>> nearCacheControllers = new HashMap<CacheType, NearCacheController<Object, Object>>();
+    private final BroadcastApi broadcastApi;
+    private final PersistentBus eventBus;
+    private final Clock clock;
+
+    @SuppressWarnings("unchecked")
+    @Inject
+    public NearCacheInvalidationListener(final CacheControllerDispatcher cacheControllerDispatcher,
+                                         final BroadcastApi broadcastApi,
+                                         final PersistentBus eventBus,
+                                         final Clock clock) {
+        this.broadcastApi = broadcastApi;
+        this.eventBus = eventBus;
+        this.clock = clock;
+
+        for (final CacheType cacheType : CacheType.values()) {
+            final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(cacheType);
+            if (cacheController instanceof NearCacheController) {
+                final NearCacheController<Object, Object> nearCacheController = (NearCacheController<Object, Object>) cacheController;
+                nearCacheController.setInvalidationPublisher(this);
+                nearCacheControllers.put(cacheType, nearCacheController);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return !nearCacheControllers.isEmpty();
+    }
+
+    public void register() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            eventBus.register(this);
+        } catch (final EventBusException e) {
+            throw new RuntimeException("Failed to register bus handlers", e);
+        }
+    }
+
+    public void unregister() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            eventBus.unregister(this);
+        } catch (final EventBusException e) {
+            throw new RuntimeException("Failed to unregister bus handlers", e);
+        }
+    }
+
+    @Override
+    public void publishInvalidation(final CacheType cacheType, @Nullable final Object key) {
+        final Map<String, String> invalidation = new HashMap<String, String>();
+        invalidation.put(CACHE_NAME, cacheType.getCacheName());
+        if (key != null) {
+            invalidation.put(KEY, key.toString());
+        }
+
+        try {
+            broadcastApi.broadcast(KILLBILL_SERVICES.BROADCAST_SERVICE.getServiceName(),
+                                   NEAR_CACHE_INVALIDATION_TYPE,
+                                   objectMapper.writeValueAsString(invalidation),
+                                   clock.getUTCNow(),
+                                   "NearCacheInvalidationListener",
+                                   false);
+        } catch (final JsonProcessingException e) {
+            // The local tier is already invalidated, other nodes will catch up once the entry expires
+            logger.warn("Unable to broadcast near cache invalidation for cacheName='{}', key='{}'", cacheType.getCacheName(), key, e);
+        }
+    }
+
+    @AllowConcurrentEvents
+    @Subscribe
+    public void handleBroadcastEvent(final BroadcastInternalEvent event) {
+        if (!NEAR_CACHE_INVALIDATION_TYPE.equals(event.getType())) {
+            return;
+        }
+
+        final Map<String, String> invalidation;
+        try {
+            invalidation = objectMapper.readValue(event.getJsonEvent(), new TypeReference<Map<String, String>>() {});
+        } catch (final IOException e) {
+            logger.warn("Unable to deserialize near cache invalidation event='{}'", event.getJsonEvent(), e);
+            return;
+        }
+
+        final CacheType cacheType = CacheType.findByName(invalidation.get(CACHE_NAME));
+        final NearCacheController<Object, Object> nearCacheController = cacheType != null ? nearCacheControllers.get(cacheType) : null;
+        if (nearCacheController == null) {
+            return;
+        }
+
+        final String key = invalidation.get(KEY);
+        if (key == null) {
+            nearCacheController.invalidateAllLocal();
+        } else {
+            nearCacheController.invalidateLocal(toKey(cacheType, key));
+        }
+    }
+
+    private static Object toKey(final CacheType cacheType, final String key) {
+        if (Long.class.equals(cacheType.getKeyType())) {
+            return Long.valueOf(key);
+        } else if (UUID.class.equals(cacheType.getKeyType())) {
+            return UUID.fromString(key);
+        } else {
+            return key;
+        }
+    }
+}
@@ -20,8 +20,10 @@ package org.killbill.billing.util.config.definition;
 import java.util.Set;
 
 import org.skife.config.Config;
+import org.skife.config.Default;
 import org.skife.config.DefaultNull;
 import org.skife.config.Description;
+import org.skife.config.TimeSpan;
 
 public interface CacheConfig extends KillbillConfig {
 
@@ -29,4 +31,19 @@ public interface CacheConfig extends KillbillConfig {
     @DefaultNull
     @Description("Caches to be disabled")
     public Set<String> getDisabledCaches();
+
+    @Config("org.killbill.cache.near.caches")
+    @DefaultNull
+    @Description("Caches to front with a bounded per-node near cache (e.g. record-id,object-id,account-record-id,tenant-catalog)")
+    public Set<String> getNearCaches();
+
+    @Config("org.killbill.cache.near.maxSize")
+    @Default("10000")
+    @Description("Maximum number of entries kept in each per-node near cache")
+    public int getNearCacheMaxSize();
+
+    @Config("org.killbill.cache.near.ttl")
+    @Default("5m")
+    @Description("Maximum time an entry is served from the per-node near cache without going back to the shared store")
+    public TimeSpan getNearCacheTtl();
 }
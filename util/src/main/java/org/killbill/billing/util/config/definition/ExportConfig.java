@@ -30,4 +30,19 @@ public interface ExportConfig extends KillbillConfig {
     @Description("Prefix of the extra tables that need to be imported")
     List<String> getExtraTablesPrefix();
 
+    @Config("org.killbill.export.fetchSize")
+    @Default("1000")
+    @Description("Number of rows fetched at a time by the streaming exports (ignored on MySQL, which streams row by row)")
+    int getExportFetchSize();
+
+    @Config("org.killbill.export.threads")
+    @Default("4")
+    @Description("Number of tables exported concurrently by the streaming account export")
+    int getExportThreads();
+
+    @Config("org.killbill.export.chunkSize")
+    @Default("10000")
+    @Description("Maximum number of rows per compressed chunk (and per page for the tenant export)")
+    int getExportChunkSize();
+
 }
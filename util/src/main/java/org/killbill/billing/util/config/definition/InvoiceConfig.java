@@ -131,11 +131,46 @@ public interface InvoiceConfig extends LockAwareConfig {
     @Description("Maximum number of past billing periods we use to fetch raw usage data (usage optimization)")
     int getMaxRawUsagePreviousPeriod(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.invoice.usage.readAggregates")
+    @Default("false")
+    @Description("Whether in-arrear usage is read from the per subscription, unit type and record date aggregates instead of the raw usage records")
+    boolean isUsageAggregatesEnabled();
+
+    @Config("org.killbill.invoice.usage.readAggregates")
+    @Default("false")
+    @Description("Whether in-arrear usage is read from the per subscription, unit type and record date aggregates instead of the raw usage records")
+    boolean isUsageAggregatesEnabled(@Param("dummy") final InternalTenantContext tenantContext);
+
     @Config("org.killbill.invoice.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
     int getMaxGlobalLockRetries();
 
+    @Config("org.killbill.invoice.bulkRun.enabled")
+    @Default("false")
+    @Description("Whether due next billing date notifications are periodically picked up and invoiced in bulk")
+    boolean isBulkInvoiceRunEnabled();
+
+    @Config("org.killbill.invoice.bulkRun.interval")
+    @Default("1m")
+    @Description("Delay between two bulk invoice runs")
+    TimeSpan getBulkInvoiceRunInterval();
+
+    @Config("org.killbill.invoice.bulkRun.parallelism")
+    @Default("8")
+    @Description("Number of accounts processed concurrently during a bulk invoice run")
+    int getBulkInvoiceRunParallelism();
+
+    @Config("org.killbill.invoice.bulkRun.batchSize")
+    @Default("500")
+    @Description("Maximum number of due accounts picked up by a bulk invoice run")
+    int getBulkInvoiceRunBatchSize();
+
+    @Config("org.killbill.invoice.tree.flatIntervals")
+    @Default("false")
+    @Description("Whether to use the array-backed interval tree (instead of the linked node tree) when merging existing and proposed invoice items")
+    boolean isFlatItemTreeEnabled();
+
     @Config("org.killbill.invoice.plugin")
     @Default("")
     @Description("Default invoice plugin names")
@@ -222,6 +257,16 @@ public interface InvoiceConfig extends LockAwareConfig {
     @Description("How far back in time should invoice generation look at")
     Period getMaxInvoiceLimit(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.invoice.incrementalGeneration")
+    @Default("false")
+    @Description("Whether scheduled invoice runs should only load existing invoices from the account billed-through point (invoice optimization feature only)")
+    boolean isIncrementalGenerationEnabled();
+
+    @Config("org.killbill.invoice.incrementalGeneration")
+    @Default("false")
+    @Description("Whether scheduled invoice runs should only load existing invoices from the account billed-through point (invoice optimization feature only)")
+    boolean isIncrementalGenerationEnabled(@Param("dummy") final InternalTenantContext tenantContext);
+
     @Config("org.killbill.invoice.proration.fixed.days")
     @Default("0")
     @Description("Fixed number of days in a month to avoid proration")
@@ -109,6 +109,46 @@ public interface PaymentConfig extends LockAwareConfig {
     @Description("Delay before which unresolved attempt should be retried")
     TimeSpan getIncompleteAttemptsTimeSpanDelay();
 
+    @Config("org.killbill.payment.janitor.batch.enabled")
+    @Default("false")
+    @Description("Whether incomplete (PENDING or UNKNOWN) transactions should also be reconciled in batches (in addition to the janitor notifications)")
+    boolean isJanitorBatchReconciliationEnabled();
+
+    @Config("org.killbill.payment.janitor.batch.rate")
+    @Default("1m")
+    @Description("Delay between two runs of the janitor batch reconciliation")
+    TimeSpan getJanitorBatchRunningRate();
+
+    @Config("org.killbill.payment.janitor.batch.maxRunTime")
+    @Default("5m")
+    @Description("Time after which a run of the janitor batch reconciliation stops picking up new batches (the next run resumes where it stopped)")
+    TimeSpan getJanitorBatchMaxRunTime();
+
+    @Config("org.killbill.payment.janitor.batch.threads.nb")
+    @Default("4")
+    @Description("Number of accounts reconciled concurrently by the janitor batch reconciliation")
+    int getJanitorBatchThreadNb();
+
+    @Config("org.killbill.payment.janitor.batch.size")
+    @Default("1000")
+    @Description("Number of incomplete transactions fetched per batch by the janitor batch reconciliation")
+    int getJanitorBatchSize();
+
+    @Config("org.killbill.payment.janitor.batch.maxConcurrentCallsPerPlugin")
+    @Default("2")
+    @Description("Maximum number of concurrent getPaymentInfo calls per plugin, during the janitor batch reconciliation")
+    int getJanitorBatchMaxConcurrentCallsPerPlugin();
+
+    @Config("org.killbill.payment.janitor.batch.delay")
+    @Default("5m")
+    @Description("Delay before which incomplete transactions are considered by the janitor batch reconciliation (to leave in-flight calls alone)")
+    TimeSpan getJanitorBatchDelay();
+
+    @Config("org.killbill.payment.janitor.batch.maxAge")
+    @Default("7d")
+    @Description("Incomplete transactions older than this are ignored by the janitor batch reconciliation")
+    TimeSpan getJanitorBatchMaxAge();
+
     @Config("org.killbill.payment.provider.default")
     // See ExternalPaymentProviderPlugin.PLUGIN_NAME
     @Default("__external_payment__")
@@ -125,6 +165,91 @@ public interface PaymentConfig extends LockAwareConfig {
     @Description("Number of threads for plugin executor dispatcher")
     int getPaymentPluginThreadNb();
 
+    @Config("org.killbill.payment.plugin.bulkhead.enabled")
+    @Default("false")
+    @Description("Whether plugin calls should run on their own (virtual, if supported by the JVM) thread, with a concurrency limit per plugin, instead of the shared plugin executor")
+    boolean isPaymentPluginBulkheadEnabled();
+
+    @Config("org.killbill.payment.plugin.bulkhead.maxConcurrentCalls")
+    @Default("50")
+    @Description("Maximum number of concurrent calls per plugin (bulkhead mode)")
+    int getPaymentPluginBulkheadMaxConcurrentCalls();
+
+    @Config("org.killbill.payment.plugin.bulkhead.maxQueueSize")
+    @Default("100")
+    @Description("Maximum number of calls waiting per plugin, before failing fast (bulkhead mode)")
+    int getPaymentPluginBulkheadMaxQueueSize();
+
+    @Config("org.killbill.payment.plugin.info.cache.enabled")
+    @Default("false")
+    @Description("Whether getPaymentInfo results should be cached for the GET paths (see org.killbill.payment.plugin.info.cache.ttl)")
+    boolean isPaymentPluginInfoCacheEnabled();
+
+    @Config("org.killbill.payment.plugin.info.cache.ttl")
+    @Default("SUCCESS:forever,PAYMENT_FAILURE:forever")
+    @Description("Freshness of the cached getPaymentInfo results per transaction status, optionally per plugin ([<pluginName>:]<transactionStatus>:<ttl|forever>): payments with a transaction status not listed are not cached")
+    List<String> getPaymentPluginInfoCacheTtl();
+
+    @Config("org.killbill.payment.plugin.info.cache.maxSize")
+    @Default("10000")
+    @Description("Maximum number of payments in the getPaymentInfo results cache")
+    int getPaymentPluginInfoCacheMaxSize();
+
+    @Config("org.killbill.payment.readAccountPaymentSummaries")
+    @Default("false")
+    @Description("Whether account payments are read from the pre-joined payment summaries (one range read) instead of the payments and payment_transactions tables: the summaries of an account are built on demand and only maintained by the payment writes while enabled")
+    boolean isAccountPaymentSummariesEnabled();
+
+    @Config("org.killbill.payment.readAccountPaymentSummaries")
+    @Default("false")
+    @Description("Whether account payments are read from the pre-joined payment summaries (one range read) instead of the payments and payment_transactions tables: the summaries of an account are built on demand and only maintained by the payment writes while enabled")
+    boolean isAccountPaymentSummariesEnabled(@Param("dummy") final InternalTenantContext tenantContext);
+
+    @Config("org.killbill.payment.retry.rate.limits")
+    @Default("")
+    @Description("Maximum number of payment retries dispatched per second and per node, optionally per payment plugin ([<pluginName>:]<maxRetriesPerSecond>): retries above the rate are spread over time")
+    List<String> getPaymentRetryRateLimits();
+
+    @Config("org.killbill.payment.retry.jitter")
+    @Default("0s")
+    @Description("Maximum random delay added to each scheduled payment retry, to avoid retrying all the payments which failed at the same time in a burst")
+    TimeSpan getPaymentRetryJitter();
+
+    @Config("org.killbill.payment.retry.coalesce.window")
+    @Default("0s")
+    @Description("When a payment retry is dispatched, the other retries of the same account due within that window are dispatched along with it")
+    TimeSpan getPaymentRetryCoalesceWindow();
+
+    @Config("org.killbill.payment.bulk.threads.nb")
+    @Default("10")
+    @Description("Number of payments processed concurrently by the bulk payment API (across all bulk requests)")
+    int getBulkPaymentThreadNb();
+
+    @Config("org.killbill.payment.bulk.batchSize")
+    @Default("500")
+    @Description("Number of payment requests read at a time by the bulk payment API")
+    int getBulkPaymentBatchSize();
+
+    @Config("org.killbill.payment.bulk.refreshPaymentMethods.maxAccountsPerSecond")
+    @Default("0")
+    @Description("Maximum number of accounts per second whose payment methods are refreshed by the bulk payment API (0 for no limit)")
+    int getBulkPaymentMethodRefreshMaxAccountsPerSecond();
+
+    @Config("org.killbill.payment.bulk.refreshPaymentMethods.progressInterval")
+    @Default("1000")
+    @Description("Number of accounts between two progress reports of the bulk payment methods refresh")
+    int getBulkPaymentMethodRefreshProgressInterval();
+
+    @Config("org.killbill.payment.control.plugins.independent")
+    @Default("")
+    @Description("Payment control plugins whose onSuccessCall/onFailureCall hooks don't depend on the plugin properties adjusted by the other plugins: when all the plugins of a chain are listed, these hooks are invoked concurrently")
+    List<String> getPaymentControlPluginsWithIndependentHooks();
+
+    @Config("org.killbill.payment.control.threads.nb")
+    @Default("10")
+    @Description("Number of threads to invoke the independent onSuccessCall/onFailureCall payment control plugin hooks")
+    int getPaymentControlPluginThreadNb();
+
     @Config("org.killbill.payment.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
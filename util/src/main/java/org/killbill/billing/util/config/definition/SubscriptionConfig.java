@@ -35,4 +35,14 @@ public interface SubscriptionConfig extends KillbillConfig {
     @Description("Whether to align the per-plan effectiveDateForExistingSubscriptions with the next per-subscription BCD")
     boolean isEffectiveDateForExistingSubscriptionsAlignedToBCD(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.subscription.transitions.cache.enabled")
+    @Default("false")
+    @Description("Whether to cache the transitions computed from the subscription events, to avoid rebuilding them on each read for unchanged subscriptions")
+    boolean isTransitionsCacheEnabled();
+
+    @Config("org.killbill.subscription.transitions.cache.maxSize")
+    @Default("10000")
+    @Description("Maximum number of subscriptions whose transitions are cached (per node)")
+    int getTransitionsCacheMaxSize();
+
 }
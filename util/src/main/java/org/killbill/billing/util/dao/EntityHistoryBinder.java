@@ -26,6 +26,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.skife.jdbi.v2.SQLStatement;
 import org.skife.jdbi.v2.sqlobject.Binder;
@@ -52,26 +54,34 @@ public @interface EntityHistoryBinder {
 
                 @Override
                 public void bind(final SQLStatement<?> q, final EntityHistoryBinder bind, final EntityHistoryModelDao<M, E> history) {
-                    try {
-                        // Emulate @SmartBindBean
-                        final M arg = history.getEntity();
-                        final BeanInfo infos = Introspector.getBeanInfo(arg.getClass());
-                        final PropertyDescriptor[] props = infos.getPropertyDescriptors();
-                        for (final PropertyDescriptor prop : props) {
-                            q.bind(prop.getName(), prop.getReadMethod().invoke(arg));
-                        }
-                        q.bind("id", history.getId());
-                        q.bind("targetRecordId", history.getTargetRecordId());
-                        q.bind("changeType", history.getChangeType().toString());
-                    } catch (IntrospectionException e) {
-                        logger.warn(e.getMessage());
-                    } catch (InvocationTargetException e) {
-                        logger.warn(e.getMessage());
-                    } catch (IllegalAccessException e) {
-                        logger.warn(e.getMessage());
+                    // Emulate @SmartBindBean (the entity state may have been captured when the history was buffered)
+                    final Map<String, Object> entityProperties = history.getEntityProperties() != null ? history.getEntityProperties() : getEntityProperties(history.getEntity());
+                    for (final Map.Entry<String, Object> entityProperty : entityProperties.entrySet()) {
+                        q.bind(entityProperty.getKey(), entityProperty.getValue());
                     }
+                    q.bind("id", history.getId());
+                    q.bind("targetRecordId", history.getTargetRecordId());
+                    q.bind("changeType", history.getChangeType().toString());
                 }
             };
         }
+
+        public static Map<String, Object> getEntityProperties(final Object entity) {
+            final Map<String, Object> entityProperties = new LinkedHashMap<String, Object>();
+            try {
+                final BeanInfo infos = Introspector.getBeanInfo(entity.getClass());
+                final PropertyDescriptor[] props = infos.getPropertyDescriptors();
+                for (final PropertyDescriptor prop : props) {
+                    entityProperties.put(prop.getName(), prop.getReadMethod().invoke(entity));
+                }
+            } catch (IntrospectionException e) {
+                logger.warn(e.getMessage());
+            } catch (InvocationTargetException e) {
+                logger.warn(e.getMessage());
+            } catch (IllegalAccessException e) {
+                logger.warn(e.getMessage());
+            }
+            return entityProperties;
+        }
     }
 }
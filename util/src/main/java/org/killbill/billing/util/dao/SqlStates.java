@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+public abstract class SqlStates {
+
+    // SQL standard class 23: integrity constraint violation (e.g. 23000 on MySQL, 23505 on PostgreSQL and H2)
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION_CLASS = "23";
+
+    // Whether the (JDBI wrapped) exception was caused by a unique or foreign key constraint violation
+    public static boolean isIntegrityConstraintViolation(final Throwable throwable) {
+        Throwable cur = throwable;
+        while (cur != null) {
+            if (cur instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            } else if (cur instanceof SQLException &&
+                       ((SQLException) cur).getSQLState() != null &&
+                       ((SQLException) cur).getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION_CLASS)) {
+                return true;
+            }
+            cur = cur.getCause() == cur ? null : cur.getCause();
+        }
+        return false;
+    }
+}
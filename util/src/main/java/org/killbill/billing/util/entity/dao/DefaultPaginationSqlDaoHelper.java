@@ -18,7 +18,13 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.annotation.Nullable;
 
@@ -38,8 +44,17 @@ public class DefaultPaginationSqlDaoHelper {
     // but small enough to not impact very large deployments
     private static final Long DEFAULT_SIMPLE_PAGINATION_THRESHOLD = 20000L;
 
+    // Number of page boundaries remembered for keyset (seek) pagination
+    private static final int DEFAULT_MAX_KEYSET_BOUNDARIES = 1000;
+    // Page boundaries (and the counts carried over with them) drift as records are inserted or deleted: they are only reused for a short while
+    private static final long DEFAULT_KEYSET_BOUNDARY_TTL_MILLIS = 60 * 1000L;
+
     private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
     private final Long simplePaginationThreshold;
+    private final long keysetBoundaryTtlMillis;
+    // Last record_id (and counts) of the pages served, keyed by the offset of the following page: this lets us seek
+    // (where record_id > :lastRecordId) instead of scanning and discarding offset rows when the client asks for the next page
+    private final Map<KeysetKey, KeysetBoundary> keysetBoundaries;
 
     public DefaultPaginationSqlDaoHelper(final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao) {
         this(transactionalSqlDao, DEFAULT_SIMPLE_PAGINATION_THRESHOLD);
@@ -48,8 +63,22 @@ public class DefaultPaginationSqlDaoHelper {
     @VisibleForTesting
     DefaultPaginationSqlDaoHelper(final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao,
                                   final Long simplePaginationThreshold) {
+        this(transactionalSqlDao, simplePaginationThreshold, DEFAULT_KEYSET_BOUNDARY_TTL_MILLIS);
+    }
+
+    @VisibleForTesting
+    DefaultPaginationSqlDaoHelper(final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao,
+                                  final Long simplePaginationThreshold,
+                                  final long keysetBoundaryTtlMillis) {
         this.transactionalSqlDao = transactionalSqlDao;
         this.simplePaginationThreshold = simplePaginationThreshold;
+        this.keysetBoundaryTtlMillis = keysetBoundaryTtlMillis;
+        this.keysetBoundaries = Collections.synchronizedMap(new LinkedHashMap<KeysetKey, KeysetBoundary>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<KeysetKey, KeysetBoundary> eldest) {
+                return size() > DEFAULT_MAX_KEYSET_BOUNDARIES;
+            }
+        });
     }
 
     public <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Pagination<M> getPagination(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
@@ -83,6 +112,28 @@ public class DefaultPaginationSqlDaoHelper {
         final Ordering ordering = limitMaybeNegative >= 0 ? Ordering.ASC : Ordering.DESC;
         final Long limit = Math.abs(limitMaybeNegative);
 
+        // Builders sharing the same SqlDao must not share page boundaries: only those identifying their result set take part
+        final String resultSetKey = paginationIteratorBuilder.getResultSetKey();
+        final KeysetKey keysetKey = context == null || resultSetKey == null ? null : new KeysetKey(sqlDaoClazz,
+                                                                                                   resultSetKey,
+                                                                                                   context.getTenantRecordId(),
+                                                                                                   withAccountRecordId ? context.getAccountRecordId() : null,
+                                                                                                   ordering,
+                                                                                                   offset);
+        final KeysetBoundary keysetBoundary = keysetKey == null ? null : getKeysetBoundary(keysetKey);
+        if (keysetBoundary != null) {
+            final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz);
+            final Iterator<M> results = paginationIteratorBuilder.buildAfterRecordId((S) sqlDao, keysetBoundary.lastRecordId, limit, ordering, context);
+            if (results != null) {
+                // Estimated counts: we don't re-issue the count queries while the client is walking through the pages
+                return new DefaultPagination<M>(offset,
+                                                limit,
+                                                keysetBoundary.totalNbRecords,
+                                                keysetBoundary.maxNbRecords,
+                                                new KeysetBoundaryRecordingIterator<M>(results, keysetKey, limit, keysetBoundary.totalNbRecords, keysetBoundary.maxNbRecords));
+            }
+        }
+
         // Note: the connection will be busy as we stream the results out: hence we cannot use
         // SQL_CALC_FOUND_ROWS / FOUND_ROWS on the actual query.
         // We still need to know the actual number of results, mainly for the UI so that it knows if it needs to fetch
@@ -120,7 +171,153 @@ public class DefaultPaginationSqlDaoHelper {
 
         final Long totalNbRecords = totalNbRecordsOrNull == null ? maxNbRecords : totalNbRecordsOrNull;
 
-        return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, results);
+        return new DefaultPagination<M>(offset,
+                                        limit,
+                                        totalNbRecords,
+                                        maxNbRecords,
+                                        keysetKey == null ? results : new KeysetBoundaryRecordingIterator<M>(results, keysetKey, limit, totalNbRecords, maxNbRecords));
+    }
+
+    private KeysetBoundary getKeysetBoundary(final KeysetKey keysetKey) {
+        final KeysetBoundary keysetBoundary = keysetBoundaries.get(keysetKey);
+        if (keysetBoundary == null) {
+            return null;
+        } else if (System.currentTimeMillis() - keysetBoundary.createdTimeMillis >= keysetBoundaryTtlMillis) {
+            // Expired: fall back to the offset based pagination (which recomputes the counts and records a fresh boundary)
+            keysetBoundaries.remove(keysetKey);
+            return null;
+        } else {
+            return keysetBoundary;
+        }
+    }
+
+    @VisibleForTesting
+    int getNbKeysetBoundaries() {
+        return keysetBoundaries.size();
+    }
+
+    // Remembers the record_id of the last record of a full page, once it has been streamed out
+    private final class KeysetBoundaryRecordingIterator<M extends EntityModelDao<?>> implements Iterator<M>, Closeable {
+
+        private final Iterator<M> delegate;
+        private final KeysetKey keysetKey;
+        private final Long limit;
+        private final Long totalNbRecords;
+        private final Long maxNbRecords;
+
+        private long nbRecords = 0;
+
+        private KeysetBoundaryRecordingIterator(final Iterator<M> delegate,
+                                                final KeysetKey keysetKey,
+                                                final Long limit,
+                                                @Nullable final Long totalNbRecords,
+                                                @Nullable final Long maxNbRecords) {
+            this.delegate = delegate;
+            this.keysetKey = keysetKey;
+            this.limit = limit;
+            this.totalNbRecords = totalNbRecords;
+            this.maxNbRecords = maxNbRecords;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public M next() {
+            final M record = delegate.next();
+            nbRecords++;
+            if (nbRecords == limit && record.getRecordId() != null) {
+                keysetBoundaries.put(keysetKey.next(limit), new KeysetBoundary(record.getRecordId(), totalNbRecords, maxNbRecords));
+            }
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate instanceof Closeable) {
+                ((Closeable) delegate).close();
+            } else {
+                while (delegate.hasNext()) {
+                    delegate.next();
+                }
+            }
+        }
+    }
+
+    private static final class KeysetKey {
+
+        private final String sqlDaoClassName;
+        private final String resultSetKey;
+        private final Long tenantRecordId;
+        private final Long accountRecordId;
+        private final Ordering ordering;
+        private final Long offset;
+
+        private KeysetKey(final Class<?> sqlDaoClazz,
+                          final String resultSetKey,
+                          final Long tenantRecordId,
+                          @Nullable final Long accountRecordId,
+                          final Ordering ordering,
+                          final Long offset) {
+            this(sqlDaoClazz.getName(), resultSetKey, tenantRecordId, accountRecordId, ordering, offset);
+        }
+
+        private KeysetKey(final String sqlDaoClassName,
+                          final String resultSetKey,
+                          final Long tenantRecordId,
+                          @Nullable final Long accountRecordId,
+                          final Ordering ordering,
+                          final Long offset) {
+            this.sqlDaoClassName = sqlDaoClassName;
+            this.resultSetKey = resultSetKey;
+            this.tenantRecordId = tenantRecordId;
+            this.accountRecordId = accountRecordId;
+            this.ordering = ordering;
+            this.offset = offset;
+        }
+
+        private KeysetKey next(final Long limit) {
+            return new KeysetKey(sqlDaoClassName, resultSetKey, tenantRecordId, accountRecordId, ordering, offset + limit);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final KeysetKey that = (KeysetKey) o;
+            return Objects.equals(sqlDaoClassName, that.sqlDaoClassName) &&
+                   Objects.equals(resultSetKey, that.resultSetKey) &&
+                   Objects.equals(tenantRecordId, that.tenantRecordId) &&
+                   Objects.equals(accountRecordId, that.accountRecordId) &&
+                   ordering == that.ordering &&
+                   Objects.equals(offset, that.offset);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sqlDaoClassName, resultSetKey, tenantRecordId, accountRecordId, ordering, offset);
+        }
+    }
+
+    private static final class KeysetBoundary {
+
+        private final Long lastRecordId;
+        private final Long totalNbRecords;
+        private final Long maxNbRecords;
+        private final long createdTimeMillis;
+
+        private KeysetBoundary(final Long lastRecordId, @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords) {
+            this.lastRecordId = lastRecordId;
+            this.totalNbRecords = totalNbRecords;
+            this.maxNbRecords = maxNbRecords;
+            this.createdTimeMillis = System.currentTimeMillis();
+        }
     }
 
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
@@ -131,10 +328,33 @@ public class DefaultPaginationSqlDaoHelper {
         public abstract Long getCount(final S sqlDao, final InternalTenantContext context);
 
         public abstract Iterator<M> build(final S sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context);
+
+        // Keyset (seek) pagination: return the page following the record lastRecordId, or null if not supported.
+        // Only valid if the records are ordered by record_id only (e.g. not by effective_date, record_id): return null otherwise.
+        public Iterator<M> buildAfterRecordId(final S sqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+            return null;
+        }
+
+        // Identifies the result set (e.g. the search key), see buildAfterRecordId. Must be unique across all the queries
+        // issued against the same SqlDao: keyset pagination is disabled if null.
+        public String getResultSetKey() {
+            return null;
+        }
     }
 
     public enum Ordering {
-        ASC,
-        DESC
+        ASC(">"),
+        DESC("<");
+
+        private final String recordIdComparator;
+
+        Ordering(final String recordIdComparator) {
+            this.recordIdComparator = recordIdComparator;
+        }
+
+        // Comparator to seek the records following a given record_id
+        public String getRecordIdComparator() {
+            return recordIdComparator;
+        }
     }
 }
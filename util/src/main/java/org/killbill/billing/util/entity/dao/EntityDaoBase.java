@@ -162,6 +162,12 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
         return "record_id";
     }
 
+    // Whether the defaultOrderBy of the SqlDao template is record_id ASC: getByAccountRecordId can only seek past the
+    // previous page (keyset pagination) in that case. To override when the template sorts by other columns first.
+    protected boolean isDefaultOrderingByRecordId() {
+        return true;
+    }
+
     @Override
     public M getByRecordId(final Long recordId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<M>() {
@@ -215,6 +221,19 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                                   public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return sqlDao.get(offset, limit, getNaturalOrderingColumns(), ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<M> buildAfterRecordId(final EntitySqlDao<M, E> sqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      if (!"record_id".equals(getNaturalOrderingColumns())) {
+                                                          return null;
+                                                      }
+                                                      return sqlDao.getAfterRecordId(lastRecordId, limit, ordering.toString(), ordering.getRecordIdComparator(), context);
+                                                  }
+
+                                                  @Override
+                                                  public String getResultSetKey() {
+                                                      return "record_id".equals(getNaturalOrderingColumns()) ? "get" : null;
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -235,6 +254,21 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                                                      public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                                          return sqlDao.getByAccountRecordIdWithPaginationEnabled(offset, limit, context);
                                                                      }
+
+                                                                     @Override
+                                                                     public Iterator<M> buildAfterRecordId(final EntitySqlDao<M, E> sqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                                         // getByAccountRecordIdWithPaginationEnabled uses the defaultOrderBy of the template, whatever the requested ordering
+                                                                         if (ordering != Ordering.ASC || !isDefaultOrderingByRecordId()) {
+                                                                             return null;
+                                                                         }
+                                                                         return sqlDao.getByAccountRecordIdAfterRecordId(lastRecordId, limit, context);
+                                                                     }
+
+                                                                     @Override
+                                                                     public String getResultSetKey() {
+                                                                         // No need to record page boundaries if they can't be used
+                                                                         return isDefaultOrderingByRecordId() ? "getByAccountRecordId" : null;
+                                                                     }
                                                                  },
                                                                  offset,
                                                                  limit,
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.EntityAudit;
+import org.killbill.billing.util.dao.EntityHistoryModelDao;
+import org.killbill.billing.util.dao.TableName;
+import org.killbill.commons.utils.Preconditions;
+import org.skife.jdbi.v2.Handle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind buffer for the history and audit rows generated by the @Audited calls of a single transaction
+ * (see EntitySqlDaoTransactionalJdbiWrapper). Rows are flushed right before the commit: consecutive calls against the
+ * same table, with the same change type and context, are coalesced into a single batch, so the ordering of the history
+ * records of a given entity is preserved.
+ * <p/>
+ * Not thread safe: a buffer is bound to a transaction (jDBI handle).
+ */
+public class EntityHistoryAndAuditBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityHistoryAndAuditBuffer.class);
+
+    private final Handle handle;
+    private final List<PendingWrites> pendingWrites = new ArrayList<>();
+    // Accounts written in the transaction, by table (kept after the flush, for the post-commit listeners)
+    private final Map<TableName, Set<Long>> writtenAccountRecordIds = new EnumMap<>(TableName.class);
+
+    public EntityHistoryAndAuditBuffer(final Handle handle) {
+        this.handle = handle;
+    }
+
+    void addHistories(final EntitySqlDao sqlDao,
+                      final TableName tableName,
+                      final ChangeType changeType,
+                      final Collection<? extends EntityHistoryModelDao> histories,
+                      final InternalCallContext context) {
+        getPendingWrites(sqlDao, tableName, changeType, context).histories.addAll(histories);
+    }
+
+    // For tables without history table: audit entries point directly to the entity record id
+    void addAudits(final EntitySqlDao sqlDao,
+                   final TableName tableName,
+                   final ChangeType changeType,
+                   final Collection<Long> auditTargetRecordIds,
+                   final InternalCallContext context) {
+        getPendingWrites(sqlDao, tableName, changeType, context).auditTargetRecordIds.addAll(auditTargetRecordIds);
+    }
+
+    public boolean isEmpty() {
+        return pendingWrites.isEmpty();
+    }
+
+    public Map<TableName, Set<Long>> getWrittenAccountRecordIds() {
+        return writtenAccountRecordIds;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void flush() {
+        EntitySqlDao auditSqlDao = null;
+        InternalCallContext auditContext = null;
+        final List<EntityAudit> audits = new ArrayList<>();
+
+        for (final PendingWrites writes : pendingWrites) {
+            final Collection<Long> auditTargetRecordIds;
+            if (writes.histories.isEmpty()) {
+                auditTargetRecordIds = writes.auditTargetRecordIds;
+            } else {
+                // Note: audit entries point to the history record id
+                auditTargetRecordIds = writes.sqlDao.addHistoriesFromTransaction(writes.histories, writes.context);
+                printSQLWarnings();
+                Preconditions.checkState(auditTargetRecordIds.size() == writes.histories.size(),
+                                         "Wrong number of auditTargetRecordIds=%s (histories=%s)", auditTargetRecordIds, writes.histories);
+            }
+
+            // All audit entries of a batch share the same context
+            if (auditContext != null && auditContext != writes.context) {
+                auditSqlDao.insertAuditsFromTransaction(audits, auditContext);
+                printSQLWarnings();
+                audits.clear();
+            }
+            auditSqlDao = writes.sqlDao;
+            auditContext = writes.context;
+
+            final TableName destinationTableName = Objects.requireNonNullElse(writes.tableName.getHistoryTableName(), writes.tableName);
+            for (final Long auditTargetRecordId : auditTargetRecordIds) {
+                audits.add(new EntityAudit(destinationTableName, auditTargetRecordId, writes.changeType, writes.context.getCreatedDate()));
+            }
+        }
+
+        if (!audits.isEmpty()) {
+            auditSqlDao.insertAuditsFromTransaction(audits, auditContext);
+            printSQLWarnings();
+        }
+        pendingWrites.clear();
+    }
+
+    private void printSQLWarnings() {
+        if (logger.isDebugEnabled()) {
+            try {
+                SQLWarning warning = handle.getConnection().getWarnings();
+                while (warning != null) {
+                    logger.debug("[SQL WARNING] {}", warning);
+                    warning = warning.getNextWarning();
+                }
+                handle.getConnection().clearWarnings();
+            } catch (final SQLException e) {
+                logger.debug("Error whilst retrieving SQL warnings", e);
+            }
+        }
+    }
+
+    private PendingWrites getPendingWrites(final EntitySqlDao sqlDao, final TableName tableName, final ChangeType changeType, final InternalCallContext context) {
+        if (context.getAccountRecordId() != null) {
+            writtenAccountRecordIds.computeIfAbsent(tableName, t -> new HashSet<>()).add(context.getAccountRecordId());
+        }
+
+        final PendingWrites last = pendingWrites.isEmpty() ? null : pendingWrites.get(pendingWrites.size() - 1);
+        if (last != null && last.tableName == tableName && last.changeType == changeType && last.context == context) {
+            return last;
+        }
+
+        final PendingWrites writes = new PendingWrites(sqlDao, tableName, changeType, context);
+        pendingWrites.add(writes);
+        return writes;
+    }
+
+    private static final class PendingWrites {
+
+        private final EntitySqlDao sqlDao;
+        private final TableName tableName;
+        private final ChangeType changeType;
+        private final InternalCallContext context;
+        private final List<EntityHistoryModelDao> histories = new ArrayList<>();
+        private final List<Long> auditTargetRecordIds = new ArrayList<>();
+
+        private PendingWrites(final EntitySqlDao sqlDao, final TableName tableName, final ChangeType changeType, final InternalCallContext context) {
+            this.sqlDao = sqlDao;
+            this.tableName = tableName;
+            this.changeType = changeType;
+            this.context = context;
+        }
+    }
+}
@@ -90,6 +90,11 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
     Iterator<M> getByAccountRecordIdWithPaginationEnabled(@Bind("offset") final Long offset,
                                                           @Bind("rowCount") final Long rowCount, @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    Iterator<M> getByAccountRecordIdAfterRecordId(@Bind("lastRecordId") final Long lastRecordId,
+                                                  @Bind("rowCount") final Long rowCount, @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public List<M> getByAccountRecordIdIncludedDeleted(@SmartBindBean final InternalTenantContext context);
 
@@ -107,6 +112,17 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                               @Define("ordering") final String ordering,
                               @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> searchAfterRecordId(@BindMap final Map<String, Object> searchKeysBindMap,
+                                           @Define("searchAttributes") final List<SearchAttribute> searchAttributes,
+                                           @Define("logicalOperator") final SqlOperator logicalOperator,
+                                           @Bind("lastRecordId") final Long lastRecordId,
+                                           @Bind("rowCount") final Long rowCount,
+                                           @Define("ordering") final String ordering,
+                                           @Define("recordIdComparator") final String recordIdComparator,
+                                           @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getSearchCount(@BindMap final Map<String, Object> searchKeysBindMap,
                                @Define("searchAttributes") final List<SearchAttribute> searchAttributes,
@@ -125,6 +141,14 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                            @Define("ordering") final String ordering,
                            @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getAfterRecordId(@Bind("lastRecordId") final Long lastRecordId,
+                                        @Bind("rowCount") final Long rowCount,
+                                        @Define("ordering") final String ordering,
+                                        @Define("recordIdComparator") final String recordIdComparator,
+                                        @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getRecordIdAtOffset(@Bind("offset") final Long offset, @SmartBindBean final InternalTenantContext context);
     
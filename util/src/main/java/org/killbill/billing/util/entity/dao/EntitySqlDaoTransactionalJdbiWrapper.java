@@ -62,6 +62,8 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
 
         private final Handle h;
         private final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper;
+        // Set once the transaction has run
+        private EntityHistoryAndAuditBuffer historyAndAuditBuffer;
 
         JdbiTransaction(final Handle h, final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) {
             this.h = h;
@@ -70,8 +72,17 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
 
         @Override
         public ReturnType inTransaction(final EntitySqlDao<M, E> transactionalSqlDao, final TransactionStatus status) throws Exception {
-            final EntitySqlDaoWrapperFactory factoryEntitySqlDao = new EntitySqlDaoWrapperFactory(h, clock, cacheControllerDispatcher, internalCallContextFactory);
-            return entitySqlDaoTransactionWrapper.inTransaction(factoryEntitySqlDao);
+            historyAndAuditBuffer = new EntityHistoryAndAuditBuffer(h);
+            final EntitySqlDaoWrapperFactory factoryEntitySqlDao = new EntitySqlDaoWrapperFactory(h, clock, cacheControllerDispatcher, internalCallContextFactory, historyAndAuditBuffer);
+            final ReturnType result = entitySqlDaoTransactionWrapper.inTransaction(factoryEntitySqlDao);
+            // PERF: history and audit rows of all the DAO calls are written in a few batches, right before the commit
+            historyAndAuditBuffer.flush();
+            return result;
+        }
+
+        @Nullable
+        EntityHistoryAndAuditBuffer getHistoryAndAuditBuffer() {
+            return historyAndAuditBuffer;
         }
     }
 
@@ -95,8 +106,10 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
             // Note that if the pool isn't used (tests or PostgreSQL), the transaction level will depend on the DB configuration
             //return entitySqlDao.inTransaction(TransactionIsolationLevel.READ_COMMITTED, new JdbiTransaction<ReturnType, EntityModelDao<Entity>, Entity>(handle, entitySqlDaoTransactionWrapper));
             logger.debug("Starting transaction {}", debugInfo);
-            final ReturnType returnType = entitySqlDao.inTransaction(new JdbiTransaction<ReturnType, EntityModelDao<Entity>, Entity>(handle, entitySqlDaoTransactionWrapper));
+            final JdbiTransaction<ReturnType, EntityModelDao<Entity>, Entity> transaction = new JdbiTransaction<ReturnType, EntityModelDao<Entity>, Entity>(handle, entitySqlDaoTransactionWrapper);
+            final ReturnType returnType = entitySqlDao.inTransaction(transaction);
             logger.debug("Exiting  transaction {}, returning {}", debugInfo, returnType);
+            dispatchPostCommit(transaction.getHistoryAndAuditBuffer());
             return returnType;
         } finally {
             handle.close();
@@ -104,6 +117,17 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
         }
     }
 
+    // The transaction has committed: notify the caches which depend on the tables it wrote to
+    private void dispatchPostCommit(@Nullable final EntityHistoryAndAuditBuffer historyAndAuditBuffer) {
+        if (cacheControllerDispatcher == null ||
+            !cacheControllerDispatcher.hasPostCommitListeners() ||
+            historyAndAuditBuffer == null ||
+            historyAndAuditBuffer.getWrittenAccountRecordIds().isEmpty()) {
+            return;
+        }
+        cacheControllerDispatcher.dispatchPostCommit(historyAndAuditBuffer.getWrittenAccountRecordIds());
+    }
+
     //
     // This is only used in the pagination APIs when streaming results. We want to keep the connection open, and also there is no need
     // to send bus events, record notifications where we need to keep the Connection through the jDBI Handle.
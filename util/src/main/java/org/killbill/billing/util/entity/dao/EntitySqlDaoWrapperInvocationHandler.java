@@ -34,7 +34,6 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -47,7 +46,7 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
-import org.killbill.billing.util.dao.EntityAudit;
+import org.killbill.billing.util.dao.EntityHistoryBinder.EntityHistoryBinderFactory;
 import org.killbill.billing.util.dao.EntityHistoryModelDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
@@ -86,6 +85,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
     private final CacheControllerDispatcher cacheControllerDispatcher;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final EntityHistoryAndAuditBuffer historyAndAuditBuffer;
     private final Profiling<Object, Throwable> prof;
 
     public EntitySqlDaoWrapperInvocationHandler(final Class<S> sqlDaoClass,
@@ -93,12 +93,15 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                                                 final Handle handle,
                                                 // Special DAO that don't require caching can invoke EntitySqlDaoWrapperInvocationHandler with no caching (e.g NoCachingTenantDao)
                                                 @Nullable final CacheControllerDispatcher cacheControllerDispatcher,
-                                                final InternalCallContextFactory internalCallContextFactory) {
+                                                final InternalCallContextFactory internalCallContextFactory,
+                                                // Shared by all EntitySqlDao of the transaction, flushed before commit
+                                                final EntityHistoryAndAuditBuffer historyAndAuditBuffer) {
         this.sqlDaoClass = sqlDaoClass;
         this.sqlDao = sqlDao;
         this.handle = handle;
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.historyAndAuditBuffer = historyAndAuditBuffer;
         this.prof = new Profiling<Object, Throwable>();
     }
 
@@ -350,7 +353,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                rawKey;
     }
 
-    // Update history and audit tables.
+    // Update history and audit tables (the rows are buffered and written right before the commit).
     // PERF: if the latest entities had to be fetched from the database, return them. Otherwise, return null.
     private Collection<M> updateHistoryAndAudit(final List<Long> entityRecordIds,
                                                 final Map<Long, M> deletedAndUpdatedEntities,
@@ -366,7 +369,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
             @Override
             public Collection<M> execute() {
                 if (tableName.getHistoryTableName() == null) {
-                    insertAudits(entityRecordIds, tableName, changeType, context);
+                    historyAndAuditBuffer.addAudits(sqlDao, tableName, changeType, entityRecordIds, context);
                     return deletedAndUpdatedEntities.values();
                 } else {
                     // Make sure to re-hydrate the objects first (especially needed for create calls)
@@ -388,10 +391,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                     }
                     Preconditions.checkState(reHydratedEntities.size() == entityRecordIds.size(), "Wrong number of reHydratedEntities=%s (entityRecordIds=%s)", reHydratedEntities, entityRecordIds);
 
-                    final Collection<Long> auditTargetRecordIds = insertHistories(reHydratedEntities, changeType, context);
-                    // Note: audit entries point to the history record id
-                    Preconditions.checkState(auditTargetRecordIds.size() == entityRecordIds.size(), "Wrong number of auditTargetRecordIds=%s (entityRecordIds=%s)", auditTargetRecordIds, entityRecordIds);
-                    insertAudits(auditTargetRecordIds, tableName, changeType, context);
+                    historyAndAuditBuffer.addHistories(sqlDao, tableName, changeType, buildHistories(reHydratedEntities, changeType, context), context);
 
                     return reHydratedEntities;
                 }
@@ -501,33 +501,15 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         throw new IllegalStateException("TimeZoneAwareEntity should have been found among " + args);
     }
 
-    private List<Long> insertHistories(final Iterable<M> reHydratedEntityModelDaos, final ChangeType changeType, final InternalCallContext context) {
-        final Collection<EntityHistoryModelDao<M, E>> histories = new LinkedList<EntityHistoryModelDao<M, E>>();
+    private List<EntityHistoryModelDao<M, E>> buildHistories(final Iterable<M> reHydratedEntityModelDaos, final ChangeType changeType, final InternalCallContext context) {
+        final List<EntityHistoryModelDao<M, E>> histories = new LinkedList<EntityHistoryModelDao<M, E>>();
         for (final M reHydratedEntityModelDao : reHydratedEntityModelDaos) {
             final EntityHistoryModelDao<M, E> history = new EntityHistoryModelDao<M, E>(reHydratedEntityModelDao, reHydratedEntityModelDao.getRecordId(), changeType, null, context.getCreatedDate());
+            // The history is written at commit time, capture the current state
+            history.setEntityProperties(EntityHistoryBinderFactory.getEntityProperties(reHydratedEntityModelDao));
             histories.add(history);
         }
-
-        final List<Long> recordIds = sqlDao.addHistoriesFromTransaction(histories, context);
-        printSQLWarnings();
-        return recordIds;
-    }
-
-    // Bulk insert all audit logs for this operation
-    private void insertAudits(final Iterable<Long> auditTargetRecordIds,
-                              final TableName tableName,
-                              final ChangeType changeType,
-                              final InternalCallContext context) {
-        final TableName destinationTableName = Objects.requireNonNullElse(tableName.getHistoryTableName(), tableName);
-
-        final Collection<EntityAudit> audits = new LinkedList<>();
-        for (final Long auditTargetRecordId : auditTargetRecordIds) {
-            final EntityAudit audit = new EntityAudit(destinationTableName, auditTargetRecordId, changeType, context.getCreatedDate());
-            audits.add(audit);
-        }
-
-        sqlDao.insertAuditsFromTransaction(audits, context);
-        printSQLWarnings();
+        return histories;
     }
 
     private String getProfilingId(@Nullable final String prefix, @Nullable final Method method) {
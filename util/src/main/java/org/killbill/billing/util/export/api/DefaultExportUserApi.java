@@ -16,20 +16,26 @@
 
 package org.killbill.billing.util.export.api;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import org.killbill.billing.callcontext.InternalTenantContext;
+
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
 import org.killbill.billing.util.api.ExportUserApi;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.export.StreamingExportUserApi;
 import org.killbill.billing.util.export.dao.CSVExportOutputStream;
 import org.killbill.billing.util.export.dao.DatabaseExportDao;
 
-public class DefaultExportUserApi implements ExportUserApi {
+public class DefaultExportUserApi implements ExportUserApi, StreamingExportUserApi {
 
     private final DatabaseExportDao exportDao;
     private final InternalCallContextFactory internalCallContextFactory;
@@ -51,4 +57,16 @@ public class DefaultExportUserApi implements ExportUserApi {
     public void exportDataAsCSVForAccount(final UUID accountId, final OutputStream out, final CallContext context) {
         exportDataForAccount(accountId, new CSVExportOutputStream(out), context);
     }
+
+    @Override
+    public void exportCompressedDataForAccount(final UUID accountId, final OutputStream out, final CallContext context) throws IOException {
+        final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(accountId, context);
+        exportDao.exportCompressedDataForAccount(out, accountId, context.getTenantId(), internalContext);
+    }
+
+    @Override
+    public void exportCompressedDataForTenant(@Nullable final String fromTableName, @Nullable final Long fromRecordId, final OutputStream out, final TenantContext context) throws IOException {
+        final InternalTenantContext internalContext = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(context);
+        exportDao.exportCompressedDataForTenant(out, fromTableName, fromRecordId, context.getTenantId(), internalContext);
+    }
 }
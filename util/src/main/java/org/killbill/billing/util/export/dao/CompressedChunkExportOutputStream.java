@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.killbill.billing.util.api.ColumnInfo;
+import org.killbill.billing.util.api.DatabaseExportOutputStream;
+
+/**
+ * Buffers the CSV export (see CSVExportOutputStream) of a single table in gzip chunks of at most chunkSize rows.
+ * <p/>
+ * Each chunk is a complete gzip member starting with the table header, so chunks can be written in any order
+ * (e.g. interleaved across tables exported concurrently) and the concatenation is still a valid gzip stream,
+ * which decompresses to the regular CSV export (a large table simply shows up as several sections).
+ */
+public class CompressedChunkExportOutputStream implements DatabaseExportOutputStream {
+
+    public interface ChunkConsumer {
+
+        void accept(byte[] chunk) throws IOException;
+    }
+
+    private final int chunkSize;
+    private final ChunkConsumer chunkConsumer;
+
+    private String currentTableName;
+    private List<ColumnInfo> currentColumns;
+    private ByteArrayOutputStream currentBytes;
+    private GZIPOutputStream currentGzip;
+    private CSVExportOutputStream currentCsv;
+    private int currentRows;
+
+    public CompressedChunkExportOutputStream(final int chunkSize, final ChunkConsumer chunkConsumer) {
+        this.chunkSize = chunkSize;
+        this.chunkConsumer = chunkConsumer;
+    }
+
+    @Override
+    public void newTable(final String tableName, final List<ColumnInfo> columnsForTable) {
+        currentTableName = tableName;
+        currentColumns = columnsForTable;
+        currentCsv = null;
+        currentRows = 0;
+    }
+
+    @Override
+    public void write(final Map<String, Object> row) throws IOException {
+        if (currentCsv == null) {
+            currentBytes = new ByteArrayOutputStream();
+            currentGzip = new GZIPOutputStream(currentBytes);
+            currentCsv = new CSVExportOutputStream(currentGzip);
+            currentCsv.newTable(currentTableName, currentColumns);
+        }
+
+        currentCsv.write(row);
+        currentRows++;
+        if (currentRows >= chunkSize) {
+            flushChunk();
+        }
+    }
+
+    /**
+     * Hand over the pending rows of the current table, if any
+     */
+    public void flushChunk() throws IOException {
+        if (currentCsv == null) {
+            return;
+        }
+
+        currentGzip.finish();
+        final byte[] chunk = currentBytes.toByteArray();
+        currentCsv = null;
+        currentGzip = null;
+        currentBytes = null;
+        currentRows = 0;
+
+        chunkConsumer.accept(chunk);
+    }
+}
@@ -17,16 +17,28 @@
 package org.killbill.billing.util.export.dao;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.sql.Blob;
 import java.sql.Clob;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.UUID;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -37,12 +49,16 @@ import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.validation.DefaultColumnInfo;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
 import org.skife.jdbi.v2.Handle;
+import org.killbill.commons.concurrent.Executors;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.Query;
 import org.skife.jdbi.v2.ResultIterator;
 import org.skife.jdbi.v2.tweak.HandleCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
+
 @Singleton
 public class DatabaseExportDao {
 
@@ -50,16 +66,21 @@ public class DatabaseExportDao {
 
     private final DatabaseSchemaDao databaseSchemaDao;
 
+    private static final String RECORD_ID_COLUMN_NAME = "record_id";
+
     private final ExportConfig exportConfig;
     private final IDBI dbi;
+    private final IDBI roDbi;
 
     @Inject
     public DatabaseExportDao(final DatabaseSchemaDao databaseSchemaDao,
                              final ExportConfig exportConfig,
-                             final IDBI dbi) {
+                             final IDBI dbi,
+                             @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi) {
         this.databaseSchemaDao = databaseSchemaDao;
         this.exportConfig = exportConfig;
         this.dbi = dbi;
+        this.roDbi = roDbi;
     }
 
     private enum TableType {
@@ -99,163 +120,379 @@ public class DatabaseExportDao {
             return;
         }
 
+        for (final TableExport tableExport : getTableExports()) {
+            if (!tableExport.isAccountTable()) {
+                continue;
+            }
+
+            // Notify the stream that we're about to write data for a different table
+            out.newTable(tableExport.tableName, tableExport.columns);
+            dbi.withHandle(new HandleCallback<Void>() {
+                @Override
+                public Void withHandle(final Handle handle) throws Exception {
+                    final Query<Map<String, Object>> query = handle.createQuery(tableExport.getAccountQuery());
+                    bindAccount(query, tableExport, accountId, tenantId, context);
+                    exportRows(query, tableExport, out);
+                    return null;
+                }
+            });
+        }
+    }
+
+    /**
+     * Streaming variant of exportDataForAccount: tables are exported concurrently on the read-only database, using
+     * server-side cursors, and written as gzip chunks (see CompressedChunkExportOutputStream) as soon as they are ready.
+     */
+    public void exportCompressedDataForAccount(final OutputStream out, final UUID accountId, final UUID tenantId, final InternalTenantContext context) throws IOException {
+        if (context.getAccountRecordId() == null || context.getTenantRecordId() == null) {
+            return;
+        }
+
+        final List<TableExport> tableExports = new LinkedList<TableExport>();
+        for (final TableExport tableExport : getTableExports()) {
+            if (tableExport.isAccountTable()) {
+                tableExports.add(tableExport);
+            }
+        }
+        if (tableExports.isEmpty()) {
+            return;
+        }
+
+        final int nbThreads = Math.max(1, Math.min(exportConfig.getExportThreads(), tableExports.size()));
+        // Bounded, to limit the memory used when the client is slower than the database
+        final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(2 * nbThreads);
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads, DatabaseExportDao.class.getName());
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>(tableExports.size());
+            for (final TableExport tableExport : tableExports) {
+                futures.add(executor.submit(() -> {
+                    final CompressedChunkExportOutputStream tableOut = new CompressedChunkExportOutputStream(exportConfig.getExportChunkSize(), chunk -> putChunk(chunks, chunk));
+                    tableOut.newTable(tableExport.tableName, tableExport.columns);
+                    roDbi.withHandle(new HandleCallback<Void>() {
+                        @Override
+                        public Void withHandle(final Handle handle) throws Exception {
+                            final Query<Map<String, Object>> query = handle.createQuery(tableExport.getAccountQuery());
+                            bindAccount(query, tableExport, accountId, tenantId, context);
+                            exportRowsWithCursor(handle, query, tableExport, tableOut);
+                            return null;
+                        }
+                    });
+                    tableOut.flushChunk();
+                    return null;
+                }));
+            }
+
+            writeChunks(chunks, futures, out);
+        } finally {
+            // Interrupt the producers if we stopped early (e.g. the client went away)
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Export the data of all the accounts of the tenant (and the tenant level data), as gzip chunks of at most
+     * org.killbill.export.chunkSize rows. Tables are exported in alphabetical order and rows in record_id order, so an
+     * interrupted export can be resumed from the last (tableName, record_id) received.
+     */
+    public void exportCompressedDataForTenant(final OutputStream out,
+                                              @Nullable final String fromTableName,
+                                              @Nullable final Long fromRecordId,
+                                              final UUID tenantId,
+                                              final InternalTenantContext context) throws IOException {
+        if (context.getTenantRecordId() == null) {
+            return;
+        }
+
+        final int chunkSize = exportConfig.getExportChunkSize();
+        final CompressedChunkExportOutputStream tableOut = new CompressedChunkExportOutputStream(chunkSize, chunk -> {
+            out.write(chunk);
+            out.flush();
+        });
+
+        for (final TableExport tableExport : getTableExports()) {
+            if (!tableExport.isTenantTable() ||
+                (fromTableName != null && tableExport.tableName.compareToIgnoreCase(fromTableName) < 0)) {
+                continue;
+            }
+
+            long lastRecordId = fromTableName != null && fromRecordId != null && tableExport.tableName.equalsIgnoreCase(fromTableName) ? fromRecordId : -1L;
+            tableOut.newTable(tableExport.tableName, tableExport.columns);
+            while (true) {
+                // Keyset pagination: each page is a short query, no connection is held while the chunk is sent
+                final long pageFromRecordId = lastRecordId;
+                final Long pageLastRecordId = roDbi.withHandle(new HandleCallback<Long>() {
+                    @Override
+                    public Long withHandle(final Handle handle) throws Exception {
+                        final Query<Map<String, Object>> query = handle.createQuery(tableExport.getTenantQuery())
+                                                                       .bind("tenantRecordId", tableExport.tableType == TableType.EXTRA ? tenantId : context.getTenantRecordId())
+                                                                       .bind("fromRecordId", pageFromRecordId)
+                                                                       .bind("limit", chunkSize);
+                        return exportRows(query, tableExport, tableOut);
+                    }
+                });
+                tableOut.flushChunk();
+
+                if (pageLastRecordId == null) {
+                    break;
+                }
+                lastRecordId = pageLastRecordId;
+            }
+        }
+    }
+
+    private List<TableExport> getTableExports() {
+        final List<TableExport> tableExports = new LinkedList<TableExport>();
+
         final List<DefaultColumnInfo> columns = databaseSchemaDao.getColumnInfoList();
         if (columns.size() == 0) {
-            return;
+            return tableExports;
         }
 
-        final List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
+        List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
         // Separate lookup table, to keep the ordering of the columns
-        final Map<String, Integer> columnsLookup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER); // Ignore casing (for H2)
+        Map<String, Integer> columnsLookup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER); // Ignore casing (for H2)
 
         // The list of columns is ordered by table name first
         String lastSeenTableName = columns.get(0).getTableName();
         int j = 0;
         for (final ColumnInfo column : columns) {
             if (!column.getTableName().equals(lastSeenTableName)) {
-                exportDataForAccountAndTable(out, columnsForTable, columnsLookup, accountId, tenantId, context);
+                tableExports.add(new TableExport(columnsForTable, columnsLookup));
                 lastSeenTableName = column.getTableName();
-                columnsForTable.clear();
-                columnsLookup.clear();
+                columnsForTable = new ArrayList<ColumnInfo>();
+                columnsLookup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
                 j = 0;
             }
             columnsForTable.add(column);
             columnsLookup.put(column.getColumnName(), j);
             j++;
         }
-        exportDataForAccountAndTable(out, columnsForTable, columnsLookup, accountId, tenantId, context);
+        tableExports.add(new TableExport(columnsForTable, columnsLookup));
+
+        return tableExports;
     }
 
+    private void bindAccount(final Query<Map<String, Object>> query, final TableExport tableExport, final UUID accountId, final UUID tenantId, final InternalTenantContext context) {
+        query.bind("accountRecordId", tableExport.tableType == TableType.EXTRA ? accountId : context.getAccountRecordId())
+             .bind("tenantRecordId", tableExport.tableType == TableType.EXTRA ? tenantId : context.getTenantRecordId());
+    }
 
-    private void exportDataForAccountAndTable(final DatabaseExportOutputStream out,
-                                              final List<ColumnInfo> columnsForTable,
-                                              final Map<String, Integer> columnsLookup,
-                                              final UUID accountId,
-                                              final UUID tenantId,
-                                              final InternalTenantContext context) {
+    private void exportRowsWithCursor(final Handle handle, final Query<Map<String, Object>> query, final TableExport tableExport, final DatabaseExportOutputStream out) throws Exception {
+        final boolean isMySQL = isMySQL(handle);
+        // MySQL only streams rows with the Integer.MIN_VALUE hint, PostgreSQL only uses cursors outside of auto-commit
+        query.setFetchSize(isMySQL ? Integer.MIN_VALUE : exportConfig.getExportFetchSize());
+        handle.begin();
+        try {
+            exportRows(query, tableExport, out);
+        } finally {
+            handle.rollback();
+        }
+    }
 
+    private boolean isMySQL(final Handle handle) throws SQLException {
+        final String databaseProductName = handle.getConnection().getMetaData().getDatabaseProductName();
+        return databaseProductName != null && (databaseProductName.contains("MySQL") || databaseProductName.contains("MariaDB"));
+    }
 
-        TableType tableType = TableType.OTHER;
-        final String tableName = columnsForTable.get(0).getTableName();
+    // Returns the record_id of the last row exported, if any
+    private Long exportRows(final Query<Map<String, Object>> query, final TableExport tableExport, final DatabaseExportOutputStream out) throws Exception {
+        Long lastRecordId = null;
+        final ResultIterator<Map<String, Object>> iterator = query.iterator();
+        try {
+            while (iterator.hasNext()) {
+                final Map<String, Object> row = iterator.next();
+
+                for (final Entry<String, Object> entry : row.entrySet()) {
+                    final String k = entry.getKey();
+                    final Object value = entry.getValue();
+                    // For h2, transform a JdbcBlob and a JdbcClob into a byte[]
+                    // See also LowerToCamelBeanMapper
+                    if (value instanceof Blob) {
+                        final Blob blob = (Blob) value;
+                        row.put(k, blob.getBytes(1, (int) blob.length()));
+                    } else if (value instanceof Clob) {
+                        // TODO Update LowerToCamelBeanMapper?
+                        final Clob clob = (Clob) value;
+                        row.put(k, clob.getSubString(1, (int) clob.length()));
+                    } else if (value != null &&
+                               tableExport.columnsLookup.get(k) != null &&
+                               tableExport.columns.get(tableExport.columnsLookup.get(k)) != null &&
+                               "boolean".equals(tableExport.columns.get(tableExport.columnsLookup.get(k)).getDataType())) {
+                        row.put(k, value instanceof Boolean ? value : "1".equals(value.toString())); // Most likely Byte
+                    }
 
-        // Ignore casing (for H2)
-        if (TableName.ACCOUNT.getTableName().equalsIgnoreCase(tableName)) {
-            tableType = TableType.KB_ACCOUNT;
-        } else if (TableName.ACCOUNT_HISTORY.getTableName().equalsIgnoreCase(tableName)) {
-            tableType = TableType.KB_ACCOUNT_HISTORY;
-        } else if(exportConfig.getExtraTablesPrefix() != null && !exportConfig.getExtraTablesPrefix().isEmpty() && exportConfig.getExtraTablesPrefix().stream().anyMatch(prefix -> tableName.toLowerCase().startsWith(prefix))) {
-            tableType = TableType.EXTRA;
-        }
-        boolean accountIdColPresent = false;
-        boolean tenantIdColPresent = false;
-
-        boolean firstColumn = true;
-        final StringBuilder queryBuilder = new StringBuilder("select ");
-        for (final ColumnInfo column : columnsForTable) {
-            if (!firstColumn) {
-                queryBuilder.append(", ");
-            } else {
-                firstColumn = false;
+                    if (RECORD_ID_COLUMN_NAME.equalsIgnoreCase(k) && value instanceof Number) {
+                        lastRecordId = ((Number) value).longValue();
+                    }
+                }
+
+                try {
+                    out.write(row);
+                } catch (final IOException e) {
+                    logger.warn("Unable to write row: {}", row, e);
+                    throw e;
+                }
             }
+        } finally {
+            iterator.close();
+        }
+        return lastRecordId;
+    }
 
-            queryBuilder.append(column.getColumnName());
+    private static void putChunk(final BlockingQueue<byte[]> chunks, final byte[] chunk) throws IOException {
+        try {
+            chunks.put(chunk);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting");
+        }
+    }
 
-            if (tableType == TableType.OTHER || tableType == TableType.EXTRA) {
-                // Ignore casing (for H2)
-                if (column.getColumnName().equalsIgnoreCase(TableType.KB_PER_ACCOUNT.getAccountRecordIdColumnName())) {
-                    tableType = TableType.KB_PER_ACCOUNT;
-                } else if (column.getColumnName().equalsIgnoreCase(TableType.NOTIFICATION.getAccountRecordIdColumnName())) {
-                    tableType = TableType.NOTIFICATION;
+    private static void writeChunks(final BlockingQueue<byte[]> chunks, final List<Future<Void>> futures, final OutputStream out) throws IOException {
+        try {
+            while (true) {
+                byte[] chunk = chunks.poll(100, TimeUnit.MILLISECONDS);
+                if (chunk != null) {
+                    out.write(chunk);
+                    out.flush();
+                    continue;
                 }
-            }
 
-            if(!tenantIdColPresent && column.getColumnName().equalsIgnoreCase(tableType.getTenantRecordIdColumnName())) {
-                tenantIdColPresent = true;
+                boolean allDone = true;
+                for (final Future<Void> future : futures) {
+                    if (!future.isDone()) {
+                        allDone = false;
+                    } else {
+                        // Surface failures right away
+                        future.get();
+                    }
+                }
+
+                if (allDone) {
+                    while ((chunk = chunks.poll()) != null) {
+                        out.write(chunk);
+                    }
+                    out.flush();
+                    return;
+                }
             }
-            if(!accountIdColPresent && column.getColumnName().equalsIgnoreCase(tableType.getAccountRecordIdColumnName())) {
-                accountIdColPresent = true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new RuntimeException(e.getCause());
             }
         }
+    }
 
-        if(!accountIdColPresent || !tenantIdColPresent) {
-            return;
+    private final class TableExport {
+
+        private final String tableName;
+        private final List<ColumnInfo> columns;
+        private final Map<String, Integer> columnsLookup;
+
+        private TableType tableType = TableType.OTHER;
+        private boolean accountIdColPresent = false;
+        private boolean tenantIdColPresent = false;
+        private final String selectClause;
+
+        private TableExport(final List<ColumnInfo> columnsForTable, final Map<String, Integer> columnsLookup) {
+            this.tableName = columnsForTable.get(0).getTableName();
+            this.columns = columnsForTable;
+            this.columnsLookup = columnsLookup;
+
+            // Ignore casing (for H2)
+            if (TableName.ACCOUNT.getTableName().equalsIgnoreCase(tableName)) {
+                tableType = TableType.KB_ACCOUNT;
+            } else if (TableName.ACCOUNT_HISTORY.getTableName().equalsIgnoreCase(tableName)) {
+                tableType = TableType.KB_ACCOUNT_HISTORY;
+            } else if(exportConfig.getExtraTablesPrefix() != null && !exportConfig.getExtraTablesPrefix().isEmpty() && exportConfig.getExtraTablesPrefix().stream().anyMatch(prefix -> tableName.toLowerCase().startsWith(prefix))) {
+                tableType = TableType.EXTRA;
+            }
+
+            boolean firstColumn = true;
+            final StringBuilder queryBuilder = new StringBuilder("select ");
+            for (final ColumnInfo column : columnsForTable) {
+                if (!firstColumn) {
+                    queryBuilder.append(", ");
+                } else {
+                    firstColumn = false;
+                }
+
+                queryBuilder.append(column.getColumnName());
+
+                if (tableType == TableType.OTHER || tableType == TableType.EXTRA) {
+                    // Ignore casing (for H2)
+                    if (column.getColumnName().equalsIgnoreCase(TableType.KB_PER_ACCOUNT.getAccountRecordIdColumnName())) {
+                        tableType = TableType.KB_PER_ACCOUNT;
+                    } else if (column.getColumnName().equalsIgnoreCase(TableType.NOTIFICATION.getAccountRecordIdColumnName())) {
+                        tableType = TableType.NOTIFICATION;
+                    }
+                }
+
+                if(!tenantIdColPresent && column.getColumnName().equalsIgnoreCase(tableType.getTenantRecordIdColumnName())) {
+                    tenantIdColPresent = true;
+                }
+                if(!accountIdColPresent && column.getColumnName().equalsIgnoreCase(tableType.getAccountRecordIdColumnName())) {
+                    accountIdColPresent = true;
+                }
+            }
+            queryBuilder.append(" from ")
+                        .append(tableName);
+            this.selectClause = queryBuilder.toString();
         }
+
         // Don't export non-account specific tables
-        if (tableType == TableType.OTHER) {
-            return;
+        private boolean isAccountTable() {
+            return accountIdColPresent && tenantIdColPresent && tableType != TableType.OTHER;
         }
 
-        if (tableType == TableType.EXTRA) {
-
-            queryBuilder.append(" from ")
-                        .append(tableName)
-                        .append(" where ")
-                        .append(tableType.getTenantRecordIdColumnName())
-                        .append("  = :tenantRecordId and (")
-                        .append(tableType.getAccountRecordIdColumnName())
-                        .append(" = :accountRecordId OR ")
-                        .append(tableType.getAccountRecordIdColumnName()) //TODO_354 - Custom logic for aviate_catalog, to include tenant level entries when accountId is null
-                        .append(" is null)")
-            ;
-
-        } else {
-
-            // Build the query - make sure to filter by account and tenant!
-            queryBuilder.append(" from ")
-                        .append(tableName)
-                        .append(" where ")
-                        .append(tableType.getAccountRecordIdColumnName())
-                        .append(" = :accountRecordId and ")
-                        .append(tableType.getTenantRecordIdColumnName())
-                        .append("  = :tenantRecordId");
+        // Tenant level tables (e.g. tenant_kvs) don't have any account column, but are part of the tenant export
+        private String getTenantColumnName() {
+            if (tableType != TableType.OTHER) {
+                return tenantIdColPresent ? tableType.getTenantRecordIdColumnName() : null;
+            } else {
+                return columnsLookup.containsKey(TableType.KB_PER_ACCOUNT.getTenantRecordIdColumnName()) ? TableType.KB_PER_ACCOUNT.getTenantRecordIdColumnName() : null;
+            }
         }
 
-        // Notify the stream that we're about to write data for a different table
-        out.newTable(tableName, columnsForTable);
-        final TableType finalTableType = tableType;
-        dbi.withHandle(new HandleCallback<Void>() {
-            @Override
-            public Void withHandle(final Handle handle) throws Exception {
-                final ResultIterator<Map<String, Object>> iterator = handle.createQuery(queryBuilder.toString())
-                                                                           .bind("accountRecordId", finalTableType == TableType.EXTRA ? accountId : context.getAccountRecordId())
-                                                                           .bind("tenantRecordId", finalTableType == TableType.EXTRA ? tenantId : context.getTenantRecordId())
-                                                                           .iterator();
-                try {
-                    while (iterator.hasNext()) {
-                        final Map<String, Object> row = iterator.next();
-
-                        for (final Entry<String, Object> entry : row.entrySet()) {
-                            final String k = entry.getKey();
-                            final Object value = entry.getValue();
-                            // For h2, transform a JdbcBlob and a JdbcClob into a byte[]
-                            // See also LowerToCamelBeanMapper
-                            if (value instanceof Blob) {
-                                final Blob blob = (Blob) value;
-                                row.put(k, blob.getBytes(1, (int) blob.length()));
-                            } else if (value instanceof Clob) {
-                                // TODO Update LowerToCamelBeanMapper?
-                                final Clob clob = (Clob) value;
-                                row.put(k, clob.getSubString(1, (int) clob.length()));
-                            } else if (value != null &&
-                                       columnsLookup.get(k) != null &&
-                                       columnsForTable.get(columnsLookup.get(k)) != null &&
-                                       "boolean".equals(columnsForTable.get(columnsLookup.get(k)).getDataType())) {
-                                row.put(k, value instanceof Boolean ? value : "1".equals(value.toString())); // Most likely Byte
-                            }
-                        }
+        private boolean isTenantTable() {
+            return getTenantColumnName() != null && columnsLookup.containsKey(RECORD_ID_COLUMN_NAME);
+        }
 
-                        try {
-                            out.write(row);
-                        } catch (final IOException e) {
-                            logger.warn("Unable to write row: {}", row, e);
-                            throw e;
-                        }
-                    }
-                } finally {
-                    iterator.close();
-                }
-                return null;
+        private String getAccountQuery() {
+            final StringBuilder queryBuilder = new StringBuilder(selectClause);
+            if (tableType == TableType.EXTRA) {
+                queryBuilder.append(" where ")
+                            .append(tableType.getTenantRecordIdColumnName())
+                            .append("  = :tenantRecordId and (")
+                            .append(tableType.getAccountRecordIdColumnName())
+                            .append(" = :accountRecordId OR ")
+                            .append(tableType.getAccountRecordIdColumnName()) //TODO_354 - Custom logic for aviate_catalog, to include tenant level entries when accountId is null
+                            .append(" is null)")
+                ;
+            } else {
+                // Build the query - make sure to filter by account and tenant!
+                queryBuilder.append(" where ")
+                            .append(tableType.getAccountRecordIdColumnName())
+                            .append(" = :accountRecordId and ")
+                            .append(tableType.getTenantRecordIdColumnName())
+                            .append("  = :tenantRecordId");
             }
-        });
+            return queryBuilder.toString();
+        }
+
+        private String getTenantQuery() {
+            return selectClause +
+                   " where " + getTenantColumnName() + " = :tenantRecordId" +
+                   " and " + RECORD_ID_COLUMN_NAME + " > :fromRecordId" +
+                   " order by " + RECORD_ID_COLUMN_NAME +
+                   " limit :limit";
+        }
     }
 }
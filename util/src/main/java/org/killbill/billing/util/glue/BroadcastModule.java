@@ -24,6 +24,7 @@ import org.killbill.billing.util.broadcast.DefaultBroadcastApi;
 import org.killbill.billing.util.broadcast.DefaultBroadcastService;
 import org.killbill.billing.util.broadcast.dao.BroadcastDao;
 import org.killbill.billing.util.broadcast.dao.DefaultBroadcastDao;
+import org.killbill.billing.util.cache.NearCacheInvalidationListener;
 import org.killbill.billing.util.config.definition.BroadcastConfig;
 import org.skife.config.AugmentedConfigurationObjectFactory;
 
@@ -41,6 +42,7 @@ public class BroadcastModule extends KillBillModule {
 
         bind(BroadcastService.class).to(DefaultBroadcastService.class).asEagerSingleton();
         bind(BroadcastApi.class).to(DefaultBroadcastApi.class).asEagerSingleton();
+        bind(NearCacheInvalidationListener.class).asEagerSingleton();
     }
 
     @Override
@@ -21,6 +21,7 @@ package org.killbill.billing.util.glue;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.api.ExportUserApi;
 import org.killbill.billing.util.config.definition.ExportConfig;
+import org.killbill.billing.util.export.StreamingExportUserApi;
 import org.killbill.billing.util.export.api.DefaultExportUserApi;
 import org.skife.config.AugmentedConfigurationObjectFactory;
 
@@ -34,9 +35,14 @@ public class ExportModule extends KillBillModule {
         bind(ExportUserApi.class).to(DefaultExportUserApi.class).asEagerSingleton();
     }
 
+    protected void installStreamingExportUserApi() {
+        bind(StreamingExportUserApi.class).to(DefaultExportUserApi.class).asEagerSingleton();
+    }
+
     @Override
     protected void configure() {
         installUserApi();
+        installStreamingExportUserApi();
         installConfig();
     }
 
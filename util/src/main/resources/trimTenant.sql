@@ -40,6 +40,7 @@ BEGIN
     DELETE FROM invoice_item_history WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM invoice_items WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM invoice_parent_children WHERE tenant_record_id = v_tenant_record_id;
+    DELETE FROM unpaid_invoices_summaries WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM invoice_payment_history WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM invoice_payments WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM invoice_history WHERE tenant_record_id = v_tenant_record_id;
@@ -57,9 +58,12 @@ BEGIN
     DELETE FROM payment_method_history WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM payment_methods WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM payment_transaction_history WHERE tenant_record_id = v_tenant_record_id;
+    DELETE FROM account_payment_summaries WHERE tenant_record_id = v_tenant_record_id;
+    DELETE FROM account_payment_summary_accounts WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM payment_transactions WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM payments WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM rolled_up_usage WHERE tenant_record_id = v_tenant_record_id;
+    DELETE FROM rolled_up_usage_aggregates WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM subscription_event_history WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM subscription_events WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM subscription_history WHERE tenant_record_id = v_tenant_record_id;
@@ -34,10 +34,14 @@ import org.killbill.billing.util.audit.AccountAuditLogsForObjectType;
 import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.dao.TableName;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
 import org.killbill.billing.util.tag.dao.TagModelDao;
+import org.killbill.billing.util.tag.dao.TagSqlDao;
 
 public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
 
@@ -91,6 +95,37 @@ public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
         Assert.assertEquals(secondAuditLogs.get(1).getChangeType(), ChangeType.DELETE);
     }
 
+    @Test(groups = "slow")
+    public void testHistoryAndAuditsForMultipleCallsInTransaction() throws Exception {
+        final UUID tagDefinitionId = UUID.randomUUID();
+        final TagModelDao firstTag = new TagModelDao(new DescriptiveTag(tagDefinitionId, ObjectType.ACCOUNT, UUID.randomUUID(), clock.getUTCNow()));
+        final TagModelDao secondTag = new TagModelDao(new DescriptiveTag(tagDefinitionId, ObjectType.ACCOUNT, UUID.randomUUID(), clock.getUTCNow()));
+
+        // History and audit rows are written at commit time: the ordering needs to be preserved across calls
+        final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, controlCacheDispatcher, nonEntityDao, internalCallContextFactory);
+        transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final TagSqlDao tagSqlDao = entitySqlDaoWrapperFactory.become(TagSqlDao.class);
+                tagSqlDao.create(firstTag, internalCallContext);
+                // Single entity batch: the entity is re-read, so database defaults are part of the history row
+                tagSqlDao.create(List.of(secondTag), internalCallContext);
+                tagSqlDao.markTagAsDeleted(firstTag.getId().toString(), internalCallContext);
+                return null;
+            }
+        });
+
+        final List<AuditLog> firstTagAuditLogs = auditDao.getAuditLogsForId(TableName.TAG, firstTag.getId(), AuditLevel.FULL, internalCallContext);
+        Assert.assertEquals(firstTagAuditLogs.size(), 2);
+        Assert.assertEquals(firstTagAuditLogs.get(0).getChangeType(), ChangeType.INSERT);
+        Assert.assertEquals(firstTagAuditLogs.get(1).getChangeType(), ChangeType.DELETE);
+
+        final List<AuditLog> secondTagAuditLogs = auditDao.getAuditLogsForId(TableName.TAG, secondTag.getId(), AuditLevel.FULL, internalCallContext);
+        Assert.assertEquals(secondTagAuditLogs.size(), 1);
+        Assert.assertEquals(secondTagAuditLogs.get(0).getChangeType(), ChangeType.INSERT);
+        Assert.assertEquals(secondTagAuditLogs.get(0).getUserName(), internalCallContext.getCreatedBy());
+    }
+
     private void addTag() throws TagDefinitionApiException, TagApiException {
         // Create a tag definition
         eventsListener.pushExpectedEvent(NextEvent.TAG_DEFINITION);
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020-2026 Equinix, Inc
+ * Copyright 2014-2026 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestNearCacheController extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testHitsMissesAndInvalidation() {
+        final AtomicInteger loads = new AtomicInteger();
+        final CacheController<String, Long> sharedCacheController = new NoOpCacheController<String, Long>(new BaseCacheLoader<String, Long>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.RECORD_ID;
+            }
+
+            @Override
+            public Long compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                return (long) loads.incrementAndGet();
+            }
+        });
+
+        final List<Object> publishedInvalidations = new ArrayList<Object>();
+        final NearCacheController<String, Long> nearCacheController = new NearCacheController<String, Long>(sharedCacheController, 2, 1, TimeUnit.HOURS);
+        nearCacheController.setInvalidationPublisher((cacheType, key) -> publishedInvalidations.add(key));
+
+        final String key1 = UUID.randomUUID().toString();
+        final String key2 = UUID.randomUUID().toString();
+        final String key3 = UUID.randomUUID().toString();
+
+        Assert.assertEquals(nearCacheController.get(key1, null), Long.valueOf(1));
+        Assert.assertEquals(nearCacheController.get(key1, null), Long.valueOf(1));
+        Assert.assertEquals(nearCacheController.getHitCount(), 1);
+        Assert.assertEquals(nearCacheController.getMissCount(), 1);
+
+        // Evicts key1 (bounded local tier)
+        Assert.assertEquals(nearCacheController.get(key2, null), Long.valueOf(2));
+        Assert.assertEquals(nearCacheController.get(key3, null), Long.valueOf(3));
+        Assert.assertEquals(nearCacheController.getLocalSize(), 2);
+        Assert.assertEquals(nearCacheController.get(key1, null), Long.valueOf(4));
+
+        // Local removal is published to the other nodes
+        nearCacheController.remove(key3);
+        Assert.assertEquals(publishedInvalidations, List.of(key3));
+        Assert.assertEquals(nearCacheController.get(key3, null), Long.valueOf(5));
+
+        // Remote invalidation only drops the local entry
+        nearCacheController.invalidateLocal(key3);
+        Assert.assertEquals(publishedInvalidations.size(), 1);
+        Assert.assertEquals(nearCacheController.get(key3, null), Long.valueOf(6));
+
+        nearCacheController.removeAll();
+        Assert.assertEquals(nearCacheController.getLocalSize(), 0);
+        Assert.assertEquals(publishedInvalidations.size(), 2);
+        Assert.assertNull(publishedInvalidations.get(1));
+    }
+}
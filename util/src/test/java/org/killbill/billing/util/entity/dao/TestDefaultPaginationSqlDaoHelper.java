@@ -19,6 +19,7 @@ package org.killbill.billing.util.entity.dao;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import org.killbill.billing.util.dao.KombuchaSqlDao;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.commons.utils.collect.Iterators;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -145,6 +147,67 @@ public class TestDefaultPaginationSqlDaoHelper extends UtilTestSuiteWithEmbedded
         listAndValidateKombuchas(0L, 2L, 1L, 8L, null, 0L, 2L, false);
     }
 
+    @Test(groups = "slow")
+    public void testListKombuchasWithKeysetPagination() {
+        insertKombuchas(null);
+        insertKombuchas(2347L); //dummy accountRecordId
+
+        final DefaultPaginationSqlDaoHelper defaultPaginationSqlDaoHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao, 100L);
+        for (final Ordering ordering : Ordering.values()) {
+            final Long limit = ordering == Ordering.ASC ? 3L : -3L;
+            final List<KombuchaModelDao> expectedKombuchas = Iterators.toUnmodifiableList(listKombuchas(0L, 10L * limit, 100L).iterator());
+            Assert.assertEquals(expectedKombuchas.size(), 8);
+
+            final List<KombuchaModelDao> allKombuchas = new ArrayList<KombuchaModelDao>();
+            Long offset = 0L;
+            while (offset != null) {
+                final Pagination<KombuchaModelDao> pagination = listKombuchas(defaultPaginationSqlDaoHelper, offset, limit, true);
+                // Counts are carried over from the first page
+                Assert.assertEquals(pagination.getTotalNbRecords(), (Long) 8L);
+                Assert.assertEquals(pagination.getMaxNbRecords(), (Long) 8L);
+                Assert.assertEquals(pagination.getCurrentOffset(), offset);
+                allKombuchas.addAll(Iterators.toUnmodifiableList(pagination.iterator()));
+                closePagination(pagination);
+                offset = pagination.getNextOffset();
+            }
+
+            // Same results as the offset based pagination
+            Assert.assertEquals(allKombuchas.size(), expectedKombuchas.size());
+            for (int i = 0; i < allKombuchas.size(); i++) {
+                Assert.assertEquals(allKombuchas.get(i).getRecordId(), expectedKombuchas.get(i).getRecordId());
+            }
+        }
+        // One boundary per full page
+        Assert.assertEquals(defaultPaginationSqlDaoHelper.getNbKeysetBoundaries(), 4);
+    }
+
+    @Test(groups = "slow")
+    public void testListKombuchasWithExpiredKeysetBoundaries() {
+        insertKombuchas(null);
+
+        // Boundaries expire immediately
+        final DefaultPaginationSqlDaoHelper defaultPaginationSqlDaoHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao, 100L, 0L);
+        final List<KombuchaModelDao> expectedKombuchas = Iterators.toUnmodifiableList(listKombuchas(0L, 10L, 100L).iterator());
+        Assert.assertEquals(expectedKombuchas.size(), 4);
+
+        final List<KombuchaModelDao> allKombuchas = new ArrayList<KombuchaModelDao>();
+        Long offset = 0L;
+        while (offset != null) {
+            // Offset based pagination is used for all pages
+            final Pagination<KombuchaModelDao> pagination = listKombuchas(defaultPaginationSqlDaoHelper, offset, 3L, false);
+            allKombuchas.addAll(Iterators.toUnmodifiableList(pagination.iterator()));
+            closePagination(pagination);
+            offset = pagination.getNextOffset();
+        }
+
+        Assert.assertEquals(allKombuchas.size(), expectedKombuchas.size());
+        for (int i = 0; i < allKombuchas.size(); i++) {
+            Assert.assertEquals(allKombuchas.get(i).getRecordId(), expectedKombuchas.get(i).getRecordId());
+        }
+        // The boundary of the first page was dropped when looked up
+        Assert.assertEquals(defaultPaginationSqlDaoHelper.getNbKeysetBoundaries(), 0);
+    }
+
     private void listAndValidateKombuchas(final Long offset,
     									  final Long limit,
     									  final Long simplePaginationThreshold, 
@@ -253,6 +316,40 @@ public class TestDefaultPaginationSqlDaoHelper extends UtilTestSuiteWithEmbedded
                                                            internalCallContext);
     }
 
+    private Pagination<KombuchaModelDao> listKombuchas(final DefaultPaginationSqlDaoHelper defaultPaginationSqlDaoHelper, final Long offset, final Long limit, final boolean keysetExpected) {
+        final PaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>> paginationIteratorBuilder = new PaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>>() {
+            @Override
+            public Long getCount(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final InternalTenantContext context) {
+                return sqlDao.getCount(context);
+            }
+
+            @Override
+            public Iterator<KombuchaModelDao> build(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                if (keysetExpected) {
+                    // Keyset pagination should be used after the first page
+                    Assert.assertEquals(offset, (Long) 0L);
+                }
+                return sqlDao.get(offset, limit, "record_id", ordering.toString(), context);
+            }
+
+            @Override
+            public Iterator<KombuchaModelDao> buildAfterRecordId(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                return sqlDao.getAfterRecordId(lastRecordId, limit, ordering.toString(), ordering.getRecordIdComparator(), context);
+            }
+
+            @Override
+            public String getResultSetKey() {
+                return "get";
+            }
+        };
+
+        return defaultPaginationSqlDaoHelper.getPagination(KombuchaSqlDao.class,
+                                                           paginationIteratorBuilder,
+                                                           offset,
+                                                           limit,
+                                                           internalCallContext);
+    }
+
     private void insertKombuchas(final int nb) {
         Assert.assertTrue(nb <= kombuchas.size());
 
@@ -18,8 +18,17 @@
 
 package org.killbill.billing.util.export.dao;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.tweak.HandleCallback;
@@ -90,4 +99,88 @@ public class TestDatabaseExportDao extends TestDatabaseExportDaoBase {
 
     }
 
+    @Test(groups = "slow")
+    public void testExportCompressedData() throws Exception {
+        final UUID accountId = UUID.randomUUID();
+        final UUID tenantId = UUID.randomUUID();
+
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("drop table if exists " + tableNameA);
+                handle.execute("create table " + tableNameA + "(record_id serial unique," +
+                               "a_column char default 'a'," +
+                               "account_record_id bigint /*! unsigned */ not null," +
+                               "tenant_record_id bigint /*! unsigned */ not null default 0," +
+                               "primary key(record_id));");
+                handle.execute("drop table if exists " + tableNameB);
+                handle.execute("create table " + tableNameB + "(record_id serial unique," +
+                               "b_column char default 'b'," +
+                               "account_record_id bigint /*! unsigned */ not null," +
+                               "tenant_record_id bigint /*! unsigned */ not null default 0," +
+                               "primary key(record_id));");
+                for (int i = 0; i < 3; i++) {
+                    handle.execute("insert into " + tableNameA + " (account_record_id, tenant_record_id) values (?, ?)",
+                                   internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId());
+                }
+                handle.execute("insert into " + tableNameB + " (account_record_id, tenant_record_id) values (?, ?)",
+                               internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId());
+                return null;
+            }
+        });
+
+        // Tables are exported concurrently: same sections as the regular export, in any order
+        final ByteArrayOutputStream accountOut = new ByteArrayOutputStream();
+        dao.exportCompressedDataForAccount(accountOut, accountId, tenantId, internalCallContext);
+        final List<String> compressedSections = getSections(gunzip(accountOut.toByteArray()));
+        final List<String> expectedSections = getSections(getDump(accountId, tenantId));
+        Collections.sort(compressedSections);
+        Collections.sort(expectedSections);
+        Assert.assertEquals(compressedSections, expectedSections);
+
+        final String sectionA = "-- " + tableNameA + " record_id|a_column|account_record_id|tenant_record_id\n" +
+                                "1|a|" + internalCallContext.getAccountRecordId() + "|" + internalCallContext.getTenantRecordId() + "\n" +
+                                "2|a|" + internalCallContext.getAccountRecordId() + "|" + internalCallContext.getTenantRecordId() + "\n" +
+                                "3|a|" + internalCallContext.getAccountRecordId() + "|" + internalCallContext.getTenantRecordId() + "\n";
+        final ByteArrayOutputStream tenantOut = new ByteArrayOutputStream();
+        dao.exportCompressedDataForTenant(tenantOut, null, null, tenantId, internalCallContext);
+        Assert.assertTrue(getSections(gunzip(tenantOut.toByteArray())).contains(sectionA));
+
+        // Resume after the first row of table A
+        final ByteArrayOutputStream resumedTenantOut = new ByteArrayOutputStream();
+        dao.exportCompressedDataForTenant(resumedTenantOut, tableNameA, 1L, tenantId, internalCallContext);
+        final List<String> resumedSections = getSections(gunzip(resumedTenantOut.toByteArray()));
+        Assert.assertEquals(resumedSections.get(0), "-- " + tableNameA + " record_id|a_column|account_record_id|tenant_record_id\n" +
+                                                    "2|a|" + internalCallContext.getAccountRecordId() + "|" + internalCallContext.getTenantRecordId() + "\n" +
+                                                    "3|a|" + internalCallContext.getAccountRecordId() + "|" + internalCallContext.getTenantRecordId() + "\n");
+        Assert.assertTrue(resumedSections.contains("-- " + tableNameB + " record_id|b_column|account_record_id|tenant_record_id\n" +
+                                                   "1|b|" + internalCallContext.getAccountRecordId() + "|" + internalCallContext.getTenantRecordId() + "\n"));
+    }
+
+    private String gunzip(final byte[] compressed) throws IOException {
+        // Concatenated gzip members are transparently decompressed
+        try (final InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private List<String> getSections(final String dump) {
+        final List<String> sections = new ArrayList<String>();
+        StringBuilder currentSection = null;
+        for (final String line : dump.split("\n")) {
+            if (line.startsWith("-- ")) {
+                if (currentSection != null) {
+                    sections.add(currentSection.toString());
+                }
+                currentSection = new StringBuilder();
+            }
+            if (currentSection != null) {
+                currentSection.append(line).append("\n");
+            }
+        }
+        if (currentSection != null) {
+            sections.add(currentSection.toString());
+        }
+        return sections;
+    }
 }